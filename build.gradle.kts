@@ -37,6 +37,7 @@ val lowestBundledJunitVersion = "5.10.0"
 val pluginName: String by project
 // $pluginName does not always get resolved without this trick, is there a better way?
 val pluginNameAsString = "$pluginName"
+val pitListenerJarName = "pitest-idea-listener.jar"
 
 // Expose useful constants from this file in Java code by generating a Java source file.
 val generateConstants by tasks.registering {
@@ -56,6 +57,7 @@ val generateConstants by tasks.registering {
                 public static final String JUNIT_PLATFORM_VERSION = "$junitPlatformVersion";
                 public static final String JUNIT_BUNDLED_VERSION = "$junitVersion";
                 public static final String LOWEST_BUNDLED_JUNIT_VERSION = "$lowestBundledJunitVersion";
+                public static final String PIT_LISTENER_JAR = "$pitListenerJarName";
                 
                 private PluginVersions() {}
             }
@@ -71,6 +73,46 @@ tasks.compileJava {
     dependsOn(generateConstants)
 }
 
+// Report parsing and scoring that depends on nothing from the IDE, so that reports can also be aggregated from the
+// command line or a build. It is compiled into the plugin like any other source.
+val core: SourceSet by sourceSets.creating
+
+sourceSets.main {
+    compileClasspath += core.output
+    runtimeClasspath += core.output
+}
+
+sourceSets.test {
+    compileClasspath += core.output
+    runtimeClasspath += core.output
+}
+
+tasks.jar {
+    from(core.output)
+}
+
+// Prints the scores of PIT reports without an IDE, e.g.
+//   ./gradlew aggregateReports --args="--source-root module/src/main/java path/to/reports"
+val aggregateReports by tasks.registering(JavaExec::class) {
+    group = "verification"
+    description = "Prints package and file scores aggregated from PIT mutations.xml reports"
+    classpath = core.runtimeClasspath
+    mainClass = "org.pitestidea.headless.AggregateReports"
+}
+
+// PIT result listener that runs inside the PIT process rather than the IDE, so it is built separately against PIT
+// and bundled alongside PIT. It must run on any JDK that PIT itself supports.
+val pitListener: SourceSet by sourceSets.creating
+
+tasks.named<JavaCompile>(pitListener.compileJavaTaskName) {
+    options.release = 11
+}
+
+val pitListenerJar by tasks.registering(Jar::class) {
+    archiveFileName = pitListenerJarName
+    from(pitListener.output)
+}
+
 // Create different Gradle configurations so that different versions of the same dependency can be resolved.
 // Otherwise, Gradle will only ever choose the latest version of a given dependency.
 // Note that creating configurations this way is deprecated and set to break in Gradle 9, but the suggested fix breaks now.
@@ -132,6 +174,7 @@ dependencies {
     }
     pitest182("org.pitest:pitest-junit5-plugin:1.2.2")
     pitest182("org.apache.commons:commons-text:1.10.0")
+    add(pitListener.compileOnlyConfigurationName, "org.pitest:pitest-entry:$pitVersion")
 
     // platform-launcher is not typically included by junit users, but this plugin needs it to invoke pitest
     junitPlatform113("org.junit.platform:junit-platform-launcher:1.13.1") {
@@ -162,6 +205,9 @@ tasks.prepareSandbox {
     from(pitest182) {
         into("$pluginNameAsString/lib/ifn-pitest")
     }
+    from(pitListenerJar) {
+        into("$pluginNameAsString/lib/ifn-pitest")
+    }
     from(junitPlatform113) {
         into("$pluginNameAsString/lib/ifc-junit-jupiter-api/5.13.0")
     }
@@ -252,6 +298,13 @@ tasks {
 
     test {
         useJUnitPlatform()
+
+        // Pass through opt-in test settings, e.g. -Dpitidea.benchmark=true to run benchmarks
+        val pitIdeaProperties = providers.systemPropertiesPrefixedBy("pitidea.").get()
+        systemProperties(pitIdeaProperties)
+        if (pitIdeaProperties["pitidea.benchmark"] == "true") {
+            maxHeapSize = "2g"
+        }
     }
 }
 
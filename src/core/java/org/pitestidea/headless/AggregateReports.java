@@ -0,0 +1,84 @@
+package org.pitestidea.headless;
+
+import org.pitestidea.reader.InvalidMutatedFileException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+/**
+ * Command-line entry point that prints the scores of any number of PIT reports, e.g. those written for each
+ * module of a build, without an IDE:
+ *
+ * <pre>
+ *   AggregateReports [--source-root dir]... (mutations.xml | dir)...
+ * </pre>
+ *
+ * Directories are searched for mutations.xml files. If source roots are given, mutations of files not found
+ * in any of them are left out and the files are listed on stderr, as the plugin does for reports that no
+ * longer match the project.
+ */
+public class AggregateReports {
+    private static final String REPORT_NAME = "mutations.xml";
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        List<Path> sourceRoots = new ArrayList<>();
+        List<File> reports = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if ("--source-root".equals(args[i]) && i + 1 < args.length) {
+                sourceRoots.add(Path.of(args[++i]));
+            } else if (args[i].startsWith("-")) {
+                usage("Unknown option " + args[i]);
+                return;
+            } else {
+                addReports(Path.of(args[i]), reports);
+            }
+        }
+        if (reports.isEmpty()) {
+            usage("No " + REPORT_NAME + " reports found");
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(reports.size(), Runtime.getRuntime().availableProcessors()));
+        try {
+            ReportAggregator aggregator = ReportAggregator.aggregate(reports, new SourcePathResolver(sourceRoots), executor);
+            aggregator.print(System.out);
+            if (!aggregator.getMissingFiles().isEmpty()) {
+                System.err.println("The following files referenced by the reports were not found and are ignored:");
+                aggregator.getMissingFiles().forEach(file -> System.err.println("  " + file));
+            }
+        } catch (InvalidMutatedFileException e) {
+            System.err.println("Unable to read reports: " + e.getMessage());
+            System.exit(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Adds a report, or every report below a directory in a predictable order.
+     */
+    static void addReports(Path path, List<File> reports) throws IOException {
+        if (Files.isDirectory(path)) {
+            try (Stream<Path> found = Files.walk(path)) {
+                found.filter(p -> p.getFileName().toString().equals(REPORT_NAME) && Files.isRegularFile(p))
+                        .sorted()
+                        .forEach(p -> reports.add(p.toFile()));
+            }
+        } else {
+            reports.add(path.toFile());
+        }
+    }
+
+    private static void usage(String problem) {
+        System.err.println(problem);
+        System.err.println("Usage: AggregateReports [--source-root dir]... (" + REPORT_NAME + " | dir)...");
+        System.exit(2);
+    }
+}
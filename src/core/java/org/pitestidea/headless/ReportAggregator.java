@@ -0,0 +1,224 @@
+package org.pitestidea.headless;
+
+import org.pitestidea.model.BaseMutationsScore;
+import org.pitestidea.model.IMutationScore;
+import org.pitestidea.model.MutationImpact;
+import org.pitestidea.reader.InvalidMutatedFileException;
+import org.pitestidea.reader.MutationsXmlParser;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Totals the mutations of PIT reports by package and by file, the same scores as shown in the tool window,
+ * without the IDE. As there, each package counts the mutations of its subpackages as well as its own files.
+ * Each report is read into an aggregator of its own so that reports can be read in parallel, and the
+ * aggregators are then merged.
+ */
+public class ReportAggregator {
+    private final Score root = new Score(IMutationScore.ROOT_PACKAGE_NAME);
+    // Every package holding files and each of its ancestors, by qualified name
+    private final Map<String, Score> packages = new TreeMap<>();
+    private final Map<String, Map<String, Score>> files = new TreeMap<>();
+    private final Set<String> missingFiles = new LinkedHashSet<>();
+    private int reports = 0;
+
+    /**
+     * The score of a package, file or of everything.
+     */
+    public static class Score extends BaseMutationsScore {
+        private final String name;
+
+        private Score(String name) {
+            super(0, null);
+            this.name = name;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String getQualifiedName() {
+            return name;
+        }
+    }
+
+    /**
+     * Reads one report.
+     *
+     * @param report   mutations.xml file written by PIT
+     * @param resolver finds the source files the report references
+     * @return totals of the report
+     * @throws InvalidMutatedFileException if the report can't be read or parsed
+     */
+    public static ReportAggregator read(File report, SourcePathResolver resolver) throws InvalidMutatedFileException {
+        ReportAggregator aggregator = new ReportAggregator();
+        aggregator.reports = 1;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(report.toPath()))) {
+            MutationsXmlParser.parse(in, report, pending -> {
+                String pkg = pending.pkg();
+                String sourcePath = MutationsXmlParser.sourcePathOf(pkg, pending.sourceFile());
+                if (resolver.resolve(sourcePath) == null) {
+                    aggregator.missingFiles.add(sourcePath);
+                } else {
+                    aggregator.record(pkg, pending.sourceFile(), pending.impact(), pending.testsRun());
+                }
+            });
+        } catch (InvalidMutatedFileException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new InvalidMutatedFileException(e);
+        }
+        return aggregator;
+    }
+
+    /**
+     * Reads reports in parallel and totals them.
+     *
+     * @param reports  mutations.xml files written by PIT
+     * @param resolver finds the source files the reports reference
+     * @param executor to read reports on
+     * @return totals of every report
+     * @throws InvalidMutatedFileException if any report can't be read or parsed
+     */
+    public static ReportAggregator aggregate(List<File> reports, SourcePathResolver resolver, ExecutorService executor) throws InvalidMutatedFileException, InterruptedException {
+        List<Future<ReportAggregator>> futures = new ArrayList<>(reports.size());
+        for (File report : reports) {
+            futures.add(executor.submit(() -> read(report, resolver)));
+        }
+        ReportAggregator total = new ReportAggregator();
+        // Merged in the order given rather than as completed, so that output does not depend on timing
+        for (Future<ReportAggregator> future : futures) {
+            try {
+                total.merge(future.get());
+            } catch (ExecutionException e) {
+                futures.forEach(f -> f.cancel(true));
+                if (e.getCause() instanceof InvalidMutatedFileException invalid) {
+                    throw invalid;
+                }
+                throw new InvalidMutatedFileException(e);
+            }
+        }
+        return total;
+    }
+
+    private void record(String pkg, String fileName, MutationImpact impact, int testsRun) {
+        root.accountFor(impact, testsRun);
+        for (String ancestor = pkg; ancestor != null; ancestor = parentOf(ancestor)) {
+            packages.computeIfAbsent(ancestor, Score::new).accountFor(impact, testsRun);
+        }
+        files.computeIfAbsent(pkg, k -> new TreeMap<>()).computeIfAbsent(fileName, Score::new).accountFor(impact, testsRun);
+    }
+
+    /**
+     * @return qualified name of the package holding another, or null if it is top level
+     */
+    private static String parentOf(String pkg) {
+        int dot = pkg.lastIndexOf('.');
+        return dot < 0 ? null : pkg.substring(0, dot);
+    }
+
+    /**
+     * Adds the totals of another aggregator to this one.
+     *
+     * @param other to add, unchanged
+     */
+    public void merge(ReportAggregator other) {
+        root.accountFor(other.root);
+        other.packages.forEach((pkg, score) -> packages.computeIfAbsent(pkg, Score::new).accountFor(score));
+        other.files.forEach((pkg, pkgFiles) -> {
+            Map<String, Score> into = files.computeIfAbsent(pkg, k -> new TreeMap<>());
+            pkgFiles.forEach((fileName, score) -> into.computeIfAbsent(fileName, Score::new).accountFor(score));
+        });
+        missingFiles.addAll(other.missingFiles);
+        reports += other.reports;
+    }
+
+    public Score getRoot() {
+        return root;
+    }
+
+    /**
+     * @return scores of each package, including those of its subpackages, by package name
+     */
+    public Map<String, Score> getPackages() {
+        return Collections.unmodifiableMap(packages);
+    }
+
+    /**
+     * @return scores of each file in a package, by file name
+     */
+    public Map<String, Score> getFiles(String pkg) {
+        return Collections.unmodifiableMap(files.getOrDefault(pkg, Map.of()));
+    }
+
+    /**
+     * @return relative paths of source files referenced by the reports that could not be found
+     */
+    public Set<String> getMissingFiles() {
+        return Collections.unmodifiableSet(missingFiles);
+    }
+
+    public int getReportCount() {
+        return reports;
+    }
+
+    /**
+     * Prints the score of everything, then the tree of packages with the scores of each package's files and
+     * then its subpackages beneath it. As in the tool window, a package holding nothing but one subpackage is
+     * shown as one with it, e.g. "com" holding only "foo" is shown as "com.foo".
+     *
+     * @param out to print to
+     */
+    public void print(PrintStream out) {
+        printLine(out, "", root.getName(), root);
+        subpackagesOf(null).forEach(pkg -> printPackage(out, "  ", pkg, pkg));
+    }
+
+    private void printPackage(PrintStream out, String indent, String name, String pkg) {
+        List<String> subpackages = subpackagesOf(pkg);
+        Map<String, Score> pkgFiles = getFiles(pkg);
+        if (pkgFiles.isEmpty() && subpackages.size() == 1) {
+            String only = subpackages.get(0);
+            printPackage(out, indent, name + only.substring(pkg.length()), only);
+            return;
+        }
+        printLine(out, indent, name.isEmpty() ? "(default package)" : name, packages.get(pkg));
+        pkgFiles.values().forEach(file -> printLine(out, indent + "  ", file.getName(), file));
+        subpackages.forEach(sub -> printPackage(out, indent + "  ", sub.substring(pkg.length() + 1), sub));
+    }
+
+    /**
+     * @param pkg qualified name of a package, or null for the top level
+     * @return qualified names of the packages directly within it, in order
+     */
+    private List<String> subpackagesOf(String pkg) {
+        List<String> subpackages = new ArrayList<>();
+        for (String candidate : packages.keySet()) {
+            // The default package has no subpackages, as its name can't prefix another
+            if (pkg == null ? candidate.indexOf('.') < 0 : !pkg.isEmpty() && pkg.equals(parentOf(candidate))) {
+                subpackages.add(candidate);
+            }
+        }
+        return subpackages;
+    }
+
+    private static void printLine(PrintStream out, String indent, String name, Score score) {
+        out.printf("%4.0f%%  %6d / %-6d  %s%s%n", score.getScore(), score.getKilled(), score.getMutationsTotal(), indent, name);
+    }
+}
@@ -0,0 +1,39 @@
+package org.pitestidea.headless;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Finds source files referenced by PIT reports on the file system, for when reports are aggregated outside the IDE.
+ */
+public class SourcePathResolver {
+    private final List<Path> sourceRoots;
+
+    /**
+     * @param sourceRoots directories to look in, in order; if empty, every file is assumed to exist
+     */
+    public SourcePathResolver(List<Path> sourceRoots) {
+        this.sourceRoots = List.copyOf(sourceRoots);
+    }
+
+    /**
+     * Finds a source file.
+     *
+     * @param relativePath path of the file relative to its source root, e.g. "a/b/C.java"
+     * @return the file in the first source root that has it, the relative path itself if there are no source
+     * roots, or null if not found
+     */
+    public Path resolve(String relativePath) {
+        if (sourceRoots.isEmpty()) {
+            return Path.of(relativePath);
+        }
+        for (Path root : sourceRoots) {
+            Path path = root.resolve(relativePath);
+            if (Files.isRegularFile(path)) {
+                return path;
+            }
+        }
+        return null;
+    }
+}
@@ -3,20 +3,54 @@ package org.pitestidea.model;
 import java.util.function.Function;
 
 public abstract class BaseMutationsScore implements IMutationScore {
-    private BaseMutationsScore lastScore;
+    private final IMutationScore lastScore;
     protected int survived = 0;
     protected int killed = 0;
     protected int noCoverage = 0;
     protected int timedOut = 0;
     protected int runError = 0;
+    protected long testsRun = 0;
+    private MutationsDiff diff = null;
 
     private final int order;
 
-    public BaseMutationsScore(int order, BaseMutationsScore lastScore) {
+    /**
+     * @param order     position among the scores beside this one
+     * @param lastScore of the previous run, which should be one returned by {@link #withoutLast()} so that a
+     *                  chain of runs isn't kept alive by each score referring to the last
+     */
+    public BaseMutationsScore(int order, IMutationScore lastScore) {
         this.order = order;
         this.lastScore = lastScore;
-        if (lastScore != null) {
-            lastScore.lastScore = null; // Free this memory which is no longer useful
+    }
+
+    /**
+     * @return a copy of the names and counts of this score without its link to the previous run, for a later
+     * run to compare against
+     */
+    public IMutationScore withoutLast() {
+        return new Counts(this);
+    }
+
+    private static final class Counts extends BaseMutationsScore {
+        private final String name;
+        private final String qualifiedName;
+
+        private Counts(BaseMutationsScore that) {
+            super(that.getOrder(), null);
+            this.name = that.getName();
+            this.qualifiedName = that.getQualifiedName();
+            accountFor(that);
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String getQualifiedName() {
+            return qualifiedName;
         }
     }
 
@@ -25,6 +59,18 @@ public abstract class BaseMutationsScore implements IMutationScore {
         return lastScore;
     }
 
+    /**
+     * @return how the mutations differ from the previous run, or null if not compared with one
+     */
+    @Override
+    public MutationsDiff getDiff() {
+        return diff;
+    }
+
+    public void setDiff(MutationsDiff diff) {
+        this.diff = diff;
+    }
+
     @Override
     public int getOrder() {
         return order;
@@ -41,6 +87,40 @@ public abstract class BaseMutationsScore implements IMutationScore {
         }
     }
 
+    /**
+     * Same as {@link #accountFor(MutationImpact)} but also adds the number of tests PIT ran against the mutation.
+     */
+    public void accountFor(MutationImpact impact, int testsRun) {
+        accountFor(impact);
+        this.testsRun += testsRun;
+    }
+
+    /**
+     * Adds the counts of another score to these, e.g. of a file to the package holding it.
+     *
+     * @param that score to add
+     */
+    public void accountFor(BaseMutationsScore that) {
+        survived += that.survived;
+        killed += that.killed;
+        noCoverage += that.noCoverage;
+        timedOut += that.timedOut;
+        runError += that.runError;
+        testsRun += that.testsRun;
+    }
+
+    /**
+     * Sets every count back to zero, so that they can be totalled again.
+     */
+    public void clearCounts() {
+        survived = 0;
+        killed = 0;
+        noCoverage = 0;
+        timedOut = 0;
+        runError = 0;
+        testsRun = 0;
+    }
+
     @Override
     public int getSurvived() {
         return survived;
@@ -71,6 +151,11 @@ public abstract class BaseMutationsScore implements IMutationScore {
         return survived + killed + noCoverage + timedOut + runError;
     }
 
+    @Override
+    public long getTestsRun() {
+        return testsRun;
+    }
+
     @Override
     public float getScore() {
         int total = getMutationsTotal();
@@ -103,6 +188,27 @@ public abstract class BaseMutationsScore implements IMutationScore {
         }
     }
 
+    /**
+     * Appends the number of mutations added, removed, and changed since the previous run, if any.
+     */
+    public static void fmtDiff(StringBuilder sb, IMutationScore score) {
+        MutationsDiff diff = score.getDiff();
+        if (diff != null && !diff.isEmpty()) {
+            sb.append("&nbsp;<small><i>");
+            if (diff.getAdded() > 0) {
+                sb.append('+').append(diff.getAdded()).append("&nbsp;");
+            }
+            if (diff.getRemoved() > 0) {
+                sb.append("&#8722;").append(diff.getRemoved()).append("&nbsp;");
+            }
+            if (diff.getChanged() > 0) {
+                sb.append('~').append(diff.getChanged()).append("&nbsp;");
+            }
+            sb.setLength(sb.length() - "&nbsp;".length());
+            sb.append("</i></small>");
+        }
+    }
+
     private static void fmtInt(StringBuilder sb, String prefix, IMutationScore score, boolean greenPointsUp, Function<IMutationScore, Integer> fn) {
         final int iv = fn.apply(score);
         sb.append(iv);
@@ -168,6 +274,19 @@ public abstract class BaseMutationsScore implements IMutationScore {
             sb.append(" +");
             line(sb, this, false, "run errors", IMutationScore::getRunErrors);
         }
+        if (testsRun > 0) {
+            sb.append("<br>PIT ran ").append(testsRun).append(" tests against these mutations.");
+        }
+        if (diff != null) {
+            sb.append("<br>Since the previous run, ");
+            if (diff.isEmpty()) {
+                sb.append("no mutations were added or removed and none changed.");
+            } else {
+                sb.append(diff.getAdded()).append(" mutations were added, ")
+                        .append(diff.getRemoved()).append(" removed, and ")
+                        .append(diff.getChanged()).append(" changed.");
+            }
+        }
         return sb.toString();
     }
 }
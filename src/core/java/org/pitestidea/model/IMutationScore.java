@@ -1,6 +1,9 @@
 package org.pitestidea.model;
 
 public interface IMutationScore {
+    // Name of the score of everything in a run, at the root of its tree of packages
+    String ROOT_PACKAGE_NAME = "Aggregated Results";
+
     String getName();
     String getQualifiedName();
     void accountFor(MutationImpact impact);
@@ -12,6 +15,8 @@ public interface IMutationScore {
     int getTimedOut();
     int getRunErrors();
     int getMutationsTotal();
+    long getTestsRun();
     int getOrder();
     IMutationScore getLastScore();
+    MutationsDiff getDiff();
 }
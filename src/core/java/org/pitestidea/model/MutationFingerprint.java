@@ -0,0 +1,62 @@
+package org.pitestidea.model;
+
+/**
+ * Identifies a mutation across runs by what PIT mutated rather than where, so that a mutation can be matched
+ * with the same one in another run even after the lines above it have changed.
+ *
+ * <p>The fingerprint is a 64-bit FNV-1a hash of the mutated class, the name and descriptor of the method, the
+ * mutator, the bytecode instruction indexes and blocks that PIT mutated, and the description. Both bytes of each
+ * character are hashed, and each value is followed by a separator that no character byte can be, which differs
+ * for a missing value, so that neither moving characters between values nor leaving one out can give the same
+ * hash. The line number is left out. Zero is never returned, so that it can stand for a mutation whose
+ * fingerprint is not known.
+ */
+public final class MutationFingerprint {
+    public static final long UNKNOWN = 0;
+
+    private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long PRIME = 0x100000001b3L;
+    private static final int END_OF_VALUE = 0x100;
+    private static final int NO_VALUE = 0x101;
+
+    private MutationFingerprint() {
+    }
+
+    /**
+     * Computes a fingerprint. Any value may be null if the report does not have it, as long as the same
+     * values are missing whenever the same mutation is read.
+     *
+     * @param mutatedClass qualified name of the mutated class
+     * @param method       name of the mutated method
+     * @param descriptor   of the mutated method, e.g. "(I)V", which tells overloads apart
+     * @param mutator      qualified name of the mutator PIT applied
+     * @param indexes      instruction indexes, separated by commas
+     * @param blocks       block numbers, separated by commas
+     * @param description  of the mutation
+     * @return fingerprint, never {@link #UNKNOWN}
+     */
+    public static long of(String mutatedClass, String method, String descriptor, String mutator, CharSequence indexes,
+                          CharSequence blocks, CharSequence description) {
+        long hash = OFFSET_BASIS;
+        hash = add(hash, mutatedClass);
+        hash = add(hash, method);
+        hash = add(hash, descriptor);
+        hash = add(hash, mutator);
+        hash = add(hash, indexes);
+        hash = add(hash, blocks);
+        hash = add(hash, description);
+        return hash == UNKNOWN ? 1 : hash;
+    }
+
+    private static long add(long hash, CharSequence value) {
+        if (value == null) {
+            return (hash ^ NO_VALUE) * PRIME;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            hash = (hash ^ (c & 0xff)) * PRIME;
+            hash = (hash ^ (c >>> 8)) * PRIME;
+        }
+        return (hash ^ END_OF_VALUE) * PRIME;
+    }
+}
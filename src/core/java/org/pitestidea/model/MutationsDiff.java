@@ -0,0 +1,48 @@
+package org.pitestidea.model;
+
+/**
+ * Counts of the mutations added, removed, and changed in impact since the previous run, for a file or package.
+ */
+public class MutationsDiff {
+    private int added;
+    private int removed;
+    private int changed;
+
+    public MutationsDiff(int added, int removed, int changed) {
+        this.added = added;
+        this.removed = removed;
+        this.changed = changed;
+    }
+
+    /**
+     * Adds the counts of another diff to these.
+     *
+     * @param that to add
+     */
+    public void add(MutationsDiff that) {
+        added += that.added;
+        removed += that.removed;
+        changed += that.changed;
+    }
+
+    public int getAdded() {
+        return added;
+    }
+
+    public int getRemoved() {
+        return removed;
+    }
+
+    public int getChanged() {
+        return changed;
+    }
+
+    public boolean isEmpty() {
+        return added == 0 && removed == 0 && changed == 0;
+    }
+
+    @Override
+    public String toString() {
+        return "+" + added + " -" + removed + " ~" + changed;
+    }
+}
@@ -0,0 +1,251 @@
+package org.pitestidea.reader;
+
+import org.pitestidea.model.MutationFingerprint;
+import org.pitestidea.model.MutationImpact;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses the &lt;mutation&gt; elements of the XML report written by PIT, along with the naming conventions PIT
+ * uses in its reports. Shared by the plugin and by headless aggregation, so it depends on nothing from the IDE.
+ */
+public final class MutationsXmlParser {
+
+    private MutationsXmlParser() {
+    }
+
+    /**
+     * Element values for the &lt;mutation&gt; currently being read. Reused across mutations.
+     */
+    public static final class PendingMutation {
+        private String status;
+        private String sourceFile;
+        private String mutatedClass;
+        private String mutatedMethod;
+        private String methodDescription;
+        private String lineNumber;
+        private String description;
+        private String killingTest;
+        private String killingTests;
+        private String succeedingTests;
+        private String mutator;
+        private String testsRun;
+        private final StringBuilder indexes = new StringBuilder();
+        private final StringBuilder blocks = new StringBuilder();
+
+        private void reset(String status, String testsRun) {
+            this.status = status;
+            this.testsRun = testsRun;
+            sourceFile = null;
+            mutatedClass = null;
+            mutatedMethod = null;
+            methodDescription = null;
+            lineNumber = null;
+            description = null;
+            killingTest = null;
+            killingTests = null;
+            succeedingTests = null;
+            mutator = null;
+            indexes.setLength(0);
+            blocks.setLength(0);
+        }
+
+        private boolean isComplete() {
+            return status != null && sourceFile != null && mutatedClass != null && mutatedMethod != null
+                    && lineNumber != null && description != null;
+        }
+
+        /**
+         * @throws IllegalArgumentException if the status is not one PIT defines
+         */
+        public MutationImpact impact() {
+            return MutationImpact.valueOf(status);
+        }
+
+        /**
+         * @return package of the mutated class, see {@link #packageOf(String)}
+         */
+        public String pkg() {
+            return packageOf(mutatedClass);
+        }
+
+        /**
+         * @return name of the source file, without its directory
+         */
+        public String sourceFile() {
+            return sourceFile;
+        }
+
+        public String mutatedMethod() {
+            return mutatedMethod;
+        }
+
+        /**
+         * @throws NumberFormatException if the line number is not a number
+         */
+        public int lineNumber() {
+            return Integer.parseInt(lineNumber.trim());
+        }
+
+        public String description() {
+            return description;
+        }
+
+        /**
+         * @return identity of the mutation across runs, see {@link MutationFingerprint}
+         */
+        public long fingerprint() {
+            return MutationFingerprint.of(mutatedClass, mutatedMethod, methodDescription, mutator, indexes, blocks, description);
+        }
+
+        /**
+         * @return number of tests PIT ran against the mutation, or 0 if the report doesn't say
+         */
+        public int testsRun() {
+            try {
+                return testsRun == null ? 0 : Math.max(0, Integer.parseInt(testsRun.trim()));
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+
+        /**
+         * @return tests that killed the mutation, empty if none
+         */
+        public List<String> killingTests() {
+            // Every killing test is only listed with PIT's full mutation matrix option, otherwise just the first
+            return splitTests(killingTests == null ? killingTest : killingTests);
+        }
+
+        /**
+         * @return tests that ran without killing the mutation, only listed with PIT's full mutation matrix option
+         */
+        public List<String> succeedingTests() {
+            return splitTests(succeedingTests);
+        }
+    }
+
+    /**
+     * Receives each &lt;mutation&gt; as it is completed. The same instance is passed each time, with new values.
+     */
+    public interface MutationHandler {
+        void accept(PendingMutation pending);
+    }
+
+    /**
+     * Parses the &lt;mutation&gt; elements of a report.
+     *
+     * @param in      report content
+     * @param file    where the content came from, for error messages
+     * @param handler to send each mutation to
+     * @throws InvalidMutatedFileException if a mutation is missing required elements
+     */
+    public static void parse(InputStream in, File file, MutationHandler handler) throws XMLStreamException, InvalidMutatedFileException {
+        PendingMutation pending = new PendingMutation();
+        boolean inMutation = false;
+        XMLStreamReader reader = createInputFactory().createXMLStreamReader(in);
+        try {
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    String name = reader.getLocalName();
+                    if ("mutation".equals(name)) {
+                        inMutation = true;
+                        pending.reset(reader.getAttributeValue(null, "status"), reader.getAttributeValue(null, "numberOfTestsRun"));
+                    } else if (inMutation) {
+                        switch (name) {
+                            case "sourceFile" -> pending.sourceFile = reader.getElementText();
+                            case "mutatedClass" -> pending.mutatedClass = reader.getElementText();
+                            case "mutatedMethod" -> pending.mutatedMethod = reader.getElementText();
+                            case "methodDescription" -> pending.methodDescription = reader.getElementText();
+                            case "lineNumber" -> pending.lineNumber = reader.getElementText();
+                            case "description" -> pending.description = reader.getElementText();
+                            case "killingTest" -> pending.killingTest = reader.getElementText();
+                            case "killingTests" -> pending.killingTests = reader.getElementText();
+                            case "succeedingTests" -> pending.succeedingTests = reader.getElementText();
+                            case "mutator" -> pending.mutator = reader.getElementText();
+                            // Older versions of PIT write a single <index> and <block>, newer ones wrap any number of them
+                            case "index" -> append(pending.indexes, reader.getElementText());
+                            case "block" -> append(pending.blocks, reader.getElementText());
+                            default -> {
+                                // Other elements are not needed
+                            }
+                        }
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT && inMutation && "mutation".equals(reader.getLocalName())) {
+                    inMutation = false;
+                    if (!pending.isComplete()) {
+                        throw new InvalidMutatedFileException("Incomplete mutation at line "
+                                + reader.getLocation().getLineNumber() + " of " + file);
+                    }
+                    handler.accept(pending);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static void append(StringBuilder list, String value) {
+        if (!list.isEmpty()) {
+            list.append(',');
+        }
+        list.append(value.trim());
+    }
+
+    /**
+     * Splits a list of test names as written by PIT.
+     *
+     * @param tests names separated by '|', may be null
+     * @return names, empty if none
+     */
+    public static List<String> splitTests(String tests) {
+        if (tests == null || tests.isBlank()) {
+            return List.of();
+        }
+        List<String> names = new ArrayList<>();
+        for (String name : tests.split("\\|")) {
+            if (!name.isBlank()) {
+                names.add(name.trim());
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Returns the package of a class as named by PIT.
+     *
+     * @param mutatedClass qualified class name, e.g. "a.b.C" or "a.b.C$Inner"
+     * @return package, e.g. "a.b", or empty for the default package
+     */
+    public static String packageOf(String mutatedClass) {
+        int ix = mutatedClass.lastIndexOf('.');
+        return ix < 0 ? "" : mutatedClass.substring(0, ix);
+    }
+
+    /**
+     * Returns the path of a source file relative to its source root.
+     *
+     * @param pkg        package of the file, as returned by {@link #packageOf(String)}
+     * @param sourceFile name of file, e.g. "C.java"
+     * @return relative path, e.g. "a/b/C.java"
+     */
+    public static String sourcePathOf(String pkg, String sourceFile) {
+        return pkg.isEmpty() ? sourceFile : pkg.replace('.', '/') + '/' + sourceFile;
+    }
+
+    public static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+}
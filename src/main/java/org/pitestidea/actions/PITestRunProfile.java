@@ -18,6 +18,7 @@ import com.intellij.openapi.project.Project;
 import com.intellij.openapi.roots.ProjectRootManager;
 import com.intellij.openapi.ui.MessageDialogBuilder;
 import com.intellij.openapi.util.IconLoader;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.util.PathsList;
 import com.intellij.util.text.SemVer;
 import org.jetbrains.annotations.NotNull;
@@ -25,15 +26,21 @@ import org.pitestidea.configuration.GradleUtils;
 import org.pitestidea.configuration.IdeaDiscovery;
 import org.pitestidea.constants.PluginVersions;
 import org.pitestidea.model.*;
+import org.pitestidea.reader.IReportReader;
 import org.pitestidea.reader.InvalidMutatedFileException;
-import org.pitestidea.reader.MutationsFileReader;
+import org.pitestidea.reader.MutationStreamReceiver;
+import org.pitestidea.reader.MutationsSnapshot;
+import org.pitestidea.reader.ReadActionResolver;
+import org.pitestidea.reader.ReportReaders;
 import org.pitestidea.render.CoverageGutterRenderer;
 import org.pitestidea.toolwindow.MutationControlPanel;
 import org.pitestidea.toolwindow.PitToolWindowFactory;
 
 import javax.swing.*;
 import java.io.File;
+import java.io.IOException;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -57,6 +64,10 @@ public class PITestRunProfile implements ModuleRunProfile {
     private ConsoleView consoleView;
     private String junitVersion = null;
 
+    // Receives mutations while PIT is running, if the bundled PIT (and so the bundled listener) is used
+    private MutationStreamReceiver liveReceiver = null;
+    private MutationsSnapshot.Writer liveSnapshot = null;
+
     PITestRunProfile(Project project, Module module, InputBundle inputBundle) {
         this.project = project;
         this.module = module;
@@ -98,6 +109,7 @@ public class PITestRunProfile implements ModuleRunProfile {
                 try {
                     final JavaParameters javaParameters = createJavaParametersInternal();
                     final List<String> classPathsAdded = ClassPathConfigurator.updateClassPathBundles(javaParameters.getClassPath());
+                    setOutputFormats(javaParameters, classPathsAdded);
                     cachedRun.setClassPath(new ClassPaths(javaParameters.getClassPath().getPathList(), classPathsAdded));
                     return javaParameters;
                 } catch (RuntimeException e) {
@@ -133,12 +145,14 @@ public class PITestRunProfile implements ModuleRunProfile {
                 params.add("--targetTests", testClasses);
                 params.add("--mutableCodePaths", mutableCodePath);
                 params.add("--sourceDirs", windozePath(projectDir + "/src/main/java"));
-                params.add("--outputFormats", "XML,HTML");
                 params.add("--exportLineCoverage", "true");
                 MutationControlPanel mutationControlPanel = PitToolWindowFactory.getOrCreateControlPanel(project);
                 if (mutationControlPanel.isPitVerboseEnabled()) {
                     params.add("--verbose", "true");
                 }
+                if (mutationControlPanel.isKillMatrixEnabled()) {
+                    params.add("--fullMutationMatrix", "true");
+                }
                 javaParameters.setWorkingDirectory(IdeaDiscovery.getAbsolutePathOfModule(module));
                 javaParameters.setMainClass(PIT_MAIN_CLASS);
 
@@ -164,6 +178,36 @@ public class PITestRunProfile implements ModuleRunProfile {
                 return javaParameters;
             }
 
+            /**
+             * Sets PIT output formats, adding live streaming of results if the listener for that was bundled.
+             * The report is always XML, even when results are streamed and it is only a fallback, since it is
+             * the only format with mutation descriptions and fingerprints matching those of streamed results.
+             */
+            private void setOutputFormats(JavaParameters javaParameters, List<String> classPathsAdded) {
+                String liveFormat = "";
+                if (classPathsAdded.stream().anyMatch(p -> p.endsWith(PluginVersions.PIT_LISTENER_JAR))) {
+                    try {
+                        PitExecutionRecorder recorder = cachedRun.getRecorder();
+                        // Snapshot the streamed results, which are faster to load later than the report
+                        liveSnapshot = new MutationsSnapshot.Writer(recorder);
+                        liveReceiver = MutationStreamReceiver.open(liveSnapshot.tee(ReadActionResolver.of(project)), liveSnapshot,
+                                changedFiles -> showLiveResults(recorder, changedFiles));
+                        javaParameters.getVMParametersList().addProperty(MutationStreamReceiver.PORT_PROPERTY, String.valueOf(liveReceiver.getPort()));
+                        liveFormat = "," + MutationStreamReceiver.OUTPUT_FORMAT;
+                    } catch (IOException e) {
+                        LOGGER.warn("Unable to receive PIT results while running, results will be shown on completion", e);
+                    }
+                }
+                javaParameters.getProgramParametersList().add("--outputFormats", ReportReaders.XML.getOutputFormat() + ",HTML" + liveFormat);
+            }
+
+            private void showLiveResults(PitExecutionRecorder recorder, Set<VirtualFile> changedFiles) {
+                // Ignore stragglers after the recorder has been replaced on completion
+                if (cachedRun.getRecorder() == recorder) {
+                    PitToolWindowFactory.getControlPanel(project).reloadPartialScores(cachedRun, changedFiles);
+                }
+            }
+
             @Override
             protected @NotNull OSProcessHandler startProcess() throws ExecutionException {
                 // Avoiding leaving previous icons while executing, else users may be confused that they represent the current result
@@ -191,6 +235,7 @@ public class PITestRunProfile implements ModuleRunProfile {
                                     newRunState = RunState.FAILED;
                                 }
                             } else {
+                                closeLiveReceiver();
                                 String msg = createErrorMessage();
                                 react(msg, "View output", () -> {
                                     // Activate this row since console output is exposed and should be consistent
@@ -205,6 +250,8 @@ public class PITestRunProfile implements ModuleRunProfile {
                                 });
                                 newRunState = RunState.FAILED;
                             }
+                        } else {
+                            closeLiveReceiver();
                         }
                         if (runState != newRunState) {
                             cachedRun.setRunState(newRunState);
@@ -226,20 +273,37 @@ public class PITestRunProfile implements ModuleRunProfile {
                         });
                     }
 
+                    private void closeLiveReceiver() {
+                        if (liveReceiver != null) {
+                            liveReceiver.close();
+                        }
+                    }
+
                     private boolean onSuccess(CachedRun cachedRun, MutationControlPanel mutationControlPanel) {
-                        final PitExecutionRecorder recorder = cachedRun.getRecorder();
                         final Application app = ApplicationManager.getApplication();
                         final AtomicBoolean anyErrors = new AtomicBoolean(false);
                         app.executeOnPooledThread(() -> {
-                            File src = cachedRun.getMutationsFile();
-                            app.runReadAction(() -> {
-                                try {
-                                    MutationsFileReader.read(project, src, recorder);
-                                } catch (InvalidMutatedFileException e) {
-                                    anyErrors.set(true);
-                                }
-                            });
+                            // Results are built in a recorder of their own, which readers only see once it is
+                            // complete and frozen. Any streamed results stay with the live recorder until then.
+                            // The snapshot of the results run before is kept first, to compare against again later.
+                            cachedRun.keepAsPrevious();
+                            final PitExecutionRecorder recorder = cachedRun.restartRecorder();
+                            IReportReader reader = cachedRun.getReportReader();
+                            File src = reader.fileIn(cachedRun.getReportFileDir());
+                            if (liveReceiver != null && liveReceiver.finish()) {
+                                // Every mutation has already been received, so the snapshot of them is read rather than the report
+                                liveSnapshot.write(src, cachedRun.getSnapshotFile());
+                            }
+                            // Parsed with no lock held, only source files are looked up in read actions
+                            try {
+                                MutationsSnapshot.read(project, reader, src, cachedRun.getSnapshotFile(), recorder);
+                            } catch (InvalidMutatedFileException e) {
+                                anyErrors.set(true);
+                            }
+                            cachedRun.readLineCoverage(recorder);
+                            cachedRun.setRecorder(recorder);
                             if (!anyErrors.get()) {
+                                cachedRun.updateFingerprint();
                                 app.invokeLater(() -> app.runWriteAction(() -> cachedRun.getExecutionRecord().writeToDirectory(cachedRun.getReportFileDir())));
                             }
                             displayResultPopup(cachedRun, mutationControlPanel, app, anyErrors.get());
@@ -8,7 +8,6 @@ import com.intellij.openapi.project.Project;
 import com.intellij.openapi.project.ProjectManager;
 import com.intellij.openapi.project.ProjectUtil;
 import com.intellij.openapi.roots.ProjectFileIndex;
-import com.intellij.openapi.roots.ProjectRootManager;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.openapi.wm.WindowManager;
 import com.intellij.util.PathsList;
@@ -117,6 +116,23 @@ public class IdeaDiscovery {
         return mutableCodePath;
     }
 
+    /**
+     * Returns the directory that the main (non-test) classes of a module are compiled to.
+     *
+     * @param module to find classes for
+     * @return classes directory, or null if the module has no output directory
+     */
+    public static @Nullable File getMainClassesDirectory(Module module) {
+        String outDir = getModuleOutputDirectory(module);
+        if (outDir == null) {
+            return null;
+        }
+        if (new File(fsPath(outDir, "test-classes")).exists()) {  // true for Maven, false for Gradle
+            return new File(fsPath(outDir, "classes"));
+        }
+        return new File(fsPath(outDir, "classes", "java", "main"));
+    }
+
     /**
      * Returns the output directory immediately below the module directory.
      *
@@ -217,21 +233,7 @@ public class IdeaDiscovery {
     }
 
     public static String getPackageOf(Project project, VirtualFile file) {
-        String filePath = file.getPath();
-
-        VirtualFile[] sourceRoots = ProjectRootManager.getInstance(project).getContentSourceRoots();
-
-        for (VirtualFile sourceRoot : sourceRoots) {
-            String sourcePath = sourceRoot.getPath();
-            if (filePath.startsWith(sourcePath)) {
-                String relativePath = filePath.substring(sourcePath.length() + 1);
-                relativePath = relativePath.substring(0, relativePath.lastIndexOf('/'));
-
-                return relativePath.replace('/', '.');
-            }
-        }
-
-        return null;
+        return SourceRootIndex.getInstance(project).getPackageOf(file);
     }
 
     public static VirtualFile findVirtualFileByRQN(Project project, String relPath) {
@@ -242,14 +244,6 @@ public class IdeaDiscovery {
                     project.isInitialized());
             LOGGER.warn(msg);
         }
-        ProjectRootManager rootManager = ProjectRootManager.getInstance(project);
-        // Iterate through all source roots of the project
-        for (VirtualFile sourceRoot : rootManager.getContentSourceRoots()) {
-            VirtualFile file = sourceRoot.findFileByRelativePath(relPath);
-            if (file != null) {
-                return file;
-            }
-        }
-        return null;
+        return SourceRootIndex.getInstance(project).findFile(relPath);
     }
 }
@@ -0,0 +1,158 @@
+package org.pitestidea.configuration;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ModuleRootEvent;
+import com.intellij.openapi.roots.ModuleRootListener;
+import com.intellij.openapi.roots.ProjectRootManager;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves files and packages against the content source roots of a project, memoizing results so that
+ * repeated lookups (e.g. one per mutation when reading a PIT report) do not each walk every root.
+ *
+ * <p>A project service, so it lives and is disposed with its project. Cached entries are discarded when the
+ * project roots change, as announced on the project's message bus. Only successful lookups are cached, and a
+ * cached file that has since become invalid (e.g. deleted) is looked up again.
+ */
+@Service(Service.Level.PROJECT)
+public final class SourceRootIndex implements Disposable {
+    private final Project project;
+    private volatile Roots roots = null;
+
+    /**
+     * The source roots with the lookups made against them, replaced as a whole when the roots change so that
+     * a lookup finishing after the change only adds to a discarded cache.
+     */
+    private record Roots(VirtualFile[] sourceRoots, Map<String, VirtualFile> files, Map<String, String> packages) {
+    }
+
+    public SourceRootIndex(Project project) {
+        this.project = project;
+        project.getMessageBus().connect(this).subscribe(ModuleRootListener.TOPIC, new ModuleRootListener() {
+            @Override
+            public void rootsChanged(@NotNull ModuleRootEvent event) {
+                invalidate();
+            }
+        });
+    }
+
+    public static @NotNull SourceRootIndex getInstance(@NotNull Project project) {
+        return project.getService(SourceRootIndex.class);
+    }
+
+    /**
+     * Discards the roots and every lookup made against them. Synchronized so that roots being read at the time
+     * of a change are not left in place after it.
+     */
+    synchronized void invalidate() {
+        roots = null;
+    }
+
+    @Override
+    public void dispose() {
+        invalidate();
+    }
+
+    /**
+     * Returns the content source roots of the project. The array must not be modified.
+     *
+     * @return source roots
+     */
+    public VirtualFile[] getSourceRoots() {
+        return ensureCurrent().sourceRoots();
+    }
+
+    /**
+     * Finds the file for a source file name within a package.
+     *
+     * @param pkg            dot-separated package name, empty for the default package
+     * @param sourceFileName name of file, e.g. "Foo.java"
+     * @return file or null if not present under any source root
+     */
+    public @Nullable VirtualFile findFile(@NotNull String pkg, @NotNull String sourceFileName) {
+        return findFile(pkg.isEmpty() ? sourceFileName : pkg.replace('.', '/') + '/' + sourceFileName);
+    }
+
+    /**
+     * Finds the file at a path relative to any source root.
+     *
+     * @param relPath slash-separated path, e.g. "a/b/Foo.java"
+     * @return file or null if not present under any source root
+     */
+    public @Nullable VirtualFile findFile(@NotNull String relPath) {
+        Roots current = ensureCurrent();
+        VirtualFile file = current.files().get(relPath);
+        if (file != null && file.isValid()) {
+            return file;
+        }
+        for (VirtualFile sourceRoot : current.sourceRoots()) {
+            file = sourceRoot.findFileByRelativePath(relPath);
+            if (file != null) {
+                current.files().put(relPath, file);
+                return file;
+            }
+        }
+        current.files().remove(relPath);
+        return null;
+    }
+
+    /**
+     * Returns the dot-separated package of the given file, which for a directory is the package
+     * of its parent directory.
+     *
+     * @param file to find package for
+     * @return package name, or null if the file is not under any source root
+     */
+    public @Nullable String getPackageOf(@NotNull VirtualFile file) {
+        String filePath = file.getPath();
+        int lastSlash = filePath.lastIndexOf('/');
+        if (lastSlash < 0) {
+            return null;
+        }
+        String dirPath = filePath.substring(0, lastSlash);
+        Roots current = ensureCurrent();
+        String pkg = current.packages().get(dirPath);
+        if (pkg == null) {
+            pkg = computePackage(current.sourceRoots(), dirPath);
+            if (pkg != null) {
+                current.packages().put(dirPath, pkg);
+            }
+        }
+        return pkg;
+    }
+
+    private static String computePackage(VirtualFile[] sourceRoots, String dirPath) {
+        for (VirtualFile sourceRoot : sourceRoots) {
+            String sourcePath = sourceRoot.getPath();
+            if (dirPath.equals(sourcePath)) {
+                return "";
+            }
+            if (dirPath.startsWith(sourcePath) && dirPath.charAt(sourcePath.length()) == '/') {
+                return dirPath.substring(sourcePath.length() + 1).replace('/', '.');
+            }
+        }
+        return null;
+    }
+
+    private Roots ensureCurrent() {
+        Roots current = roots;
+        if (current == null) {
+            synchronized (this) {
+                current = roots;
+                if (current == null) {
+                    current = new Roots(ProjectRootManager.getInstance(project).getContentSourceRoots(),
+                            new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+                    roots = current;
+                }
+            }
+        }
+        return current;
+    }
+}
@@ -1,24 +1,43 @@
 package org.pitestidea.model;
 
 import com.intellij.execution.process.OSProcessHandler;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.Task;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.module.Module;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.pitestidea.configuration.IdeaDiscovery;
+import org.pitestidea.reader.IReportReader;
 import org.pitestidea.reader.InvalidMutatedFileException;
-import org.pitestidea.reader.MutationsFileReader;
+import org.pitestidea.reader.LineCoverageReader;
+import org.pitestidea.reader.MutationsSnapshot;
+import org.pitestidea.reader.ReportArchive;
+import org.pitestidea.reader.ReportFingerprint;
+import org.pitestidea.reader.ReportReaders;
 import org.pitestidea.toolwindow.PitToolWindowFactory;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.BiConsumer;
 
 /**
  * Pairs an ExecutionRecord with a PitExecutionRecorder, with the ability to lazily
  * load the latter (which can grow large) or drop it to save space. An instance of this
- * class is created for every PIT output directory in the project.
+ * class is created for every PIT output directory in the project. Recorders of saved runs
+ * are only read when first needed, and those least recently used are dropped again when
+ * the loaded recorders of a project exceed its memory budget, see {@link PitRepo.ProjectRunRecords}.
  */
 public class CachedRun implements Comparable<CachedRun> {
-    private static final String MUTATIONS_FILE = "mutations.xml";
+    private static final Logger LOGGER = Logger.getInstance(CachedRun.class);
+    private static final String SNAPSHOT_FILE = "mutations.snapshot";
+    // Snapshot of the results this run is compared against, kept when a later report of the run replaced them
+    private static final String PREVIOUS_SNAPSHOT_FILE = "previous.snapshot";
 
     // Back ptr to the owner of this object
     private final PitRepo.ProjectRunRecords runRecords;
@@ -26,8 +45,24 @@ public class CachedRun implements Comparable<CachedRun> {
     // Holds inputs and timings for this run
     private final ExecutionRecord executionRecord;
 
-    // Loaded from mutations.xml -- may be unloaded as well to reduce space usage
-    private PitExecutionRecorder recorder;
+    // Module the run is for, kept apart from the recorder so that it is known while the recorder is unloaded
+    private final Module module;
+
+    // Loaded from the mutations report -- may be unloaded as well to reduce space usage. Always frozen once
+    // published, except while a run streams results into it on the UI thread
+    private volatile PitExecutionRecorder recorder;
+
+    // Identifies the mutations file content last read into the recorder, or null if not known
+    private volatile ReportFingerprint fingerprint;
+
+    // Serializes reloads, separately from this object's lock so that a long read doesn't block the UI
+    private final Object reloadLock = new Object();
+
+    // True while the recorder is being read in the background, see loadInBackground()
+    private final AtomicBoolean loading = new AtomicBoolean();
+
+    // Empty and frozen, returned in place of the recorder while it isn't loaded, or null until first needed
+    private volatile PitExecutionRecorder placeholder;
 
     // State of the run that produced this object
     private RunState runState = RunState.COMPLETED;
@@ -42,7 +77,20 @@ public class CachedRun implements Comparable<CachedRun> {
     private ClassPaths classPaths = null;
 
     public CachedRun(PitRepo.ProjectRunRecords runRecords, ExecutionRecord record, PitExecutionRecorder recorder, @NotNull String reportDirectory) {
+        this(runRecords, record, recorder.getModule(), recorder, reportDirectory);
+    }
+
+    /**
+     * Creates a run whose recorder is read from its report directory when first needed.
+     */
+    public CachedRun(PitRepo.ProjectRunRecords runRecords, ExecutionRecord record, Module module, @NotNull String reportDirectory) {
+        this(runRecords, record, module, null, reportDirectory);
+    }
+
+    private CachedRun(PitRepo.ProjectRunRecords runRecords, ExecutionRecord record, Module module, PitExecutionRecorder recorder,
+                      @NotNull String reportDirectory) {
         this.runRecords = runRecords;
+        this.module = module;
         this.recorder = recorder;
         this.executionRecord = record;
         this.reportDirectory = reportDirectory;
@@ -82,33 +130,204 @@ public class CachedRun implements Comparable<CachedRun> {
         return classPaths;
     }
 
+    /**
+     * Returns the recorder without reading it, so that it can be called from the UI thread. If it isn't loaded,
+     * an empty recorder stands in for it while the report is read in the background, after which the run is
+     * shown again if it is still current. Callers off the UI thread that need the results use
+     * {@link #ensureLoaded()} instead.
+     *
+     * @return recorder, or an empty one if not loaded
+     */
     public PitExecutionRecorder getRecorder() {
+        PitExecutionRecorder loaded = recorder;
+        if (loaded == null) {
+            loadInBackground();
+            return placeholder();
+        }
+        runRecords.touch(this);
+        return loaded;
+    }
+
+    private PitExecutionRecorder placeholder() {
+        PitExecutionRecorder empty = placeholder;
+        if (empty == null) {
+            empty = new PitExecutionRecorder(module, null);
+            empty.freeze();
+            placeholder = empty;
+        }
+        return empty;
+    }
+
+    /**
+     * @return recorder if loaded, else null
+     */
+    public @Nullable PitExecutionRecorder getRecorderIfLoaded() {
         return recorder;
     }
 
+    public boolean isLoaded() {
+        return recorder != null;
+    }
+
+    /**
+     * Replaces the recorder, e.g. with one that has been fully loaded in place of one holding partial results.
+     * The recorder is frozen before it is published, so it must not be written to afterward. Readers of the
+     * previous recorder are unaffected and see the new one on their next call to {@link #getRecorder()}.
+     *
+     * @param recorder to replace the existing one, for the same module
+     */
+    public void setRecorder(PitExecutionRecorder recorder) {
+        publish(recorder);
+        runRecords.touch(this);
+    }
+
+    private void publish(PitExecutionRecorder target) {
+        target.freeze();
+        recorder = target;
+    }
+
+    public Module getModule() {
+        return module;
+    }
+
     public @Nullable Project getProject() {
-        if (recorder == null) return null;
-        Module module = recorder.getModule();
         return module != null ? module.getProject() : null;
     }
 
-    public synchronized PitExecutionRecorder ensureLoaded() {
-        // TODO -- Placeholder for later work on lazy loading
-        return recorder;
+    /**
+     * Returns the recorder, reading it from the report if it was never loaded or has since been unloaded.
+     * A report that can't be read leaves an empty recorder. Counts as a use of the recorder, so that it is
+     * among the last to be unloaded.
+     *
+     * @return recorder
+     */
+    public PitExecutionRecorder ensureLoaded() {
+        PitExecutionRecorder loaded = recorder;
+        if (loaded == null) {
+            synchronized (reloadLock) {
+                if (recorder == null) {
+                    try {
+                        reloadIfChanged();
+                    } catch (InvalidMutatedFileException e) {
+                        LOGGER.warn("Unable to load report for " + executionRecord.getReportDirectoryName() + ": " + e.getMessage());
+                        publish(new PitExecutionRecorder(module, null));
+                    }
+                }
+                loaded = recorder;
+            }
+        }
+        runRecords.touch(this);
+        return loaded;
+    }
+
+    /**
+     * Makes a new empty recorder for the results of this run to be read into again, e.g. once it has been run
+     * again, compared against the same results as the loaded recorder. Those are read from the snapshot kept of
+     * them if the loaded recorder isn't compared against anything, e.g. since it was made while they were
+     * unloaded. Reads from disk, so must not be called on the UI thread.
+     *
+     * @return new recorder
+     */
+    public PitExecutionRecorder restartRecorder() {
+        PitExecutionRecorder loaded = ensureLoaded();
+        return loaded.hasPreviousRun() ? loaded.restart() : new PitExecutionRecorder(module, readPrevious());
+    }
+
+    /**
+     * Keeps the snapshot of the results held so far as those this run is compared against, for when its report
+     * is about to be replaced with a later one. The results can then be read again to compare against once
+     * unloaded, see {@link #readPrevious()}.
+     */
+    public void keepAsPrevious() {
+        MutationsSnapshot.keep(getSnapshotFile(), new File(getReportFileDir(), PREVIOUS_SNAPSHOT_FILE));
+    }
+
+    /**
+     * Reads the results this run is compared against from the snapshot kept of them.
+     *
+     * @return frozen recorder of those results, or null if none were kept or they can't be read
+     */
+    private @Nullable PitExecutionRecorder readPrevious() {
+        File kept = new File(getReportFileDir(), PREVIOUS_SNAPSHOT_FILE);
+        PitExecutionRecorder previous = new PitExecutionRecorder(module, null);
+        try {
+            if (!MutationsSnapshot.readKept(getProject(), kept, previous)) {
+                return null;
+            }
+        } catch (InvalidMutatedFileException e) {
+            LOGGER.warn("Unable to read previous results from " + kept + ": " + e.getMessage());
+            return null;
+        }
+        previous.freeze();
+        return previous;
+    }
+
+    /**
+     * Drops the recorder to free its memory, unless the run has since become current or started running.
+     * It is read again when next needed.
+     */
+    void unload() {
+        if (!isCurrent() && getRunState() != RunState.RUNNING) {
+            synchronized (reloadLock) {
+                recorder = null;
+                fingerprint = null;
+            }
+        }
+    }
+
+    /**
+     * @return rough number of bytes held by the recorder, 0 if not loaded
+     */
+    long estimateHeapBytes() {
+        PitExecutionRecorder loaded = recorder;
+        return loaded == null ? 0 : loaded.estimateHeapBytes();
     }
 
     /**
      * Makes this CachedRun the currently selected item in its history list and performs all necessary
-     * UI updates to reflect this new selection.
+     * UI updates to reflect this new selection. A recorder that isn't loaded is first read in the background.
      */
     public synchronized void activate() {
         Project project = getProject();
         if (project != null) {
             setAsCurrent();
-            PitToolWindowFactory.show(project, this);
+            if (isLoaded()) {
+                PitToolWindowFactory.show(project, this);
+            } else {
+                loadInBackground();
+            }
         }
     }
 
+    /**
+     * Reads the recorder in the background, unless it is already being read, and shows the run once read if it
+     * is current by then. Does nothing without a project to show it in.
+     */
+    private void loadInBackground() {
+        Project project = getProject();
+        if (project == null || !loading.compareAndSet(false, true)) {
+            return;
+        }
+        ProgressManager.getInstance().run(new Task.Backgroundable(project, "Loading PIT report", false) {
+            @Override
+            public void run(@NotNull ProgressIndicator indicator) {
+                ensureLoaded();
+            }
+
+            @Override
+            public void onSuccess() {
+                if (!project.isDisposed() && isCurrent()) {
+                    PitToolWindowFactory.show(project, CachedRun.this);
+                }
+            }
+
+            @Override
+            public void onFinished() {
+                loading.set(false);
+            }
+        });
+    }
+
     @Override
     public int compareTo(@NotNull CachedRun that) {
         return executionRecord.compareTo(that.executionRecord);
@@ -157,8 +376,27 @@ public class CachedRun implements Comparable<CachedRun> {
         return new File(reportDirectory);
     }
 
+    /**
+     * Returns the reader for the report that PIT wrote for this run, picked from the files in its directory.
+     *
+     * @return reader, for XML if there is no report yet
+     */
+    public IReportReader getReportReader() {
+        IReportReader reader = ReportReaders.detect(getReportFileDir());
+        return reader == null ? ReportReaders.XML : reader;
+    }
+
     public File getMutationsFile() {
-        return new File(getReportFileDir(), MUTATIONS_FILE);
+        return getReportReader().fileIn(getReportFileDir());
+    }
+
+    /**
+     * Returns the file holding a binary copy of the mutations file, which may not exist.
+     *
+     * @return snapshot file
+     */
+    public File getSnapshotFile() {
+        return new File(getReportFileDir(), SNAPSHOT_FILE);
     }
 
     public boolean cancel() {
@@ -170,8 +408,121 @@ public class CachedRun implements Comparable<CachedRun> {
         return false;
     }
 
-    public void reload() throws InvalidMutatedFileException {
-        MutationsFileReader.read(getProject(), getMutationsFile(), recorder);
+    /**
+     * Reads the mutations file into a new recorder, unless the file content is the same as when last read.
+     * Results already held are compared against if the file has changed, or replaced if there are results but
+     * it isn't known what they were read from. Results read again after being unloaded are compared against
+     * the same results as before, read from the snapshot kept of them.
+     *
+     * @return true if the file was read, false if unchanged
+     * @throws InvalidMutatedFileException if the file can't be read, in which case current results are kept
+     */
+    public boolean reload() throws InvalidMutatedFileException {
+        boolean changed;
+        synchronized (reloadLock) {
+            changed = reloadIfChanged();
+        }
+        // Outside the lock, since touching may unload other runs
+        runRecords.touch(this);
+        return changed;
+    }
+
+    private boolean reloadIfChanged() throws InvalidMutatedFileException {
+        IReportReader reader = getReportReader();
+        File file = reader.fileIn(getReportFileDir());
+        ReportFingerprint last = fingerprint;
+        if (last != null && last.matchesAttributes(file)) {
+            return false;
+        }
+        final ReportFingerprint latest;
+        try {
+            latest = ReportFingerprint.of(file);
+        } catch (IOException e) {
+            throw new InvalidMutatedFileException(e);
+        }
+        if (last != null && latest.sameContent(last)) {
+            fingerprint = latest;
+            return false;
+        }
+        PitExecutionRecorder current = recorder;
+        final PitExecutionRecorder target;
+        if (current == null) {
+            target = new PitExecutionRecorder(module, readPrevious());
+        } else if (last == null) {
+            target = current.restart();
+        } else {
+            keepAsPrevious();
+            target = new PitExecutionRecorder(module, current);
+        }
+        // Built in full before being swapped in, so that readers only ever see a complete run
+        MutationsSnapshot.read(getProject(), reader, file, getSnapshotFile(), target);
+        readLineCoverage(target);
+        publish(target);
+        fingerprint = latest;
+        if (!executionRecord.isRunnable()) {
+            // Externally generated, so the report time is that of its directory
+            executionRecord.restamp(getReportFileDir().lastModified());
+        }
+        return true;
+    }
+
+    /**
+     * Reads the lines that tests ran during this run into a recorder that already holds its mutations but isn't
+     * yet frozen, if PIT exported them. Coverage only adds to the results, so failing to read it is not an error.
+     *
+     * @param target recorder to add coverage to
+     */
+    public void readLineCoverage(PitExecutionRecorder target) {
+        File file = new File(getReportFileDir(), LineCoverageReader.FILE_NAME);
+        Module module = target.getModule();
+        File classesDir = module == null ? null : ReadAction.compute(() -> IdeaDiscovery.getMainClassesDirectory(module));
+        if (ReportArchive.exists(file) && classesDir != null) {
+            try {
+                LineCoverageReader.read(getProject(), file, classesDir, target);
+            } catch (InvalidMutatedFileException e) {
+                LOGGER.warn("Unable to read line coverage from " + file + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Packs the files of this run into a single compressed archive in its directory, leaving out only those
+     * needed to list and load it quickly. The report is read from the archive from then on. Runs not made from
+     * this plugin, and runs still in progress, are left as they are.
+     *
+     * @return true if packed, false if left as is or already packed
+     * @throws IOException if the archive can't be written
+     */
+    public boolean archive() throws IOException {
+        synchronized (reloadLock) {
+            File dir = getReportFileDir();
+            if (!executionRecord.isRunnable() || getRunState() == RunState.RUNNING || !dir.isDirectory()
+                    || !dir.getAbsolutePath().contains(PitRepo.PIT_IDEA_REPORTS_DIR) || ReportArchive.isPacked(dir)) {
+                return false;
+            }
+            File report = getMutationsFile();
+            long length = report.length();
+            long lastModified = report.lastModified();
+            ReportArchive.pack(dir, Set.of(ExecutionRecord.META_FILE_NAME, SNAPSHOT_FILE, PREVIOUS_SNAPSHOT_FILE));
+            // The archive keeps times to the second, which the snapshot must match to still be used
+            MutationsSnapshot.restamp(getSnapshotFile(), length, lastModified, ReportArchive.lastModified(report));
+            if (fingerprint != null) {
+                updateFingerprint();
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Records the mutations file as matching the current recorder, e.g. after results have been received
+     * from a completed run, so that a later {@link #reload()} can skip reading it.
+     */
+    public void updateFingerprint() {
+        try {
+            fingerprint = ReportFingerprint.of(getMutationsFile());
+        } catch (IOException e) {
+            fingerprint = null;
+        }
     }
 
 
@@ -191,7 +542,7 @@ public class CachedRun implements Comparable<CachedRun> {
      * by command-line PIT runs.
      */
     public void prepareForRun() {
-
+        fingerprint = null;
         File dir = getReportFileDir();
         if (dir.exists() && dir.isDirectory()) {
             deleteFilesInDir(dir);
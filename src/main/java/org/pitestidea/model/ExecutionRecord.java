@@ -94,6 +94,15 @@ public final class ExecutionRecord implements Comparable<ExecutionRecord> {
         }
     }
 
+    /**
+     * Updates the start time of an externally generated report that has been rewritten since it was read.
+     *
+     * @param startedAt last-modified-time from the external file
+     */
+    void restamp(long startedAt) {
+        this.startedAt = startedAt;
+    }
+
     public void markFinished() {
         this.durationMillis = System.currentTimeMillis() - startedAt;
     }
@@ -0,0 +1,108 @@
+package org.pitestidea.model;
+
+import com.intellij.openapi.vfs.VirtualFile;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * The mutants, and the methods, that PIT ran the most tests against, which are where a run spends its time.
+ * Only the top entries are kept, on a heap holding the cheapest of them at its head so that each candidate is
+ * compared with just that one.
+ */
+public class ExpensiveMutants {
+    public record Mutant(VirtualFile file, Mutation mutation) {
+    }
+
+    public record Method(VirtualFile file, String method, long testsRun) {
+    }
+
+    private static final Comparator<Mutant> MUTANT_COST = Comparator.comparingInt(m -> m.mutation().testsRun());
+    private static final Comparator<Method> METHOD_COST = Comparator.comparingLong(Method::testsRun);
+
+    private final int limit;
+    private final PriorityQueue<Mutant> mutants = new PriorityQueue<>(MUTANT_COST);
+    private final PriorityQueue<Method> methods = new PriorityQueue<>(METHOD_COST);
+
+    /**
+     * @param limit number of mutants, and of methods, to keep
+     */
+    public ExpensiveMutants(int limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * Adds the mutants and methods of a file.
+     *
+     * @param fileMutations mutations of file
+     */
+    public void add(FileMutations fileMutations) {
+        VirtualFile file = fileMutations.getFile();
+        fileMutations.visitMutations(mutation -> {
+            if (mutation.testsRun() > 0) {
+                offer(mutants, new Mutant(file, mutation), MUTANT_COST);
+            }
+        });
+        fileMutations.getMethodTestsRun().forEach((method, testsRun) -> offer(methods, new Method(file, method, testsRun), METHOD_COST));
+    }
+
+    private <T> void offer(PriorityQueue<T> heap, T candidate, Comparator<T> cost) {
+        if (heap.size() < limit) {
+            heap.add(candidate);
+        } else if (limit > 0 && cost.compare(candidate, heap.peek()) > 0) {
+            heap.poll();
+            heap.add(candidate);
+        }
+    }
+
+    /**
+     * @return the most expensive mutants, most expensive first
+     */
+    public List<Mutant> getMutants() {
+        return sorted(mutants, MUTANT_COST);
+    }
+
+    /**
+     * @return the methods whose mutants were the most expensive in total, most expensive first
+     */
+    public List<Method> getMethods() {
+        return sorted(methods, METHOD_COST);
+    }
+
+    private static <T> List<T> sorted(PriorityQueue<T> heap, Comparator<T> cost) {
+        List<T> list = new ArrayList<>(heap);
+        list.sort(cost.reversed());
+        return list;
+    }
+
+    public String formatHtml() {
+        StringBuilder sb = new StringBuilder();
+        if (mutants.isEmpty()) {
+            return "<div>This report does not say how many tests were run against each mutant.</div>";
+        }
+        sb.append("<h3>Mutants with the most tests run</h3><table>");
+        sb.append("<tr><th align='right'>Tests</th><th align='left'>Status</th><th align='left'>Location</th><th align='left'>Mutation</th></tr>");
+        for (Mutant mutant : getMutants()) {
+            Mutation mutation = mutant.mutation();
+            sb.append("<tr><td align='right'>").append(mutation.testsRun())
+                    .append("</td><td>").append(mutation.mutationImpact())
+                    .append("</td><td>").append(escape(mutant.file().getName())).append(':').append(mutation.lineNumber())
+                    .append(' ').append(escape(mutation.method()))
+                    .append("</td><td>").append(escape(mutation.description())).append("</td></tr>");
+        }
+        sb.append("</table><h3>Methods with the most tests run against their mutants</h3><table>");
+        for (Method method : getMethods()) {
+            sb.append("<tr><td align='right'>").append(method.testsRun())
+                    .append("</td><td>").append(escape(method.file().getName())).append(' ').append(escape(method.method()))
+                    .append("</td></tr>");
+        }
+        sb.append("</table>");
+        return sb.toString();
+    }
+
+    private static String escape(String s) {
+        return s.replace("&", "&amp;").replace("<", "&lt;");
+    }
+}
@@ -0,0 +1,261 @@
+package org.pitestidea.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * How the mutations of a file differ from those of the same file in the previous run, found with one merge over
+ * the mutations of both runs. Mutations are matched by fingerprint, merging each run's mutations in order of
+ * fingerprint. Mutations that share a fingerprint are matched with those of the other run in order of line, and
+ * any left over were added or removed. If either run has a mutation without a fingerprint, they are instead
+ * merged by line, and matched within a line by method and description, each with the first such mutation of the
+ * previous run not yet matched, whatever their order on the line. A matched mutation whose impact differs
+ * has changed. Mutations that weren't matched were added to this run or removed from the previous one.
+ *
+ * <p>Mutations of either run are known by their position in the file's rows, which are in order of line.
+ */
+public final class FileDiff {
+    static final int UNMATCHED = -1;
+
+    private final MutationStore store;
+    private final int version;
+    private final MutationStore.Rows rows;
+    private final MutationStore lastStore;
+    private final MutationStore.Rows lastRows;
+    private final int lastVersion;
+    // Position in lastRows matched by each position in rows, or UNMATCHED, or null once no longer needed
+    private final int[] matched;
+    private final int[] added;
+    private final int[] removed;
+    private final int[] changed;
+
+    private FileDiff(MutationStore store, int version, MutationStore.Rows rows, MutationStore lastStore, MutationStore.Rows lastRows, int lastVersion,
+                     int[] matched, int[] added, int[] removed, int[] changed) {
+        this.store = store;
+        this.version = version;
+        this.rows = rows;
+        this.lastStore = lastStore;
+        this.lastRows = lastRows;
+        this.lastVersion = lastVersion;
+        this.matched = matched;
+        this.added = added;
+        this.removed = removed;
+        this.changed = changed;
+    }
+
+    /**
+     * Compares the rows of a file with those of the previous run.
+     *
+     * @param store       of this run
+     * @param version     of the store that rows were taken from
+     * @param rows        of the file in this run, by line
+     * @param order       positions in rows ordered by fingerprint and then position, or null if not all are known
+     * @param lastStore   of the previous run
+     * @param lastVersion of the previous store that lastRows were taken from
+     * @param lastRows    of the file in the previous run, by line
+     * @param lastOrder   positions in lastRows ordered by fingerprint and then position, or null if not all are known
+     * @return diff
+     */
+    static FileDiff compare(MutationStore store, int version, MutationStore.Rows rows, int[] order,
+                            MutationStore lastStore, int lastVersion, MutationStore.Rows lastRows, int[] lastOrder) {
+        Merge merge = new Merge(rows.size(), lastRows.size());
+        if (order == null || lastOrder == null) {
+            mergeByLine(merge, store, rows, lastStore, lastRows);
+        } else {
+            mergeByFingerprint(merge, store, rows, order, lastStore, lastRows, lastOrder);
+        }
+        return new FileDiff(store, version, rows, lastStore, lastRows, lastVersion, merge.matched,
+                Arrays.copyOf(merge.added, merge.addedCount),
+                Arrays.copyOf(merge.removed, merge.removedCount),
+                Arrays.copyOf(merge.changed, merge.changedCount));
+    }
+
+    /**
+     * Positions of both runs as they are found by a merge.
+     */
+    private static class Merge {
+        final int[] matched;
+        final int[] added;
+        final int[] removed;
+        final int[] changed;
+        int addedCount = 0;
+        int removedCount = 0;
+        int changedCount = 0;
+
+        Merge(int size, int lastSize) {
+            matched = new int[size];
+            Arrays.fill(matched, UNMATCHED);
+            added = new int[size];
+            removed = new int[lastSize];
+            changed = new int[size];
+        }
+
+        void match(MutationStore store, MutationStore.Rows rows, int position, MutationStore lastStore, MutationStore.Rows lastRows,
+                   int lastPosition) {
+            matched[position] = lastPosition;
+            if (store.impact(rows.get(position)) != lastStore.impact(lastRows.get(lastPosition))) {
+                changed[changedCount++] = position;
+            }
+        }
+    }
+
+    private static void mergeByFingerprint(Merge merge, MutationStore store, MutationStore.Rows rows, int[] order,
+                                           MutationStore lastStore, MutationStore.Rows lastRows, int[] lastOrder) {
+        int i = 0;
+        int j = 0;
+        while (i < order.length && j < lastOrder.length) {
+            long fingerprint = store.fingerprint(rows.get(order[i]));
+            long lastFingerprint = lastStore.fingerprint(lastRows.get(lastOrder[j]));
+            if (fingerprint < lastFingerprint) {
+                merge.added[merge.addedCount++] = order[i++];
+            } else if (fingerprint > lastFingerprint) {
+                merge.removed[merge.removedCount++] = lastOrder[j++];
+            } else {
+                merge.match(store, rows, order[i++], lastStore, lastRows, lastOrder[j++]);
+            }
+        }
+        while (i < order.length) {
+            merge.added[merge.addedCount++] = order[i++];
+        }
+        while (j < lastOrder.length) {
+            merge.removed[merge.removedCount++] = lastOrder[j++];
+        }
+        // Leave the sets in order of line, as a merge by line does
+        Arrays.sort(merge.added, 0, merge.addedCount);
+        Arrays.sort(merge.removed, 0, merge.removedCount);
+        Arrays.sort(merge.changed, 0, merge.changedCount);
+    }
+
+    private static void mergeByLine(Merge merge, MutationStore store, MutationStore.Rows rows, MutationStore lastStore,
+                                    MutationStore.Rows lastRows) {
+        int i = 0;
+        int j = 0;
+        while (i < rows.size() || j < lastRows.size()) {
+            int line = i < rows.size() ? store.line(rows.get(i)) : Integer.MAX_VALUE;
+            int lastLine = j < lastRows.size() ? lastStore.line(lastRows.get(j)) : Integer.MAX_VALUE;
+            if (line < lastLine) {
+                merge.added[merge.addedCount++] = i++;
+            } else if (line > lastLine) {
+                merge.removed[merge.removedCount++] = j++;
+            } else {
+                int end = i;
+                while (end < rows.size() && store.line(rows.get(end)) == line) {
+                    end++;
+                }
+                int lastEnd = j;
+                while (lastEnd < lastRows.size() && lastStore.line(lastRows.get(lastEnd)) == line) {
+                    lastEnd++;
+                }
+                mergeLine(merge, store, rows, i, end, lastStore, lastRows, j, lastEnd);
+                i = end;
+                j = lastEnd;
+            }
+        }
+    }
+
+    /**
+     * Matches the mutations of one line of both runs, each with the first of the previous run's of the same method
+     * and description not yet matched, so that a mutation added or removed doesn't unmatch the rest of the line.
+     */
+    private static void mergeLine(Merge merge, MutationStore store, MutationStore.Rows rows, int start, int end,
+                                  MutationStore lastStore, MutationStore.Rows lastRows, int lastStart, int lastEnd) {
+        boolean[] taken = new boolean[lastEnd - lastStart];
+        for (int i = start; i < end; i++) {
+            int row = rows.get(i);
+            int found = UNMATCHED;
+            for (int j = lastStart; j < lastEnd && found == UNMATCHED; j++) {
+                int lastRow = lastRows.get(j);
+                if (!taken[j - lastStart] && store.method(row).equals(lastStore.method(lastRow))
+                        && Mutation.sameText(store.description(row), lastStore.description(lastRow))) {
+                    found = j;
+                }
+            }
+            if (found == UNMATCHED) {
+                merge.added[merge.addedCount++] = i;
+            } else {
+                taken[found - lastStart] = true;
+                merge.match(store, rows, i, lastStore, lastRows, found);
+            }
+        }
+        for (int j = lastStart; j < lastEnd; j++) {
+            if (!taken[j - lastStart]) {
+                merge.removed[merge.removedCount++] = j;
+            }
+        }
+    }
+
+    int getVersion() {
+        return version;
+    }
+
+    int getLastVersion() {
+        return lastVersion;
+    }
+
+    /**
+     * @return the same diff without the match of each mutation, for keeping once lines have been summarized
+     */
+    FileDiff withoutMatches() {
+        return new FileDiff(store, version, rows, lastStore, lastRows, lastVersion, null, added, removed, changed);
+    }
+
+    /**
+     * @return rough number of bytes held by the diff, apart from the stores and rows it reads
+     */
+    long estimateHeapBytes() {
+        return HeapBytes.OBJECT + HeapBytes.of(matched) + HeapBytes.of(added) + HeapBytes.of(removed) + HeapBytes.of(changed);
+    }
+
+    /**
+     * @param position of a mutation of this run in the file's rows
+     * @return position in the previous run's rows of the mutation it matched, or UNMATCHED
+     * @throws IllegalStateException if the matches are no longer kept, see {@link #withoutMatches()}
+     */
+    int matched(int position) {
+        if (matched == null) {
+            throw new IllegalStateException("Matches aren't kept once lines are summarized");
+        }
+        return matched[position];
+    }
+
+    /**
+     * @return mutations of this run that weren't in the previous run, by line
+     */
+    public List<Mutation> getAdded() {
+        List<Mutation> mutations = new ArrayList<>(added.length);
+        for (int position : added) {
+            mutations.add(store.mutation(rows.get(position)));
+        }
+        return mutations;
+    }
+
+    /**
+     * @return mutations of the previous run that aren't in this run, by line
+     */
+    public List<Mutation> getRemoved() {
+        List<Mutation> mutations = new ArrayList<>(removed.length);
+        for (int position : removed) {
+            mutations.add(lastStore.mutation(lastRows.get(position)));
+        }
+        return mutations;
+    }
+
+    /**
+     * @return mutations of this run whose impact differs from the previous run, by line
+     */
+    public List<Mutation> getChanged() {
+        List<Mutation> mutations = new ArrayList<>(changed.length);
+        for (int position : changed) {
+            mutations.add(store.mutation(rows.get(position)));
+        }
+        return mutations;
+    }
+
+    /**
+     * @return number of mutations added, removed, and changed
+     */
+    public MutationsDiff getCounts() {
+        return new MutationsDiff(added.length, removed.length, changed.length);
+    }
+}
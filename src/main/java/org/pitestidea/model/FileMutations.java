@@ -3,23 +3,172 @@ package org.pitestidea.model;
 import com.intellij.openapi.vfs.VirtualFile;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.IntStream;
 
 /**
- * Records the outcome of PITest for a given file.
+ * Records the outcome of PITest for a given file. The mutations themselves are held by the {@link MutationStore}
+ * of the run, and each is only made into a {@link Mutation} when visited.
+ *
+ * <p>Until frozen, indexes and summaries are built when first needed. {@link #freeze()} builds them all into one
+ * immutable {@link Frozen} holder, which readers use from then on without writing anything, so that a frozen file
+ * is read from any thread without locking. After that the file only changes by swapping in a new sort order of
+ * methods through a volatile field.
+ *
+ * <p>The previous run is compared against through its {@link Previous} view, which has no link to the run
+ * before it, so that a chain of runs isn't kept alive by each one referring to the last.
  */
 public class FileMutations /*extends BaseMutationsScore*/ {
+    private static final int[] NO_ROWS = new int[0];
+    private static final MutationImpact[] IMPACTS = MutationImpact.values();
+    private static final int SAME_AS_LAST = Integer.MIN_VALUE;
+
     private final VirtualFile file;
     private final String pkg;
-    private final Map<Integer, List<Mutation>> lineMutations = new HashMap<>();
-    private final FileMutations lastFileMutations;
+    private final MutationStore store;
+    private final int fileId;
+    private final Map<String, MethodMutations> methods = new LinkedHashMap<>();
+    private volatile List<MethodMutations> sortedMethods = null;
+    private final Previous last;
+    // Everything built until frozen, when first needed and again whenever mutations have since been added
+    private BitSet coveredLines = null;
+    // Positions in this and the previous run's line index by fingerprint, or NO_ROWS if any is unknown, built
+    // when first compared. Not kept once frozen, since the comparison is then made for good
+    private int[] byFingerprint = null;
+    private int byFingerprintVersion;
+    private int[] lastByFingerprint = null;
+    private FileDiff diff = null;
+    private LineIndex lineIndex = null;
+    private LineSummaries lineSummaries = null;
+    private MethodIndex methodIndex = null;
+    // Set once, when all the above have been built for good
+    private volatile Frozen frozen = null;
 
+    /**
+     * @param lastFileMutations the same file in the previous run, or null, which is frozen if it isn't already
+     */
     public FileMutations(String pkg, VirtualFile file, FileMutations lastFileMutations) {
+        this(new MutationStore(), pkg, file, lastFileMutations == null ? null : lastFileMutations.asPrevious());
+    }
+
+    FileMutations(MutationStore store, String pkg, VirtualFile file, Previous last) {
         this.pkg = pkg;
         this.file = file;
-        this.lastFileMutations = lastFileMutations;
+        this.store = store;
+        this.fileId = store.addFile();
+        this.last = last;
+    }
+
+    /**
+     * What a later run compares against of a file: its mutations, their indexes, and the counts of its methods.
+     * It shares the store of its run, but has no link to the run before that.
+     */
+    static final class Previous {
+        private final MutationStore store;
+        private final LineIndex lineIndex;
+        private final Map<String, IMutationScore> methods;
+
+        private Previous(MutationStore store, LineIndex lineIndex, Map<String, IMutationScore> methods) {
+            this.store = store;
+            this.lineIndex = lineIndex;
+            this.methods = methods;
+        }
+
+        private List<Mutation> getMutations(int lineNumber) {
+            int lineIx = lineIndex.find(lineNumber);
+            return lineIx < 0 ? List.of() : mutations(store, lineIndex, lineIndex.starts()[lineIx], lineIndex.starts()[lineIx + 1]);
+        }
+
+        /**
+         * @return rough number of bytes a later run keeps alive through this view, apart from the store
+         */
+        long estimateHeapBytes() {
+            return HeapBytes.OBJECT + lineIndex.estimateHeapBytes() + methods.size() * (HeapBytes.MAP_ENTRY + HeapBytes.OBJECT);
+        }
+
+        /**
+         * @return rough number of bytes of this view that the file it was made from also holds
+         */
+        long estimateSharedHeapBytes() {
+            return lineIndex.estimateHeapBytes();
+        }
+    }
+
+    /**
+     * Everything built from the mutations of a frozen file.
+     *
+     * @param diff without the matches of each mutation, which are only needed to summarize lines
+     */
+    private record Frozen(LineIndex lineIndex, MethodIndex methodIndex, FileDiff diff,
+                          LineSummaries lineSummaries, BitSet coveredLines) {
+    }
+
+    /**
+     * Builds the indexes, the comparison with the previous run, and the line summaries, after the mutations of the
+     * run have all been added and its store frozen. Readers then find them built rather than building them.
+     * What was only needed to build them, such as the orders by fingerprint, isn't kept. Does nothing if already
+     * frozen.
+     */
+    void freeze() {
+        if (frozen == null) {
+            LineIndex index = lineIndex();
+            FileDiff fileDiff = last == null ? null : diff(index, last);
+            LineSummaries summaries = lineSummaries(index);
+            frozen = new Frozen(index, methodIndex(), fileDiff == null ? null : fileDiff.withoutMatches(), summaries,
+                    coveredLines);
+            byFingerprint = null;
+            lastByFingerprint = null;
+            diff = null;
+            lineIndex = null;
+            lineSummaries = null;
+            methodIndex = null;
+        }
+    }
+
+    /**
+     * Measures the heap held by the file's indexes, summaries and method scores, but not by its mutations,
+     * which the store holds. Indexes are only counted once frozen, since until then they may be rebuilt by the thread writing the file.
+     *
+     * @return rough number of bytes
+     */
+    long estimateHeapBytes() {
+        long bytes = HeapBytes.OBJECT + methods.size() * (HeapBytes.MAP_ENTRY + HeapBytes.OBJECT);
+        Frozen built = frozen;
+        if (built != null) {
+            bytes += HeapBytes.OBJECT + built.lineIndex().estimateHeapBytes() + built.methodIndex().estimateHeapBytes()
+                    + (built.diff() == null ? 0 : built.diff().estimateHeapBytes()) + built.lineSummaries().estimateHeapBytes()
+                    + HeapBytes.of(built.coveredLines());
+        }
+        return bytes;
+    }
+
+    /**
+     * @return true if no more mutations can be added, see {@link #freeze()}
+     */
+    public boolean isFrozen() {
+        return frozen != null;
+    }
+
+    /**
+     * Makes what a later run compares against of this file, freezing it if not already. It is made each time
+     * asked rather than kept, so that the copies of method scores are only held while a later run needs them.
+     *
+     * @return view of this file for a later run
+     */
+    Previous asPrevious() {
+        if (frozen == null) {
+            store.freeze();
+            freeze();
+        }
+        Map<String, IMutationScore> lastMethods = new HashMap<>();
+        methods.forEach((name, method) -> lastMethods.put(name, method.withoutLast()));
+        return new Previous(store, frozen.lineIndex(), lastMethods);
     }
 
     public String getPkg() {
@@ -35,8 +184,205 @@ public class FileMutations /*extends BaseMutationsScore*/ {
     }
 
     public void add(int lineNumber, Mutation mutation) {
-        List<Mutation> mutations = lineMutations.computeIfAbsent(lineNumber, _x -> new ArrayList<>());
-        mutations.add(mutation);
+        store.add(fileId, lineNumber, mutation);
+        methods.computeIfAbsent(mutation.method(), name -> new MethodMutations(name, methods.size(),
+                        last == null ? null : last.methods.get(name)))
+                .add(lineNumber, mutation.mutationImpact(), mutation.testsRun());
+    }
+
+    /**
+     * @return number of tests PIT ran against the mutations of each method, for methods where any were run
+     */
+    public Map<String, Long> getMethodTestsRun() {
+        Map<String, Long> methodTestsRun = new LinkedHashMap<>();
+        methods.forEach((name, method) -> {
+            if (method.getTestsRun() > 0) {
+                methodTestsRun.put(name, method.getTestsRun());
+            }
+        });
+        return methodTestsRun;
+    }
+
+    /**
+     * @return scores of the methods with mutations, sorted if {@link #sortMethods(Comparator)} was called and
+     * otherwise in the order first recorded
+     */
+    public List<MethodMutations> getMethods() {
+        List<MethodMutations> sorted = sortedMethods;
+        return sorted == null ? List.copyOf(methods.values()) : sorted;
+    }
+
+    /**
+     * Sets the order that {@link #getMethods()} returns methods in.
+     *
+     * @param cmp to sort by
+     */
+    public void sortMethods(Comparator<? super MethodMutations> cmp) {
+        sortedMethods = methods.values().stream().sorted(cmp).toList();
+    }
+
+    /**
+     * The rows of the file sorted by line, with the distinct lines in ascending order and the index into the rows
+     * where each line's mutations start, so that a line or a range of lines is found by binary search. Once the
+     * store is grouped, the rows are its range for the file and aren't copied.
+     *
+     * @param version of the store the index was built from
+     * @param rows    of the file, by line and then in the order added
+     * @param lines   distinct line numbers, ascending
+     * @param starts  index into rows of the first mutation of each line, followed by the number of rows
+     */
+    private record LineIndex(int version, MutationStore.Rows rows, int[] lines, int[] starts) {
+        /**
+         * @return position in lines of the first line at or after lineNumber, which is lines.length if none
+         */
+        int ceiling(int lineNumber) {
+            int ix = Arrays.binarySearch(lines, lineNumber);
+            return ix < 0 ? -ix - 1 : ix;
+        }
+
+        /**
+         * @return position in lines of lineNumber, or -1 if it has no mutations
+         */
+        int find(int lineNumber) {
+            int ix = Arrays.binarySearch(lines, lineNumber);
+            return ix < 0 ? -1 : ix;
+        }
+
+        int size(int lineIx) {
+            return starts[lineIx + 1] - starts[lineIx];
+        }
+
+        long estimateHeapBytes() {
+            return 2 * HeapBytes.OBJECT + HeapBytes.of(rows.listed()) + HeapBytes.of(lines) + HeapBytes.of(starts);
+        }
+    }
+
+    /**
+     * @return index of lines, rebuilt if mutations have been added or moved since it was last built
+     */
+    private LineIndex lineIndex() {
+        Frozen built = frozen;
+        if (built != null) {
+            return built.lineIndex();
+        }
+        LineIndex index = lineIndex;
+        int version = store.getVersion();
+        if (index == null || index.version() != version) {
+            MutationStore.Rows rows = store.rowsOf(fileId);
+            int[] lines = new int[rows.size()];
+            int[] starts = new int[rows.size() + 1];
+            int count = 0;
+            for (int i = 0; i < rows.size(); i++) {
+                int lineNumber = store.line(rows.get(i));
+                if (count == 0 || lines[count - 1] != lineNumber) {
+                    lines[count] = lineNumber;
+                    starts[count++] = i;
+                }
+            }
+            starts[count] = rows.size();
+            index = new LineIndex(version, rows, Arrays.copyOf(lines, count), Arrays.copyOf(starts, count + 1));
+            lineIndex = index;
+        }
+        return index;
+    }
+
+    /**
+     * For each line of a {@link LineIndex}, the summary of its mutations, and the line of the previous run they
+     * differ from with the summary of its mutations.
+     *
+     * @param version       of the index the summaries were made from
+     * @param lastVersion   of the previous run's index, or -1 if there is no previous run
+     * @param summaries     ordinal of the summary of each line
+     * @param lastSummaries ordinal of the summary of the previous run's line, the same as summaries if not different,
+     *                      or null if there is no previous run
+     * @param lastLines     line of the previous run whose mutations differ, or SAME_AS_LAST if none differ, or null
+     *                      if there is no previous run
+     */
+    private record LineSummaries(int version, int lastVersion, byte[] summaries, byte[] lastSummaries, int[] lastLines) {
+        byte lastSummary(int ix) {
+            return lastSummaries == null ? summaries[ix] : lastSummaries[ix];
+        }
+
+        int lastLine(int ix) {
+            return lastLines == null ? SAME_AS_LAST : lastLines[ix];
+        }
+
+        long estimateHeapBytes() {
+            return HeapBytes.OBJECT + HeapBytes.of(summaries) + HeapBytes.of(lastSummaries) + HeapBytes.of(lastLines);
+        }
+    }
+
+    /**
+     * Works out the summary of each line and how it compares with the previous run, so that visiting the lines
+     * later need not. Lines are summarized again when visited if mutations have since been added.
+     */
+    public void summarize() {
+        lineSummaries(lineIndex());
+    }
+
+    private LineSummaries lineSummaries(LineIndex index) {
+        Frozen built = frozen;
+        if (built != null) {
+            return built.lineSummaries();
+        }
+        FileDiff fileDiff = last == null ? null : diff(index, last);
+        int lastVersion = fileDiff == null ? -1 : fileDiff.getLastVersion();
+        LineSummaries cached = lineSummaries;
+        if (cached != null && cached.version() == index.version() && cached.lastVersion() == lastVersion) {
+            return cached;
+        }
+        int[] lines = index.lines();
+        byte[] summaries = new byte[lines.length];
+        byte[] lastSummaries = fileDiff == null ? null : new byte[lines.length];
+        int[] lastLines = fileDiff == null ? null : new int[lines.length];
+        for (int ix = 0; ix < lines.length; ix++) {
+            List<Mutation> mutations = mutations(store, index, index.starts()[ix], index.starts()[ix + 1]);
+            summaries[ix] = (byte) LineImpact.lineSummary(mutations).ordinal();
+            if (fileDiff == null) {
+                continue;
+            }
+            List<Mutation> lastMutations = LineImpact.resolveSameOrDifferent(mutations, lastMutationsOf(index, ix, fileDiff));
+            if (lastMutations == null) {
+                lastSummaries[ix] = summaries[ix];
+                lastLines[ix] = SAME_AS_LAST;
+            } else {
+                lastSummaries[ix] = (byte) LineImpact.lineSummary(lastMutations).ordinal();
+                lastLines[ix] = lastMutations.get(0).lineNumber();
+            }
+        }
+        LineSummaries computed = new LineSummaries(index.version(), lastVersion, summaries, lastSummaries, lastLines);
+        lineSummaries = computed;
+        return computed;
+    }
+
+    public interface MutationVisitor {
+        void visit(Mutation mutation);
+    }
+
+    /**
+     * Visits every mutation of the file, by line.
+     *
+     * @param visitor to call for each mutation
+     */
+    public void visitMutations(MutationVisitor visitor) {
+        MutationStore.Rows rows = lineIndex().rows();
+        for (int i = 0; i < rows.size(); i++) {
+            visitor.visit(store.mutation(rows.get(i)));
+        }
+    }
+
+    /**
+     * Returns the mutations on a range of lines.
+     *
+     * @param fromLine first line, inclusive
+     * @param toLine   last line, inclusive
+     * @return mutations by line, empty if none
+     */
+    public List<Mutation> getMutations(int fromLine, int toLine) {
+        LineIndex index = lineIndex();
+        int from = index.ceiling(fromLine);
+        int to = toLine == Integer.MAX_VALUE ? index.lines().length : index.ceiling(toLine + 1);
+        return from < to ? mutations(store, index, index.starts()[from], index.starts()[to]) : List.of();
     }
 
     public interface LineVisitor {
@@ -44,21 +390,267 @@ public class FileMutations /*extends BaseMutationsScore*/ {
     }
 
     public void visit(LineVisitor visitor) {
-        lineMutations.forEach((lineNumber, lines) -> {
-            List<Mutation> lastMutations = lastFileMutations == null ? null : lastFileMutations.lineMutations.get(lineNumber);
-            LineImpact lineImpact = new LineImpact(lineNumber, lines, lastMutations);
-            visitor.visit(lineImpact);
-        });
+        visit(Integer.MIN_VALUE, Integer.MAX_VALUE, visitor);
     }
 
-    public List<Mutation> getLineMutations(String methodName) {
-        List<Mutation> methodMutations = new ArrayList<>();
-        for (List<Mutation> mutations : lineMutations.values()) {
-            for (Mutation mutation: mutations) {
-                if (mutation.method().equals(methodName)) {
-                    methodMutations.add(mutation);
+    /**
+     * Visits the lines with mutations in a range, in order.
+     *
+     * @param fromLine first line, inclusive
+     * @param toLine   last line, inclusive
+     * @param visitor  to call for each line with mutations
+     */
+    public void visit(int fromLine, int toLine, LineVisitor visitor) {
+        LineIndex index = lineIndex();
+        LineSummaries summaries = lineSummaries(index);
+        int[] lines = index.lines();
+        for (int ix = index.ceiling(fromLine); ix < lines.length && lines[ix] <= toLine; ix++) {
+            int from = index.starts()[ix];
+            int to = index.starts()[ix + 1];
+            int lastLine = summaries.lastLine(ix);
+            visitor.visit(new LineImpact(lines[ix], IMPACTS[summaries.summaries()[ix]], IMPACTS[summaries.lastSummary(ix)],
+                    () -> mutations(store, index, from, to),
+                    lastLine == SAME_AS_LAST || last == null ? null : () -> last.getMutations(lastLine)));
+        }
+    }
+
+    private static List<Mutation> mutations(MutationStore store, LineIndex index, int from, int to) {
+        List<Mutation> mutations = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            mutations.add(store.mutation(index.rows().get(i)));
+        }
+        return mutations;
+    }
+
+    /**
+     * Compares this file with the previous run, if there was one. The comparison is made once, and again only
+     * if mutations have since been added.
+     *
+     * @return diff, or null if there was no previous run of this file
+     */
+    public FileDiff getDiff() {
+        Frozen built = frozen;
+        if (built != null) {
+            return built.diff();
+        }
+        return last == null ? null : diff(lineIndex(), last);
+    }
+
+    private FileDiff diff(LineIndex index, Previous last) {
+        LineIndex lastIndex = last.lineIndex;
+        FileDiff cached = diff;
+        if (cached == null || cached.getVersion() != index.version()) {
+            if (byFingerprint == null || byFingerprintVersion != index.version()) {
+                byFingerprint = fingerprintOrder(store, index);
+                byFingerprintVersion = index.version();
+            }
+            if (lastByFingerprint == null) {
+                lastByFingerprint = fingerprintOrder(last.store, lastIndex);
+            }
+            cached = FileDiff.compare(store, index.version(), index.rows(), byFingerprint == NO_ROWS ? null : byFingerprint,
+                    last.store, lastIndex.version(), lastIndex.rows(), lastByFingerprint == NO_ROWS ? null : lastByFingerprint);
+            diff = cached;
+        }
+        return cached;
+    }
+
+    /**
+     * Finds the mutations of the previous run that correspond to those of a line. They are the mutations each
+     * was matched with, so that a line that has only moved is compared with where it was before. If any of the
+     * mutations weren't matched, or the line they were matched on held other mutations too, the line of the same
+     * number is returned instead.
+     *
+     * @param index    of this file's lines
+     * @param lineIx   position of line in index
+     * @param fileDiff of this file against the previous run
+     * @return mutations of the previous run to compare against, or null if none
+     */
+    private List<Mutation> lastMutationsOf(LineIndex index, int lineIx, FileDiff fileDiff) {
+        LineIndex lastIndex = last.lineIndex;
+        int sameLineIx = lastIndex.find(index.lines()[lineIx]);
+        List<Mutation> sameLine = sameLineIx < 0 ? null
+                : mutations(last.store, lastIndex, lastIndex.starts()[sameLineIx], lastIndex.starts()[sameLineIx + 1]);
+        int from = index.starts()[lineIx];
+        int to = index.starts()[lineIx + 1];
+        int lastLineIx = -1;
+        for (int position = from; position < to; position++) {
+            int lastPosition = fileDiff.matched(position);
+            if (lastPosition == FileDiff.UNMATCHED) {
+                return sameLine;
+            }
+            int matchedLineIx = lastIndex.find(last.store.line(lastIndex.rows().get(lastPosition)));
+            if (lastLineIx >= 0 && matchedLineIx != lastLineIx) {
+                return sameLine;
+            }
+            lastLineIx = matchedLineIx;
+        }
+        if (lastIndex.size(lastLineIx) != to - from) {
+            return sameLine;
+        }
+        List<Mutation> matched = new ArrayList<>(to - from);
+        for (int position = from; position < to; position++) {
+            matched.add(last.store.mutation(lastIndex.rows().get(fileDiff.matched(position))));
+        }
+        return matched;
+    }
+
+    /**
+     * @return positions in the index ordered by fingerprint and then by position, or NO_ROWS if any mutation has
+     * no fingerprint
+     */
+    private static int[] fingerprintOrder(MutationStore store, LineIndex index) {
+        MutationStore.Rows rows = index.rows();
+        long[] fingerprints = new long[rows.size()];
+        for (int i = 0; i < fingerprints.length; i++) {
+            fingerprints[i] = store.fingerprint(rows.get(i));
+            if (fingerprints[i] == MutationFingerprint.UNKNOWN) {
+                return NO_ROWS;
+            }
+        }
+        return stableOrder(fingerprints);
+    }
+
+    /**
+     * Merge sorts positions by their keys, keeping positions of equal keys in order, without boxing either.
+     *
+     * @param keys of each position
+     * @return positions by key
+     */
+    static int[] stableOrder(long[] keys) {
+        int[] order = new int[keys.length];
+        Arrays.setAll(order, i -> i);
+        int[] merged = new int[keys.length];
+        for (int width = 1; width < keys.length; width *= 2) {
+            for (int from = 0; from < keys.length; from += 2 * width) {
+                int mid = Math.min(from + width, keys.length);
+                int to = Math.min(mid + width, keys.length);
+                int i = from;
+                int j = mid;
+                int k = from;
+                while (i < mid && j < to) {
+                    merged[k++] = keys[order[j]] < keys[order[i]] ? order[j++] : order[i++];
+                }
+                while (i < mid) {
+                    merged[k++] = order[i++];
+                }
+                while (j < to) {
+                    merged[k++] = order[j++];
                 }
             }
+            int[] sorted = merged;
+            merged = order;
+            order = sorted;
+        }
+        return order;
+    }
+
+    /**
+     * Sets the lines that were run by tests.
+     *
+     * @param coveredLines numbers of covered lines, starting at 1
+     */
+    public void setCoveredLines(BitSet coveredLines) {
+        if (frozen != null) {
+            throw new IllegalStateException("Coverage can't be changed once frozen");
+        }
+        this.coveredLines = coveredLines;
+    }
+
+    /**
+     * @return numbers of covered lines, or null if coverage is not known
+     */
+    public BitSet getCoveredLines() {
+        Frozen built = frozen;
+        return built != null ? built.coveredLines() : coveredLines;
+    }
+
+    public interface CoverageVisitor {
+        void visit(int lineNumber, boolean survived);
+    }
+
+    /**
+     * Visits lines that were run by tests and either have no mutations or have mutations that survived.
+     * Visits nothing if coverage is not known.
+     *
+     * @param visitor to call for each such line
+     */
+    public void visitCoverage(CoverageVisitor visitor) {
+        BitSet coveredLines = getCoveredLines();
+        if (coveredLines != null) {
+            LineIndex index = lineIndex();
+            for (int line = coveredLines.nextSetBit(0); line >= 0; line = coveredLines.nextSetBit(line + 1)) {
+                int lineIx = index.find(line);
+                if (lineIx < 0) {
+                    visitor.visit(line, false);
+                } else if (IntStream.range(index.starts()[lineIx], index.starts()[lineIx + 1])
+                        .anyMatch(i -> store.impact(index.rows().get(i)) == MutationImpact.SURVIVED)) {
+                    visitor.visit(line, true);
+                }
+            }
+        }
+    }
+
+    /**
+     * Positions in the line index grouped by method, in the order methods were first recorded and then by line,
+     * so that the mutations of a method are the range starting at its {@link MethodMutations#getFirstPosition()}.
+     *
+     * @param version  of the store the index was built from
+     * @param byMethod positions in the line index, by method
+     */
+    private record MethodIndex(int version, int[] byMethod) {
+        long estimateHeapBytes() {
+            return HeapBytes.OBJECT + HeapBytes.of(byMethod);
+        }
+    }
+
+    /**
+     * @return index of methods, rebuilt if mutations have been added or moved since it was last built
+     */
+    private MethodIndex methodIndex() {
+        Frozen built = frozen;
+        if (built != null) {
+            return built.methodIndex();
+        }
+        LineIndex lines = lineIndex();
+        MethodIndex index = methodIndex;
+        if (index == null || index.version() != lines.version()) {
+            // Methods are ordered as first recorded, which is also their order in the map
+            int[] next = new int[methods.size()];
+            int from = 0;
+            for (MethodMutations method : methods.values()) {
+                method.setFirstPosition(from);
+                next[method.getOrder()] = from;
+                from += method.getMutationsTotal();
+            }
+            MutationStore.Rows rows = lines.rows();
+            int[] byMethod = new int[rows.size()];
+            for (int position = 0; position < byMethod.length; position++) {
+                byMethod[next[methods.get(store.method(rows.get(position))).getOrder()]++] = position;
+            }
+            index = new MethodIndex(lines.version(), byMethod);
+            methodIndex = index;
+        }
+        return index;
+    }
+
+    /**
+     * Returns the mutations of a method, found through the {@link MethodIndex} rather than by going through
+     * those of the whole file.
+     *
+     * @param methodName name of method
+     * @return mutations by line, empty if none
+     */
+    public List<Mutation> getLineMutations(String methodName) {
+        MethodMutations method = methods.get(methodName);
+        if (method == null) {
+            return List.of();
+        }
+        int[] byMethod = methodIndex().byMethod();
+        MutationStore.Rows rows = lineIndex().rows();
+        int from = method.getFirstPosition();
+        List<Mutation> methodMutations = new ArrayList<>(method.getMutationsTotal());
+        for (int i = from; i < from + method.getMutationsTotal(); i++) {
+            methodMutations.add(store.mutation(rows.get(byMethod[i])));
         }
         return methodMutations;
     }
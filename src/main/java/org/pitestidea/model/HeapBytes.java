@@ -0,0 +1,36 @@
+package org.pitestidea.model;
+
+import java.util.BitSet;
+
+/**
+ * Sizes of what a run holds on the heap, worked out from the lengths of its arrays and the number of its
+ * objects, for a 64-bit JVM with compressed object references. Strings shared through the recorder's pool
+ * aren't counted against any one run.
+ */
+final class HeapBytes {
+    // A small object such as a record or a score, with its header
+    static final long OBJECT = 32;
+    // An entry of a HashMap, with its share of the table
+    static final long MAP_ENTRY = 40;
+    static final long REFERENCE = 4;
+    private static final long ARRAY_HEADER = 16;
+
+    private HeapBytes() {
+    }
+
+    static long array(int length, long elementBytes) {
+        return (ARRAY_HEADER + length * elementBytes + 7) & ~7L;
+    }
+
+    static long of(int[] array) {
+        return array == null ? 0 : array(array.length, Integer.BYTES);
+    }
+
+    static long of(byte[] array) {
+        return array == null ? 0 : array(array.length, Byte.BYTES);
+    }
+
+    static long of(BitSet bits) {
+        return bits == null ? 0 : OBJECT + array(bits.size() / Long.SIZE, Long.BYTES);
+    }
+}
@@ -0,0 +1,196 @@
+package org.pitestidea.model;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Records which tests killed each mutant of a run, and which ran against it without killing it. Tests are
+ * rows and mutants are columns: each test name is held once in an id table, and each row is a bitset over
+ * mutants in the order they were recorded.
+ *
+ * <p>PIT only reports every killing test when run with its full mutation matrix option. Otherwise just the
+ * first test to kill each mutant is known, which makes tests look more unique than they are.
+ *
+ * <p>Not thread-safe.
+ */
+public class KillMatrix {
+    private final Map<String, Integer> testIds = new HashMap<>();
+    private final List<String> testNames = new ArrayList<>();
+    private final List<BitSet> kills = new ArrayList<>();
+    private final List<BitSet> survivals = new ArrayList<>();
+    private int mutantCount = 0;
+    private boolean anySucceeding = false;
+
+    /**
+     * Adds a column for the next mutant.
+     *
+     * @param killingTests    tests that killed the mutant
+     * @param succeedingTests tests that ran against the mutant without killing it
+     * @return index of the mutant
+     */
+    public int addMutant(List<String> killingTests, List<String> succeedingTests) {
+        int mutant = mutantCount++;
+        for (String test : killingTests) {
+            kills.get(idOf(test)).set(mutant);
+        }
+        for (String test : succeedingTests) {
+            survivals.get(idOf(test)).set(mutant);
+            anySucceeding = true;
+        }
+        return mutant;
+    }
+
+    private int idOf(String test) {
+        return testIds.computeIfAbsent(test, k -> {
+            testNames.add(k);
+            kills.add(new BitSet());
+            survivals.add(new BitSet());
+            return testNames.size() - 1;
+        });
+    }
+
+    public int getTestCount() {
+        return testNames.size();
+    }
+
+    public int getMutantCount() {
+        return mutantCount;
+    }
+
+    /**
+     * Measures the heap held by the names of tests and their rows, from the lengths of the names and the sizes
+     * of the bitsets.
+     *
+     * @return rough number of bytes
+     */
+    long estimateHeapBytes() {
+        long bytes = HeapBytes.OBJECT;
+        for (int test = 0; test < testNames.size(); test++) {
+            bytes += HeapBytes.MAP_ENTRY + 3 * HeapBytes.REFERENCE + HeapBytes.OBJECT
+                    + HeapBytes.array(testNames.get(test).length(), Byte.BYTES)
+                    + HeapBytes.of(kills.get(test)) + HeapBytes.of(survivals.get(test));
+        }
+        return bytes;
+    }
+
+    /**
+     * @return true if any mutant is known to have had tests run against it without being killed, which
+     * PIT only reports with its full mutation matrix option
+     */
+    public boolean hasSucceedingTests() {
+        return anySucceeding;
+    }
+
+    /**
+     * Returns tests that could be removed one at a time without any mutant surviving, because every mutant they
+     * kill is also killed by some other test. This includes tests that kill nothing.
+     *
+     * @return test names, sorted
+     */
+    public List<String> getTestsWithoutUniqueKills() {
+        int[] killers = new int[mutantCount];
+        for (BitSet row : kills) {
+            row.stream().forEach(mutant -> killers[mutant]++);
+        }
+        List<String> tests = new ArrayList<>();
+        for (int test = 0; test < kills.size(); test++) {
+            if (kills.get(test).stream().noneMatch(mutant -> killers[mutant] == 1)) {
+                tests.add(testNames.get(test));
+            }
+        }
+        tests.sort(null);
+        return tests;
+    }
+
+    private record Candidate(int test, int gain) {
+    }
+
+    /**
+     * Returns tests that could all be removed together without any mutant surviving. The tests kept are chosen
+     * by repeatedly keeping whichever test kills the most mutants not killed by those already kept, so they are
+     * a small set though not necessarily the smallest.
+     *
+     * @return test names, sorted
+     */
+    public List<String> getRemovableTests() {
+        long[][] rows = new long[kills.size()][];
+        long[] unkilled = new long[(mutantCount + 63) / 64];
+        for (int test = 0; test < rows.length; test++) {
+            rows[test] = kills.get(test).toLongArray();
+            for (int i = 0; i < rows[test].length; i++) {
+                unkilled[i] |= rows[test][i];
+            }
+        }
+
+        // A test's gain can only go down as others are kept, so a stale gain is an upper bound and only
+        // the candidate at the head of the queue needs to be brought up to date
+        PriorityQueue<Candidate> queue = new PriorityQueue<>(Comparator.comparingInt(Candidate::gain).reversed()
+                .thenComparingInt(Candidate::test));
+        for (int test = 0; test < rows.length; test++) {
+            queue.add(new Candidate(test, gain(rows[test], unkilled)));
+        }
+        boolean[] kept = new boolean[rows.length];
+        while (!queue.isEmpty()) {
+            Candidate head = queue.poll();
+            if (head.gain() == 0) {
+                break;  // Everything killed is killed by a kept test
+            }
+            int gain = gain(rows[head.test()], unkilled);
+            if (gain < head.gain()) {
+                queue.add(new Candidate(head.test(), gain));
+            } else {
+                kept[head.test()] = true;
+                long[] row = rows[head.test()];
+                for (int i = 0; i < row.length; i++) {
+                    unkilled[i] &= ~row[i];
+                }
+            }
+        }
+
+        List<String> tests = new ArrayList<>();
+        for (int test = 0; test < kept.length; test++) {
+            if (!kept[test]) {
+                tests.add(testNames.get(test));
+            }
+        }
+        tests.sort(null);
+        return tests;
+    }
+
+    private static int gain(long[] row, long[] unkilled) {
+        int gain = 0;
+        for (int i = 0; i < row.length; i++) {
+            gain += Long.bitCount(row[i] & unkilled[i]);
+        }
+        return gain;
+    }
+
+    /**
+     * Formats the redundant-test analysis for display.
+     *
+     * @return html fragment
+     */
+    public String formatHtml() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<div>").append(testNames.size()).append(" tests, ").append(mutantCount).append(" mutants</div>");
+        if (!anySucceeding) {
+            sb.append("<div style='color:#ff8080'>Only the first test to kill each mutant is known, so fewer tests")
+                    .append(" will look redundant than actually are. Check 'Kill matrix' and rerun for full results.</div>");
+        }
+        appendTests(sb, "Tests that kill no mutant that another test doesn't also kill", getTestsWithoutUniqueKills());
+        appendTests(sb, "Tests that could all be removed without losing any kills", getRemovableTests());
+        return sb.toString();
+    }
+
+    private static void appendTests(StringBuilder sb, String title, List<String> tests) {
+        sb.append("<h3>").append(title).append(" (").append(tests.size()).append(")</h3>");
+        for (String test : tests) {
+            sb.append("<div>").append(test.replace("&", "&amp;").replace("<", "&lt;")).append("</div>");
+        }
+    }
+}
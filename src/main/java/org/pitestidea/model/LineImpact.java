@@ -4,31 +4,65 @@ import com.google.common.annotations.VisibleForTesting;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.List;
+import java.util.function.Supplier;
 
+/**
+ * The mutations of one line and, if they differ, those of the corresponding line in the previous run. Lines visited
+ * from a {@link FileMutations} have their summaries worked out in advance, and only list their mutations
+ * when asked for them.
+ */
 public class LineImpact {
     private final int lineNumber;
     private final MutationImpact lineImpactSummary;
-    private final List<Mutation> mutations;
     private final MutationImpact lastMutationImpactSummary;
-    private final List<Mutation> lastMutations;
+    private final Supplier<List<Mutation>> mutationsSupplier;
+    private final Supplier<List<Mutation>> lastMutationsSupplier;
+    private List<Mutation> mutations;
+    private List<Mutation> lastMutations;
 
     public LineImpact(int lineNumber, List<Mutation> mutations, List<Mutation> lastMutations) {
         this.lineNumber = lineNumber;
         this.lineImpactSummary = lineSummary(mutations);
         this.mutations = mutations;
         this.lastMutations = resolveSameOrDifferent(mutations, lastMutations);
-        this.lastMutationImpactSummary = this.lastMutations == null ? lineImpactSummary : lineSummary(lastMutations);
+        this.lastMutationImpactSummary = this.lastMutations == null ? lineImpactSummary : lineSummary(this.lastMutations);
+        this.mutationsSupplier = null;
+        this.lastMutationsSupplier = null;
     }
 
     /**
-     * Compares lists and returns null if the same.
+     * @param lineNumber            of line
+     * @param lineImpactSummary     of the line's mutations
+     * @param lastImpactSummary     of the previous run's mutations if they differ, else the same as lineImpactSummary
+     * @param mutationsSupplier     lists the line's mutations
+     * @param lastMutationsSupplier lists the previous run's mutations, or null if they are the same or there are none
+     */
+    LineImpact(int lineNumber, MutationImpact lineImpactSummary, MutationImpact lastImpactSummary,
+               Supplier<List<Mutation>> mutationsSupplier, @Nullable Supplier<List<Mutation>> lastMutationsSupplier) {
+        this.lineNumber = lineNumber;
+        this.lineImpactSummary = lineImpactSummary;
+        this.lastMutationImpactSummary = lastImpactSummary;
+        this.mutationsSupplier = mutationsSupplier;
+        this.lastMutationsSupplier = lastMutationsSupplier;
+    }
+
+    /**
+     * Compares lists and returns null if the same, see {@link Mutation#sameAs(Mutation)}.
      *
      * @param mutations     compare
      * @param lastMutations compare
      * @return null if same, else lastMutations
      */
-    private static @Nullable List<Mutation> resolveSameOrDifferent(List<Mutation> mutations, List<Mutation> lastMutations) {
-        return !mutations.equals(lastMutations) ? lastMutations : null;
+    static @Nullable List<Mutation> resolveSameOrDifferent(List<Mutation> mutations, List<Mutation> lastMutations) {
+        if (lastMutations == null || mutations.size() != lastMutations.size()) {
+            return lastMutations;
+        }
+        for (int i = 0; i < mutations.size(); i++) {
+            if (!mutations.get(i).sameAs(lastMutations.get(i))) {
+                return lastMutations;
+            }
+        }
+        return null;
     }
 
     public enum LineImpactPoint {
@@ -45,7 +79,16 @@ public class LineImpact {
     }
 
     public List<Mutation> getMutations(LineImpactPoint point) {
-        return point == LineImpactPoint.CURRENT ? mutations : lastMutations;
+        if (point == LineImpactPoint.CURRENT) {
+            if (mutations == null) {
+                mutations = mutationsSupplier.get();
+            }
+            return mutations;
+        }
+        if (lastMutations == null && lastMutationsSupplier != null) {
+            lastMutations = lastMutationsSupplier.get();
+        }
+        return lastMutations;
     }
 
     @VisibleForTesting
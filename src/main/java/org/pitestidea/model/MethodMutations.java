@@ -0,0 +1,49 @@
+package org.pitestidea.model;
+
+/**
+ * The score of one method of a file, counted as its mutations are recorded, so that methods can be shown
+ * and sorted beneath their file. Methods are known by name only, so overloads share a score. The mutations
+ * themselves are found through {@link FileMutations#getLineMutations(String)}, from where they start in the
+ * file's index of methods.
+ */
+public class MethodMutations extends BaseMutationsScore {
+    private final String name;
+    private int firstLine = Integer.MAX_VALUE;
+    // Start of this method's mutations in the file's index of methods, set whenever the index is built
+    private int firstPosition = 0;
+
+    MethodMutations(String name, int order, IMutationScore lastScore) {
+        super(order, lastScore);
+        this.name = name;
+    }
+
+    void add(int lineNumber, MutationImpact impact, int testsRun) {
+        accountFor(impact, testsRun);
+        firstLine = Math.min(firstLine, lineNumber);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getQualifiedName() {
+        return name;
+    }
+
+    /**
+     * @return lowest line with a mutation of this method
+     */
+    public int getFirstLine() {
+        return firstLine;
+    }
+
+    int getFirstPosition() {
+        return firstPosition;
+    }
+
+    void setFirstPosition(int firstPosition) {
+        this.firstPosition = firstPosition;
+    }
+}
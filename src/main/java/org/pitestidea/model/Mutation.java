@@ -1,8 +1,62 @@
 package org.pitestidea.model;
 
+import java.util.Objects;
+
+/**
+ * One mutation of a line. The description may be held as text that is only decoded when {@link #description()}
+ * is called (see {@link org.pitestidea.reader.MutationsSnapshot}), so mutations are compared by the content of
+ * their descriptions rather than by how they are held.
+ *
+ * <p>The fingerprint identifies the mutation across runs regardless of its line (see {@link MutationFingerprint}),
+ * or is {@link MutationFingerprint#UNKNOWN} if the report it was read from did not identify it. The number of
+ * tests PIT ran against the mutation is 0 if the report did not say.
+ */
 public record Mutation(
         String method,
         int lineNumber,
         MutationImpact mutationImpact,
-        String description) {
+        CharSequence descriptionText,
+        long fingerprint,
+        int testsRun) {
+
+    public Mutation(String method, int lineNumber, MutationImpact mutationImpact, CharSequence descriptionText) {
+        this(method, lineNumber, mutationImpact, descriptionText, MutationFingerprint.UNKNOWN, 0);
+    }
+
+    public String description() {
+        return descriptionText.toString();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        return obj instanceof Mutation that && lineNumber == that.lineNumber && mutationImpact == that.mutationImpact
+                && method.equals(that.method) && sameText(descriptionText, that.descriptionText);
+    }
+
+    /**
+     * Compares with the same mutation in another run, by fingerprint if both have one so that neither line
+     * numbers nor descriptions need comparing, or else as {@link #equals(Object)} does.
+     *
+     * @param that mutation from another run
+     * @return true if the same mutation with the same outcome
+     */
+    public boolean sameAs(Mutation that) {
+        if (fingerprint != MutationFingerprint.UNKNOWN && that.fingerprint != MutationFingerprint.UNKNOWN) {
+            return fingerprint == that.fingerprint && mutationImpact == that.mutationImpact;
+        }
+        return equals(that);
+    }
+
+    static boolean sameText(CharSequence a, CharSequence b) {
+        // Text held the same way compares itself, which for undecoded text avoids decoding it
+        return a.getClass() == b.getClass() ? a.equals(b) : a.toString().equals(b.toString());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(method, lineNumber, mutationImpact);
+    }
 }
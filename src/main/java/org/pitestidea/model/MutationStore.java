@@ -0,0 +1,416 @@
+package org.pitestidea.model;
+
+import java.util.Arrays;
+
+/**
+ * The mutations of one run, held as columns of primitive arrays rather than as an object per mutation, and
+ * addressed by row. Methods and descriptions are held as references to the recorder's pooled strings, which
+ * cost no more than ids into a table of them would. Tests run are held as chars, with any count too large for
+ * one kept aside.
+ *
+ * <p>Rows are appended in the order mutations are recorded and chained together by file. {@link #group()}
+ * then reorders them so that the rows of each file are contiguous and sorted by line, found by the offset of
+ * each file's first row, and trims the columns to size. That leaves about 23 bytes per mutation, with
+ * compressed object references, or about 42 with 100 mutations per file once a recorder's indexes and scores
+ * are counted. Rows added after grouping are chained again until the next grouping.
+ *
+ * <p>Until {@link #freeze()}, every access is synchronized. A frozen store never changes again, so it is read
+ * without locking by any thread it was safely published to.
+ */
+public class MutationStore {
+    private static final MutationImpact[] IMPACTS = MutationImpact.values();
+    private static final int INITIAL_CAPACITY = 64;
+    private static final char MANY_TESTS = Character.MAX_VALUE;
+    private static final int END = -1;
+
+    private int size = 0;
+    private int version = 0;
+    private int[] lines = new int[INITIAL_CAPACITY];
+    private byte[] impacts = new byte[INITIAL_CAPACITY];
+    private String[] methods = new String[INITIAL_CAPACITY];
+    private CharSequence[] descriptions = new CharSequence[INITIAL_CAPACITY];
+    private long[] fingerprints = new long[INITIAL_CAPACITY];
+    private char[] testsRun = new char[INITIAL_CAPACITY];
+    // Counts of tests run too large for a char, by row in ascending order, of which the first manyTests are used
+    private int[] manyTestsRows = new int[0];
+    private int[] manyTestsCounts = new int[0];
+    private int manyTests = 0;
+
+    private int fileCount = 0;
+    // Until grouped, the next row of the same file or END, and the first and last rows of each file
+    private int[] nextInFile = new int[INITIAL_CAPACITY];
+    private int[] firstRow = new int[INITIAL_CAPACITY];
+    private int[] lastRow = new int[INITIAL_CAPACITY];
+    // Once grouped, the rows of file f are fileOffsets[f] up to fileOffsets[f + 1], or null if not grouped
+    private int[] fileOffsets = null;
+    private volatile boolean frozen = false;
+
+    /**
+     * Adds a file without any mutations.
+     *
+     * @return id of file
+     */
+    public synchronized int addFile() {
+        checkNotFrozen();
+        ensureChained();
+        if (fileCount == firstRow.length) {
+            firstRow = Arrays.copyOf(firstRow, fileCount * 2);
+            lastRow = Arrays.copyOf(lastRow, fileCount * 2);
+        }
+        firstRow[fileCount] = END;
+        lastRow[fileCount] = END;
+        return fileCount++;
+    }
+
+    /**
+     * Adds a mutation to a file.
+     *
+     * @param file       id of file
+     * @param lineNumber of mutation
+     * @param mutation   to add, whose own line number is not kept
+     */
+    public synchronized void add(int file, int lineNumber, Mutation mutation) {
+        checkNotFrozen();
+        ensureChained();
+        if (size == lines.length) {
+            resize(size * 2);
+        }
+        lines[size] = lineNumber;
+        impacts[size] = (byte) mutation.mutationImpact().ordinal();
+        methods[size] = mutation.method();
+        descriptions[size] = mutation.descriptionText();
+        fingerprints[size] = mutation.fingerprint();
+        if (mutation.testsRun() >= MANY_TESTS) {
+            testsRun[size] = MANY_TESTS;
+            addManyTestsRun(size, mutation.testsRun());
+        } else {
+            testsRun[size] = (char) mutation.testsRun();
+        }
+        nextInFile[size] = END;
+        if (firstRow[file] == END) {
+            firstRow[file] = size;
+        } else {
+            nextInFile[lastRow[file]] = size;
+        }
+        lastRow[file] = size;
+        size++;
+        version++;
+    }
+
+    /**
+     * @return a number that changes whenever rows are added or reordered
+     */
+    public int getVersion() {
+        if (frozen) {
+            return version;
+        }
+        synchronized (this) {
+            return version;
+        }
+    }
+
+    /**
+     * @return number of mutations
+     */
+    public int size() {
+        if (frozen) {
+            return size;
+        }
+        synchronized (this) {
+            return size;
+        }
+    }
+
+    /**
+     * Measures the heap held by the columns and the indexes of files from their lengths, which include any
+     * spare capacity until grouped.
+     *
+     * @return rough number of bytes
+     */
+    public long estimateHeapBytes() {
+        if (frozen) {
+            return heapBytes();
+        }
+        synchronized (this) {
+            return heapBytes();
+        }
+    }
+
+    private long heapBytes() {
+        int capacity = lines.length;
+        return HeapBytes.of(lines) + HeapBytes.of(impacts) + HeapBytes.array(capacity, HeapBytes.REFERENCE) * 2
+                + HeapBytes.array(capacity, Long.BYTES) + HeapBytes.array(capacity, Character.BYTES)
+                + HeapBytes.of(manyTestsRows) + HeapBytes.of(manyTestsCounts)
+                + HeapBytes.of(nextInFile) + HeapBytes.of(firstRow) + HeapBytes.of(lastRow) + HeapBytes.of(fileOffsets);
+    }
+
+    /**
+     * The rows of a file, by line and then in the order added. Once grouped, they are a range of the store that
+     * is described by where it starts rather than listed.
+     *
+     * @param first  row of the range, if not listed
+     * @param size   number of rows
+     * @param listed rows, or null if they are the range
+     */
+    public record Rows(int first, int size, int[] listed) {
+        /**
+         * @param position of a row among those of the file, from 0
+         * @return row
+         */
+        public int get(int position) {
+            return listed == null ? first + position : listed[position];
+        }
+    }
+
+    /**
+     * Returns the rows of a file.
+     *
+     * @param file id of file
+     * @return rows, by line and then in the order added
+     */
+    public Rows rowsOf(int file) {
+        if (frozen) {
+            return groupedRowsOf(file);
+        }
+        synchronized (this) {
+            if (fileOffsets != null) {
+                return groupedRowsOf(file);
+            }
+            int[] rows = chainedRowsOf(file);
+            return new Rows(0, rows.length, rows);
+        }
+    }
+
+    private Rows groupedRowsOf(int file) {
+        return new Rows(fileOffsets[file], fileOffsets[file + 1] - fileOffsets[file], null);
+    }
+
+    private int[] chainedRowsOf(int file) {
+        int count = 0;
+        for (int row = firstRow[file]; row != END; row = nextInFile[row]) {
+            count++;
+        }
+        long[] keys = new long[count];
+        int i = 0;
+        for (int row = firstRow[file]; row != END; row = nextInFile[row]) {
+            keys[i++] = sortKey(row);
+        }
+        Arrays.sort(keys);
+        int[] rows = new int[count];
+        Arrays.setAll(rows, ix -> (int) keys[ix]);
+        return rows;
+    }
+
+    /**
+     * Orders by line, then by row, which is the order added.
+     */
+    private long sortKey(int row) {
+        return (long) lines[row] << 32 | row;
+    }
+
+    public int line(int row) {
+        if (frozen) {
+            return lines[row];
+        }
+        synchronized (this) {
+            return lines[row];
+        }
+    }
+
+    public MutationImpact impact(int row) {
+        if (frozen) {
+            return IMPACTS[impacts[row]];
+        }
+        synchronized (this) {
+            return IMPACTS[impacts[row]];
+        }
+    }
+
+    public String method(int row) {
+        if (frozen) {
+            return methods[row];
+        }
+        synchronized (this) {
+            return methods[row];
+        }
+    }
+
+    public CharSequence description(int row) {
+        if (frozen) {
+            return descriptions[row];
+        }
+        synchronized (this) {
+            return descriptions[row];
+        }
+    }
+
+    public long fingerprint(int row) {
+        if (frozen) {
+            return fingerprints[row];
+        }
+        synchronized (this) {
+            return fingerprints[row];
+        }
+    }
+
+    public int testsRun(int row) {
+        if (frozen) {
+            return testsRunOf(row);
+        }
+        synchronized (this) {
+            return testsRunOf(row);
+        }
+    }
+
+    private int testsRunOf(int row) {
+        return testsRun[row] == MANY_TESTS ? manyTestsCounts[Arrays.binarySearch(manyTestsRows, 0, manyTests, row)] : testsRun[row];
+    }
+
+    /**
+     * Keeps a count of tests run too large for a char, for a row after any already kept.
+     */
+    private void addManyTestsRun(int row, int count) {
+        if (manyTests == manyTestsRows.length) {
+            manyTestsRows = Arrays.copyOf(manyTestsRows, Math.max(manyTests * 2, 4));
+            manyTestsCounts = Arrays.copyOf(manyTestsCounts, manyTestsRows.length);
+        }
+        manyTestsRows[manyTests] = row;
+        manyTestsCounts[manyTests++] = count;
+    }
+
+    /**
+     * Creates a mutation from a row, for callers that need one as a whole.
+     *
+     * @param row of mutation
+     * @return new mutation
+     */
+    public Mutation mutation(int row) {
+        if (frozen) {
+            return mutationOf(row);
+        }
+        synchronized (this) {
+            return mutationOf(row);
+        }
+    }
+
+    private Mutation mutationOf(int row) {
+        return new Mutation(methods[row], lines[row], IMPACTS[impacts[row]], descriptions[row], fingerprints[row], testsRunOf(row));
+    }
+
+    /**
+     * Reorders rows so that those of each file are contiguous and by line, and trims the columns to size.
+     * Does nothing if already grouped.
+     */
+    public synchronized void group() {
+        if (fileOffsets != null) {
+            return;
+        }
+        int[] order = new int[size];
+        int[] offsets = new int[fileCount + 1];
+        int next = 0;
+        for (int file = 0; file < fileCount; file++) {
+            offsets[file] = next;
+            for (int row : chainedRowsOf(file)) {
+                order[next++] = row;
+            }
+        }
+        offsets[fileCount] = next;
+        permute(order);
+        version++;
+        fileOffsets = offsets;
+        nextInFile = null;
+        firstRow = null;
+        lastRow = null;
+    }
+
+    /**
+     * Groups the rows, if not already, and makes the store unchangeable. Reads no longer take a lock from then
+     * on, so the store must only be shared with other threads after this, through a volatile field or a lock.
+     */
+    public synchronized void freeze() {
+        group();
+        frozen = true;
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    private void checkNotFrozen() {
+        if (frozen) {
+            throw new IllegalStateException("Mutations can't be added once frozen");
+        }
+    }
+
+    /**
+     * Rebuilds the chains of rows by file from the file offsets, if rows were grouped.
+     */
+    private void ensureChained() {
+        if (fileOffsets != null) {
+            int capacity = Math.max(size, INITIAL_CAPACITY);
+            resize(capacity);
+            nextInFile = new int[capacity];
+            firstRow = new int[Math.max(fileCount, INITIAL_CAPACITY)];
+            lastRow = new int[firstRow.length];
+            for (int file = 0; file < fileCount; file++) {
+                int start = fileOffsets[file];
+                int end = fileOffsets[file + 1];
+                firstRow[file] = start == end ? END : start;
+                lastRow[file] = start == end ? END : end - 1;
+                for (int row = start; row < end; row++) {
+                    nextInFile[row] = row + 1 < end ? row + 1 : END;
+                }
+            }
+            fileOffsets = null;
+        }
+    }
+
+    private void resize(int capacity) {
+        lines = Arrays.copyOf(lines, capacity);
+        impacts = Arrays.copyOf(impacts, capacity);
+        methods = Arrays.copyOf(methods, capacity);
+        descriptions = Arrays.copyOf(descriptions, capacity);
+        fingerprints = Arrays.copyOf(fingerprints, capacity);
+        testsRun = Arrays.copyOf(testsRun, capacity);
+        if (nextInFile != null) {
+            nextInFile = Arrays.copyOf(nextInFile, capacity);
+        }
+    }
+
+    /**
+     * Replaces the columns with ones holding, at each row, the row of the given order.
+     */
+    private void permute(int[] order) {
+        int[] newLines = new int[size];
+        byte[] newImpacts = new byte[size];
+        String[] newMethods = new String[size];
+        CharSequence[] newDescriptions = new CharSequence[size];
+        long[] newFingerprints = new long[size];
+        char[] newTestsRun = new char[size];
+        int[] oldManyTestsRows = manyTestsRows;
+        int[] oldManyTestsCounts = manyTestsCounts;
+        int oldManyTests = manyTests;
+        manyTestsRows = new int[oldManyTests];
+        manyTestsCounts = new int[oldManyTests];
+        manyTests = 0;
+        for (int i = 0; i < size; i++) {
+            int row = order[i];
+            newLines[i] = lines[row];
+            newImpacts[i] = impacts[row];
+            newMethods[i] = methods[row];
+            newDescriptions[i] = descriptions[row];
+            newFingerprints[i] = fingerprints[row];
+            newTestsRun[i] = testsRun[row];
+            if (testsRun[row] == MANY_TESTS) {
+                // Added in ascending order of the new rows
+                addManyTestsRun(i, oldManyTestsCounts[Arrays.binarySearch(oldManyTestsRows, 0, oldManyTests, row)]);
+            }
+        }
+        lines = newLines;
+        impacts = newImpacts;
+        methods = newMethods;
+        descriptions = newDescriptions;
+        fingerprints = newFingerprints;
+        testsRun = newTestsRun;
+    }
+}
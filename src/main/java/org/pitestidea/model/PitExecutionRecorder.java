@@ -17,30 +17,208 @@ import java.util.*;
 /**
  * Records the single execution output of a PITest and reorganizes individual lines into
  * a hierarchical directory/file structure.
+ *
+ * <p>A recorder is written by one thread at a time and then {@link #freeze() frozen}, after which it is an
+ * immutable snapshot of the run that any thread may read without locking. Only frozen recorders are published
+ * by {@link CachedRun}, except for the results of a run still executing, which are confined to the UI thread.
+ *
+ * <p>A recorder compares against a {@link LastRun} made from the frozen previous recorder, which copies its
+ * scores and views its mutations without any link to the run before it. Each run therefore keeps at most the
+ * one before it alive, without any published recorder being changed to drop its own links, and the copies are
+ * only held while a later run compares against them.
  */
 public class PitExecutionRecorder implements IMutationsRecorder {
-    public static final String ROOT_PACKAGE_NAME = "Aggregated Results";
     private final Module module;
     private final Map<VirtualFile, FileGroup> fileCache = new HashMap<>();
-    private final Map<VirtualFile, FileGroup> lastFileCache;
-    private final List<FileGroup> sortedFiles = new ArrayList<>();
+    private final LastRun last;
+    // Heap held by what is kept of the previous run, and by the part of it its own recorder also holds
+    private final long lastHeapBytes;
+    private final long sharedLastHeapBytes;
+    // Heap held apart from the previous run, measured when frozen, or -1 until then
+    private volatile long frozenHeapBytes = -1;
+    // Replaced rather than sorted in place, so that readers of a frozen recorder never see it change
+    private volatile List<FileGroup> sortedFiles = new ArrayList<>();
     private final PkgGroup rootDirectory;
     private final Map<VirtualFile, PkgGroup> pkgCache = new HashMap<>();
-    private final Map<VirtualFile, PkgGroup> lastPkgCache;
+    private final StringPool stringPool;
+    private final KillMatrix killMatrix = new KillMatrix();
+    private final MutationStore store = new MutationStore();
     private boolean hasMultiplePackages = false;
+    // False while packages may lack the counts of files recorded since they were last totalled
+    private boolean rolledUp = true;
+    private volatile boolean frozen = false;
 
+    /**
+     * @param previousRecorder to compare against, or null, which is frozen if it isn't already
+     */
     public PitExecutionRecorder(Module module, PitExecutionRecorder previousRecorder) {
-        rootDirectory = new PkgGroup(ROOT_PACKAGE_NAME, null, previousRecorder == null ? null : previousRecorder.rootDirectory);
+        this(module, previousRecorder == null ? LastRun.NONE : previousRecorder.asLast(), new StringPool());
+    }
+
+    private PitExecutionRecorder(Module module, LastRun last, StringPool stringPool) {
+        rootDirectory = new PkgGroup(IMutationScore.ROOT_PACKAGE_NAME, null, last.root());
         this.module = module;
-        this.lastFileCache = previousRecorder == null ? Collections.emptyMap() : previousRecorder.fileCache;
-        this.lastPkgCache = previousRecorder == null ? Collections.emptyMap() : previousRecorder.pkgCache;
+        this.last = last;
+        this.lastHeapBytes = last.estimateHeapBytes();
+        this.sharedLastHeapBytes = last.estimateSharedHeapBytes();
+        this.stringPool = stringPool;
         rootDirectory.hasCodeFileChildren = true; // Force this package to be displayed
     }
 
+    /**
+     * What a later run compares against of a run: copies of its scores, without their own links to the run before,
+     * and a view of the mutations of each file.
+     *
+     * @param root  score of the whole run, or null if there is no previous run
+     * @param pkgs  score of each package by directory
+     * @param files score and mutations of each file
+     * @param store mutations of the run, which the files view, or null if there is no previous run
+     */
+    private record LastRun(IMutationScore root, Map<VirtualFile, IMutationScore> pkgs, Map<VirtualFile, LastFile> files,
+                           MutationStore store) {
+        // Maps that, unlike Map.of(), can be asked for the null directory of files without a parent
+        static final LastRun NONE = new LastRun(null, Collections.emptyMap(), Collections.emptyMap(), null);
+
+        /**
+         * @return rough number of bytes held by the copies of scores, the views of files and the store
+         */
+        long estimateHeapBytes() {
+            long bytes = store == null ? 0 : store.estimateHeapBytes();
+            for (LastFile lastFile : files.values()) {
+                bytes += HeapBytes.MAP_ENTRY + 2 * HeapBytes.OBJECT + lastFile.mutations().estimateHeapBytes();
+            }
+            return bytes + pkgs.size() * (HeapBytes.MAP_ENTRY + HeapBytes.OBJECT);
+        }
+
+        /**
+         * @return rough number of bytes that the recorder of the previous run also holds: the store and line indexes
+         */
+        long estimateSharedHeapBytes() {
+            long bytes = store == null ? 0 : store.estimateHeapBytes();
+            for (LastFile lastFile : files.values()) {
+                bytes += lastFile.mutations().estimateSharedHeapBytes();
+            }
+            return bytes;
+        }
+    }
+
+    private record LastFile(IMutationScore score, FileMutations.Previous mutations) {
+    }
+
+    /**
+     * Returns a new empty recorder that compares against the same previous run as this one, for when
+     * the mutations recorded so far have to be discarded and recorded again.
+     *
+     * @return new recorder
+     */
+    public PitExecutionRecorder restart() {
+        return new PitExecutionRecorder(module, last, new StringPool());
+    }
+
     public Module getModule() {
         return module;
     }
 
+    /**
+     * Makes the recorder an immutable snapshot of its run, after it has been post-processed and any coverage
+     * recorded. Everything otherwise built when first read is built now, so that readers never write. It must
+     * only be shared with other threads after this, through a volatile field or a lock. Does nothing if
+     * already frozen.
+     */
+    public void freeze() {
+        if (!frozen) {
+            rollUp();
+            store.freeze();
+            fileCache.values().forEach(fileGroup -> fileGroup.fileMutations.freeze());
+            frozenHeapBytes = measureHeapBytes();
+            frozen = true;
+        }
+    }
+
+    /**
+     * Makes what a later run compares against of this one, freezing it if not already. Only reads a frozen
+     * recorder, so any thread may call it.
+     *
+     * @return copies of the scores and views of the mutations of this run
+     */
+    private LastRun asLast() {
+        freeze();
+        Map<VirtualFile, IMutationScore> lastPkgs = new HashMap<>();
+        pkgCache.forEach((dir, pkgGroup) -> lastPkgs.put(dir, pkgGroup.withoutLast()));
+        Map<VirtualFile, LastFile> lastFiles = new HashMap<>();
+        fileCache.forEach((file, fileGroup) ->
+                lastFiles.put(file, new LastFile(fileGroup.withoutLast(), fileGroup.fileMutations.asPrevious())));
+        return new LastRun(rootDirectory.withoutLast(), lastPkgs, lastFiles, store);
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    private void checkNotFrozen() {
+        if (frozen) {
+            throw new IllegalStateException("Results of a run can't be changed once frozen");
+        }
+    }
+
+    /**
+     * Estimates the heap held by this recorder, including what it keeps alive of the previous run it compares
+     * against. Only meant for deciding when to free memory, so it need not be exact.
+     *
+     * @return rough number of bytes
+     */
+    public long estimateHeapBytes() {
+        return estimateHeapBytesWithoutLast() + lastHeapBytes;
+    }
+
+    /**
+     * Estimates the heap held by this recorder apart from the previous run. It is measured from the sizes of
+     * the store, indexes and scores once frozen. Until then only the store and the number of files are counted,
+     * since the rest may be being written by another thread.
+     *
+     * @return rough number of bytes
+     */
+    public long estimateHeapBytesWithoutLast() {
+        long measured = frozenHeapBytes;
+        if (measured >= 0) {
+            return measured;
+        }
+        return store.estimateHeapBytes() + fileCache.size() * (HeapBytes.MAP_ENTRY + 3 * HeapBytes.OBJECT);
+    }
+
+    /**
+     * @return rough number of bytes kept alive of the previous run that its own recorder also holds while
+     * loaded, see {@link #comparesAgainst(PitExecutionRecorder)}
+     */
+    public long estimateSharedLastHeapBytes() {
+        return sharedLastHeapBytes;
+    }
+
+    /**
+     * @return true if this recorder compares against a previous run
+     */
+    public boolean hasPreviousRun() {
+        return last.store() != null;
+    }
+
+    /**
+     * @param other recorder of another run
+     * @return true if this recorder compares against the other, and so keeps its mutations alive
+     */
+    public boolean comparesAgainst(PitExecutionRecorder other) {
+        return last.store() != null && last.store() == other.store;
+    }
+
+    private long measureHeapBytes() {
+        // Counted by group, since files of the same name in a package share one
+        long bytes = store.estimateHeapBytes() + killMatrix.estimateHeapBytes() + fileCache.size() * HeapBytes.MAP_ENTRY;
+        for (FileGroup fileGroup : sortedFiles) {
+            bytes += HeapBytes.MAP_ENTRY + 2 * HeapBytes.OBJECT + fileGroup.fileMutations.estimateHeapBytes();
+        }
+        // Packages are in the cache and among their parent's children
+        return bytes + pkgCache.size() * (2 * HeapBytes.MAP_ENTRY + HeapBytes.OBJECT);
+    }
+
     /**
      * Returns a file for which at least one mutation has been seen for this run. The selected file is the
      * least obtrusive from the user perspective, with priority being the selected file or the first open file
@@ -73,12 +251,12 @@ public class PitExecutionRecorder implements IMutationsRecorder {
         }
     }
 
-    private static Comparator<Directory> sortCmp(DisplayChoices choices) {
-        Comparator<Directory> fn;
+    private static Comparator<IMutationScore> sortCmp(DisplayChoices choices) {
+        Comparator<IMutationScore> fn;
         switch (choices.sortBy()) {
-            case PROJECT -> fn = Comparator.comparing(Directory::getName);
+            case PROJECT -> fn = Comparator.comparing(IMutationScore::getName);
             //case NAME -> fn = Comparator.comparing(d->SysDiffs.lastSegmentOf(d.getName()));
-            case SCORE -> fn = Comparator.comparing(Directory::getScore);
+            case SCORE -> fn = Comparator.comparing(IMutationScore::getScore);
             default -> throw new IllegalArgumentException("Unsupported sorting by: " + choices.sortBy());
         }
         if (choices.sortDirection() == Sorting.Direction.DESC) {
@@ -107,10 +285,10 @@ public class PitExecutionRecorder implements IMutationsRecorder {
         private String name;
         private final PkgGroup parent;
         private Map<String, Directory> children = new HashMap<>();
-        private List<Directory> sortedChildren = null;
+        private volatile List<Directory> sortedChildren = null;
         private boolean hasCodeFileChildren = false;
 
-        private PkgGroup(String name, PkgGroup parent, PkgGroup lastGroup) {
+        private PkgGroup(String name, PkgGroup parent, IMutationScore lastGroup) {
             super(parent == null ? 0 : parent.children.size(), lastGroup);
             this.parent = parent;
             this.name = name;
@@ -162,7 +340,7 @@ public class PitExecutionRecorder implements IMutationsRecorder {
 
         @Override
         public void sort(DisplayChoices choices) {
-            Comparator<Directory> fn = sortCmp(choices);
+            Comparator<IMutationScore> fn = sortCmp(choices);
             sortedChildren = children.values().stream().sorted(fn).toList();
             children.values().forEach(c -> c.sort(choices));
         }
@@ -192,10 +370,12 @@ public class PitExecutionRecorder implements IMutationsRecorder {
     @VisibleForTesting
     class FileGroup extends BaseMutationsScore implements Directory {
         private final FileMutations fileMutations;
+        private final PkgGroup parent;
 
-        private FileGroup(VirtualFile file, String pkg, PkgGroup parent, FileGroup lastFileGroup) {
-            super(parent.children.size(), lastFileGroup);
-            this.fileMutations = new FileMutations(pkg, file, lastFileGroup == null ? null : lastFileGroup.fileMutations);
+        private FileGroup(VirtualFile file, String pkg, PkgGroup parent, LastFile lastFile) {
+            super(parent.children.size(), lastFile == null ? null : lastFile.score());
+            this.parent = parent;
+            this.fileMutations = new FileMutations(store, pkg, file, lastFile == null ? null : lastFile.mutations());
         }
 
         @Override
@@ -209,8 +389,8 @@ public class PitExecutionRecorder implements IMutationsRecorder {
         }
 
         @Override
-        public void sort(DisplayChoices _choices) {
-            // Nothing to do
+        public void sort(DisplayChoices choices) {
+            fileMutations.sortMethods(sortCmp(choices));
         }
 
         @Override
@@ -224,64 +404,226 @@ public class PitExecutionRecorder implements IMutationsRecorder {
         }
     }
 
+    /**
+     * Records covered lines against a file's mutations. Coverage of files without mutations is not kept.
+     */
+    @Override
+    public void recordCoverage(VirtualFile file, BitSet coveredLines) {
+        checkNotFrozen();
+        FileGroup fileGroup = fileCache.get(file);
+        if (fileGroup != null) {
+            fileGroup.fileMutations.setCoveredLines(coveredLines);
+        }
+    }
+
     public FileMutations getFileMutations(VirtualFile file) {
         return fileCache.get(file).fileMutations;
     }
 
+    /**
+     * Returns which tests killed which mutants, in the order mutants were recorded.
+     *
+     * @return matrix, empty if the report had no test information
+     */
+    public KillMatrix getKillMatrix() {
+        return killMatrix;
+    }
+
+    /**
+     * Finds the mutants, and methods, that PIT ran the most tests against.
+     *
+     * @param limit number of each to find
+     * @return the most expensive mutants and methods
+     */
+    public ExpensiveMutants getExpensiveMutants(int limit) {
+        ExpensiveMutants expensive = new ExpensiveMutants(limit);
+        sortedFiles.forEach(fileGroup -> expensive.add(fileGroup.fileMutations));
+        return expensive;
+    }
+
     @Override
     public void record(String pkg, VirtualFile file, String methodName, MutationImpact impact, int lineNumber, String description) {
-        String[] segments = pkg.split("\\.");
-        PkgGroup parentGroup = recordPkg(segments, segments.length - 1, file.getParent(), impact, lineNumber, description);
+        record(pkg, file, methodName, impact, lineNumber, description, List.of(), List.of());
+    }
+
+    @Override
+    public void record(String pkg, VirtualFile file, String methodName, MutationImpact impact, int lineNumber, String description,
+                       List<String> killingTests, List<String> succeedingTests) {
+        recordLazily(pkg, file, methodName, impact, lineNumber, description, killingTests, succeedingTests, MutationFingerprint.UNKNOWN, 0);
+    }
+
+    @Override
+    public void record(String pkg, VirtualFile file, String methodName, MutationImpact impact, int lineNumber, String description,
+                       List<String> killingTests, List<String> succeedingTests, long fingerprint, int testsRun) {
+        recordLazily(pkg, file, methodName, impact, lineNumber, description, killingTests, succeedingTests, fingerprint, testsRun);
+    }
+
+    /**
+     * Keeps the description as given, so that one left in a snapshot is only decoded when shown. Only the file
+     * is counted here; its package is resolved once, with the file, and packages are totalled from their files
+     * by {@link #rollUp()}.
+     */
+    @Override
+    public void recordLazily(String pkg, VirtualFile file, String methodName, MutationImpact impact, int lineNumber, CharSequence description,
+                             List<String> killingTests, List<String> succeedingTests, long fingerprint, int testsRun) {
+        checkNotFrozen();
+        killMatrix.addMutant(killingTests, succeedingTests);
+        FileGroup fileGroup = fileCache.get(file);
+        if (fileGroup == null) {
+            fileGroup = recordFile(pkg, file);
+        }
+        fileGroup.fileMutations.add(lineNumber, new Mutation(methodName, lineNumber, impact, description, fingerprint, testsRun));
+        fileGroup.accountFor(impact, testsRun);
+        rolledUp = false;
+    }
+
+    @Override
+    public String intern(String s) {
+        return stringPool.intern(s);
+    }
+
+    /**
+     * Adds a file, and any of its package not yet seen, to the package tree.
+     */
+    private FileGroup recordFile(String pkg, VirtualFile file) {
+        PkgGroup parentGroup = recordPkg(pkg, file.getParent());
         parentGroup.hasCodeFileChildren = true;
-        FileGroup dir = (FileGroup) parentGroup.children.computeIfAbsent(file.getName(), _k -> {
-            FileGroup newFileGroup = new FileGroup(file, pkg, parentGroup, lastFileCache.get(file));
-            fileCache.put(file, newFileGroup);
-            sortedFiles.add(newFileGroup);
-            return newFileGroup;
-        });
-        dir.fileMutations.add(lineNumber, new Mutation(methodName, lineNumber, impact, description));
-        dir.accountFor(impact);
+        String name = file.getName();
+        FileGroup fileGroup = (FileGroup) parentGroup.children.get(name);
+        if (fileGroup == null) {
+            fileGroup = new FileGroup(file, pkg, parentGroup, last.files().get(file));
+            addChild(parentGroup, name, fileGroup);
+            sortedFiles.add(fileGroup);
+        }
+        fileCache.put(file, fileGroup);
+        return fileGroup;
     }
 
-    private PkgGroup recordPkg(String[] segments, int i, VirtualFile pkgFile, MutationImpact impact, int lineNumber, String description) {
-        final PkgGroup pkgGroup;
-        if (i < 0) {
-            pkgGroup = rootDirectory;
-        } else {
-            // Tests need not provide a parent, but in normal execution there should always be one
-            VirtualFile parentFile = pkgFile == null ? null : pkgFile.getParent();
-            PkgGroup parentGroup = recordPkg(segments, i - 1, parentFile, impact, lineNumber, description);
-            String segment = segments[i];
-            pkgGroup = pkgCache.computeIfAbsent(pkgFile, _k -> {
-                PkgGroup pg = new PkgGroup(segment, parentGroup, lastPkgCache.get(pkgFile));
-                parentGroup.children.put(segment, pg);
-                return pg;
-            });
-        }
-        pkgCache.put(pkgFile, pkgGroup);
+    /**
+     * Finds the group of a package, walking down the tree by segment and adding those missing.
+     *
+     * @param pkg     qualified name of package
+     * @param pkgFile directory of the package, used to compare with the previous run
+     * @return group of the package
+     */
+    private PkgGroup recordPkg(String pkg, VirtualFile pkgFile) {
+        String[] segments = pkg.split("\\.");
+        // Tests need not provide a parent, but in normal execution there should always be one
+        VirtualFile[] dirs = new VirtualFile[segments.length];
+        for (int i = segments.length - 1; i >= 0 && pkgFile != null; i--) {
+            dirs[i] = pkgFile;
+            pkgFile = pkgFile.getParent();
+        }
+        PkgGroup pkgGroup = rootDirectory;
+        for (int i = 0; i < segments.length; i++) {
+            PkgGroup parentGroup = pkgGroup;
+            pkgGroup = (PkgGroup) parentGroup.children.get(segments[i]);
+            if (pkgGroup == null) {
+                String segment = intern(segments[i]);
+                pkgGroup = new PkgGroup(segment, parentGroup, last.pkgs().get(dirs[i]));
+                addChild(parentGroup, segment, pkgGroup);
+            }
+            pkgCache.putIfAbsent(dirs[i], pkgGroup);
+        }
+        return pkgGroup;
+    }
+
+    private void addChild(PkgGroup pkgGroup, String name, Directory child) {
+        pkgGroup.children.put(name, child);
         if (pkgGroup.children.size() > 1) {
             hasMultiplePackages = true;
         }
-        pkgGroup.accountFor(impact);
-        return pkgGroup;
+    }
+
+    /**
+     * Totals the counts of each package from its files, in one pass over the files and their ancestors,
+     * unless nothing has been recorded since the last time.
+     */
+    private void rollUp() {
+        if (!rolledUp) {
+            for (FileGroup fileGroup : sortedFiles) {
+                for (PkgGroup pkgGroup = fileGroup.parent; pkgGroup != null; pkgGroup = pkgGroup.parent) {
+                    pkgGroup.clearCounts();
+                }
+            }
+            for (FileGroup fileGroup : sortedFiles) {
+                for (PkgGroup pkgGroup = fileGroup.parent; pkgGroup != null; pkgGroup = pkgGroup.parent) {
+                    pkgGroup.accountFor(fileGroup);
+                }
+            }
+            rolledUp = true;
+        }
     }
 
     @Override
     public void postProcess() {
+        checkNotFrozen();
+        rollUp();
+        store.group();
+        diff();
+        sortedFiles.forEach(fileGroup -> fileGroup.fileMutations.summarize());
         rootDirectory.coalesce(true);
     }
 
+    /**
+     * Compares each file with the previous run, if there was one, and totals the differences by package.
+     * The mutations of files of the previous run that have none in this run count as removed.
+     */
+    private void diff() {
+        if (rootDirectory.getLastScore() == null) {
+            return;
+        }
+        // Totals start again should this run be processed more than once
+        rootDirectory.setDiff(null);
+        pkgCache.values().forEach(pkgGroup -> pkgGroup.setDiff(null));
+        for (FileGroup fileGroup : sortedFiles) {
+            FileDiff fileDiff = fileGroup.fileMutations.getDiff();
+            MutationsDiff counts = fileDiff == null ? new MutationsDiff(fileGroup.getMutationsTotal(), 0, 0) : fileDiff.getCounts();
+            fileGroup.setDiff(counts);
+            addDiff(fileGroup.parent, counts);
+        }
+        last.files().forEach((file, lastFile) -> {
+            if (!fileCache.containsKey(file)) {
+                // Counted against the closest package that is still in this run
+                PkgGroup pkgGroup = rootDirectory;
+                for (VirtualFile dir = file.getParent(); dir != null; dir = dir.getParent()) {
+                    if (pkgCache.containsKey(dir)) {
+                        pkgGroup = pkgCache.get(dir);
+                        break;
+                    }
+                }
+                addDiff(pkgGroup, new MutationsDiff(0, lastFile.score().getMutationsTotal(), 0));
+            }
+        });
+    }
+
+    private static void addDiff(PkgGroup pkgGroup, MutationsDiff counts) {
+        for (PkgGroup next = pkgGroup; next != null; next = next.parent) {
+            if (next.getDiff() == null) {
+                next.setDiff(new MutationsDiff(0, 0, 0));
+            }
+            next.getDiff().add(counts);
+        }
+    }
+
     public boolean hasMultiplePackages() {
         return hasMultiplePackages;
     }
 
-    private DisplayChoices displayChoices;
+    private volatile DisplayChoices displayChoices;
 
+    /**
+     * Orders packages, files, and methods for display. Each order is swapped in whole, so that a frozen
+     * recorder may be sorted while it is read.
+     */
     @Override
     public void sort(DisplayChoices choices) {
+        rollUp();  // For results shown while still being received
         this.displayChoices = choices;
         rootDirectory.sort(choices);
-        sortedFiles.sort(sortCmp(choices));
+        List<FileGroup> sorted = new ArrayList<>(sortedFiles);
+        sorted.sort(sortCmp(choices));
+        sortedFiles = sorted;
     }
 
     public interface FileVisitor {
@@ -308,11 +650,13 @@ public class PitExecutionRecorder implements IMutationsRecorder {
     };
 
     public void visit(FileVisitor visitor) {
+        rollUp();
         if (displayChoices != null && displayChoices.packageChoice() == Viewing.PackageChoice.NONE) {
-            if (sortedFiles.size() > 1) {
+            List<FileGroup> files = sortedFiles;
+            if (files.size() > 1) {
                 visitor.visit(rootDirectory.name, null, EMPTY_PACKAGE_DIVER, rootDirectory);
             }
-            sortedFiles.forEach(g -> g.walkInternal(visitor));
+            files.forEach(g -> g.walkInternal(visitor));
         } else {
             Map<String, Directory> subs = rootDirectory.children;
             Directory toWalk = subs.size() == 1 ? subs.values().stream().toList().get(0) : rootDirectory;
@@ -1,19 +1,30 @@
 package org.pitestidea.model;
 
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.module.ModuleManager;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.Task;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.module.Module;
+import com.intellij.openapi.util.registry.Registry;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.VisibleForTesting;
 import org.pitestidea.configuration.IdeaDiscovery;
 import org.pitestidea.reader.InvalidMutatedFileException;
-import org.pitestidea.toolwindow.MutationControlPanel;
+import org.pitestidea.reader.ReportArchive;
 import org.pitestidea.toolwindow.PitToolWindowFactory;
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.util.concurrency.AppExecutorUtil;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
 
 public class PitRepo {
     private static final Logger LOGGER = Logger.getInstance(PitRepo.class);
@@ -21,24 +32,154 @@ public class PitRepo {
     public static final String PIT_STANDARD_REPORTS_DIR = "pit-reports";
     public static final String PIT_IDEA_REPORTS_DIR = "pit-idea-reports";
 
+    // Reports are mostly disk-bound to read, so there's little to gain from going wide
+    private static final int LOADER_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+
+    // Registry key for the age in days after which the files of a run are packed into an archive, 0 for never
+    static final String ARCHIVE_AFTER_DAYS_KEY = "pitestidea.archive.after.days";
+    private static final int DEFAULT_ARCHIVE_AFTER_DAYS = 30;
+
+    // Registry key for the megabytes that the loaded recorders of a project may take before some are unloaded
+    static final String HISTORY_MEMORY_MB_KEY = "pitestidea.history.memory.mb";
+    private static final int DEFAULT_HISTORY_MEMORY_MB = 256;
+
+    /**
+     * The run history for one project. Reports may be loaded concurrently, so all access to the
+     * history is synchronized on this object.
+     *
+     * <p>Also tracks which runs have their recorders loaded, least recently used first. When their
+     * estimated size exceeds the memory budget, the least recently used are unloaded, other than the current
+     * run and any still running, so that memory doesn't grow with the length of the history.
+     */
     public static class ProjectRunRecords {
         private final LinkedList<CachedRun> runHistory = new LinkedList<>();
+        private final LinkedHashSet<CachedRun> loaded = new LinkedHashSet<>();
+        private final LongSupplier memoryBudget;
         private CachedRun current;
 
-        void setAsCurrent(CachedRun run) {
+        public ProjectRunRecords() {
+            this(() -> Registry.intValue(HISTORY_MEMORY_MB_KEY, DEFAULT_HISTORY_MEMORY_MB) * 1024L * 1024L);
+        }
+
+        /**
+         * @param memoryBudget bytes that loaded recorders may take
+         */
+        @VisibleForTesting
+        ProjectRunRecords(LongSupplier memoryBudget) {
+            this.memoryBudget = memoryBudget;
+        }
+
+        synchronized void setAsCurrent(CachedRun run) {
             this.current = run;
         }
 
-        boolean isCurrent(CachedRun run) {
+        synchronized boolean isCurrent(CachedRun run) {
             return this.current == run;
         }
 
-        void remove(CachedRun run) {
+        synchronized void remove(CachedRun run) {
             runHistory.remove(run);
+            loaded.remove(run);
             if (run == current) {
                 current = null;
             }
         }
+
+        synchronized @Nullable CachedRun find(ExecutionRecord record) {
+            return runHistory.stream().filter(r -> r.getExecutionRecord().equals(record)).findFirst().orElse(null);
+        }
+
+        synchronized @Nullable CachedRun findByReportDir(File reportDir) {
+            return runHistory.stream().filter(r -> r.getReportFileDir().equals(reportDir)).findFirst().orElse(null);
+        }
+
+        /**
+         * Adds a run to the front of the history, replacing any existing run for the same record.
+         *
+         * @param cachedRun to add
+         */
+        synchronized void add(CachedRun cachedRun) {
+            CachedRun old = find(cachedRun.getExecutionRecord());
+            if (cachedRun.equals(current)) {
+                // While swapping in a new CachedRun, ensure the replacement is current if the original was
+                current = cachedRun;
+            }
+            if (old != null) {
+                cachedRun.setRunStateChangedListener(old.getRunStateChangedListener());
+                runHistory.remove(old);
+                loaded.remove(old);
+            }
+            runHistory.addFirst(cachedRun);
+        }
+
+        synchronized void clear() {
+            runHistory.clear();
+            loaded.clear();
+            current = null;
+        }
+
+        /**
+         * Marks a run's recorder as the most recently used, and unloads those least recently used while the
+         * loaded recorders take more than the memory budget. Runs are unloaded after leaving this object's lock,
+         * so this must not be called holding the lock of any run.
+         *
+         * @param run whose recorder was used, or which has just been loaded
+         */
+        void touch(CachedRun run) {
+            List<CachedRun> victims = new ArrayList<>();
+            synchronized (this) {
+                loaded.remove(run);
+                if (run.isLoaded() && runHistory.contains(run)) {
+                    loaded.add(run);
+                }
+                long total = heldBytes(loaded);
+                long budget = memoryBudget.getAsLong();
+                for (Iterator<CachedRun> it = loaded.iterator(); it.hasNext() && total > budget; ) {
+                    CachedRun next = it.next();
+                    if (next != run && next != current) {
+                        it.remove();
+                        victims.add(next);
+                        // Measured again, since a run compared against by one still loaded frees only part of its heap
+                        total = heldBytes(loaded);
+                    }
+                }
+            }
+            // Runs that are still running are kept, and found again the next time they're used
+            victims.forEach(CachedRun::unload);
+        }
+
+        /**
+         * Sums the heap held by the recorders of runs. What a recorder keeps alive of the run it compares against
+         * is counted with it, except for the store and indexes the recorder of that run holds too when it is
+         * among them and so counted already.
+         *
+         * @param runs whose recorders to count, if loaded
+         * @return rough number of bytes
+         */
+        @VisibleForTesting
+        static long heldBytes(Collection<CachedRun> runs) {
+            List<PitExecutionRecorder> recorders = runs.stream()
+                    .map(CachedRun::getRecorderIfLoaded)
+                    .filter(Objects::nonNull)
+                    .toList();
+            long total = 0;
+            for (PitExecutionRecorder recorder : recorders) {
+                total += recorder.estimateHeapBytes();
+                if (recorders.stream().anyMatch(recorder::comparesAgainst)) {
+                    total -= recorder.estimateSharedLastHeapBytes();
+                }
+            }
+            return total;
+        }
+
+        @VisibleForTesting
+        synchronized List<CachedRun> loadedRuns() {
+            return new ArrayList<>(loaded);
+        }
+
+        synchronized List<CachedRun> snapshot() {
+            return new ArrayList<>(runHistory);
+        }
     }
 
     private static final Map<String, ProjectRunRecords> projectMap = new ConcurrentHashMap<>();
@@ -46,16 +187,17 @@ public class PitRepo {
     public static void clear(@NotNull Project project) {
         ProjectRunRecords runRecords = projectMap.get(project.getName());
         if (runRecords != null) {
-            runRecords.runHistory.clear();
-            runRecords.current = null;
+            runRecords.clear();
         }
     }
 
     public static @Nullable CachedRun getCurrent(@Nullable Project project) {
         if (project != null) {
             ProjectRunRecords runRecords = projectMap.get(project.getName());
-            if (runRecords != null && runRecords.current != null) {
-                return runRecords.current;
+            if (runRecords != null) {
+                synchronized (runRecords) {
+                    return runRecords.current;
+                }
             }
         }
         return null;
@@ -67,7 +209,9 @@ public class PitRepo {
             if (runRecords != null) {
                 Comparator<CachedRun> comparator = Comparator.comparing(c -> c.getExecutionRecord().getStartedAt());
                 comparator = comparator.reversed();
-                runRecords.runHistory.sort(comparator);
+                synchronized (runRecords) {
+                    runRecords.runHistory.sort(comparator);
+                }
             }
         }
     }
@@ -98,29 +242,25 @@ public class PitRepo {
      * @return a new CachedRun
      */
     public static @NotNull CachedRun register(@NotNull Module module, @NotNull ExecutionRecord record, @NotNull String reportDir) {
-        Project project = module.getProject();
-        ProjectRunRecords runRecords = projectMap.computeIfAbsent(project.getName(), _x -> new ProjectRunRecords());
-        CachedRun old = runRecords.runHistory.stream().filter(r -> r.getExecutionRecord().equals(record)).findFirst().orElse(null);
-
-        PitExecutionRecorder recorder = new PitExecutionRecorder(module, old == null ? null : old.getRecorder());
-        CachedRun cachedRun = new CachedRun(runRecords, record, recorder, reportDir);
-        if (cachedRun.equals(runRecords.current)) {
-            // While swapping in a new CachedRun, ensure the replacement is current if the original was
-            runRecords.setAsCurrent(cachedRun);
-        }
-        if (old != null) {
-            cachedRun.setRunStateChangedListener(old.getRunStateChangedListener());
-            runRecords.runHistory.remove(old);
-        }
-        runRecords.runHistory.addFirst(cachedRun);
+        CachedRun cachedRun = create(module, record, reportDir);
+        getRunRecords(module.getProject()).add(cachedRun);
         return cachedRun;
     }
 
-    private static void deregister(Project project, CachedRun cachedRun) {
-        ProjectRunRecords runRecords = projectMap.get(project.getName());
-        if (runRecords != null) {
-            runRecords.runHistory.remove(cachedRun);
-        }
+    private static @NotNull ProjectRunRecords getRunRecords(Project project) {
+        return projectMap.computeIfAbsent(project.getName(), _x -> new ProjectRunRecords());
+    }
+
+    /**
+     * Creates a CachedRun linked to its project record but not yet visible in the run history.
+     */
+    private static @NotNull CachedRun create(@NotNull Module module, @NotNull ExecutionRecord record, @NotNull String reportDir) {
+        ProjectRunRecords runRecords = getRunRecords(module.getProject());
+        CachedRun old = runRecords.find(record);
+        // An old run that has been unloaded isn't read again just to compare streamed results against. Complete
+        // results are compared against it once read, from the snapshot kept of it, see CachedRun.restartRecorder()
+        PitExecutionRecorder recorder = new PitExecutionRecorder(module, old == null ? null : old.getRecorderIfLoaded());
+        return new CachedRun(runRecords, record, recorder, reportDir);
     }
 
     public interface IHistory {
@@ -130,75 +270,200 @@ public class PitRepo {
     public static void apply(Project project, IHistory history) {
         ProjectRunRecords runs = projectMap.get(project.getName());
         if (runs != null) {
-            runs.runHistory.forEach(r -> history.visit(r, r == runs.current));
+            // Visit a copy so that reports being loaded in the background don't interfere
+            final List<CachedRun> runHistory;
+            final CachedRun current;
+            synchronized (runs) {
+                runHistory = runs.snapshot();
+                current = runs.current;
+            }
+            runHistory.forEach(r -> history.visit(r, r == current));
         }
     }
 
     public static void deleteHistory(Project project) {
         ProjectRunRecords runRecords = projectMap.get(project.getName());
         if (runRecords != null) {
-            List<CachedRun> cachedRunsToDelete = new ArrayList<>(runRecords.runHistory);
+            List<CachedRun> cachedRunsToDelete = runRecords.snapshot();
             cachedRunsToDelete.forEach(CachedRun::deleteFilesForThisRun);
-            runRecords.runHistory.clear();
-            runRecords.current = null;
+            runRecords.clear();
         }
     }
 
     public static PitExecutionRecorder get(Project project) {
-        ProjectRunRecords runs = projectMap.get(project.getName());
-        return (runs == null || runs.current == null) ? null : runs.current.ensureLoaded();
+        CachedRun current = getCurrent(project);
+        return current == null ? null : current.getRecorder();
     }
 
     /**
      * Reloads all reports that can be found in the output directory, including those generated from CLI.
+     * Reports are loaded in the background on a bounded pool, and the history list in the tool window
+     * is refreshed as each one completes. Loading can be canceled from the progress indicator, in which
+     * case reports already loaded are retained.
      *
      * @param project to update
      */
     public static void reloadReports(Project project) {
-        Module[] modules = ModuleManager.getInstance(project).getModules();
-        for (Module module : modules) {
+        ProgressManager.getInstance().run(new Task.Backgroundable(project, "Loading PIT reports", true) {
+            @Override
+            public void run(@NotNull ProgressIndicator indicator) {
+                loadReports(project, indicator);
+            }
+
+            @Override
+            public void onFinished() {
+                if (!project.isDisposed()) {
+                    ensureSorted(project);
+                    PitToolWindowFactory.getControlPanel(project).reloadReports(project);
+                }
+            }
+        });
+    }
+
+    /**
+     * A report directory to load, from either the plugin's own output or a standard PIT run.
+     */
+    private record PendingReport(Module module, File dir, boolean standard) {
+    }
+
+    private static void loadReports(Project project, ProgressIndicator indicator) {
+        indicator.setIndeterminate(false);
+        indicator.setText("Finding PIT reports");
+        List<PendingReport> pending = new ArrayList<>();
+        for (Module module : ModuleManager.getInstance(project).getModules()) {
+            indicator.checkCanceled();
             File pitIdeaDir = IdeaDiscovery.getAbsoluteOutputDir(module, PitRepo.PIT_IDEA_REPORTS_DIR);
             if (pitIdeaDir != null && pitIdeaDir.exists()) {
-                File[] reports = pitIdeaDir.listFiles();
+                File[] reports = pitIdeaDir.listFiles(File::isDirectory);
                 if (reports != null) {
                     for (File report : reports) {
-                        loadReport(module, report);
+                        pending.add(new PendingReport(module, report, false));
                     }
                 }
             }
             File standardIdeaDir = IdeaDiscovery.getAbsoluteOutputDir(module, PitRepo.PIT_STANDARD_REPORTS_DIR);
             if (standardIdeaDir != null && standardIdeaDir.exists()) {
-                long startedAt = standardIdeaDir.lastModified();
-                CachedRun cachedRun = PitRepo.register(module, new ExecutionRecord(startedAt), standardIdeaDir.getPath());
-                try {
-                    cachedRun.reload();
-                } catch (InvalidMutatedFileException e) {
-                    deregister(project, cachedRun);
+                pending.add(new PendingReport(module, standardIdeaDir, true));
+            }
+        }
+
+        indicator.setText("Loading PIT reports");
+        ExecutorService executor = AppExecutorUtil.createBoundedApplicationPoolExecutor("PIT Report Loader", LOADER_THREADS);
+        AtomicInteger done = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>(pending.size());
+        for (PendingReport report : pending) {
+            futures.add(executor.submit(() -> {
+                if (!indicator.isCanceled()) {
+                    indicator.setText2(report.dir().getName());
+                    if (loadReport(report)) {
+                        ApplicationManager.getApplication().invokeLater(() -> showLoaded(project));
+                    }
                 }
+                indicator.setFraction((double) done.incrementAndGet() / pending.size());
+            }));
+        }
+        try {
+            for (Future<?> future : futures) {
+                awaitUnlessCanceled(future, indicator);
+            }
+        } finally {
+            futures.forEach(f -> f.cancel(false));
+            executor.shutdown();
+        }
+    }
+
+    private static void awaitUnlessCanceled(Future<?> future, ProgressIndicator indicator) {
+        while (true) {
+            indicator.checkCanceled();
+            try {
+                future.get(100, TimeUnit.MILLISECONDS);
+                return;
+            } catch (TimeoutException e) {
+                // Loop around to check for cancellation
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ProcessCanceledException();
+            } catch (CancellationException | ExecutionException e) {
+                LOGGER.warn("Report loading failed", e);
+                return;
             }
+        }
+    }
+
+    private static void showLoaded(Project project) {
+        if (!project.isDisposed()) {
             ensureSorted(project);
+            PitToolWindowFactory.getControlPanel(project).reloadHistory(project);
+        }
+    }
+
+    /**
+     * Adds a single report to the run history if it has a mutations file. Only its execution record is read,
+     * leaving its mutations to be read when the run is first shown. A report already in the history is instead
+     * read again in place if loaded, and only if it has changed since it was last read.
+     *
+     * @param report to load
+     * @return true if added to history or changed
+     */
+    private static boolean loadReport(PendingReport report) {
+        Module module = report.module();
+        File dir = report.dir();
+        ProjectRunRecords runRecords = getRunRecords(module.getProject());
+        CachedRun cachedRun = runRecords.findByReportDir(dir);
+        try {
+            if (cachedRun != null) {
+                boolean changed = cachedRun.isLoaded() && cachedRun.getRunState() != RunState.RUNNING && cachedRun.reload();
+                archiveIfOld(cachedRun);
+                return changed;
+            }
+            ExecutionRecord record = report.standard() ? new ExecutionRecord(dir.lastModified()) : new ExecutionRecord(dir);
+            cachedRun = new CachedRun(runRecords, record, module, dir.getPath());
+            if (!ReportArchive.exists(cachedRun.getMutationsFile())) {
+                throw new InvalidMutatedFileException("No mutations file in " + dir);
+            }
+            runRecords.add(cachedRun);
+            archiveIfOld(cachedRun);
+            return true;
+        } catch (InvalidMutatedFileException e) {
+            if (!report.standard()) {
+                LOGGER.warn("Failed to load report for " + dir.getName(), e);
+            }
+        } catch (Exception e) {
+            if (cachedRun == null) {
+                LOGGER.warn("Failed to load report: " + e.getMessage());
+            } else {
+                LOGGER.warn("Failed to load report for " + cachedRun.getExecutionRecord().getReportDirectoryName(), e);
+            }
+            // Report directories generated from a previous failed/canceled PIT may exist, but it
+            // easiest to just ignore them as the utility of loading them is low, and they'll
+            // get removed anyway on the next project clean.
         }
-        MutationControlPanel mutationControlPanel = PitToolWindowFactory.getControlPanel(project);
-        mutationControlPanel.reloadReports(project);
+        return false;
     }
 
-    private static void loadReport(Module module, File report) {
-        if (report.isDirectory()) {
-            CachedRun cachedRun = null;
+    /**
+     * Packs the files of a run into an archive if it is older than the age set in the registry.
+     */
+    private static void archiveIfOld(CachedRun cachedRun) {
+        int days = Registry.intValue(ARCHIVE_AFTER_DAYS_KEY, DEFAULT_ARCHIVE_AFTER_DAYS);
+        if (isDueForArchive(cachedRun.getExecutionRecord(), System.currentTimeMillis(), days)) {
             try {
-                cachedRun = PitRepo.register(module, new ExecutionRecord(report), report.getPath());
-                cachedRun.reload();
-            } catch (Exception e) {
-                if (cachedRun == null) {
-                    LOGGER.warn("Failed to load report: " + e.getMessage());
-                } else {
-                    LOGGER.warn("Failed to load report for " + cachedRun.getExecutionRecord().getReportDirectoryName(), e);
-                    deregister(module.getProject(), cachedRun);
-                }
-                // Report directories generated from a previous failed/canceled PIT may exist, but it
-                // easiest to just ignore them as the utility of loading them is low, and they'll
-                // get removed anyway on the next project clean.
+                cachedRun.archive();
+            } catch (IOException e) {
+                LOGGER.warn("Unable to archive report for " + cachedRun.getExecutionRecord().getReportDirectoryName() + ": " + e.getMessage());
             }
         }
     }
+
+    /**
+     * @param record of a run
+     * @param now    current time
+     * @param days   age in days after which runs are archived, or 0 or less to never archive
+     * @return true if the run was started more than the given number of days ago
+     */
+    @VisibleForTesting
+    static boolean isDueForArchive(ExecutionRecord record, long now, int days) {
+        long startedAt = record.getStartedAt();
+        return days > 0 && startedAt > 0 && now - startedAt > TimeUnit.DAYS.toMillis(days);
+    }
 }
@@ -0,0 +1,33 @@
+package org.pitestidea.model;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Deduplicates strings that repeat heavily across mutations, such as method names and descriptions
+ * (which PIT generates from a small set of templates). Unlike {@link String#intern()}, entries go
+ * away with the pool, which is expected to live as long as the results that reference them.
+ *
+ * <p>Not thread-safe.
+ */
+public class StringPool {
+    private final Map<String, String> pool = new HashMap<>();
+
+    /**
+     * Returns a canonical instance equal to the given string.
+     *
+     * @param s string to find or add, may be null
+     * @return the pooled instance, or null if s is null
+     */
+    public String intern(String s) {
+        if (s == null) {
+            return null;
+        }
+        String existing = pool.putIfAbsent(s, s);
+        return existing == null ? s : existing;
+    }
+
+    public int size() {
+        return pool.size();
+    }
+}
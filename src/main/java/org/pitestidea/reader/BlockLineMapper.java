@@ -0,0 +1,166 @@
+package org.pitestidea.reader;
+
+import org.jetbrains.org.objectweb.asm.ClassReader;
+import org.jetbrains.org.objectweb.asm.Opcodes;
+import org.jetbrains.org.objectweb.asm.tree.AbstractInsnNode;
+import org.jetbrains.org.objectweb.asm.tree.ClassNode;
+import org.jetbrains.org.objectweb.asm.tree.FrameNode;
+import org.jetbrains.org.objectweb.asm.tree.InsnList;
+import org.jetbrains.org.objectweb.asm.tree.JumpInsnNode;
+import org.jetbrains.org.objectweb.asm.tree.LabelNode;
+import org.jetbrains.org.objectweb.asm.tree.LineNumberNode;
+import org.jetbrains.org.objectweb.asm.tree.LookupSwitchInsnNode;
+import org.jetbrains.org.objectweb.asm.tree.MethodNode;
+import org.jetbrains.org.objectweb.asm.tree.TableSwitchInsnNode;
+import org.jetbrains.org.objectweb.asm.tree.TryCatchBlockNode;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Maps the blocks that PIT records coverage for to source lines. PIT's coverage export identifies code by method
+ * and block number rather than by line, and PIT itself maps blocks to lines by analysing the bytecode of each
+ * method as done here. Block numbers only mean anything if this analysis splits methods into blocks exactly as
+ * PIT's does, so the two must be kept in step.
+ */
+class BlockLineMapper {
+    private final String sourceFile;
+    private final Map<String, List<BitSet>> methodBlocks = new HashMap<>();
+
+    private BlockLineMapper(String sourceFile) {
+        this.sourceFile = sourceFile;
+    }
+
+    /**
+     * Analyses a compiled class.
+     *
+     * @param classBytes content of a class file
+     * @return mapper for the blocks of every method in the class
+     */
+    static BlockLineMapper analyze(byte[] classBytes) {
+        ClassNode classNode = new ClassNode();
+        new ClassReader(classBytes).accept(classNode, ClassReader.EXPAND_FRAMES);
+        BlockLineMapper mapper = new BlockLineMapper(classNode.sourceFile);
+        for (MethodNode method : classNode.methods) {
+            mapper.methodBlocks.put(method.name + method.desc, blockLines(method));
+        }
+        return mapper;
+    }
+
+    /**
+     * @return name of the source file the class was compiled from, without its directory, or null if unknown
+     */
+    String getSourceFile() {
+        return sourceFile;
+    }
+
+    /**
+     * Adds the lines of a block to a set of lines.
+     *
+     * @param method name and descriptor of the method, e.g. "abs(I)I"
+     * @param block  number of the block within the method
+     * @param lines  to add to
+     * @return false if there is no such block
+     */
+    boolean addLines(String method, int block, BitSet lines) {
+        List<BitSet> blocks = methodBlocks.get(method);
+        if (blocks == null || block < 0 || block >= blocks.size()) {
+            return false;
+        }
+        lines.or(blocks.get(block));
+        return true;
+    }
+
+    /**
+     * Splits a method into blocks, each ending at a jump, return, throw or instruction that might throw, or just
+     * before the target of a jump or exception handler.
+     *
+     * @return lines of each block, in block order
+     */
+    private static List<BitSet> blockLines(MethodNode method) {
+        InsnList instructions = method.instructions;
+        Set<LabelNode> jumpTargets = findJumpTargets(instructions);
+        for (TryCatchBlockNode tryCatch : method.tryCatchBlocks) {
+            jumpTargets.add(tryCatch.handler);
+        }
+
+        List<BitSet> blocks = new ArrayList<>();
+        BitSet lines = new BitSet();
+        int lastLine = -1;
+        int lastInstruction = instructions.size() - 1;
+        int blockStart = 0;
+        for (int i = 0; i < instructions.size(); i++) {
+            AbstractInsnNode ins = instructions.get(i);
+            if (ins instanceof LineNumberNode lineNumberNode) {
+                lastLine = lineNumberNode.line;
+                lines.set(lastLine);
+            } else if (ins instanceof LabelNode label && jumpTargets.contains(label) && blockStart != i) {
+                blocks.add(endBlock(lines, lastLine));
+                blockStart = i;
+                lines = new BitSet();
+            } else if (endsBlock(ins)) {
+                blocks.add(endBlock(lines, lastLine));
+                blockStart = i + 1;
+                lines = new BitSet();
+            } else if (lastLine >= 0 && !(ins instanceof LabelNode) && !(ins instanceof FrameNode)) {
+                lines.set(lastLine);
+            }
+        }
+        // As with PIT, a trailing block of a single instruction (e.g. a dangling label) is not counted
+        if (blockStart != lastInstruction) {
+            blocks.add(lines);
+        }
+        return blocks;
+    }
+
+    private static BitSet endBlock(BitSet lines, int lastLine) {
+        if (lines.isEmpty() && lastLine >= 0) {
+            lines.set(lastLine);
+        }
+        return lines;
+    }
+
+    private static Set<LabelNode> findJumpTargets(InsnList instructions) {
+        Set<LabelNode> jumpTargets = new HashSet<>();
+        for (AbstractInsnNode ins : instructions) {
+            if (ins instanceof JumpInsnNode jump) {
+                jumpTargets.add(jump.label);
+            } else if (ins instanceof TableSwitchInsnNode tableSwitch) {
+                jumpTargets.add(tableSwitch.dflt);
+                jumpTargets.addAll(tableSwitch.labels);
+            } else if (ins instanceof LookupSwitchInsnNode lookupSwitch) {
+                jumpTargets.add(lookupSwitch.dflt);
+                jumpTargets.addAll(lookupSwitch.labels);
+            }
+        }
+        return jumpTargets;
+    }
+
+    private static boolean endsBlock(AbstractInsnNode ins) {
+        return ins instanceof JumpInsnNode || ins.getType() == AbstractInsnNode.METHOD_INSN || endsBlock(ins.getOpcode());
+    }
+
+    private static boolean endsBlock(int opcode) {
+        return switch (opcode) {
+            // Returns and throws
+            case Opcodes.RETURN, Opcodes.ARETURN, Opcodes.DRETURN, Opcodes.FRETURN, Opcodes.IRETURN, Opcodes.LRETURN,
+                 Opcodes.ATHROW,
+                 // Division by zero
+                 Opcodes.IDIV, Opcodes.FDIV, Opcodes.LDIV, Opcodes.DDIV,
+                 // Null monitor
+                 Opcodes.MONITORENTER, Opcodes.MONITOREXIT,
+                 // Array index out of bounds
+                 Opcodes.IALOAD, Opcodes.LALOAD, Opcodes.SALOAD, Opcodes.DALOAD, Opcodes.BALOAD, Opcodes.FALOAD,
+                 Opcodes.CALOAD, Opcodes.AALOAD, Opcodes.IASTORE, Opcodes.LASTORE, Opcodes.SASTORE, Opcodes.DASTORE,
+                 Opcodes.BASTORE, Opcodes.FASTORE, Opcodes.CASTORE, Opcodes.AASTORE,
+                 // Class cast, array size
+                 Opcodes.CHECKCAST, Opcodes.ARRAYLENGTH, Opcodes.NEWARRAY, Opcodes.ANEWARRAY, Opcodes.MULTIANEWARRAY -> true;
+            default -> false;
+        };
+    }
+}
@@ -0,0 +1,340 @@
+package org.pitestidea.reader;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.VisibleForTesting;
+import org.pitestidea.model.MutationImpact;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Parses a very large XML report on several cores. The report is read in chunks that end at &lt;mutation&gt;
+ * element boundaries, each chunk is parsed on a dedicated pool into a partial list of mutations, and the lists
+ * are sent to the recorder in report order as soon as each chunk and all those before it are parsed. The
+ * recorder therefore sees exactly the same calls as when the report is read sequentially, all from the calling
+ * thread, and source files are only resolved there. Only a few chunks per thread are read ahead of the one
+ * being recorded, so memory use while reading does not grow with the size of the report.
+ *
+ * <p>Each chunk is parsed as a document of its own, made from the report's prologue and root element, the
+ * chunk, and the report's closing tag. If a chunk fails to parse, the rest of the report is read sequentially
+ * from the start of that chunk, which then either reads what the chunk couldn't or reports the problem with
+ * its usual detail.
+ */
+class ChunkedMutationsReader {
+    private static final Logger LOGGER = Logger.getInstance(ChunkedMutationsReader.class);
+
+    // Reports smaller than this are read faster sequentially than split
+    private static final long MIN_REPORT_BYTES = 16L << 20;
+    private static final int MIN_CHUNK_BYTES = 2 << 20;
+    private static final int MAX_CHUNK_BYTES = 16 << 20;
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final int CHUNKS_IN_FLIGHT_PER_THREAD = 2;
+    // Read past the end of a chunk in steps of this, until the next mutation is found
+    private static final int EXTEND_BYTES = 8 << 10;
+    // The closing tag is looked for only this far from the end of a report
+    private static final int TAIL_BYTES = 4 << 10;
+
+    private static final byte[] MUTATION_START = "<mutation".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ROOT_END = "</mutations>".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * One mutation as parsed from a chunk, before its source file is resolved.
+     */
+    private record Parsed(String pkg, String sourcePath, String method, MutationImpact impact, int lineNumber,
+                          String description, List<String> killingTests, List<String> succeedingTests, long fingerprint,
+                          int testsRun) {
+        private static Parsed of(MutationsXmlParser.PendingMutation pending, Function<String, String> dedupe) {
+            String pkg = dedupe.apply(pending.pkg());
+            return new Parsed(pkg, dedupe.apply(MutationsXmlParser.sourcePathOf(pkg, pending.sourceFile())),
+                    dedupe.apply(pending.mutatedMethod()), pending.impact(), pending.lineNumber(),
+                    dedupe.apply(pending.description()), pending.killingTests(), pending.succeedingTests(),
+                    pending.fingerprint(), pending.testsRun());
+        }
+    }
+
+    /**
+     * A chunk being parsed, from where it starts in the report.
+     */
+    private record Chunk(long from, Future<List<Parsed>> parsed) {
+    }
+
+    /**
+     * Reads a report in parallel chunks if it is large enough to benefit.
+     *
+     * @return true if read, false if the report should be read sequentially instead, in which case nothing
+     * was recorded
+     * @throws InvalidMutatedFileException if the report references missing files
+     */
+    static boolean read(File file, Function<String, VirtualFile> resolver, IMutationsRecorder recorder)
+            throws IOException, XMLStreamException, InvalidMutatedFileException {
+        // Leave a core for the thread recording the chunks
+        int threads = Runtime.getRuntime().availableProcessors() - 1;
+        if (threads < 2 || !file.isFile() || file.length() < MIN_REPORT_BYTES) {
+            return false;
+        }
+        long chunkBytes = file.length() / ((long) threads * CHUNKS_PER_THREAD);
+        ExecutorService executor = AppExecutorUtil.createBoundedApplicationPoolExecutor("PIT Report Parser", threads);
+        try {
+            return read(file, resolver, recorder, executor, threads,
+                    (int) Math.max(MIN_CHUNK_BYTES, Math.min(chunkBytes, MAX_CHUNK_BYTES)));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Reads a report in chunks of about the given size, regardless of its size.
+     *
+     * @param threads that the executor runs chunks on, which sets how many chunks are read ahead
+     */
+    @VisibleForTesting
+    static boolean read(File file, Function<String, VirtualFile> resolver, IMutationsRecorder recorder, ExecutorService executor,
+                        int threads, int chunkBytes) throws IOException, XMLStreamException, InvalidMutatedFileException {
+        // A packed report can't be read from at an offset
+        if (!file.isFile()) {
+            return false;
+        }
+        Replay replay = new Replay(resolver, recorder);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer tail = readAt(channel, Math.max(0, size - TAIL_BYTES), (int) Math.min(size, TAIL_BYTES));
+            int rootEnd = lastIndexOf(tail, ROOT_END);
+            if (rootEnd < 0) {
+                return false;
+            }
+            long end = size - tail.limit() + rootEnd;
+            ByteBuffer epilogue = tail.position(rootEnd).slice();
+            ByteBuffer prologue = readChunk(channel, 0, end, 0);
+            if (prologue.limit() == end) {
+                return false;
+            }
+
+            Deque<Chunk> inFlight = new ArrayDeque<>();
+            try {
+                long from = prologue.limit();
+                while (from < end || !inFlight.isEmpty()) {
+                    if (from < end && inFlight.size() < threads * CHUNKS_IN_FLIGHT_PER_THREAD) {
+                        ByteBuffer chunk = readChunk(channel, from, end, chunkBytes);
+                        inFlight.add(new Chunk(from, executor.submit(() -> parseChunk(file, prologue.duplicate(), chunk, epilogue.duplicate()))));
+                        from += chunk.limit();
+                    } else {
+                        Chunk next = inFlight.remove();
+                        List<Parsed> parsed = await(file, next);
+                        if (parsed == null) {
+                            readRest(file, channel, prologue.duplicate(), next.from(), replay);
+                            break;
+                        }
+                        replay.all(parsed);
+                    }
+                }
+            } finally {
+                inFlight.forEach(chunk -> chunk.parsed().cancel(false));
+            }
+        }
+        recorder.postProcess();
+        MutationsFileReader.checkBadFiles(replay.badFiles, file);
+        return true;
+    }
+
+    /**
+     * Waits for a chunk to be parsed.
+     *
+     * @return mutations of the chunk in report order, or null if it couldn't be parsed
+     */
+    private static List<Parsed> await(File file, Chunk chunk) throws InterruptedIOException {
+        try {
+            return chunk.parsed().get();
+        } catch (ExecutionException e) {
+            LOGGER.info("Reading " + file + " sequentially from byte " + chunk.from() + " after failing to parse a chunk: "
+                    + e.getCause().getMessage());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted reading " + file);
+        }
+    }
+
+    /**
+     * Reads the rest of a report sequentially, as a document made from its prologue and what follows the offset.
+     */
+    private static void readRest(File file, FileChannel channel, ByteBuffer prologue, long from, Replay replay)
+            throws IOException, XMLStreamException, InvalidMutatedFileException {
+        InputStream rest = new BufferedInputStream(Channels.newInputStream(channel.position(from)));
+        InputStream in = new SequenceInputStream(new ByteBufferInputStream(prologue), rest);
+        MutationsXmlParser.parse(in, file, pending -> replay.one(Parsed.of(pending, s -> s)));
+    }
+
+    private static List<Parsed> parseChunk(File file, ByteBuffer prologue, ByteBuffer chunk, ByteBuffer epilogue) throws Exception {
+        List<Parsed> mutations = new ArrayList<>();
+        // Each chunk has its own pool so that chunks share nothing while parsing; the recorder interns again
+        Map<String, String> strings = new HashMap<>();
+        Function<String, String> dedupe = s -> s == null ? null : strings.computeIfAbsent(s, k -> k);
+        InputStream in = new SequenceInputStream(Collections.enumeration(List.of(
+                new ByteBufferInputStream(prologue), new ByteBufferInputStream(chunk), new ByteBufferInputStream(epilogue))));
+        MutationsXmlParser.parse(in, file, pending -> mutations.add(Parsed.of(pending, dedupe)));
+        return mutations;
+    }
+
+    /**
+     * Sends parsed mutations to the recorder, resolving each source path once.
+     */
+    private static class Replay {
+        private final Function<String, VirtualFile> resolver;
+        private final IMutationsRecorder recorder;
+        private final Map<String, VirtualFile> resolved = new HashMap<>();
+        private final Set<String> badFiles = new LinkedHashSet<>();
+
+        private Replay(Function<String, VirtualFile> resolver, IMutationsRecorder recorder) {
+            this.resolver = resolver;
+            this.recorder = recorder;
+        }
+
+        private void all(List<Parsed> chunk) {
+            Set<String> paths = new LinkedHashSet<>();
+            chunk.forEach(parsed -> paths.add(parsed.sourcePath()));
+            ReadActionResolver.prefetch(resolver, paths);
+            chunk.forEach(this::one);
+        }
+
+        private void one(Parsed parsed) {
+            VirtualFile virtualFile = resolved.get(parsed.sourcePath());
+            if (virtualFile == null && !resolved.containsKey(parsed.sourcePath())) {
+                virtualFile = resolver.apply(parsed.sourcePath());
+                resolved.put(parsed.sourcePath(), virtualFile);
+            }
+            if (virtualFile == null) {
+                badFiles.add(parsed.sourcePath());
+            } else {
+                recorder.record(recorder.intern(parsed.pkg()), virtualFile, recorder.intern(parsed.method()), parsed.impact(),
+                        parsed.lineNumber(), recorder.intern(parsed.description()), parsed.killingTests(), parsed.succeedingTests(),
+                        parsed.fingerprint(), parsed.testsRun());
+            }
+        }
+    }
+
+    /**
+     * Reads from an offset up to the first &lt;mutation&gt; element at least the given number of bytes further
+     * on, or up to the end if there is none.
+     */
+    private static ByteBuffer readChunk(FileChannel channel, long from, long end, int minBytes) throws IOException {
+        ByteBuffer buffer = readAt(channel, from, (int) Math.min(end - from, minBytes));
+        while (from + buffer.limit() < end) {
+            int read = buffer.limit();
+            int more = (int) Math.min(end - from - read, EXTEND_BYTES);
+            ByteBuffer extended = ByteBuffer.allocate(read + more).put(buffer);
+            readFully(channel, extended, from + read);
+            buffer = extended.flip();
+            // The element name may have started in what was read before
+            int split = indexOfMutation(buffer, Math.max(minBytes, read - MUTATION_START.length - 1), buffer.limit());
+            if (split >= 0) {
+                return buffer.limit(split);
+            }
+        }
+        return buffer;
+    }
+
+    private static ByteBuffer readAt(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        readFully(channel, buffer, position);
+        return buffer.flip();
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position);
+            if (n < 0) {
+                throw new EOFException("Report shortened while being read");
+            }
+            position += n;
+        }
+    }
+
+    /**
+     * Finds the start of the next &lt;mutation&gt; element, as opposed to the &lt;mutations&gt; root.
+     *
+     * @return offset of the element, or -1 if there is none starting before end
+     */
+    @VisibleForTesting
+    static int indexOfMutation(ByteBuffer buffer, int from, int end) {
+        int last = Math.min(end, buffer.limit() - MUTATION_START.length - 1);
+        for (int i = from; i < last; i++) {
+            if (buffer.get(i) == '<' && matches(buffer, i, MUTATION_START)) {
+                byte next = buffer.get(i + MUTATION_START.length);
+                if (next == ' ' || next == '>' || next == '/' || next == '\t' || next == '\n' || next == '\r') {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static int lastIndexOf(ByteBuffer buffer, byte[] bytes) {
+        for (int i = buffer.limit() - bytes.length; i >= 0; i--) {
+            if (matches(buffer, i, bytes)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean matches(ByteBuffer buffer, int at, byte[] bytes) {
+        for (int j = 0; j < bytes.length; j++) {
+            if (buffer.get(at + j) != bytes[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+    }
+}
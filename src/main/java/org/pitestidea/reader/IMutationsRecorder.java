@@ -4,6 +4,9 @@ import com.intellij.openapi.vfs.VirtualFile;
 import org.pitestidea.model.MutationImpact;
 import org.pitestidea.toolwindow.DisplayChoices;
 
+import java.util.BitSet;
+import java.util.List;
+
 public interface IMutationsRecorder {
     /**
      * Record a single mutation in a file.
@@ -17,6 +20,62 @@ public interface IMutationsRecorder {
      */
     void record(String pkg, VirtualFile file, String methodName, MutationImpact impact, int lineNumber, String description);
 
+    /**
+     * Same as {@link #record(String, VirtualFile, String, MutationImpact, int, String)} but with the tests that
+     * ran against the mutation, for recorders that track them.
+     *
+     * @param killingTests    names of tests that killed the mutation
+     * @param succeedingTests names of tests that ran without killing the mutation
+     */
+    default void record(String pkg, VirtualFile file, String methodName, MutationImpact impact, int lineNumber, String description,
+                        List<String> killingTests, List<String> succeedingTests) {
+        record(pkg, file, methodName, impact, lineNumber, description);
+    }
+
+    /**
+     * Same as {@link #record(String, VirtualFile, String, MutationImpact, int, String, List, List)} but with the
+     * identity of the mutation across runs and its cost, for recorders that compare runs or rank mutations.
+     *
+     * @param fingerprint of mutation, see {@link org.pitestidea.model.MutationFingerprint}
+     * @param testsRun    number of tests PIT ran against the mutation, 0 if not known
+     */
+    default void record(String pkg, VirtualFile file, String methodName, MutationImpact impact, int lineNumber, String description,
+                        List<String> killingTests, List<String> succeedingTests, long fingerprint, int testsRun) {
+        record(pkg, file, methodName, impact, lineNumber, description, killingTests, succeedingTests);
+    }
+
+    /**
+     * Same as {@link #record(String, VirtualFile, String, MutationImpact, int, String, List, List, long, int)} but with a
+     * description that is only decoded when it is read, for recorders that can hold one as is. By default it is
+     * decoded straight away.
+     *
+     * @param description of mutation, decoded by {@link CharSequence#toString()}
+     */
+    default void recordLazily(String pkg, VirtualFile file, String methodName, MutationImpact impact, int lineNumber, CharSequence description,
+                              List<String> killingTests, List<String> succeedingTests, long fingerprint, int testsRun) {
+        record(pkg, file, methodName, impact, lineNumber, intern(description.toString()), killingTests, succeedingTests, fingerprint, testsRun);
+    }
+
+    /**
+     * Returns a shared instance of a string that is likely to be repeated across mutations, so that readers
+     * can avoid holding many equal copies. Values passed to {@link #record} should first be passed through here.
+     *
+     * @param s string to deduplicate
+     * @return an equal string, possibly the same one
+     */
+    default String intern(String s) {
+        return s;
+    }
+
+    /**
+     * Records the lines of a file that were run by tests. Called after mutations have been recorded.
+     *
+     * @param file         reference
+     * @param coveredLines numbers of covered lines, starting at 1
+     */
+    default void recordCoverage(VirtualFile file, BitSet coveredLines) {
+    }
+
     /**
      * Called after all calls to {@link #record(String, VirtualFile, String, MutationImpact, int, String)} have completed.
      */
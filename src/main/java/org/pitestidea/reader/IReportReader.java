@@ -0,0 +1,40 @@
+package org.pitestidea.reader;
+
+import com.intellij.openapi.vfs.VirtualFile;
+
+import java.io.File;
+import java.util.function.Function;
+
+/**
+ * Reads mutation results from one of the report formats that PIT can write. Available readers are listed in
+ * {@link ReportReaders}.
+ */
+public interface IReportReader {
+    /**
+     * @return format name as given to PIT's --outputFormats option
+     */
+    String getOutputFormat();
+
+    /**
+     * @return name of the file PIT writes in this format within a report directory
+     */
+    String getFileName();
+
+    /**
+     * Reads a report and sends each mutation to a recorder, followed by {@link IMutationsRecorder#postProcess()}.
+     *
+     * @param report   file to read
+     * @param resolver maps a relative source path (e.g. "a/b/C.java") to a file, or null if not found
+     * @param recorder to send results to
+     * @throws InvalidMutatedFileException if the report can't be read or references missing files
+     */
+    void read(File report, Function<String, VirtualFile> resolver, IMutationsRecorder recorder) throws InvalidMutatedFileException;
+
+    /**
+     * @param reportDir directory PIT wrote to
+     * @return where this format's file is, or would be, within the directory
+     */
+    default File fileIn(File reportDir) {
+        return new File(reportDir, getFileName());
+    }
+}
@@ -0,0 +1,141 @@
+package org.pitestidea.reader;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.VisibleForTesting;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Reads the line coverage that PIT exports when run with "--exportLineCoverage", which lists each block of code
+ * run by at least one test:
+ * <pre>
+ *     &lt;block classname='a.b.C' method='abs(I)I' number='1'&gt;&lt;tests&gt;...&lt;/tests&gt;&lt;/block&gt;
+ * </pre>
+ * Blocks are mapped to lines using the compiled classes, as PIT does for its own reports, and the covered
+ * lines of each source file are sent to the recorder.
+ *
+ * <p>The file is streamed, skipping the tests listed for each block, which make up most of it.
+ */
+public class LineCoverageReader {
+    private static final Logger LOGGER = Logger.getInstance(LineCoverageReader.class);
+    public static final String FILE_NAME = "linecoverage.xml";
+
+    /**
+     * Reads covered lines and sends those of each source file to a recorder.
+     *
+     * @param project    context
+     * @param file       to read and parse
+     * @param classesDir directory of the compiled classes that PIT ran against
+     * @param recorder   to send results to
+     * @throws InvalidMutatedFileException if the file can't be read
+     */
+    public static void read(Project project, File file, File classesDir, IMutationsRecorder recorder) throws InvalidMutatedFileException {
+        read(file, className -> readClass(classesDir, className, ReportArchive.lastModified(file)), ReadActionResolver.of(project), recorder);
+    }
+
+    /**
+     * Same as {@link #read(Project, File, File, IMutationsRecorder)} but with class and source file resolution
+     * supplied by the caller.
+     *
+     * @param file       to read and parse
+     * @param classBytes maps a class name (e.g. "a.b.C$D") to the content of its class file, or null if not found
+     * @param resolver   maps a relative source path (e.g. "a/b/C.java") to a file, or null if not found
+     * @param recorder   to send results to
+     */
+    @VisibleForTesting
+    static void read(File file, Function<String, byte[]> classBytes, Function<String, VirtualFile> resolver, IMutationsRecorder recorder) throws InvalidMutatedFileException {
+        final Map<String, Map<String, BitSet>> coveredBlocks;
+        try {
+            coveredBlocks = readBlocks(file);
+        } catch (IOException | XMLStreamException | NumberFormatException e) {
+            throw new InvalidMutatedFileException(e);
+        }
+
+        Map<String, VirtualFile> resolved = new HashMap<>();
+        Map<VirtualFile, BitSet> fileLines = new LinkedHashMap<>();
+        coveredBlocks.forEach((className, methods) -> {
+            byte[] bytes = classBytes.apply(className);
+            if (bytes == null) {
+                return;  // E.g. generated at runtime, or since removed
+            }
+            final BlockLineMapper mapper;
+            try {
+                mapper = BlockLineMapper.analyze(bytes);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Unable to analyze class " + className + ": " + e.getMessage());
+                return;
+            }
+            if (mapper.getSourceFile() == null) {
+                return;
+            }
+            String filePath = MutationsXmlParser.sourcePathOf(MutationsXmlParser.packageOf(className), mapper.getSourceFile());
+            VirtualFile virtualFile = resolved.computeIfAbsent(filePath, resolver);
+            if (virtualFile != null) {
+                BitSet lines = fileLines.computeIfAbsent(virtualFile, k -> new BitSet());
+                methods.forEach((method, blocks) -> blocks.stream().forEach(block -> {
+                    if (!mapper.addLines(method, block, lines)) {
+                        LOGGER.debug("No block " + block + " in " + className + "." + method);
+                    }
+                }));
+            }
+        });
+        fileLines.forEach(recorder::recordCoverage);
+    }
+
+    /**
+     * @return numbers of covered blocks, by method within class
+     */
+    private static Map<String, Map<String, BitSet>> readBlocks(File file) throws IOException, XMLStreamException {
+        Map<String, Map<String, BitSet>> coveredBlocks = new LinkedHashMap<>();
+        try (InputStream in = ReportArchive.open(file)) {
+            XMLStreamReader reader = MutationsXmlParser.createInputFactory().createXMLStreamReader(in);
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamConstants.START_ELEMENT && "block".equals(reader.getLocalName())) {
+                        String className = reader.getAttributeValue(null, "classname");
+                        String method = reader.getAttributeValue(null, "method");
+                        String number = reader.getAttributeValue(null, "number");
+                        if (className != null && method != null && number != null) {
+                            coveredBlocks.computeIfAbsent(className, k -> new HashMap<>())
+                                    .computeIfAbsent(method, k -> new BitSet())
+                                    .set(Integer.parseInt(number));
+                        }
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+        return coveredBlocks;
+    }
+
+    /**
+     * Reads a class file, unless it was compiled after coverage was exported, in which case its blocks may no
+     * longer be those that coverage was recorded for.
+     */
+    private static byte[] readClass(File classesDir, String className, long coverageTime) {
+        File classFile = new File(classesDir, className.replace('.', File.separatorChar) + ".class");
+        if (!classFile.isFile() || classFile.lastModified() > coverageTime) {
+            return null;
+        }
+        try {
+            return Files.readAllBytes(classFile.toPath());
+        } catch (IOException e) {
+            LOGGER.warn("Unable to read " + classFile + ": " + e.getMessage());
+            return null;
+        }
+    }
+}
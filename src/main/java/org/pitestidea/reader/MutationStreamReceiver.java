@@ -0,0 +1,295 @@
+package org.pitestidea.reader;
+
+import com.intellij.openapi.application.Application;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.VisibleForTesting;
+import org.pitestidea.configuration.SourceRootIndex;
+import org.pitestidea.model.MutationFingerprint;
+import org.pitestidea.model.MutationImpact;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Receives mutations streamed from a running PIT process by the result listener bundled with this plugin
+ * (see the pitListener source set), and sends them to a recorder so that results can be shown before
+ * PIT completes.
+ *
+ * <p>Lines are read and parsed on a background thread. Mutations are collected and handed over in batches
+ * at most every {@link #BATCH_MILLIS}, and each batch is resolved to source files and recorded on the UI
+ * executor, which is therefore the only thread touching the recorder.
+ */
+public class MutationStreamReceiver implements Closeable {
+    private static final Logger LOGGER = Logger.getInstance(MutationStreamReceiver.class);
+
+    // Must match IdeaLiveListenerFactory.NAME in the listener
+    public static final String OUTPUT_FORMAT = "IDEA_LIVE";
+
+    // Must match IdeaLiveListenerFactory.PORT_PROPERTY in the listener
+    public static final String PORT_PROPERTY = "pitidea.listener.port";
+
+    private static final long BATCH_MILLIS = 500;
+
+    // Time to wait for remaining lines after PIT exits, which should be almost nothing since the listener
+    // has already written everything by then. Only reached in full if the listener never connected.
+    private static final long FINISH_MILLIS = 5000;
+
+    @VisibleForTesting
+    record StreamedMutation(String pkg, String sourcePath, String methodName, MutationImpact impact, int lineNumber, String description,
+                            List<String> killingTests, List<String> succeedingTests, long fingerprint,
+                            int testsRun) {
+    }
+
+    private final ServerSocket serverSocket;
+    private final Function<String, VirtualFile> resolver;
+    private final IMutationsRecorder recorder;
+    private final Executor uiExecutor;
+    private final Consumer<Set<VirtualFile>> onBatch;
+    private final List<StreamedMutation> pending = new ArrayList<>();
+    private final CountDownLatch done = new CountDownLatch(1);
+    private volatile Socket socket;
+    private volatile boolean ended = false;
+    private volatile boolean invalid = false;
+    private ScheduledFuture<?> flusher;
+
+    // Only accessed on the UI executor
+    private final Map<String, VirtualFile> resolved = new HashMap<>();
+    private boolean unresolved = false;
+
+    @VisibleForTesting
+    MutationStreamReceiver(Function<String, VirtualFile> resolver, IMutationsRecorder recorder, Executor uiExecutor, Consumer<Set<VirtualFile>> onBatch) throws IOException {
+        this.serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        this.resolver = resolver;
+        this.recorder = recorder;
+        this.uiExecutor = uiExecutor;
+        this.onBatch = onBatch;
+    }
+
+    /**
+     * Opens a receiver on a free loopback port, ready for the PIT process to connect to.
+     *
+     * @param resolver maps a relative source path (e.g. "a/b/C.java") to a file, or null if not found, such as
+     *                 {@link SourceRootIndex#findFile(String)}
+     * @param recorder to send mutations to, on the UI thread
+     * @param onBatch  called on the UI thread after each batch has been recorded, with the files it touched
+     * @return receiver whose port must be passed to PIT
+     * @throws IOException if no port could be opened
+     */
+    public static MutationStreamReceiver open(Function<String, VirtualFile> resolver, IMutationsRecorder recorder, Consumer<Set<VirtualFile>> onBatch) throws IOException {
+        Application app = ApplicationManager.getApplication();
+        MutationStreamReceiver receiver = new MutationStreamReceiver(resolver, recorder, app::invokeLater, onBatch);
+        receiver.start(AppExecutorUtil.getAppExecutorService(), AppExecutorUtil.getAppScheduledExecutorService());
+        return receiver;
+    }
+
+    /**
+     * Starts accepting a connection and reading from it.
+     *
+     * @param reader to read on
+     * @param timer  to schedule batches on, or null to only send everything on {@link #finish()}
+     */
+    @VisibleForTesting
+    void start(Executor reader, @Nullable ScheduledExecutorService timer) {
+        reader.execute(this::readAll);
+        if (timer != null) {
+            flusher = timer.scheduleWithFixedDelay(this::flush, BATCH_MILLIS, BATCH_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    private void readAll() {
+        try {
+            socket = serverSocket.accept();
+            serverSocket.close();  // Only one connection is expected
+            try (BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    if ("E".equals(line)) {
+                        ended = true;
+                    } else {
+                        StreamedMutation mutation = parse(line);
+                        if (mutation == null) {
+                            invalid = true;
+                        } else {
+                            synchronized (pending) {
+                                pending.add(mutation);
+                            }
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // Expected if closed before or while PIT is connected, e.g. when PIT fails or is cancelled
+            invalid = true;
+        } finally {
+            done.countDown();
+        }
+    }
+
+    /**
+     * Parses one mutation line as written by the listener.
+     *
+     * @param line to parse
+     * @return mutation, or null if the line is malformed or has a status this plugin does not handle
+     */
+    @VisibleForTesting
+    static @Nullable StreamedMutation parse(String line) {
+        List<String> fields = new ArrayList<>(13);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '\t') {
+                fields.add(sb.toString());
+                sb.setLength(0);
+            } else if (c == '\\' && i + 1 < line.length()) {
+                char next = line.charAt(++i);
+                switch (next) {
+                    case 't' -> sb.append('\t');
+                    case 'n' -> sb.append('\n');
+                    case 'r' -> sb.append('\r');
+                    default -> sb.append(next);
+                }
+            } else {
+                sb.append(c);
+            }
+        }
+        fields.add(sb.toString());
+        // Mutator, indexes, blocks, tests run and then the method descriptor were added after the first nine fields,
+        // and are absent from older listeners
+        if ((fields.size() != 9 && fields.size() != 13 && fields.size() != 14) || !"M".equals(fields.get(0))) {
+            LOGGER.warn("Ignoring malformed streamed mutation: " + line);
+            return null;
+        }
+        try {
+            MutationImpact impact = MutationImpact.valueOf(fields.get(1));
+            int lineNumber = Integer.parseInt(fields.get(5));
+            String pkg = MutationsXmlParser.packageOf(fields.get(2));
+            String sourcePath = MutationsXmlParser.sourcePathOf(pkg, fields.get(3));
+            long fingerprint = fields.size() == 9 ? MutationFingerprint.UNKNOWN
+                    : MutationFingerprint.of(fields.get(2), fields.get(4), fields.size() == 13 ? null : fields.get(13),
+                    fields.get(9), fields.get(10), fields.get(11), fields.get(6));
+            int testsRun = fields.size() == 9 ? 0 : Integer.parseInt(fields.get(12));
+            return new StreamedMutation(pkg, sourcePath, fields.get(4), impact, lineNumber, fields.get(6),
+                    MutationsXmlParser.splitTests(fields.get(7)), MutationsXmlParser.splitTests(fields.get(8)), fingerprint, testsRun);
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("Ignoring streamed mutation: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Hands pending mutations to the UI executor. The batch is queued while still holding the lock it was taken
+     * under, so that once a flush returns, every batch taken by any earlier flush, including one on the timer
+     * still running at the time, is queued ahead of whatever is queued next.
+     */
+    private void flush() {
+        synchronized (pending) {
+            if (!pending.isEmpty()) {
+                List<StreamedMutation> batch = new ArrayList<>(pending);
+                pending.clear();
+                uiExecutor.execute(() -> apply(batch));
+            }
+        }
+    }
+
+    private void apply(List<StreamedMutation> batch) {
+        Set<VirtualFile> touched = new LinkedHashSet<>();
+        for (StreamedMutation m : batch) {
+            VirtualFile file = resolved.get(m.sourcePath());
+            if (file == null && !resolved.containsKey(m.sourcePath())) {
+                file = resolver.apply(m.sourcePath());
+                resolved.put(m.sourcePath(), file);
+            }
+            if (file == null) {
+                unresolved = true;
+            } else {
+                recorder.record(recorder.intern(m.pkg()), file, recorder.intern(m.methodName()), m.impact(), m.lineNumber(), recorder.intern(m.description()),
+                        m.killingTests(), m.succeedingTests(), m.fingerprint(), m.testsRun());
+                touched.add(file);
+            }
+        }
+        onBatch.accept(touched);
+    }
+
+    /**
+     * Waits for the remainder of the stream after PIT has exited, and sends the last batch to the recorder.
+     * Must not be called on the UI thread.
+     *
+     * @return true if the recorder now holds every mutation of the run, false if the report file should
+     * be read instead
+     */
+    public boolean finish() {
+        try {
+            if (!done.await(FINISH_MILLIS, TimeUnit.MILLISECONDS)) {
+                LOGGER.warn("Timed out waiting for streamed PIT results");
+                invalid = true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            invalid = true;
+        }
+        close();
+        // Waits for a flush already running on the timer, so that its batch is recorded before the check below
+        flush();
+        CompletableFuture<Boolean> complete = new CompletableFuture<>();
+        uiExecutor.execute(() -> complete.complete(ended && !invalid && !unresolved));
+        try {
+            return complete.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Stops receiving. Anything not yet sent to the recorder is dropped unless {@link #finish()} is used instead.
+     */
+    @Override
+    public void close() {
+        if (flusher != null) {
+            flusher.cancel(false);
+        }
+        closeQuietly(serverSocket);
+        closeQuietly(socket);
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                // Nothing useful to do
+            }
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package org.pitestidea.reader;
+
+import com.intellij.openapi.vfs.VirtualFile;
+import org.pitestidea.model.MutationFingerprint;
+import org.pitestidea.model.MutationImpact;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Reads the CSV report written by PIT, in which each line is one mutation:
+ * <pre>
+ *     sourceFile,mutatedClass,mutator,mutatedMethod,lineNumber,status,killingTest
+ * </pre>
+ * PIT does not quote fields. Only the killing test (e.g. a parameterized JUnit test) can contain commas, which
+ * is fine since it is last. The report has no descriptions, so the mutator's simple name is used instead, and
+ * the killing test is "none" if there isn't one. Nor does it have instruction indexes, so the line number stands
+ * in for them in each mutation's fingerprint, or the number of tests run against each mutation.
+ *
+ * <p>Fields are located by their comma positions within each line and only those kept by the recorder are
+ * copied out of it.
+ */
+class MutationsCsvReader {
+    private static final MutationImpact[] IMPACTS = MutationImpact.values();
+    private static final String NO_TEST = "none";
+    private static final int SEPARATORS = 6;
+
+    /**
+     * Same as {@link IReportReader#read(File, Function, IMutationsRecorder)}.
+     */
+    static void read(File file, Function<String, VirtualFile> resolver, IMutationsRecorder recorder) throws InvalidMutatedFileException {
+        Set<String> badFiles = new LinkedHashSet<>();
+        Map<String, VirtualFile> resolved = new HashMap<>();
+        int[] commas = new int[SEPARATORS];
+
+        // Mutations arrive grouped by class, so consecutive lines usually start with the same file and class
+        String lastLine = null;
+        int lastClassEnd = -1;
+        String pkg = null;
+        String filePath = null;
+        VirtualFile virtualFile = null;
+
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(ReportArchive.open(file), StandardCharsets.UTF_8))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                if (line.isEmpty()) {
+                    continue;
+                }
+                if (!findCommas(line, commas)) {
+                    throw new InvalidMutatedFileException("Malformed line " + lineNumber + " of " + file);
+                }
+                int classEnd = commas[1];
+                if (classEnd != lastClassEnd || !line.regionMatches(0, lastLine, 0, classEnd)) {
+                    pkg = recorder.intern(MutationsXmlParser.packageOf(line.substring(commas[0] + 1, classEnd)));
+                    filePath = MutationsXmlParser.sourcePathOf(pkg, line.substring(0, commas[0]));
+                    virtualFile = resolved.get(filePath);
+                    if (virtualFile == null && !resolved.containsKey(filePath)) {
+                        virtualFile = resolver.apply(filePath);
+                        resolved.put(filePath, virtualFile);
+                    }
+                    lastLine = line;
+                    lastClassEnd = classEnd;
+                }
+                if (virtualFile == null) {
+                    badFiles.add(filePath);
+                    continue;
+                }
+                MutationImpact impact = impactOf(line, commas[4] + 1, commas[5]);
+                int mutatedLine = parseInt(line, commas[3] + 1, commas[4]);
+                if (impact == null || mutatedLine < 0) {
+                    throw new InvalidMutatedFileException("Malformed line " + lineNumber + " of " + file);
+                }
+                String method = recorder.intern(line.substring(commas[2] + 1, commas[3]));
+                int mutatorStart = Math.max(line.lastIndexOf('.', commas[2]), commas[1]) + 1;
+                String description = recorder.intern(line.substring(mutatorStart, commas[2]));
+                int testStart = commas[5] + 1;
+                boolean noTest = line.length() == testStart
+                        || (line.length() - testStart == NO_TEST.length() && line.startsWith(NO_TEST, testStart));
+                List<String> killingTests = noTest ? List.of() : List.of(line.substring(testStart));
+                // The report has no method descriptors nor instruction indexes, so mutations by the same mutator in one method are told apart by line
+                long fingerprint = MutationFingerprint.of(line.substring(commas[0] + 1, classEnd), method, null,
+                        line.substring(commas[1] + 1, commas[2]), line.substring(commas[3] + 1, commas[4]), null, description);
+                recorder.record(pkg, virtualFile, method, impact, mutatedLine, description, killingTests, List.of(), fingerprint, 0);
+            }
+        } catch (IOException e) {
+            throw new InvalidMutatedFileException(e);
+        }
+        recorder.postProcess();
+        MutationsFileReader.checkBadFiles(badFiles, file);
+    }
+
+    /**
+     * Finds the separators between fields, ignoring any commas after the last one.
+     *
+     * @return true if all were found
+     */
+    private static boolean findCommas(String line, int[] commas) {
+        int from = 0;
+        for (int i = 0; i < commas.length; i++) {
+            int ix = line.indexOf(',', from);
+            if (ix < 0) {
+                return false;
+            }
+            commas[i] = ix;
+            from = ix + 1;
+        }
+        return true;
+    }
+
+    /**
+     * @return the impact named in the line between start and end, or null if there is none by that name
+     */
+    private static MutationImpact impactOf(String line, int start, int end) {
+        for (MutationImpact impact : IMPACTS) {
+            String name = impact.name();
+            if (name.length() == end - start && line.startsWith(name, start)) {
+                return impact;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the non-negative number in the line between start and end, or -1 if it isn't one
+     */
+    private static int parseInt(String line, int start, int end) {
+        if (start == end || end - start > 9) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = line.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
@@ -2,24 +2,28 @@ package org.pitestidea.reader;
 
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.Project;
-import com.intellij.openapi.roots.ProjectRootManager;
 import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.VisibleForTesting;
 import org.pitestidea.model.MutationImpact;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
 import java.io.File;
 import java.io.IOException;
-import java.util.HashSet;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
 
 /**
  * Reads files output from PIT and generates mutations line-by-line.
+ *
+ * <p>The file is streamed rather than loaded as a whole, so memory use while reading does not
+ * grow with the size of the report. Each mutation is sent to the recorder as soon as its
+ * closing element has been read. Very large reports are instead parsed in parallel pieces by
+ * {@link ChunkedMutationsReader}, with the same results.
  */
 public class MutationsFileReader {
     private static final Logger LOGGER = Logger.getInstance(MutationsFileReader.class);
@@ -33,8 +37,23 @@ public class MutationsFileReader {
      * @param recorder to send results to
      */
     public static void read(Project project, File file, IMutationsRecorder recorder) throws InvalidMutatedFileException {
+        read(file, ReadActionResolver.of(project), recorder);
+    }
+
+    /**
+     * Same as {@link #read(Project, File, IMutationsRecorder)} but with source file resolution
+     * supplied by the caller.
+     *
+     * @param file     to read and parse
+     * @param resolver maps a relative source path (e.g. "a/b/C.java") to a file, or null if not found
+     * @param recorder to send results to
+     */
+    @VisibleForTesting
+    static void read(File file, Function<String, VirtualFile> resolver, IMutationsRecorder recorder) throws InvalidMutatedFileException {
         try {
-            readFull(project, file, recorder);
+            if (!ChunkedMutationsReader.read(file, resolver, recorder)) {
+                readFull(file, resolver, recorder);
+            }
         } catch (InvalidMutatedFileException e) {
             throw e;
         } catch (Exception e) {
@@ -42,49 +61,41 @@ public class MutationsFileReader {
         }
     }
 
-    private static void readFull(Project project, File file, IMutationsRecorder recorder) throws ParserConfigurationException, IOException, SAXException, InvalidMutatedFileException {
-        record Bad(String file, String reportPath) {
-        }
-        Set<Bad> badFiles = new HashSet<>();
-        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder builder = factory.newDocumentBuilder();
-
-        Document document = builder.parse(file);
-
-        NodeList nodeList = document.getElementsByTagName("mutation");
-        for (int i = 0; i < nodeList.getLength(); i++) {
-            Element node = (Element) nodeList.item(i);
-            int lineNumber = Integer.parseInt(node.getElementsByTagName("lineNumber").item(0).getTextContent());
-            String description = node.getElementsByTagName("description").item(0).getTextContent();
-            MutationImpact impact = MutationImpact.valueOf(node.getAttribute("status"));
-            String sourceFile = node.getElementsByTagName("sourceFile").item(0).getTextContent();
-            String filePath = node.getElementsByTagName("mutatedClass").item(0).getTextContent();
-            String method = node.getElementsByTagName("mutatedMethod").item(0).getTextContent();
+    /**
+     * Reads a report sequentially, whatever its size.
+     */
+    static void readFull(File file, Function<String, VirtualFile> resolver, IMutationsRecorder recorder) throws IOException, XMLStreamException, InvalidMutatedFileException {
+        Set<String> badFiles = new LinkedHashSet<>();
+        // Mutations arrive grouped by class, so each source path only needs resolving once
+        Map<String, VirtualFile> resolved = new HashMap<>();
 
-            int ix = filePath.lastIndexOf('.');
-            final String pkg;
-            if (ix < 0) {
-                pkg = "";
-                filePath = sourceFile;
-            } else {
-                pkg = filePath.substring(0, ix);
-                filePath = pkg.replace('.', '/') + '/' + sourceFile;
-            }
-            VirtualFile virtualFile = findFromPath(project, filePath);
-            if (virtualFile == null) {
-                badFiles.add(new Bad(filePath, file.getParent()));
-            } else {
-                recorder.record(pkg, virtualFile, method, impact, lineNumber, description);
-            }
+        try (InputStream in = ReportArchive.open(file)) {
+            MutationsXmlParser.parse(in, file, pending -> {
+                String filePath = emit(pending, resolver, resolved, recorder);
+                if (filePath != null) {
+                    badFiles.add(filePath);
+                }
+            });
         }
         recorder.postProcess();
+        checkBadFiles(badFiles, file);
+    }
+
+    /**
+     * Logs and throws if any source files referenced by a report could not be found.
+     *
+     * @param badFiles relative paths of source files not found
+     * @param report   file that referenced them
+     * @throws InvalidMutatedFileException if there are any bad files
+     */
+    static void checkBadFiles(Collection<String> badFiles, File report) throws InvalidMutatedFileException {
         if (!badFiles.isEmpty()) {
             StringBuilder sb = new StringBuilder();
             sb.append("The following PIT reports contained non-existent files that will be ignored:\n");
-            for (Bad badFile : badFiles) {
+            for (String badFile : badFiles) {
                 sb.append("  ");
-                sb.append(badFile.reportPath);
-                sb.append(" referenced ").append(badFile.file).append("\n");
+                sb.append(report.getParent());
+                sb.append(" referenced ").append(badFile).append("\n");
             }
             sb.append("Those reports can be removed");
             LOGGER.warn(sb.toString());
@@ -92,14 +103,26 @@ public class MutationsFileReader {
         }
     }
 
-    private static VirtualFile findFromPath(Project project, String filePath) {
-        VirtualFile[] projectSourceRoots = ProjectRootManager.getInstance(project).getContentSourceRoots();
-        for (VirtualFile sourceRoot : projectSourceRoots) {
-            VirtualFile file = sourceRoot.findFileByRelativePath(filePath);
-            if (file != null) {
-                return file;
-            }
+    /**
+     * Sends a completed mutation to the recorder.
+     *
+     * @return null if recorded, else the source path that could not be resolved
+     */
+    private static String emit(MutationsXmlParser.PendingMutation pending, Function<String, VirtualFile> resolver, Map<String, VirtualFile> resolved, IMutationsRecorder recorder) {
+        int lineNumber = pending.lineNumber();
+        MutationImpact impact = pending.impact();
+        String pkg = recorder.intern(pending.pkg());
+        String filePath = MutationsXmlParser.sourcePathOf(pkg, pending.sourceFile());
+        VirtualFile virtualFile = resolved.get(filePath);
+        if (virtualFile == null && !resolved.containsKey(filePath)) {
+            virtualFile = resolver.apply(filePath);
+            resolved.put(filePath, virtualFile);
+        }
+        if (virtualFile == null) {
+            return filePath;
         }
+        recorder.record(pkg, virtualFile, recorder.intern(pending.mutatedMethod()), impact, lineNumber, recorder.intern(pending.description()),
+                pending.killingTests(), pending.succeedingTests(), pending.fingerprint(), pending.testsRun());
         return null;
     }
 }
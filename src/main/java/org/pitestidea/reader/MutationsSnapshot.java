@@ -0,0 +1,562 @@
+package org.pitestidea.reader;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.registry.Registry;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.VisibleForTesting;
+import org.pitestidea.model.MutationFingerprint;
+import org.pitestidea.model.MutationImpact;
+import org.pitestidea.toolwindow.DisplayChoices;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+/**
+ * A compact binary copy of the mutations in a PIT report, written alongside the report the first time it
+ * is read so that later loads (e.g. on each IDE restart) can skip parsing it. It can also be written from
+ * results streamed from PIT, which may hold more than the report itself (see {@link ReportReaders#CSV}).
+ *
+ * <p>The snapshot holds a table of every distinct string followed by one column per mutation field, with
+ * strings referenced by their index in the table:
+ * <pre>
+ *     int     magic, version
+ *     long    length and last-modified time of the report this was written from
+ *     long    random id of this snapshot, which changes each time it is written
+ *     int     number of strings, then for each: int byte length, UTF-8 bytes
+ *     int     number of mutations (n)
+ *     int[n]  package, source path, method and description string indexes (four columns)
+ *     int[n]  line numbers
+ *     int[n]  numbers of killing and succeeding tests (two columns)
+ *     int[n]  numbers of tests PIT ran against each mutation
+ *     long[n] fingerprints, see {@link org.pitestidea.model.MutationFingerprint}
+ *     byte[n] {@link MutationImpact} ordinals
+ *     int     number of test references (m)
+ *     int[m]  test name string indexes, the killing then succeeding tests of each mutation in turn
+ * </pre>
+ * A snapshot is only used if the report still has the recorded length and time. It is read into a heap buffer
+ * that is dropped once its mutations are recorded, rather than mapped, since a mapping is only released when
+ * collected and a mapped file can't be deleted or replaced on Windows.
+ *
+ * <p>Descriptions can optionally be left in the snapshot as {@link StoredDescription}s, which are decoded only
+ * when shown, rather than read into memory with the rest of the results.
+ */
+public class MutationsSnapshot {
+    private static final Logger LOGGER = Logger.getInstance(MutationsSnapshot.class);
+
+    private static final int MAGIC = 0x50495453;  // "PITS"
+    private static final int VERSION = 6;
+    static final int ID_OFFSET = 2 * Integer.BYTES + 2 * Long.BYTES;
+    private static final int INT_COLUMNS = 8;
+    private static final MutationImpact[] IMPACTS = MutationImpact.values();
+
+    // Registry key for whether descriptions read from snapshots are left there until needed
+    public static final String LAZY_DESCRIPTIONS_KEY = "pitestidea.lazy.descriptions";
+
+    /**
+     * Sends all mutations of a report to a recorder, from its snapshot if that is current or else from the
+     * report, in which case a new snapshot is written for next time.
+     *
+     * @param project  context
+     * @param reader   for the format of the report
+     * @param report   PIT mutations report
+     * @param snapshot snapshot file, which need not exist
+     * @param recorder to send results to
+     * @throws InvalidMutatedFileException if the report can't be read or references missing files
+     */
+    public static void read(Project project, IReportReader reader, File report, File snapshot, IMutationsRecorder recorder) throws InvalidMutatedFileException {
+        read(reader, report, snapshot, ReadActionResolver.of(project), recorder, Registry.is(LAZY_DESCRIPTIONS_KEY, true));
+    }
+
+    @VisibleForTesting
+    static void read(IReportReader reader, File report, File snapshot, Function<String, VirtualFile> resolver, IMutationsRecorder recorder) throws InvalidMutatedFileException {
+        read(reader, report, snapshot, resolver, recorder, false);
+    }
+
+    /**
+     * @param lazyDescriptions true to leave descriptions in the snapshot until they are needed, if read from it
+     */
+    @VisibleForTesting
+    static void read(IReportReader reader, File report, File snapshot, Function<String, VirtualFile> resolver, IMutationsRecorder recorder,
+                     boolean lazyDescriptions) throws InvalidMutatedFileException {
+        if (!readSnapshot(report, snapshot, resolver, recorder, lazyDescriptions)) {
+            Writer writer = new Writer(recorder);
+            reader.read(report, writer.tee(resolver), writer);
+            writer.write(report, snapshot);
+        }
+    }
+
+    /**
+     * Sends all mutations of a snapshot to a recorder, whatever report it was written from, e.g. for a snapshot
+     * kept of results that have since been replaced. Descriptions are read into memory with the rest, since
+     * the snapshot may itself be replaced later.
+     *
+     * @param project  context
+     * @param snapshot snapshot file, which need not exist
+     * @param recorder to send results to
+     * @return true if read, false if the snapshot doesn't exist or can't be read, in which case nothing was recorded
+     * @throws InvalidMutatedFileException if the snapshot references missing files
+     */
+    public static boolean readKept(Project project, File snapshot, IMutationsRecorder recorder) throws InvalidMutatedFileException {
+        return readKept(snapshot, ReadActionResolver.of(project), recorder);
+    }
+
+    @VisibleForTesting
+    static boolean readKept(File snapshot, Function<String, VirtualFile> resolver, IMutationsRecorder recorder) throws InvalidMutatedFileException {
+        Columns columns = columns(snapshot, null);
+        if (columns == null) {
+            return false;
+        }
+        columns.replay(resolver, recorder, snapshot, null);
+        return true;
+    }
+
+    /**
+     * Moves a snapshot aside, for when the report it was written from is about to be replaced but its results
+     * are still to be compared against, see {@link #readKept(Project, File, IMutationsRecorder)}. Any snapshot
+     * already kept there is replaced, or deleted if there is no snapshot to keep.
+     *
+     * @param snapshot snapshot file, which need not exist
+     * @param kept     where to keep it
+     */
+    public static void keep(File snapshot, File kept) {
+        // Loaded results may still be reading descriptions from either file
+        StoredDescription.detach(snapshot);
+        StoredDescription.detach(kept);
+        try {
+            if (snapshot.exists()) {
+                Files.move(snapshot.toPath(), kept.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } else {
+                Files.deleteIfExists(kept.toPath());
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Unable to keep snapshot " + snapshot + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Updates the report time that a snapshot was written against, for when the report has been moved without
+     * changing it, e.g. into a {@link ReportArchive}, which keeps times less precisely. Does nothing unless the
+     * snapshot was written against the report as it was.
+     *
+     * @param snapshot        snapshot file, which need not exist
+     * @param length          length of the report
+     * @param lastModified    time of the report before it was moved
+     * @param newLastModified time of the report after it was moved
+     */
+    public static void restamp(File snapshot, long length, long lastModified, long newLastModified) {
+        if (!snapshot.exists()) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(snapshot.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(2 * Integer.BYTES + 2 * Long.BYTES);
+            if (channel.read(header, 0) == header.capacity() && header.getInt(0) == MAGIC && header.getInt(Integer.BYTES) == VERSION
+                    && header.getLong(2 * Integer.BYTES) == length && header.getLong(2 * Integer.BYTES + Long.BYTES) == lastModified) {
+                header.putLong(2 * Integer.BYTES + Long.BYTES, newLastModified);
+                channel.write(header.position(2 * Integer.BYTES + Long.BYTES), 2 * Integer.BYTES + Long.BYTES);
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Unable to update snapshot " + snapshot + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads from a snapshot if it exists and matches the report.
+     *
+     * @return true if read, false if the report must be read instead, in which case nothing was recorded
+     */
+    private static boolean readSnapshot(File report, File snapshot, Function<String, VirtualFile> resolver, IMutationsRecorder recorder,
+                                        boolean lazyDescriptions) throws InvalidMutatedFileException {
+        Columns columns = columns(snapshot, report);
+        if (columns == null) {
+            return false;
+        }
+        columns.replay(resolver, recorder, report, lazyDescriptions ? new StoredDescription.Source(snapshot, columns.id()) : null);
+        return true;
+    }
+
+    /**
+     * @param report that the snapshot must have been written from, or null to accept any
+     * @return columns of the snapshot, or null if it doesn't exist, can't be read or is stale
+     */
+    private static Columns columns(File snapshot, File report) {
+        if (!snapshot.exists()) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(snapshot.toPath(), StandardOpenOption.READ)) {
+            return Columns.from(readFully(channel), report);
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            LOGGER.warn("Ignoring unreadable snapshot " + snapshot + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static ByteBuffer readFully(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("too large");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("truncated");
+            }
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Views over a snapshot read into memory, checked to be complete and consistent before anything is recorded. Strings
+     * are located up front but only decoded when first used.
+     */
+    private record Columns(long id, ByteBuffer buffer, int[] stringOffsets, String[] strings, ByteBuffer ints, ByteBuffer fingerprints,
+                           ByteBuffer impacts, ByteBuffer tests, int count) {
+
+        /**
+         * @param report that the snapshot must have been written from, or null to accept any
+         * @return columns, or null if the snapshot was written from a different version of the report
+         */
+        static Columns from(ByteBuffer buffer, File report) {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IllegalArgumentException("not a snapshot of this version");
+            }
+            long reportLength = buffer.getLong();
+            long reportLastModified = buffer.getLong();
+            if (report != null && (reportLength != ReportArchive.length(report)
+                    || reportLastModified != ReportArchive.lastModified(report))) {
+                return null;
+            }
+            long id = buffer.getLong();
+            // Each string's bytes follow its length, so the offset of the length is kept
+            String[] strings = new String[buffer.getInt()];
+            int[] stringOffsets = new int[strings.length];
+            for (int i = 0; i < strings.length; i++) {
+                stringOffsets[i] = buffer.position();
+                int length = buffer.getInt();
+                if (length < 0 || length > buffer.remaining()) {
+                    throw new IllegalArgumentException("truncated");
+                }
+                buffer.position(buffer.position() + length);
+            }
+            int count = buffer.getInt();
+            // Sized as longs, since a corrupt count could overflow an int
+            long sizeBytes = (long) count * (INT_COLUMNS * Integer.BYTES + Long.BYTES + 1) + Integer.BYTES;
+            if (count < 0 || buffer.remaining() < sizeBytes) {
+                throw new IllegalArgumentException("truncated");
+            }
+            int columnBytes = count * INT_COLUMNS * Integer.BYTES;
+            int fingerprintBytes = count * Long.BYTES;
+            ByteBuffer ints = buffer.slice().limit(columnBytes);
+            ByteBuffer fingerprints = buffer.position(buffer.position() + columnBytes).slice().limit(fingerprintBytes);
+            ByteBuffer impacts = buffer.position(buffer.position() + fingerprintBytes).slice().limit(count);
+            int testCount = buffer.position(buffer.position() + count).getInt();
+            if (testCount < 0 || buffer.remaining() != (long) testCount * Integer.BYTES) {
+                throw new IllegalArgumentException("truncated");
+            }
+            ByteBuffer tests = buffer.slice();
+            for (int i = 0; i < count * 4; i++) {
+                checkStringIndex(ints.getInt(i * Integer.BYTES), strings);
+            }
+            long testsReferenced = 0;
+            for (int i = count * 5; i < count * 7; i++) {
+                int n = ints.getInt(i * Integer.BYTES);
+                if (n < 0) {
+                    throw new IllegalArgumentException("bad test count " + n);
+                }
+                testsReferenced += n;
+            }
+            if (testsReferenced != testCount) {
+                throw new IllegalArgumentException("bad test count " + testsReferenced);
+            }
+            for (int i = 0; i < testCount; i++) {
+                checkStringIndex(tests.getInt(i * Integer.BYTES), strings);
+            }
+            for (int i = 0; i < count; i++) {
+                int ordinal = impacts.get(i);
+                if (ordinal < 0 || ordinal >= IMPACTS.length) {
+                    throw new IllegalArgumentException("bad impact " + ordinal);
+                }
+            }
+            return new Columns(id, buffer, stringOffsets, strings, ints, fingerprints, impacts, tests, count);
+        }
+
+        private static void checkStringIndex(int ix, String[] strings) {
+            if (ix < 0 || ix >= strings.length) {
+                throw new IllegalArgumentException("bad string index " + ix);
+            }
+        }
+
+        /**
+         * Reads the next n test names.
+         */
+        private List<String> tests(int from, int n, IMutationsRecorder recorder) {
+            if (n == 0) {
+                return List.of();
+            }
+            List<String> names = new ArrayList<>(n);
+            for (int i = from; i < from + n; i++) {
+                names.add(string(tests.getInt(i * Integer.BYTES), recorder));
+            }
+            return names;
+        }
+
+        /**
+         * Decodes a string the first time it is used, sharing it through the recorder.
+         */
+        private String string(int ix, IMutationsRecorder recorder) {
+            String s = strings[ix];
+            if (s == null) {
+                int offset = stringOffsets[ix];
+                byte[] bytes = new byte[buffer.getInt(offset)];
+                buffer.get(offset + Integer.BYTES, bytes);
+                s = strings[ix] = recorder.intern(new String(bytes, StandardCharsets.UTF_8));
+            }
+            return s;
+        }
+
+        private int column(int column, int i) {
+            return ints.getInt((column * count + i) * Integer.BYTES);
+        }
+
+        /**
+         * Sends every mutation to a recorder.
+         *
+         * @param descriptions where to leave descriptions until needed, or null to decode them now
+         */
+        void replay(Function<String, VirtualFile> resolver, IMutationsRecorder recorder, File report,
+                    StoredDescription.Source descriptions) throws InvalidMutatedFileException {
+            StoredDescription[] stored = descriptions == null ? null : new StoredDescription[strings.length];
+            // Each distinct path is resolved just once
+            VirtualFile[] files = new VirtualFile[strings.length];
+            boolean[] looked = new boolean[strings.length];
+            Set<String> badFiles = new LinkedHashSet<>();
+            List<String> paths = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                int pathIx = column(1, i);
+                if (!looked[pathIx]) {
+                    looked[pathIx] = true;
+                    paths.add(string(pathIx, recorder));
+                }
+            }
+            ReadActionResolver.prefetch(resolver, paths);
+            Arrays.fill(looked, false);
+            int nextTest = 0;
+            for (int i = 0; i < count; i++) {
+                int killing = column(5, i);
+                int succeeding = column(6, i);
+                int firstTest = nextTest;
+                nextTest += killing + succeeding;
+                int pathIx = column(1, i);
+                if (!looked[pathIx]) {
+                    looked[pathIx] = true;
+                    files[pathIx] = resolver.apply(string(pathIx, recorder));
+                }
+                VirtualFile file = files[pathIx];
+                if (file == null) {
+                    badFiles.add(string(pathIx, recorder));
+                    continue;
+                }
+                String pkg = string(column(0, i), recorder);
+                String method = string(column(2, i), recorder);
+                MutationImpact impact = IMPACTS[impacts.get(i)];
+                List<String> killingTests = tests(firstTest, killing, recorder);
+                List<String> succeedingTests = tests(firstTest + killing, succeeding, recorder);
+                int descriptionIx = column(3, i);
+                long fingerprint = fingerprints.getLong(i * Long.BYTES);
+                if (stored == null) {
+                    recorder.record(pkg, file, method, impact, column(4, i), string(descriptionIx, recorder), killingTests, succeedingTests,
+                            fingerprint, column(7, i));
+                } else {
+                    if (stored[descriptionIx] == null) {
+                        int offset = stringOffsets[descriptionIx];
+                        stored[descriptionIx] = descriptions.describe(buffer, offset + Integer.BYTES, buffer.getInt(offset));
+                    }
+                    recorder.recordLazily(pkg, file, method, impact, column(4, i), stored[descriptionIx], killingTests, succeedingTests,
+                            fingerprint, column(7, i));
+                }
+            }
+            recorder.postProcess();
+            MutationsFileReader.checkBadFiles(badFiles, report);
+        }
+    }
+
+    /**
+     * Passes mutations on to another recorder while collecting them for a snapshot.
+     */
+    public static class Writer implements IMutationsRecorder {
+        private final IMutationsRecorder delegate;
+        private final Map<String, Integer> stringIndex = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+        private final Map<VirtualFile, String> paths = new IdentityHashMap<>();
+        private final int[][] columns = new int[INT_COLUMNS][];
+        private long[] fingerprints = new long[1024];
+        private byte[] impacts = new byte[1024];
+        private int count = 0;
+        private int[] tests = new int[1024];
+        private int testCount = 0;
+
+        public Writer(IMutationsRecorder delegate) {
+            this.delegate = delegate;
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = new int[impacts.length];
+            }
+        }
+
+        /**
+         * Wraps a resolver so that the source path of each resolved file is known when it is recorded. Files
+         * must be resolved through the returned function before being recorded.
+         *
+         * @param resolver to wrap
+         * @return wrapped resolver
+         */
+        public Function<String, VirtualFile> tee(Function<String, VirtualFile> resolver) {
+            if (resolver instanceof ReadActionResolver readActionResolver) {
+                return readActionResolver.observing((path, file) -> paths.put(file, path));
+            }
+            return path -> {
+                VirtualFile file = resolver.apply(path);
+                if (file != null) {
+                    paths.put(file, path);
+                }
+                return file;
+            };
+        }
+
+        private int indexOf(String s) {
+            return stringIndex.computeIfAbsent(s, k -> {
+                strings.add(k);
+                return strings.size() - 1;
+            });
+        }
+
+        @Override
+        public void record(String pkg, VirtualFile file, String methodName, MutationImpact impact, int lineNumber, String description) {
+            record(pkg, file, methodName, impact, lineNumber, description, List.of(), List.of());
+        }
+
+        @Override
+        public void record(String pkg, VirtualFile file, String methodName, MutationImpact impact, int lineNumber, String description,
+                           List<String> killingTests, List<String> succeedingTests) {
+            record(pkg, file, methodName, impact, lineNumber, description, killingTests, succeedingTests, MutationFingerprint.UNKNOWN, 0);
+        }
+
+        @Override
+        public void record(String pkg, VirtualFile file, String methodName, MutationImpact impact, int lineNumber, String description,
+                           List<String> killingTests, List<String> succeedingTests, long fingerprint, int testsRun) {
+            delegate.record(pkg, file, methodName, impact, lineNumber, description, killingTests, succeedingTests, fingerprint, testsRun);
+            if (count == impacts.length) {
+                impacts = Arrays.copyOf(impacts, count * 2);
+                fingerprints = Arrays.copyOf(fingerprints, count * 2);
+                for (int i = 0; i < columns.length; i++) {
+                    columns[i] = Arrays.copyOf(columns[i], count * 2);
+                }
+            }
+            columns[0][count] = indexOf(pkg);
+            columns[1][count] = indexOf(paths.get(file));
+            columns[2][count] = indexOf(methodName);
+            columns[3][count] = indexOf(description);
+            columns[4][count] = lineNumber;
+            columns[5][count] = killingTests.size();
+            columns[6][count] = succeedingTests.size();
+            columns[7][count] = testsRun;
+            fingerprints[count] = fingerprint;
+            impacts[count] = (byte) impact.ordinal();
+            count++;
+            addTests(killingTests);
+            addTests(succeedingTests);
+        }
+
+        private void addTests(List<String> names) {
+            if (testCount + names.size() > tests.length) {
+                tests = Arrays.copyOf(tests, Math.max(tests.length * 2, testCount + names.size()));
+            }
+            for (String name : names) {
+                tests[testCount++] = indexOf(name);
+            }
+        }
+
+        @Override
+        public String intern(String s) {
+            return delegate.intern(s);
+        }
+
+        @Override
+        public void postProcess() {
+            delegate.postProcess();
+        }
+
+        @Override
+        public void sort(DisplayChoices choices) {
+            delegate.sort(choices);
+        }
+
+        /**
+         * Writes the snapshot. Failure is logged rather than thrown since the snapshot is only an optimization.
+         *
+         * @param report   report file holding the same results
+         * @param snapshot to write
+         */
+        public void write(File report, File snapshot) {
+            File tmp = new File(snapshot.getPath() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(ReportArchive.length(report));
+                out.writeLong(ReportArchive.lastModified(report));
+                out.writeLong(ThreadLocalRandom.current().nextLong());
+                out.writeInt(strings.size());
+                for (String s : strings) {
+                    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                }
+                out.writeInt(count);
+                for (int[] column : columns) {
+                    for (int i = 0; i < count; i++) {
+                        out.writeInt(column[i]);
+                    }
+                }
+                for (int i = 0; i < count; i++) {
+                    out.writeLong(fingerprints[i]);
+                }
+                out.write(impacts, 0, count);
+                out.writeInt(testCount);
+                for (int i = 0; i < testCount; i++) {
+                    out.writeInt(tests[i]);
+                }
+            } catch (IOException e) {
+                LOGGER.warn("Unable to write snapshot " + snapshot, e);
+                tmp.delete();
+                return;
+            }
+            try {
+                // Replace in one step so that a reader never sees a partial snapshot, once loaded results no longer need the old one
+                StoredDescription.detach(snapshot);
+                Files.move(tmp.toPath(), snapshot.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                LOGGER.warn("Unable to write snapshot " + snapshot, e);
+                tmp.delete();
+            }
+        }
+    }
+}
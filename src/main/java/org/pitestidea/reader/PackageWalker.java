@@ -2,10 +2,10 @@ package org.pitestidea.reader;
 
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.roots.ProjectFileIndex;
-import com.intellij.openapi.roots.ProjectRootManager;
 import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.openapi.vfs.VirtualFileManager;
+import org.pitestidea.configuration.SourceRootIndex;
 import org.pitestidea.model.InputBundle;
 
 import java.util.*;
@@ -108,7 +108,7 @@ public class PackageWalker {
             final boolean isInTest = fileIndex.isInTestSourceContent(file);
             final boolean isInSrc = fileIndex.isInSourceContent(file) && !isInTest;
             if (file.isDirectory()) {
-                VirtualFile[] sourceRoots = ProjectRootManager.getInstance(project).getContentSourceRoots();
+                VirtualFile[] sourceRoots = SourceRootIndex.getInstance(project).getSourceRoots();
                 if (Arrays.asList(sourceRoots).contains(file)) {
                     // PIT accepts only files and packages
                     for (VirtualFile child : file.getChildren()) {
@@ -222,7 +222,7 @@ public class PackageWalker {
                             fileIndex::isInSourceContent :
                             fileIndex::isInTestSourceContent;
 
-            VirtualFile[] altRoots = Arrays.stream(ProjectRootManager.getInstance(project).getContentSourceRoots())
+            VirtualFile[] altRoots = Arrays.stream(SourceRootIndex.getInstance(project).getSourceRoots())
                     .filter(typeFilter)
                     .toArray(VirtualFile[]::new);
 
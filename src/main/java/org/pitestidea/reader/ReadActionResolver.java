@@ -0,0 +1,148 @@
+package org.pitestidea.reader;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.VisibleForTesting;
+import org.pitestidea.configuration.SourceRootIndex;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Resolves the source paths of a report to files, so that a report can be parsed with no lock held and only
+ * the lookups themselves take read access. Lookups are made in short read actions of at most
+ * {@link #BATCH_SIZE} paths each, which in the IDE are non-blocking: a pending write action cancels the batch,
+ * which is then restarted once the write is done, and a disposed project cancels the read altogether.
+ *
+ * <p>Each distinct path is looked up once. Readers that know their paths in advance can have them all
+ * looked up with {@link #prefetch(Function, Collection)}, otherwise each path is looked up when first asked for.
+ */
+public final class ReadActionResolver implements Function<String, VirtualFile> {
+    @VisibleForTesting
+    static final int BATCH_SIZE = 64;
+
+    private final Function<String, VirtualFile> lookup;
+    private final Consumer<Runnable> readAction;
+    private final Map<String, VirtualFile> found;
+    private final Set<String> missing;
+    private final BiConsumer<String, VirtualFile> listener;
+
+    /**
+     * @param lookup     finds a file by path, which must be called with read access
+     * @param readAction runs a task with read access, possibly more than once if interrupted
+     */
+    @VisibleForTesting
+    ReadActionResolver(Function<String, VirtualFile> lookup, Consumer<Runnable> readAction) {
+        this(lookup, readAction, new ConcurrentHashMap<>(), ConcurrentHashMap.newKeySet(), null);
+    }
+
+    private ReadActionResolver(Function<String, VirtualFile> lookup, Consumer<Runnable> readAction, Map<String, VirtualFile> found,
+                               Set<String> missing, BiConsumer<String, VirtualFile> listener) {
+        this.lookup = lookup;
+        this.readAction = readAction;
+        this.found = found;
+        this.missing = missing;
+        this.listener = listener;
+    }
+
+    /**
+     * Creates a resolver against the source roots of a project.
+     *
+     * @param project context
+     * @return resolver
+     */
+    public static ReadActionResolver of(Project project) {
+        SourceRootIndex index = SourceRootIndex.getInstance(project);
+        return new ReadActionResolver(path -> {
+            ProgressManager.checkCanceled();
+            return index.findFile(path);
+        }, task -> {
+            if (ApplicationManager.getApplication().isReadAccessAllowed()) {
+                task.run();  // E.g. on the EDT, where a non-blocking read action can't be waited for
+            } else {
+                ReadAction.nonBlocking(task::run).expireWith(project).executeSynchronously();
+            }
+        });
+    }
+
+    /**
+     * Returns a resolver sharing what this one has looked up, which also reports each file it finds.
+     *
+     * @param listener called with each path and the file it resolved to
+     * @return resolver
+     */
+    public ReadActionResolver observing(BiConsumer<String, VirtualFile> listener) {
+        return new ReadActionResolver(lookup, readAction, found, missing, listener);
+    }
+
+    /**
+     * Looks up paths in advance if the resolver is one of these, so that they are looked up together
+     * rather than one read action at a time.
+     *
+     * @param resolver that paths will later be resolved through
+     * @param paths    to look up, which may repeat
+     */
+    public static void prefetch(Function<String, VirtualFile> resolver, Collection<String> paths) {
+        if (resolver instanceof ReadActionResolver readActionResolver) {
+            readActionResolver.prefetch(paths);
+        }
+    }
+
+    private void prefetch(Collection<String> paths) {
+        List<String> batch = new ArrayList<>(BATCH_SIZE);
+        for (String path : paths) {
+            if (!isKnown(path) && !batch.contains(path)) {
+                batch.add(path);
+                if (batch.size() == BATCH_SIZE) {
+                    lookUp(batch);
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            lookUp(batch);
+        }
+    }
+
+    private boolean isKnown(String path) {
+        return found.containsKey(path) || missing.contains(path);
+    }
+
+    private void lookUp(List<String> batch) {
+        readAction.accept(() -> {
+            // Paths looked up before an interruption are kept, so a restarted batch only does the rest
+            for (String path : batch) {
+                if (!isKnown(path)) {
+                    VirtualFile file = lookup.apply(path);
+                    if (file == null) {
+                        missing.add(path);
+                    } else {
+                        found.put(path, file);
+                    }
+                }
+            }
+        });
+    }
+
+    @Override
+    public VirtualFile apply(String path) {
+        if (!isKnown(path)) {
+            lookUp(List.of(path));
+        }
+        VirtualFile file = found.get(path);
+        if (file != null && listener != null) {
+            listener.accept(path, file);
+        }
+        return file;
+    }
+}
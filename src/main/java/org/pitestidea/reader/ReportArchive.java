@@ -0,0 +1,182 @@
+package org.pitestidea.reader;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Packs the files of a report directory into a single compressed archive, to save space and files for older
+ * runs. A packed report is read in place by decompressing it as it is streamed, never extracting it to disk.
+ *
+ * <p>The methods taking a report file treat a file that was packed as if it were still in its directory, so
+ * that readers need not know whether a run has been packed.
+ */
+public final class ReportArchive {
+    public static final String ARCHIVE_NAME = "report.zip";
+
+    private ReportArchive() {
+    }
+
+    /**
+     * @param reportDir report directory
+     * @return true if the directory has been packed
+     */
+    public static boolean isPacked(File reportDir) {
+        return new File(reportDir, ARCHIVE_NAME).isFile();
+    }
+
+    /**
+     * Packs every file in a report directory, including those in subdirectories, into an archive in that
+     * directory and deletes them. Nothing is deleted unless the archive was completely written.
+     *
+     * @param reportDir directory to pack
+     * @param keep      names of files directly in the directory to leave as they are
+     * @throws IOException if the archive couldn't be written, or files couldn't be deleted after writing it
+     */
+    public static void pack(File reportDir, Set<String> keep) throws IOException {
+        File archive = new File(reportDir, ARCHIVE_NAME);
+        File tmp = new File(reportDir, ARCHIVE_NAME + ".tmp");
+        List<File> packed = new ArrayList<>();
+        try (ZipOutputStream out = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            File[] files = reportDir.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    String name = file.getName();
+                    if (!keep.contains(name) && !file.equals(tmp) && !file.equals(archive)) {
+                        add(file, name, out, packed);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp.toPath());
+            throw e;
+        }
+        Files.move(tmp.toPath(), archive.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+        // Each directory follows its contents, so is empty by the time it is deleted
+        for (File file : packed) {
+            Files.delete(file.toPath());
+        }
+    }
+
+    private static void add(File file, String name, ZipOutputStream out, List<File> packed) throws IOException {
+        if (file.isDirectory()) {
+            File[] children = file.listFiles();
+            if (children != null) {
+                for (File child : children) {
+                    add(child, name + '/' + child.getName(), out, packed);
+                }
+            }
+        } else {
+            ZipEntry entry = new ZipEntry(name);
+            entry.setLastModifiedTime(FileTime.fromMillis(file.lastModified()));
+            out.putNextEntry(entry);
+            try (InputStream in = new FileInputStream(file)) {
+                in.transferTo(out);
+            }
+            out.closeEntry();
+        }
+        packed.add(file);
+    }
+
+    /**
+     * Describes a report file that was packed, without reading it. The hash is the CRC32 recorded in the
+     * archive, so it should only be compared with that of other packed reports.
+     *
+     * @param report file as it was before its directory was packed
+     * @return fingerprint, or null if the report is not in an archive
+     * @throws IOException if the archive can't be read
+     */
+    static @Nullable ReportFingerprint packed(File report) throws IOException {
+        File archive = new File(report.getParentFile(), ARCHIVE_NAME);
+        if (!archive.isFile()) {
+            return null;
+        }
+        try (ZipFile zip = new ZipFile(archive)) {
+            ZipEntry entry = zip.getEntry(report.getName());
+            return entry == null ? null : new ReportFingerprint(entry.getSize(), entry.getLastModifiedTime().toMillis(), entry.getCrc());
+        }
+    }
+
+    private static @Nullable ReportFingerprint packedOrNull(File report) {
+        try {
+            return packed(report);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return true if the report file exists, in its directory or packed
+     */
+    public static boolean exists(File report) {
+        return report.isFile() || packedOrNull(report) != null;
+    }
+
+    /**
+     * @return size in bytes of the report file, in its directory or uncompressed if packed, or 0 if neither
+     */
+    public static long length(File report) {
+        if (report.isFile()) {
+            return report.length();
+        }
+        ReportFingerprint packed = packedOrNull(report);
+        return packed == null ? 0 : packed.length();
+    }
+
+    /**
+     * @return modification time of the report file, in its directory or as recorded when packed, or 0 if neither
+     */
+    public static long lastModified(File report) {
+        if (report.isFile()) {
+            return report.lastModified();
+        }
+        ReportFingerprint packed = packedOrNull(report);
+        return packed == null ? 0 : packed.lastModified();
+    }
+
+    /**
+     * Opens a report file for reading, decompressing it as it is read if it was packed.
+     *
+     * @param report to open
+     * @return buffered stream, which must be closed
+     * @throws IOException if the report exists in neither place
+     */
+    public static InputStream open(File report) throws IOException {
+        if (report.isFile()) {
+            return new BufferedInputStream(new FileInputStream(report));
+        }
+        ZipFile zip = new ZipFile(new File(report.getParentFile(), ARCHIVE_NAME));
+        ZipEntry entry = zip.getEntry(report.getName());
+        if (entry == null) {
+            zip.close();
+            throw new IOException("No " + report.getName() + " in " + zip.getName());
+        }
+        return new FilterInputStream(new BufferedInputStream(zip.getInputStream(entry))) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    zip.close();
+                }
+            }
+        };
+    }
+}
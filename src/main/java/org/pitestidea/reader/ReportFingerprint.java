@@ -0,0 +1,72 @@
+package org.pitestidea.reader;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Identifies the content of a report file so that it need not be read again if it hasn't changed.
+ *
+ * <p>Matching size and modification time are taken to mean the file is unchanged, without reading it. Otherwise
+ * the content hash decides, so that a report rewritten with the same results (e.g. by rerunning PIT from the
+ * command line without code changes) is also recognized as unchanged.
+ *
+ * @param length       file size in bytes
+ * @param lastModified file modification time
+ * @param hash         CRC32C of the file content
+ */
+public record ReportFingerprint(long length, long lastModified, long hash) {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Reads a file to compute its fingerprint. For a file that has been packed into a {@link ReportArchive},
+     * the fingerprint is taken from the archive without reading the file.
+     *
+     * @param file to read
+     * @return fingerprint
+     * @throws IOException if the file can't be read
+     */
+    public static ReportFingerprint of(File file) throws IOException {
+        if (!file.isFile()) {
+            ReportFingerprint packed = ReportArchive.packed(file);
+            if (packed != null) {
+                return packed;
+            }
+        }
+        long lastModified = file.lastModified();
+        CRC32C crc = new CRC32C();
+        long length = 0;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            int n;
+            while ((n = channel.read(buffer)) >= 0) {
+                buffer.flip();
+                crc.update(buffer);
+                buffer.clear();
+                length += n;
+            }
+        }
+        return new ReportFingerprint(length, lastModified, crc.getValue());
+    }
+
+    /**
+     * Checks a file against this fingerprint without reading its content.
+     *
+     * @param file to check
+     * @return true if the file, or its packed copy, has the size and modification time recorded here
+     */
+    public boolean matchesAttributes(File file) {
+        return ReportArchive.length(file) == length && ReportArchive.lastModified(file) == lastModified;
+    }
+
+    /**
+     * @param other fingerprint to compare with
+     * @return true if both were computed from the same content, regardless of modification time
+     */
+    public boolean sameContent(ReportFingerprint other) {
+        return length == other.length && hash == other.hash;
+    }
+}
@@ -0,0 +1,68 @@
+package org.pitestidea.reader;
+
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * The report formats this plugin can read, and selection among them for a report directory.
+ */
+public final class ReportReaders {
+
+    private interface ReadFunction {
+        void read(File report, Function<String, VirtualFile> resolver, IMutationsRecorder recorder) throws InvalidMutatedFileException;
+    }
+
+    private record Reader(String outputFormat, String fileName, ReadFunction function) implements IReportReader {
+        @Override
+        public String getOutputFormat() {
+            return outputFormat;
+        }
+
+        @Override
+        public String getFileName() {
+            return fileName;
+        }
+
+        @Override
+        public void read(File report, Function<String, VirtualFile> resolver, IMutationsRecorder recorder) throws InvalidMutatedFileException {
+            function.read(report, resolver, recorder);
+        }
+    }
+
+    /**
+     * Complete results, including mutation descriptions and, with PIT's full mutation matrix option, every
+     * killing and succeeding test.
+     */
+    public static final IReportReader XML = new Reader("XML", "mutations.xml", MutationsFileReader::read);
+
+    /**
+     * Much cheaper for PIT to write and for this plugin to read, but without descriptions (the mutator is used
+     * instead) and with only the first killing test of each mutation.
+     */
+    public static final IReportReader CSV = new Reader("CSV", "mutations.csv", MutationsCsvReader::read);
+
+    // In order of preference when a directory holds more than one
+    private static final List<IReportReader> READERS = List.of(XML, CSV);
+
+    private ReportReaders() {
+    }
+
+    /**
+     * Picks a reader for a report directory from the files it holds.
+     *
+     * @param reportDir directory PIT wrote to
+     * @return the preferred reader whose file exists, or null if there is none
+     */
+    public static @Nullable IReportReader detect(File reportDir) {
+        for (IReportReader reader : READERS) {
+            if (ReportArchive.exists(reader.fileIn(reportDir))) {
+                return reader;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,187 @@
+package org.pitestidea.reader;
+
+import com.intellij.openapi.diagnostic.Logger;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * A mutation description left in the snapshot it was read from, as the byte offset and length of its UTF-8
+ * text, and decoded each time it is asked for. Descriptions are only needed for tooltips and prompts, so this
+ * keeps them off the heap while results are loaded.
+ *
+ * <p>Descriptions are compared by a hash of their bytes rather than by decoding them, so that lines of one run
+ * can be compared with those of another without reading either snapshot.
+ */
+final class StoredDescription implements CharSequence {
+    private static final Logger LOGGER = Logger.getInstance(StoredDescription.class);
+    private static final String UNAVAILABLE = "(description unavailable)";
+
+    private final Source source;
+    private final int offset;
+    private final int length;
+    private final long hash;
+
+    private StoredDescription(Source source, int offset, int length, long hash) {
+        this.source = source;
+        this.offset = offset;
+        this.length = length;
+        this.hash = hash;
+    }
+
+    /**
+     * The descriptions read from one snapshot. Descriptions are copied onto the heap before the snapshot is
+     * replaced, so that those of results already loaded stay readable.
+     */
+    static final class Source {
+        // Every source still referenced by loaded results, so that they can be detached from a replaced snapshot
+        private static final Map<Source, Boolean> LIVE = Collections.synchronizedMap(new WeakHashMap<>());
+
+        private final File snapshot;
+        private final long id;
+        private final List<StoredDescription> issued = new ArrayList<>();
+        private volatile Map<Integer, String> detached = null;
+
+        /**
+         * @param snapshot file the descriptions are in
+         * @param id       identifies the snapshot as written, to detect it being replaced unexpectedly
+         */
+        Source(File snapshot, long id) {
+            this.snapshot = snapshot;
+            this.id = id;
+            LIVE.put(this, Boolean.TRUE);
+        }
+
+        /**
+         * @param buffer holding the snapshot while it is being read
+         * @param offset of the description's bytes in the snapshot
+         * @param length of the description's bytes
+         * @return a description that reads those bytes when needed
+         */
+        StoredDescription describe(ByteBuffer buffer, int offset, int length) {
+            // FNV-1a
+            long hash = 0xcbf29ce484222325L;
+            for (int i = offset; i < offset + length; i++) {
+                hash = (hash ^ (buffer.get(i) & 0xff)) * 0x100000001b3L;
+            }
+            StoredDescription description = new StoredDescription(this, offset, length, hash);
+            synchronized (issued) {
+                issued.add(description);
+            }
+            return description;
+        }
+
+        private String decode(int offset, int length) {
+            Map<Integer, String> copies = detached;
+            if (copies != null) {
+                return copies.getOrDefault(offset, UNAVAILABLE);
+            }
+            try (FileChannel channel = FileChannel.open(snapshot.toPath(), StandardOpenOption.READ)) {
+                return decode(channel, offset, length);
+            } catch (IOException e) {
+                LOGGER.info("Unable to read description from " + snapshot + ": " + e.getMessage());
+                return UNAVAILABLE;
+            }
+        }
+
+        private String decode(FileChannel channel, int offset, int length) throws IOException {
+            ByteBuffer id = ByteBuffer.allocate(Long.BYTES);
+            ByteBuffer bytes = ByteBuffer.allocate(length);
+            if (channel.read(id, MutationsSnapshot.ID_OFFSET) != Long.BYTES || id.getLong(0) != this.id) {
+                throw new IOException("snapshot was replaced");
+            }
+            while (bytes.hasRemaining()) {
+                if (channel.read(bytes, offset + bytes.position()) < 0) {
+                    throw new IOException("snapshot was truncated");
+                }
+            }
+            return new String(bytes.array(), StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Copies every description onto the heap, after which the snapshot is no longer read.
+         */
+        private void detach() {
+            if (detached != null) {
+                return;
+            }
+            Map<Integer, String> copies = new HashMap<>();
+            try (FileChannel channel = FileChannel.open(snapshot.toPath(), StandardOpenOption.READ)) {
+                synchronized (issued) {
+                    for (StoredDescription description : issued) {
+                        copies.putIfAbsent(description.offset, decode(channel, description.offset, description.length));
+                    }
+                }
+            } catch (IOException e) {
+                LOGGER.info("Unable to keep descriptions from " + snapshot + ": " + e.getMessage());
+            }
+            detached = copies;
+            LIVE.remove(this);
+        }
+    }
+
+    /**
+     * Copies the descriptions of any loaded results onto the heap if they are read from a snapshot, for when
+     * that snapshot is about to be replaced.
+     *
+     * @param snapshot file about to be replaced
+     */
+    static void detach(File snapshot) {
+        List<Source> sources;
+        synchronized (Source.LIVE) {
+            sources = new ArrayList<>(Source.LIVE.keySet());
+        }
+        for (Source source : sources) {
+            if (source.snapshot.equals(snapshot)) {
+                source.detach();
+            }
+        }
+    }
+
+    @Override
+    public int length() {
+        return toString().length();
+    }
+
+    @Override
+    public char charAt(int index) {
+        return toString().charAt(index);
+    }
+
+    @Override
+    public @NotNull CharSequence subSequence(int start, int end) {
+        return toString().subSequence(start, end);
+    }
+
+    @Override
+    public @NotNull String toString() {
+        return source.decode(offset, length);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (obj instanceof StoredDescription that) {
+            return (that.source == source && that.offset == offset) || (that.length == length && that.hash == hash);
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(hash);
+    }
+}
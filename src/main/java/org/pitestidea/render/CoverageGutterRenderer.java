@@ -17,6 +17,7 @@ import com.intellij.openapi.fileEditor.FileDocumentManager;
 
 import com.intellij.openapi.editor.Document;
 import com.intellij.psi.PsiDocumentManager;
+import com.intellij.ui.JBColor;
 import org.jetbrains.annotations.NotNull;
 import org.pitestidea.model.FileMutations;
 import org.pitestidea.model.IMutationScore;
@@ -24,6 +25,7 @@ import org.pitestidea.model.LineImpact;
 import org.pitestidea.model.Mutation;
 
 import javax.swing.*;
+import java.awt.*;
 import java.util.List;
 
 /**
@@ -34,6 +36,9 @@ public class CoverageGutterRenderer implements IMutationsFileHandler {
     private static final Key<Boolean> HIGHLIGHTER_KEY = new Key<>("PitHighlighter");
     private static final TextAttributes ICON_TEXT_ATTRIBUTES = new TextAttributes();
     private static final int ICON_LAYER = HighlighterLayer.WARNING + 20;
+    private static final int COVERAGE_LAYER = HighlighterLayer.SELECTION - 1;
+    private static final Color COVERED_COLOR = new JBColor(new Color(0x9ec89e), new Color(0x4b6e4b));
+    private static final Color COVERED_SURVIVED_COLOR = new JBColor(new Color(0xf0b060), new Color(0x9a6a2a));
     private static final CoverageGutterRenderer INSTANCE = new CoverageGutterRenderer();
 
     private CoverageGutterRenderer() {
@@ -46,7 +51,21 @@ public class CoverageGutterRenderer implements IMutationsFileHandler {
     @Override
     public void fileOpened(Project project, VirtualFile file, FileMutations fileMutations, IMutationScore score) {
         Application app = ApplicationManager.getApplication();
-        app.executeOnPooledThread(() -> app.runReadAction(() -> fileMutations.visit(lineImpact -> addGutterIcon(project, file, lineImpact))));
+        Runnable render = () -> {
+            PsiFile psiFile = PsiManager.getInstance(project).findFile(file);
+            Document document = psiFile == null ? null : PsiDocumentManager.getInstance(project).getDocument(psiFile);
+            if (document != null) {
+                // Only lines still in the document, which may have been shortened since the report was written
+                fileMutations.visit(0, document.getLineCount(), lineImpact -> addGutterIcon(project, document, lineImpact));
+                fileMutations.visitCoverage((lineNumber, survived) -> addCoverageMarker(project, document, lineNumber, survived));
+            }
+        };
+        if (fileMutations.isFrozen()) {
+            app.executeOnPooledThread(() -> app.runReadAction(render));
+        } else {
+            // Results still being received are only read on the UI thread that records them
+            app.runReadAction(render);
+        }
     }
 
     @Override
@@ -86,38 +105,47 @@ public class CoverageGutterRenderer implements IMutationsFileHandler {
         return "/icons/" + root + '_' + sfx + ".svg";
     }
 
-    private static void addGutterIcon(Project project, VirtualFile file, LineImpact lineImpact) {
+    private static void addGutterIcon(Project project, Document document, LineImpact lineImpact) {
         int lineNumber = lineImpact.getLineNumber();
-        //List<Mutation> records = lineImpact.getMutations(LineImpact.LineImpactPoint.CURRENT);
         if (lineNumber > 0) {
             // Adjust for IJ editor positioning -- sometimes lineNumber is zero, apparently when PIT can't locate it
             lineNumber -= 1;
         }
-        PsiManager psiManager = PsiManager.getInstance(project);
-        PsiFile psiFile = psiManager.findFile(file);
-        if (psiFile != null) {
-            Document document = PsiDocumentManager.getInstance(project).getDocument(psiFile);
-            if (document != null) {
-                final int startOffset = document.getLineStartOffset(lineNumber);
-                final int endOffset = document.getLineEndOffset(lineNumber);
-
-                if (startOffset != -1 && endOffset != -1) {
-                    MarkupModel markupModel = DocumentMarkupModel.forDocument(document, project, true);
-
-                    String pfx1 = null;
-                    String pfx2 = null;
-                    final boolean diff = lineImpact.getMutations(LineImpact.LineImpactPoint.PREVIOUS) != null;
-                    if (diff) {
-                        pfx1 = "From <i>most recent</i> run";
-                        pfx2 = "From <i>previous</i> run";
-                    }
-
-                    addLineIcon(markupModel, lineNumber, lineImpact, LineImpact.LineImpactPoint.CURRENT, pfx1);
-                    if (diff) {
-                        addLineIcon(markupModel, lineNumber, lineImpact, LineImpact.LineImpactPoint.PREVIOUS, pfx2);
-                    }
-                }
+        final int startOffset = document.getLineStartOffset(lineNumber);
+        final int endOffset = document.getLineEndOffset(lineNumber);
+
+        if (startOffset != -1 && endOffset != -1) {
+            MarkupModel markupModel = DocumentMarkupModel.forDocument(document, project, true);
+
+            String pfx1 = null;
+            String pfx2 = null;
+            final boolean diff = lineImpact.getMutations(LineImpact.LineImpactPoint.PREVIOUS) != null;
+            if (diff) {
+                pfx1 = "From <i>most recent</i> run";
+                pfx2 = "From <i>previous</i> run";
             }
+
+            addLineIcon(markupModel, lineNumber, lineImpact, LineImpact.LineImpactPoint.CURRENT, pfx1);
+            if (diff) {
+                addLineIcon(markupModel, lineNumber, lineImpact, LineImpact.LineImpactPoint.PREVIOUS, pfx2);
+            }
+        }
+    }
+
+    /**
+     * Marks a line run by tests with a bar in the gutter, in one color if it has no mutations and another if
+     * it has mutations that survived.
+     */
+    private static void addCoverageMarker(Project project, Document document, int lineNumber, boolean survived) {
+        if (lineNumber > 0 && lineNumber <= document.getLineCount()) {
+            MarkupModel markupModel = DocumentMarkupModel.forDocument(document, project, true);
+            RangeHighlighter highlighter = markupModel.addLineHighlighter(lineNumber - 1, COVERAGE_LAYER, null);
+            highlighter.putUserData(HIGHLIGHTER_KEY, Boolean.TRUE);
+            Color color = survived ? COVERED_SURVIVED_COLOR : COVERED_COLOR;
+            highlighter.setLineMarkerRenderer((editor, g, r) -> {
+                g.setColor(color);
+                g.fillRect(r.x, r.y, r.width, r.height);
+            });
         }
     }
 
@@ -128,12 +156,15 @@ public class CoverageGutterRenderer implements IMutationsFileHandler {
             Icon icon = IconLoader.getIcon(iconFile, CoverageGutterRenderer.class);
             RangeHighlighter highlighter = markupModel.addLineHighlighter(adjustedLineNumber, ICON_LAYER, ICON_TEXT_ATTRIBUTES);
             highlighter.putUserData(HIGHLIGHTER_KEY, Boolean.TRUE);
-            String tooltip = createTooltipFrom(header, records);
-            highlighter.setGutterIconRenderer(new MutationGutterIconographer(icon, adjustedLineNumber, tooltip));
+            highlighter.setGutterIconRenderer(new MutationGutterIconographer(icon, adjustedLineNumber, header, records));
         }
     }
 
-    private static @NotNull String createTooltipFrom(String header, List<Mutation> records) {
+    /**
+     * Builds the tooltip for a line's icon. Called only when the tooltip is shown, since that decodes the
+     * descriptions of the mutations.
+     */
+    static @NotNull String createTooltipFrom(String header, List<Mutation> records) {
         StringBuilder sb = new StringBuilder();
         if (header != null) {
             sb.append(header);
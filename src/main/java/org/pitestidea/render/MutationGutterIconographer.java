@@ -5,19 +5,23 @@ import com.intellij.openapi.actionSystem.AnActionEvent;
 import com.intellij.openapi.editor.markup.GutterIconRenderer;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.pitestidea.model.Mutation;
 
 import javax.swing.*;
+import java.util.List;
 import java.util.Objects;
 
 class MutationGutterIconographer extends GutterIconRenderer {
     private final @NotNull Icon icon;
     private final int lineNumber;
-    private final String toolTip;
+    private final String header;
+    private final List<Mutation> mutations;
 
-    MutationGutterIconographer(@NotNull Icon icon, int lineNumber, String toolTip) {
+    MutationGutterIconographer(@NotNull Icon icon, int lineNumber, String header, List<Mutation> mutations) {
         this.icon = icon;
         this.lineNumber = lineNumber;
-        this.toolTip = toolTip;
+        this.header = header;
+        this.mutations = mutations;
     }
 
     @Override
@@ -36,14 +40,14 @@ class MutationGutterIconographer extends GutterIconRenderer {
             return true;
         }
         if (obj instanceof MutationGutterIconographer that) {
-            return that.icon.equals(this.icon) && that.toolTip.equals(this.toolTip);
+            return that.icon.equals(this.icon) && Objects.equals(that.header, this.header) && that.mutations.equals(this.mutations);
         }
         return false;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(icon, toolTip);
+        return Objects.hash(icon, header, mutations);
     }
 
     @Override
@@ -53,6 +57,6 @@ class MutationGutterIconographer extends GutterIconRenderer {
 
     @Override
     public String getTooltipText() {
-        return toolTip;
+        return CoverageGutterRenderer.createTooltipFrom(header, mutations);
     }
 }
@@ -97,7 +97,9 @@ public class ClickTree {
 
             // Auto-expand the first level of the tree
             for (int i = 0; i < childCount; i++) {
-                tree.expandRow(i);
+                if (!isCollapsed(i)) {
+                    tree.expandRow(i);
+                }
             }
             DefaultTreeModel model = (DefaultTreeModel) tree.getModel();
             model.reload();  // Loses which rows are expanded
@@ -210,11 +212,21 @@ public class ClickTree {
         private final DefaultMutableTreeNode node = new DefaultMutableTreeNode(this);
         private final java.util.List<RowSegment> rowSegments = new ArrayList<>();
         private final int level;
+        private boolean collapsed = false;
 
         private TreeRow(int level) {
             this.level = level;
         }
 
+        /**
+         * Leaves this row's children hidden when the tree is expanded, until the row is expanded by hand.
+         */
+        @SuppressWarnings("UnusedReturnValue")
+        public TreeRow collapsed() {
+            collapsed = true;
+            return this;
+        }
+
         public TreeRow addChildRow() {
             return addRowTo(this);
         }
@@ -272,11 +284,19 @@ public class ClickTree {
         // Start with the root row (row 0)
         int row = 0;
         while (row < tree.getRowCount()) {
-            tree.expandRow(row);
+            if (!isCollapsed(row)) {
+                tree.expandRow(row);
+            }
             row++;
         }
     }
 
+    private boolean isCollapsed(int row) {
+        TreePath path = tree.getPathForRow(row);
+        return path != null && path.getLastPathComponent() instanceof DefaultMutableTreeNode node
+                && node.getUserObject() instanceof TreeRow treeRow && treeRow.collapsed;
+    }
+
 
     class CustomTreeCellRenderer extends JPanel implements TreeCellRenderer {
         private final List<JLabel> labels = new ArrayList<>();
@@ -3,6 +3,10 @@ package org.pitestidea.toolwindow;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.fileEditor.FileEditorManager;
+import com.intellij.openapi.fileEditor.OpenFileDescriptor;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.Task;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.module.Module;
 import com.intellij.openapi.ui.MessageDialogBuilder;
@@ -24,9 +28,11 @@ import org.pitestidea.render.FileOpenCloseListener;
 
 import javax.swing.*;
 import java.awt.*;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Manages the plugin tool window. Consists of several panes with different levels of interactivity:
@@ -39,6 +45,8 @@ import java.util.function.Consumer;
  */
 public final class MutationControlPanel {
     private static final Logger LOGGER = Logger.getInstance(MutationControlPanel.class);
+    // Number of mutants, and of methods, shown as the most expensive
+    private static final int EXPENSIVE_MUTANT_COUNT = 25;
 
     private final HistoryList historyList = new HistoryList();
     private final StretchPane stretchPane = new StretchPane(null);
@@ -52,6 +60,7 @@ public final class MutationControlPanel {
     private JButton clearAllButton;
     private boolean isGutterIconsEnabled = true;
     private boolean isPitVerbose = false;
+    private boolean isKillMatrix = false;
     private int headerHeight;  // For aligning headers across different panes
     private final AtomicInteger activeRuns = new AtomicInteger(0);
     private ClassPaths classPaths = null;
@@ -81,6 +90,8 @@ public final class MutationControlPanel {
         box.add(Box.createHorizontalGlue());
         box.add(createPitVerboseButton());
         box.add(Box.createHorizontalGlue());
+        box.add(createKillMatrixButton());
+        box.add(Box.createHorizontalGlue());
         box.add(createClasspathButton(header));
         box.add(Box.createHorizontalGlue());
         header.add(box, BorderLayout.CENTER);
@@ -181,6 +192,10 @@ public final class MutationControlPanel {
         box.add(Box.createHorizontalGlue());
         box.add(createRemoveButton());
         box.add(Box.createHorizontalGlue());
+        box.add(createTestAnalysisButton(header));
+        box.add(Box.createHorizontalGlue());
+        box.add(createExpensiveMutantsButton(header));
+        box.add(Box.createHorizontalGlue());
         box.add(stretchPane.getScoresButton());
         header.add(box, BorderLayout.CENTER);
 
@@ -216,6 +231,16 @@ public final class MutationControlPanel {
         return getConstrainedPanel(checkBox);
     }
 
+    private JComponent createKillMatrixButton() {
+        JCheckBox checkBox = new JCheckBox("Kill matrix");
+        checkBox.setToolTipText("Sets 'fullMutationMatrix' tag on next PIT run, so that test analysis knows every test that kills each mutant. Runs take longer.");
+        checkBox.setHorizontalAlignment(SwingConstants.CENTER);
+        checkBox.setSelected(isKillMatrix);
+        checkBox.addActionListener(e -> isKillMatrix = checkBox.isSelected());
+
+        return getConstrainedPanel(checkBox);
+    }
+
     private JComponent createClasspathButton(JComponent parent) {
         JButton button = new JButton("Show Classpath...");
         button.setToolTipText("Show classpath used for most recent PIT run, including those added by the plugin (in green)");
@@ -225,34 +250,83 @@ public final class MutationControlPanel {
                 if (msg.isEmpty()) {
                     msg = "No PIT runs yet. Select this option after you execute at least one PIT run.";
                 }
+                showHtmlDialog(parent, "Classpath used for most recent PIT run", msg);
+            }
+        });
+        return button;
+    }
 
-                JEditorPane contentPane = new JEditorPane();
-                contentPane.setContentType("text/html");
-                contentPane.setEditable(false);
-                contentPane.setText(msg);
-                // Force scroll to top
-                SwingUtilities.invokeLater(() -> contentPane.setCaretPosition(0));
-
-                JScrollPane scrollPane = new JScrollPane(contentPane);
-                scrollPane.setHorizontalScrollBarPolicy(JScrollPane.HORIZONTAL_SCROLLBAR_AS_NEEDED);
-                scrollPane.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED);
+    private JComponent createTestAnalysisButton(JComponent parent) {
+        JButton button = new JButton("Analyze Tests...");
+        button.setToolTipText("Show tests in the selected report that could be removed without any mutant surviving");
+        button.addActionListener(e -> showReportDialog(parent, "Test analysis for the selected report", recorder ->
+                recorder.getKillMatrix().getTestCount() == 0
+                        ? "This report has no information about which tests killed which mutants."
+                        : recorder.getKillMatrix().formatHtml()));
+        return button;
+    }
 
-                Dimension dim = new Dimension(scrollPane.getPreferredSize().width, 400);
-                scrollPane.setPreferredSize(dim);
-                scrollPane.setMaximumSize(dim);
+    private JComponent createExpensiveMutantsButton(JComponent parent) {
+        JButton button = new JButton("Expensive Mutants...");
+        button.setToolTipText("Show the mutants and methods in the selected report that PIT ran the most tests against");
+        button.addActionListener(e -> showReportDialog(parent, "Most expensive mutants in the selected report",
+                recorder -> recorder.getExpensiveMutants(EXPENSIVE_MUTANT_COUNT).formatHtml()));
+        return button;
+    }
 
-                Frame frame = (Frame) SwingUtilities.getWindowAncestor(parent);
-                JDialog dialog = new JDialog(frame, "Classpath used for most recent PIT run", true);
-                dialog.getContentPane().add(scrollPane);
-                dialog.setResizable(true);
+    /**
+     * Shows a dialog about the selected report, whose content is built in the background since it may have to
+     * read the report first and may take a while for a large one.
+     *
+     * @param format builds the content of the dialog from the loaded results of the report
+     */
+    private static void showReportDialog(JComponent parent, String title, Function<PitExecutionRecorder, String> format) {
+        Project project = IdeaDiscovery.getActiveProject();
+        CachedRun cachedRun = PitRepo.getCurrent(project);
+        if (cachedRun == null) {
+            showHtmlDialog(parent, title, "Choose a report from the history list first.");
+            return;
+        }
+        ProgressManager.getInstance().run(new Task.Backgroundable(project, title, true) {
+            private String html;
 
-                dialog.pack();
-                dialog.setLocationRelativeTo(frame);
+            @Override
+            public void run(@NotNull ProgressIndicator indicator) {
+                html = format.apply(cachedRun.ensureLoaded());
+            }
 
-                dialog.setVisible(true);
+            @Override
+            public void onSuccess() {
+                showHtmlDialog(parent, title, html);
             }
         });
-        return button;
+    }
+
+    private static void showHtmlDialog(JComponent parent, String title, String html) {
+        JEditorPane contentPane = new JEditorPane();
+        contentPane.setContentType("text/html");
+        contentPane.setEditable(false);
+        contentPane.setText(html);
+        // Force scroll to top
+        SwingUtilities.invokeLater(() -> contentPane.setCaretPosition(0));
+
+        JScrollPane scrollPane = new JScrollPane(contentPane);
+        scrollPane.setHorizontalScrollBarPolicy(JScrollPane.HORIZONTAL_SCROLLBAR_AS_NEEDED);
+        scrollPane.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED);
+
+        Dimension dim = new Dimension(scrollPane.getPreferredSize().width, 400);
+        scrollPane.setPreferredSize(dim);
+        scrollPane.setMaximumSize(dim);
+
+        Frame frame = (Frame) SwingUtilities.getWindowAncestor(parent);
+        JDialog dialog = new JDialog(frame, title, true);
+        dialog.getContentPane().add(scrollPane);
+        dialog.setResizable(true);
+
+        dialog.pack();
+        dialog.setLocationRelativeTo(frame);
+
+        dialog.setVisible(true);
     }
 
     private static @NotNull JPanel getConstrainedPanel(JCheckBox checkBox) {
@@ -424,6 +498,32 @@ public final class MutationControlPanel {
         }
     }
 
+    /**
+     * Updates the display with results received so far from a run that is still executing.
+     *
+     * @param cachedRun    the running run, ignored unless current
+     * @param changedFiles files whose gutter icons may be out of date
+     */
+    public void reloadPartialScores(CachedRun cachedRun, Set<VirtualFile> changedFiles) {
+        if (cachedRun.isCurrent() && cachedRun.getRunState() == RunState.RUNNING) {
+            Project project = cachedRun.getProject();
+            PitExecutionRecorder recorder = cachedRun.getRecorder();
+            recorder.sort(getDisplayChoices());
+            PitToolWindowFactory.addAll(cachedRun, this, recorder);
+            resetToRootMessage("PIT execution is still running. Showing results received so far.");
+            if (isGutterIconsEnabled && project != null) {
+                FileEditorManager fileEditorManager = FileEditorManager.getInstance(project);
+                CoverageGutterRenderer renderer = CoverageGutterRenderer.getInstance();
+                for (VirtualFile file : changedFiles) {
+                    if (fileEditorManager.isFileOpen(file)) {
+                        renderer.fileClosed(project, file);
+                        recorder.visit(project, renderer, file);
+                    }
+                }
+            }
+        }
+    }
+
     private void syncScoresMsg(@Nullable CachedRun cachedRun) {
         if (cachedRun != null && cachedRun.isCurrent()) {
             String msg = "...";
@@ -546,7 +646,7 @@ public final class MutationControlPanel {
 
     private boolean run(CachedRun cachedRun) {
         try {
-            Module module = cachedRun.ensureLoaded().getModule();
+            Module module = cachedRun.getModule();
             ExecutionRecord record = cachedRun.getExecutionRecord();
             ApplicationManager.getApplication().executeOnPooledThread(() -> ExecutionUtils.execute(module, record.getInputBundle()));
             return true;
@@ -571,7 +671,10 @@ public final class MutationControlPanel {
     private boolean sync(CachedRun cachedRun) {
         boolean result = true;
         try {
-            cachedRun.reload();
+            if (!cachedRun.reload()) {
+                // Unchanged since last read, so there's nothing to redisplay and no reload to cancel
+                return false;
+            }
         } catch (Exception e) {
             cachedRun.setRunState(RunState.FAILED);
             markScoresInvalid();
@@ -609,6 +712,10 @@ public final class MutationControlPanel {
         return isPitVerbose;
     }
 
+    public boolean isKillMatrixEnabled() {
+        return isKillMatrix;
+    }
+
     public static class Level {
         private final ClickTree.TreeRow treeRow;
         private boolean isTop;
@@ -618,7 +725,7 @@ public final class MutationControlPanel {
             this.isTop = isTop;
         }
 
-        public void setLine(CachedRun cachedRun, VirtualFile file, String fileName, IMutationScore score) {
+        public Level setLine(CachedRun cachedRun, VirtualFile file, String fileName, IMutationScore score) {
             ClickTree.TreeRow targetRow = isTop ? this.treeRow : this.treeRow.addChildRow();
             isTop = false;
             targetRow
@@ -634,12 +741,26 @@ public final class MutationControlPanel {
                             }
                         }
                     })
-                    .addDelegatedSegment(" (Click open; Ctrl-click browser)", ClickTree.Hover.FLASH);
+                    .addDelegatedSegment(" (Click open; Ctrl-click browser)", ClickTree.Hover.FLASH)
+                    .collapsed();  // Methods are shown on request
+            return new Level(targetRow, false);
+        }
+
+        public void setLine(CachedRun cachedRun, VirtualFile file, MethodMutations method) {
+            this.treeRow.addChildRow()
+                    .addSegment(formatScore(method), ClickTree.Hover.UNDERLINE, (component, point, _button) -> showScoreDetailPopup(component, point, method.getScoreDescription()))
+                    .addSegment(method.getName() + "()", ClickTree.Hover.NONE, (_c, _p, _button) -> {
+                        Project project = cachedRun.getProject();
+                        if (project != null) {
+                            new OpenFileDescriptor(project, file, Math.max(method.getFirstLine() - 1, 0), 0).navigate(true);
+                        }
+                    })
+                    .addDelegatedSegment(" (Click open)", ClickTree.Hover.FLASH);
         }
 
         public Level setLine(CachedRun cachedRun, String pkgName, String qualifiedPkgName, IMutationScore score) {
             Level level = isTop ? this : new Level(treeRow.addChildRow(), false);
-            boolean isRoot = PitExecutionRecorder.ROOT_PACKAGE_NAME.equals(pkgName);
+            boolean isRoot = IMutationScore.ROOT_PACKAGE_NAME.equals(pkgName);
             ClickTree.Hover hoverRight = isRoot ? ClickTree.Hover.ITALICS : ClickTree.Hover.NONE;
             isTop = false;
             level.treeRow
@@ -663,6 +784,7 @@ public final class MutationControlPanel {
             StringBuilder sb = new StringBuilder();
             sb.append("<html>");
             BaseMutationsScore.fmtFloat(sb,score,IMutationScore::getScore);
+            BaseMutationsScore.fmtDiff(sb, score);
             sb.append("</html>");
             return sb.toString();
         }
@@ -1,7 +1,5 @@
 package org.pitestidea.toolwindow;
 
-import com.intellij.openapi.application.Application;
-import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.fileEditor.FileEditorManager;
 import com.intellij.openapi.project.DumbAware;
 import com.intellij.openapi.project.Project;
@@ -107,7 +105,8 @@ public final class PitToolWindowFactory implements ToolWindowFactory, DumbAware
             VirtualFile file = fileMutations.getFile();
             String filePath = file.getPath();
             String fileName = filePath.substring(filePath.lastIndexOf('/') + 1);
-            level.setLine(cachedRun, file, fileName, score);
+            MutationControlPanel.Level methodLevel = level.setLine(cachedRun, file, fileName, score);
+            fileMutations.getMethods().forEach(method -> methodLevel.setLine(cachedRun, file, method));
         }
 
         @Override
@@ -142,15 +141,7 @@ public final class PitToolWindowFactory implements ToolWindowFactory, DumbAware
         ContentFactory contentFactory = ContentFactory.getInstance();
         Content content = contentFactory.createContent(mutationControlPanel.getContentPanel(), null, false);
         toolWindow.getContentManager().addContent(content);
-        Application application = ApplicationManager.getApplication();
-        application.executeOnPooledThread(() -> {
-            try {
-                PitRepo.reloadReports(project);
-                // Update the UI on the Event Dispatch Thread
-                application.invokeLater(() -> mutationControlPanel.getContentPanel().updateUI());
-            } catch (Exception e) {
-                LOGGER.error("Failed to reload reports", e);
-            }
-        });
+        // Loads in the background, updating the history list as reports arrive
+        PitRepo.reloadReports(project);
     }
 }
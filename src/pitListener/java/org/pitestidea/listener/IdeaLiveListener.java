@@ -0,0 +1,152 @@
+package org.pitestidea.listener;
+
+import org.pitest.mutationtest.ClassMutationResults;
+import org.pitest.mutationtest.MutationResult;
+import org.pitest.mutationtest.MutationResultListener;
+import org.pitest.mutationtest.engine.MutationDetails;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Sends each mutation result to the IDE over a loopback socket as soon as PIT has finished with its class.
+ * Each mutation is written as one line of tab-separated fields:
+ * <pre>
+ *     M  status  mutatedClass  sourceFile  mutatedMethod  lineNumber  description  killingTests  succeedingTests
+ *        mutator  indexes  blocks  numberOfTestsRun  methodDescription
+ * </pre>
+ * with tabs, newlines and backslashes within fields escaped by a backslash, test names separated by '|' as in
+ * PIT's XML report, and instruction indexes and blocks separated by ','. A final line of just "E" marks
+ * that PIT completed the run.
+ *
+ * <p>Any failure to reach the IDE silently disables this listener, so that it can never affect the PIT run
+ * itself. The IDE falls back to reading the XML report in that case.
+ */
+class IdeaLiveListener implements MutationResultListener {
+    private final int port;
+    private Socket socket;
+    private Writer out;
+
+    IdeaLiveListener(int port) {
+        this.port = port;
+    }
+
+    @Override
+    public synchronized void runStart() {
+        if (port > 0) {
+            try {
+                socket = new Socket(InetAddress.getLoopbackAddress(), port);
+                out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                disable();
+            }
+        }
+    }
+
+    @Override
+    public synchronized void handleMutationResult(ClassMutationResults results) {
+        if (out != null) {
+            try {
+                StringBuilder sb = new StringBuilder();
+                for (MutationResult result : results.getMutations()) {
+                    MutationDetails details = result.getDetails();
+                    sb.setLength(0);
+                    sb.append('M');
+                    field(sb, result.getStatus().name());
+                    field(sb, details.getClassName().asJavaName());
+                    field(sb, details.getFilename());
+                    // Method is a String in newer PIT versions but an object in older ones
+                    field(sb, String.valueOf(details.getMethod()));
+                    field(sb, String.valueOf(details.getLineNumber()));
+                    field(sb, details.getDescription());
+                    field(sb, tests(result.getKillingTests()));
+                    field(sb, tests(result.getSucceedingTests()));
+                    field(sb, details.getId().getMutator());
+                    field(sb, numbers(details.getId().getIndexes()));
+                    field(sb, numbers(details.getBlocks()));
+                    field(sb, String.valueOf(result.getNumberOfTestsRun()));
+                    field(sb, details.getId().getLocation().getMethodDesc());
+                    sb.append('\n');
+                    out.write(sb.toString());
+                }
+                // One write per class keeps the IDE up to date without a flush per mutation
+                out.flush();
+            } catch (IOException | RuntimeException e) {
+                disable();
+            }
+        }
+    }
+
+    @Override
+    public synchronized void runEnd() {
+        if (out != null) {
+            try {
+                out.write("E\n");
+                out.flush();
+            } catch (IOException e) {
+                // Nothing else to do, the IDE will see the stream as incomplete
+            }
+            disable();
+        }
+    }
+
+    private static String tests(List<String> names) {
+        return names == null ? "" : String.join("|", names);
+    }
+
+    private static String numbers(List<Integer> values) {
+        StringBuilder sb = new StringBuilder();
+        if (values != null) {
+            for (Integer value : values) {
+                if (sb.length() > 0) {
+                    sb.append(',');
+                }
+                sb.append(value);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void field(StringBuilder sb, String value) {
+        sb.append('\t');
+        if (value != null) {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '\\':
+                        sb.append("\\\\");
+                        break;
+                    case '\t':
+                        sb.append("\\t");
+                        break;
+                    case '\n':
+                        sb.append("\\n");
+                        break;
+                    case '\r':
+                        sb.append("\\r");
+                        break;
+                    default:
+                        sb.append(c);
+                }
+            }
+        }
+    }
+
+    private void disable() {
+        out = null;
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Ignore, already disabled
+            }
+            socket = null;
+        }
+    }
+}
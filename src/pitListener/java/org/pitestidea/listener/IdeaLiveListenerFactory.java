@@ -0,0 +1,34 @@
+package org.pitestidea.listener;
+
+import org.pitest.mutationtest.ListenerArguments;
+import org.pitest.mutationtest.MutationResultListener;
+import org.pitest.mutationtest.MutationResultListenerFactory;
+
+import java.util.Properties;
+
+/**
+ * Registers {@link IdeaLiveListener} with PIT as an output format. This runs inside the PIT process, not the IDE,
+ * and is only active when the plugin requests it by adding {@link #NAME} to the PIT output formats.
+ */
+public class IdeaLiveListenerFactory implements MutationResultListenerFactory {
+    // Must match MutationStreamReceiver.OUTPUT_FORMAT in the plugin
+    static final String NAME = "IDEA_LIVE";
+
+    // Must match MutationStreamReceiver.PORT_PROPERTY in the plugin
+    static final String PORT_PROPERTY = "pitidea.listener.port";
+
+    @Override
+    public MutationResultListener getListener(Properties props, ListenerArguments args) {
+        return new IdeaLiveListener(Integer.getInteger(PORT_PROPERTY, -1));
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public String description() {
+        return "Streams mutation results to the pitest-idea plugin while PIT is running";
+    }
+}
@@ -0,0 +1,147 @@
+package org.pitestidea.configuration;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ModuleRootEvent;
+import com.intellij.openapi.roots.ModuleRootListener;
+import com.intellij.openapi.roots.ProjectRootManager;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.util.messages.MessageBus;
+import com.intellij.util.messages.MessageBusConnection;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class SourceRootIndexTest {
+    private static final MockedStatic<ProjectRootManager> projectRootManagerStatic = Mockito.mockStatic(ProjectRootManager.class);
+
+    private final ProjectRootManager projectRootManager = Mockito.mock(ProjectRootManager.class);
+    private final VirtualFile srcRoot = root("/p/src/main/java");
+    private final VirtualFile testRoot = root("/p/src/test/java");
+    private final MessageBusConnection connection = Mockito.mock(MessageBusConnection.class);
+    private Project project;
+
+    @AfterAll
+    static void afterAll() {
+        projectRootManagerStatic.close();
+    }
+
+    private static VirtualFile root(String path) {
+        VirtualFile root = Mockito.mock(VirtualFile.class);
+        when(root.getPath()).thenReturn(path);
+        return root;
+    }
+
+    private static VirtualFile file(String path, boolean valid) {
+        VirtualFile file = Mockito.mock(VirtualFile.class);
+        when(file.getPath()).thenReturn(path);
+        when(file.isValid()).thenReturn(valid);
+        return file;
+    }
+
+    @BeforeEach
+    void setUp() {
+        project = Mockito.mock(Project.class);
+        MessageBus messageBus = Mockito.mock(MessageBus.class);
+        when(project.getMessageBus()).thenReturn(messageBus);
+        when(messageBus.connect(any(Disposable.class))).thenReturn(connection);
+        projectRootManagerStatic.when(() -> ProjectRootManager.getInstance(any())).thenReturn(projectRootManager);
+        when(projectRootManager.getContentSourceRoots()).thenReturn(new VirtualFile[]{srcRoot, testRoot});
+    }
+
+    private SourceRootIndex index() {
+        return new SourceRootIndex(project);
+    }
+
+    @Test
+    void instanceIsTheProjectService() {
+        SourceRootIndex index = index();
+        when(project.getService(SourceRootIndex.class)).thenReturn(index);
+        assertSame(index, SourceRootIndex.getInstance(project));
+    }
+
+    @Test
+    void findsAcrossRootsAndMemoizes() {
+        VirtualFile target = file("/p/src/test/java/a/b/CTest.java", true);
+        when(testRoot.findFileByRelativePath("a/b/CTest.java")).thenReturn(target);
+        SourceRootIndex index = index();
+
+        assertSame(target, index.findFile("a/b/CTest.java"));
+        assertSame(target, index.findFile("a.b", "CTest.java"));
+        assertSame(target, index.findFile("a/b/CTest.java"));
+
+        verify(srcRoot, times(1)).findFileByRelativePath("a/b/CTest.java");
+        verify(testRoot, times(1)).findFileByRelativePath("a/b/CTest.java");
+        verify(projectRootManager, times(1)).getContentSourceRoots();
+    }
+
+    @Test
+    void defaultPackage() {
+        VirtualFile target = file("/p/src/main/java/C.java", true);
+        when(srcRoot.findFileByRelativePath("C.java")).thenReturn(target);
+        assertSame(target, index().findFile("", "C.java"));
+    }
+
+    @Test
+    void missingFilesAreNotCached() {
+        SourceRootIndex index = index();
+        assertNull(index.findFile("a/Missing.java"));
+
+        VirtualFile created = file("/p/src/main/java/a/Missing.java", true);
+        when(srcRoot.findFileByRelativePath("a/Missing.java")).thenReturn(created);
+        assertSame(created, index.findFile("a/Missing.java"));
+    }
+
+    @Test
+    void invalidFilesAreLookedUpAgain() {
+        VirtualFile stale = file("/p/src/main/java/a/C.java", true);
+        when(srcRoot.findFileByRelativePath("a/C.java")).thenReturn(stale);
+        SourceRootIndex index = index();
+        assertSame(stale, index.findFile("a/C.java"));
+
+        when(stale.isValid()).thenReturn(false);
+        VirtualFile fresh = file("/p/src/main/java/a/C.java", true);
+        when(srcRoot.findFileByRelativePath("a/C.java")).thenReturn(fresh);
+        assertSame(fresh, index.findFile("a/C.java"));
+    }
+
+    @Test
+    void rootChangeInvalidates() {
+        VirtualFile target = file("/p/src/main/java/a/C.java", true);
+        when(srcRoot.findFileByRelativePath(anyString())).thenReturn(target);
+        SourceRootIndex index = index();
+        assertSame(target, index.findFile("a/C.java"));
+        assertEquals(2, index.getSourceRoots().length);
+
+        VirtualFile otherRoot = root("/p/other");
+        VirtualFile moved = file("/p/other/a/C.java", true);
+        when(otherRoot.findFileByRelativePath("a/C.java")).thenReturn(moved);
+        when(projectRootManager.getContentSourceRoots()).thenReturn(new VirtualFile[]{otherRoot});
+        assertSame(target, index.findFile("a/C.java"));
+
+        ArgumentCaptor<ModuleRootListener> listener = ArgumentCaptor.forClass(ModuleRootListener.class);
+        verify(connection).subscribe(eq(ModuleRootListener.TOPIC), listener.capture());
+        listener.getValue().rootsChanged(Mockito.mock(ModuleRootEvent.class));
+        assertSame(moved, index.findFile("a/C.java"));
+        assertArrayEquals(new VirtualFile[]{otherRoot}, index.getSourceRoots());
+    }
+
+    @Test
+    void packageOf() {
+        SourceRootIndex index = index();
+        assertEquals("a.b", index.getPackageOf(file("/p/src/main/java/a/b/C.java", true)));
+        assertEquals("a.b", index.getPackageOf(file("/p/src/test/java/a/b/CTest.java", true)));
+        assertEquals("a", index.getPackageOf(file("/p/src/main/java/a/b", true)));
+        assertEquals("", index.getPackageOf(file("/p/src/main/java/C.java", true)));
+        assertNull(index.getPackageOf(file("/p/src/main/javax/a/C.java", true)));
+        assertNull(index.getPackageOf(file("/elsewhere/a/C.java", true)));
+    }
+}
@@ -0,0 +1,143 @@
+package org.pitestidea.headless;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.pitestidea.reader.InvalidMutatedFileException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportAggregatorTest {
+    private static final SourcePathResolver ANY_FILE = new SourcePathResolver(List.of());
+
+    @TempDir
+    Path dir;
+
+    private static String mutation(String status, String cls, String file) {
+        return "<mutation detected='true' status='" + status + "' numberOfTestsRun='3'><sourceFile>" + file + "</sourceFile><mutatedClass>" + cls
+                + "</mutatedClass><mutatedMethod>m</mutatedMethod><lineNumber>1</lineNumber><description>d</description></mutation>\n";
+    }
+
+    private File writeReport(String module, String... mutations) throws IOException {
+        Path report = dir.resolve(module).resolve("target/pit-reports/mutations.xml");
+        Files.createDirectories(report.getParent());
+        Files.writeString(report, "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<mutations>\n" + String.join("", mutations) + "</mutations>\n");
+        return report.toFile();
+    }
+
+    private static ReportAggregator aggregate(List<File> reports, SourcePathResolver resolver) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            return ReportAggregator.aggregate(reports, resolver, executor);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void scoresAreTotalledAcrossReports() throws Exception {
+        List<File> reports = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            reports.add(writeReport("m" + i,
+                    mutation("KILLED", "a.b.C", "C.java"),
+                    mutation("SURVIVED", "a.b.C", "C.java"),
+                    mutation("KILLED", "a.D$Inner", "D.java"),
+                    mutation("NO_COVERAGE", "E", "E.java")));
+        }
+        ReportAggregator aggregator = aggregate(reports, ANY_FILE);
+
+        assertEquals(20, aggregator.getReportCount());
+        assertEquals(80, aggregator.getRoot().getMutationsTotal());
+        assertEquals(40, aggregator.getRoot().getKilled());
+        assertEquals(240, aggregator.getRoot().getTestsRun());
+        assertEquals(List.of("", "a", "a.b"), new ArrayList<>(aggregator.getPackages().keySet()));
+        assertEquals(50f, aggregator.getPackages().get("a.b").getScore());
+        // Counting the mutations of its subpackage as well as its own file
+        assertEquals(60, aggregator.getPackages().get("a").getMutationsTotal());
+        assertEquals(20, aggregator.getPackages().get("").getNoCoverage());
+        assertEquals(40, aggregator.getFiles("a.b").get("C.java").getMutationsTotal());
+        assertEquals(100f, aggregator.getFiles("a").get("D.java").getScore());
+    }
+
+    @Test
+    void printsPackagesWithTheirFiles() throws Exception {
+        ReportAggregator aggregator = aggregate(List.of(
+                writeReport("one", mutation("KILLED", "a.C", "C.java"), mutation("SURVIVED", "a.C", "C.java")),
+                writeReport("two", mutation("KILLED", "a.D", "D.java"), mutation("TIMED_OUT", "b.E", "E.java"))), ANY_FILE);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        aggregator.print(new PrintStream(bytes, true, StandardCharsets.UTF_8));
+
+        List<String> lines = bytes.toString(StandardCharsets.UTF_8).lines().map(String::strip).toList();
+        assertEquals(List.of(
+                "50%       2 / 4       Aggregated Results",
+                "67%       2 / 3         a",
+                "50%       1 / 2           C.java",
+                "100%       1 / 1           D.java",
+                "0%       0 / 1         b",
+                "0%       0 / 1           E.java"), lines);
+    }
+
+    @Test
+    void printsSubpackagesWithinTheirPackages() throws Exception {
+        ReportAggregator aggregator = aggregate(List.of(writeReport("one",
+                mutation("KILLED", "com.x.a.C", "C.java"),
+                mutation("SURVIVED", "com.x.b.c.D", "D.java"),
+                mutation("KILLED", "com.x.b.E", "E.java"))), ANY_FILE);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        aggregator.print(new PrintStream(bytes, true, StandardCharsets.UTF_8));
+
+        List<String> lines = bytes.toString(StandardCharsets.UTF_8).lines().map(String::strip).toList();
+        assertEquals(List.of(
+                "67%       2 / 3       Aggregated Results",
+                "67%       2 / 3         com.x",
+                "100%       1 / 1           a",
+                "100%       1 / 1             C.java",
+                "50%       1 / 2           b",
+                "100%       1 / 1             E.java",
+                "0%       0 / 1             c",
+                "0%       0 / 1               D.java"), lines);
+    }
+
+    @Test
+    void filesMissingFromSourceRootsAreLeftOut() throws Exception {
+        Path root = dir.resolve("src");
+        Files.createDirectories(root.resolve("a"));
+        Files.writeString(root.resolve("a/C.java"), "");
+        ReportAggregator aggregator = aggregate(List.of(writeReport("one",
+                mutation("KILLED", "a.C", "C.java"), mutation("KILLED", "a.Gone", "Gone.java"))), new SourcePathResolver(List.of(root)));
+
+        assertEquals(1, aggregator.getRoot().getMutationsTotal());
+        assertEquals(Set.of("a/Gone.java"), aggregator.getMissingFiles());
+    }
+
+    @Test
+    void invalidReportFailsAggregation() throws Exception {
+        List<File> reports = List.of(writeReport("good", mutation("KILLED", "a.C", "C.java")),
+                writeReport("bad", mutation("BOGUS", "a.C", "C.java")));
+
+        assertThrows(InvalidMutatedFileException.class, () -> aggregate(reports, ANY_FILE));
+    }
+
+    @Test
+    void directoriesAreSearchedForReports() throws Exception {
+        File first = writeReport("x/one");
+        File second = writeReport("y");
+        Files.writeString(dir.resolve("x/other.xml"), "");
+        List<File> reports = new ArrayList<>();
+        AggregateReports.addReports(dir, reports);
+
+        assertEquals(List.of(first, second), reports);
+    }
+}
@@ -0,0 +1,73 @@
+package org.pitestidea.model;
+
+import com.intellij.openapi.vfs.VirtualFile;
+import org.junit.jupiter.api.Test;
+import org.pitestidea.reader.fakes.RootFake;
+import org.pitestidea.reader.fakes.VirtualSrcPkgFake;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpensiveMutantsTest {
+    private static final VirtualFile FILE = new RootFake("C.java", "java", false);
+
+    private static Mutation mutation(String method, int lineNumber, int testsRun) {
+        return new Mutation(method, lineNumber, MutationImpact.KILLED, "d" + lineNumber, MutationFingerprint.UNKNOWN, testsRun);
+    }
+
+    @Test
+    void onlyTheMostExpensiveAreKept() {
+        FileMutations fm = new FileMutations("a", FILE, null);
+        int[] costs = {5, 1, 9, 0, 7, 3, 9, 2};
+        for (int i = 0; i < costs.length; i++) {
+            fm.add(i + 1, mutation(i % 2 == 0 ? "even" : "odd", i + 1, costs[i]));
+        }
+        ExpensiveMutants expensive = new ExpensiveMutants(3);
+        expensive.add(fm);
+
+        assertEquals(List.of(9, 9, 7), expensive.getMutants().stream().map(m -> m.mutation().testsRun()).toList());
+        assertEquals(List.of("even", "odd"), expensive.getMethods().stream().map(ExpensiveMutants.Method::method).toList());
+        assertEquals(List.of(30L, 6L), expensive.getMethods().stream().map(ExpensiveMutants.Method::testsRun).toList());
+    }
+
+    @Test
+    void mutantsWithoutTestsRunAreLeftOut() {
+        FileMutations fm = new FileMutations("a", FILE, null);
+        fm.add(1, new Mutation("m", 1, MutationImpact.NO_COVERAGE, "d"));
+        ExpensiveMutants expensive = new ExpensiveMutants(3);
+        expensive.add(fm);
+
+        assertEquals(List.of(), expensive.getMutants());
+        assertEquals(List.of(), expensive.getMethods());
+        assertTrue(expensive.formatHtml().contains("does not say"));
+    }
+
+    @Test
+    void testsRunAreTotalledUpTheTree() {
+        VirtualSrcPkgFake pkg = new VirtualSrcPkgFake(2);
+        PitExecutionRecorder recorder = new PitExecutionRecorder(null, null);
+        recorder.record("F", pkg.j, "m", MutationImpact.KILLED, 1, "d", List.of(), List.of(), MutationFingerprint.UNKNOWN, 4);
+        recorder.record("F", pkg.j, "n", MutationImpact.SURVIVED, 2, "d", List.of(), List.of(), MutationFingerprint.UNKNOWN, 6);
+        recorder.record("F.p1", pkg.p1.j, "m", MutationImpact.KILLED, 1, "d", List.of(), List.of(), MutationFingerprint.UNKNOWN, 5);
+        recorder.postProcess();
+
+        List<String> totals = new ArrayList<>();
+        recorder.visit(new PitExecutionRecorder.FileVisitor() {
+            @Override
+            public void visit(FileMutations fileMutations, IMutationScore score) {
+                totals.add(fileMutations.getFile().getName() + "=" + score.getTestsRun() + fileMutations.getMethodTestsRun());
+            }
+
+            @Override
+            public void visit(String pkg, String qualifiedPkg, PitExecutionRecorder.PackageDiver diver, IMutationScore score) {
+                totals.add(pkg + "=" + score.getTestsRun());
+                diver.apply(this);
+            }
+        });
+        totals.sort(null);
+        assertEquals(List.of("F=15", "j.java=10{m=4, n=6}", "j.java=5{m=5}", "p1=5"), totals);
+        assertEquals(List.of(6, 5, 4), recorder.getExpensiveMutants(5).getMutants().stream().map(m -> m.mutation().testsRun()).toList());
+    }
+}
@@ -0,0 +1,154 @@
+package org.pitestidea.model;
+
+import org.junit.jupiter.api.Test;
+import org.pitestidea.reader.fakes.VirtualSrcPkgFake;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileDiffTest {
+
+    private static Mutation identified(int lineNumber, MutationImpact impact, long fingerprint) {
+        return new Mutation("m", lineNumber, impact, "d" + fingerprint, fingerprint, 0);
+    }
+
+    private static Mutation described(int lineNumber, MutationImpact impact, String description) {
+        return new Mutation("m", lineNumber, impact, description);
+    }
+
+    private static List<String> descriptions(List<Mutation> mutations) {
+        return mutations.stream().map(m -> m.lineNumber() + ":" + m.descriptionText()).toList();
+    }
+
+    @Test
+    void mutationsAreMatchedByFingerprint() {
+        FileMutations last = new FileMutations("a", null, null);
+        last.add(10, identified(10, MutationImpact.KILLED, 7));
+        last.add(11, identified(11, MutationImpact.KILLED, 3));
+        last.add(12, identified(12, MutationImpact.SURVIVED, 5));
+        FileMutations next = new FileMutations("a", null, last);
+        next.add(20, identified(20, MutationImpact.KILLED, 7));    // Moved
+        next.add(12, identified(12, MutationImpact.KILLED, 5));    // Now killed
+        next.add(13, identified(13, MutationImpact.SURVIVED, 9));  // New
+
+        FileDiff diff = next.getDiff();
+        assertEquals(List.of("13:d9"), descriptions(diff.getAdded()));
+        assertEquals(List.of("11:d3"), descriptions(diff.getRemoved()));
+        assertEquals(List.of("12:d5"), descriptions(diff.getChanged()));
+        assertEquals("+1 -1 ~1", diff.getCounts().toString());
+        assertSame(diff, next.getDiff());
+
+        next.add(14, identified(14, MutationImpact.KILLED, 3));
+        assertEquals("+1 -0 ~1", next.getDiff().getCounts().toString());
+    }
+
+    @Test
+    void mutationsSharingAFingerprintAreMatchedInOrder() {
+        FileMutations last = new FileMutations("a", null, null);
+        last.add(10, identified(10, MutationImpact.KILLED, 7));
+        last.add(11, identified(11, MutationImpact.KILLED, 3));
+        last.add(12, identified(12, MutationImpact.SURVIVED, 7));
+        FileMutations next = new FileMutations("a", null, last);
+        next.add(20, identified(20, MutationImpact.KILLED, 7));
+        next.add(21, identified(21, MutationImpact.KILLED, 3));
+        next.add(22, identified(22, MutationImpact.KILLED, 7));
+        next.add(23, identified(23, MutationImpact.KILLED, 7));
+
+        FileDiff diff = next.getDiff();
+        assertEquals(List.of("23:d7"), descriptions(diff.getAdded()));
+        assertEquals(List.of(), descriptions(diff.getRemoved()));
+        assertEquals(List.of("22:d7"), descriptions(diff.getChanged()));
+    }
+
+    @Test
+    void mutationsWithoutFingerprintsAreMatchedByLine() {
+        FileMutations last = new FileMutations("a", null, null);
+        last.add(10, described(10, MutationImpact.KILLED, "x"));
+        last.add(10, described(10, MutationImpact.KILLED, "y"));
+        last.add(11, described(11, MutationImpact.SURVIVED, "x"));
+        last.add(12, described(12, MutationImpact.KILLED, "x"));
+        FileMutations next = new FileMutations("a", null, last);
+        next.add(10, described(10, MutationImpact.KILLED, "x"));
+        next.add(11, described(11, MutationImpact.KILLED, "x"));
+        next.add(12, described(12, MutationImpact.KILLED, "z"));
+        next.add(13, described(13, MutationImpact.KILLED, "x"));
+
+        FileDiff diff = next.getDiff();
+        assertEquals(List.of("12:z", "13:x"), descriptions(diff.getAdded()));
+        assertEquals(List.of("10:y", "12:x"), descriptions(diff.getRemoved()));
+        assertEquals(List.of("11:x"), descriptions(diff.getChanged()));
+    }
+
+    @Test
+    void mutationRemovedFromTheMiddleOfALineLeavesTheRestMatched() {
+        FileMutations last = new FileMutations("a", null, null);
+        last.add(10, described(10, MutationImpact.KILLED, "x"));
+        last.add(10, described(10, MutationImpact.KILLED, "y"));
+        last.add(10, described(10, MutationImpact.SURVIVED, "z"));
+        FileMutations next = new FileMutations("a", null, last);
+        next.add(10, described(10, MutationImpact.KILLED, "x"));
+        next.add(10, described(10, MutationImpact.KILLED, "z"));
+
+        FileDiff diff = next.getDiff();
+        assertEquals(List.of(), descriptions(diff.getAdded()));
+        assertEquals(List.of("10:y"), descriptions(diff.getRemoved()));
+        assertEquals(List.of("10:z"), descriptions(diff.getChanged()));
+        assertEquals("+0 -1 ~1", diff.getCounts().toString());
+    }
+
+    @Test
+    void mutationsOfALineAreMatchedWhateverTheirOrder() {
+        FileMutations last = new FileMutations("a", null, null);
+        last.add(10, described(10, MutationImpact.KILLED, "x"));
+        last.add(10, described(10, MutationImpact.KILLED, "y"));
+        last.add(10, described(10, MutationImpact.KILLED, "x"));
+        FileMutations next = new FileMutations("a", null, last);
+        next.add(10, described(10, MutationImpact.KILLED, "y"));
+        next.add(10, described(10, MutationImpact.KILLED, "x"));
+
+        assertEquals("+0 -1 ~0", next.getDiff().getCounts().toString());
+        assertEquals(List.of("10:x"), descriptions(next.getDiff().getRemoved()));
+    }
+
+    @Test
+    void firstRunHasNoDiff() {
+        FileMutations fm = new FileMutations("a", null, null);
+        fm.add(1, identified(1, MutationImpact.KILLED, 1));
+        assertNull(fm.getDiff());
+    }
+
+    @Test
+    void differencesAreTotalledByPackage() {
+        VirtualSrcPkgFake pkg = new VirtualSrcPkgFake(2);
+        PitExecutionRecorder first = new PitExecutionRecorder(null, null);
+        first.record("F", pkg.j, "m", MutationImpact.KILLED, 1, "d", List.of(), List.of(), 1, 0);
+        first.record("F.p1", pkg.p1.j, "m", MutationImpact.KILLED, 1, "d", List.of(), List.of(), 2, 0);
+        first.record("F.p2", pkg.p2.j, "m", MutationImpact.KILLED, 1, "d", List.of(), List.of(), 3, 0);
+        first.postProcess();
+
+        PitExecutionRecorder second = new PitExecutionRecorder(null, first);
+        second.record("F", pkg.j, "m", MutationImpact.SURVIVED, 1, "d", List.of(), List.of(), 1, 0);
+        second.record("F", pkg.j, "m", MutationImpact.KILLED, 2, "d", List.of(), List.of(), 4, 0);
+        second.record("F.p1", pkg.p1.j, "m", MutationImpact.KILLED, 1, "d", List.of(), List.of(), 2, 0);
+        second.postProcess();
+        second.postProcess();
+
+        Map<String, String> diffs = new HashMap<>();
+        second.visit(new PitExecutionRecorder.FileVisitor() {
+            @Override
+            public void visit(FileMutations fileMutations, IMutationScore score) {
+                diffs.put(fileMutations.getPkg() + "/" + score.getName(), score.getDiff().toString());
+            }
+
+            @Override
+            public void visit(String pkg, String qualifiedPkg, PitExecutionRecorder.PackageDiver diver, IMutationScore score) {
+                diffs.put(pkg, score.getDiff().toString());
+                diver.apply(this);
+            }
+        });
+        assertEquals(Map.of("F", "+1 -1 ~1", "F/j.java", "+1 -0 ~1", "p1", "+0 -0 ~0", "F.p1/j.java", "+0 -0 ~0"), diffs);
+    }
+}
@@ -5,6 +5,8 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 
@@ -71,4 +73,182 @@ public class FileMutationsTest {
 
         Track.tracks.stream().filter(track -> !track.found).forEach(track -> Assertions.fail("Missing track " + track));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void coveredLinesWithoutMutationsOrWithSurvivors() {
+        FileMutations fm = new FileMutations("somePkg", null, null);
+        mutate(fm, 2, MutationImpact.KILLED);
+        mutate(fm, 3, MutationImpact.KILLED);
+        mutate(fm, 3, MutationImpact.SURVIVED);
+        mutate(fm, 5, MutationImpact.NO_COVERAGE);
+        List<String> visited = new ArrayList<>();
+        fm.visitCoverage((lineNumber, survived) -> visited.add(lineNumber + ":" + survived));
+        Assertions.assertEquals(List.of(), visited);
+
+        BitSet covered = new BitSet();
+        covered.set(1, 5);
+        fm.setCoveredLines(covered);
+        fm.visitCoverage((lineNumber, survived) -> visited.add(lineNumber + ":" + survived));
+        Assertions.assertEquals(List.of("1:false", "3:true", "4:false"), visited);
+    }
+
+    private static Mutation identified(int lineNumber, MutationImpact impact, long fingerprint) {
+        return new Mutation("etc", lineNumber, impact, "d" + fingerprint, fingerprint, 0);
+    }
+
+    private static List<String> changedLines(FileMutations fm) {
+        List<String> changed = new ArrayList<>();
+        fm.visit(lineImpact -> {
+            List<Mutation> last = lineImpact.getMutations(LineImpact.LineImpactPoint.PREVIOUS);
+            if (last != null) {
+                changed.add(lineImpact.getLineNumber() + ":" + last.stream().map(Mutation::lineNumber).toList());
+            }
+        });
+        changed.sort(null);
+        return changed;
+    }
+
+    @Test
+    public void movedLinesAreMatchedByFingerprint() {
+        FileMutations last = new FileMutations("somePkg", null, null);
+        last.add(10, identified(10, MutationImpact.KILLED, 1));
+        last.add(10, identified(10, MutationImpact.SURVIVED, 2));
+        last.add(20, identified(20, MutationImpact.KILLED, 3));
+        last.add(30, identified(30, MutationImpact.KILLED, 4));
+
+        // Everything moved down two lines; only the mutation that was at 30 changed its outcome
+        FileMutations next = new FileMutations("somePkg", null, last);
+        next.add(12, identified(12, MutationImpact.SURVIVED, 2));
+        next.add(12, identified(12, MutationImpact.KILLED, 1));
+        next.add(22, identified(22, MutationImpact.KILLED, 3));
+        next.add(32, identified(32, MutationImpact.SURVIVED, 4));
+        Assertions.assertEquals(List.of("32:[30]"), changedLines(next));
+    }
+
+    @Test
+    public void partlyMatchedLinesAreComparedByLineNumber() {
+        FileMutations last = new FileMutations("somePkg", null, null);
+        last.add(10, identified(10, MutationImpact.KILLED, 1));
+        last.add(10, identified(10, MutationImpact.KILLED, 2));
+        last.add(20, identified(20, MutationImpact.KILLED, 3));
+
+        FileMutations next = new FileMutations("somePkg", null, last);
+        next.add(10, identified(10, MutationImpact.KILLED, 1));
+        next.add(20, identified(20, MutationImpact.KILLED, 3));
+        next.add(20, identified(20, MutationImpact.KILLED, 5));
+        Assertions.assertEquals(List.of("10:[10, 10]", "20:[20]"), changedLines(next));
+    }
+
+    @Test
+    public void mutationsWithoutFingerprintsAreComparedAsBefore() {
+        FileMutations last = new FileMutations("somePkg", null, null);
+        last.add(10, new Mutation("etc", 10, MutationImpact.KILLED, "d"));
+        FileMutations next = new FileMutations("somePkg", null, last);
+        next.add(12, new Mutation("etc", 12, MutationImpact.KILLED, "d"));
+        next.add(10, new Mutation("etc", 10, MutationImpact.KILLED, "d"));
+        Assertions.assertEquals(List.of(), changedLines(next));
+    }
+
+    @Test
+    public void linesAreVisitedInOrderWithinRange() {
+        FileMutations fm = new FileMutations("somePkg", null, null);
+        for (int line : new int[]{30, 10, 20, 10, 40}) {
+            fm.add(line, identified(line, MutationImpact.KILLED, line));
+        }
+        List<Integer> all = new ArrayList<>();
+        fm.visit(lineImpact -> all.add(lineImpact.getLineNumber()));
+        Assertions.assertEquals(List.of(10, 20, 30, 40), all);
+
+        List<String> ranged = new ArrayList<>();
+        fm.visit(15, 30, lineImpact -> ranged.add(lineImpact.getLineNumber() + ":" + lineImpact.getMutations(LineImpact.LineImpactPoint.CURRENT).size()));
+        Assertions.assertEquals(List.of("20:1", "30:1"), ranged);
+    }
+
+    @Test
+    public void mutationsBetweenLines() {
+        FileMutations fm = new FileMutations("somePkg", null, null);
+        fm.add(5, identified(5, MutationImpact.KILLED, 1));
+        fm.add(7, identified(7, MutationImpact.SURVIVED, 2));
+        fm.add(7, identified(7, MutationImpact.KILLED, 3));
+        fm.add(9, identified(9, MutationImpact.KILLED, 4));
+
+        Assertions.assertEquals(List.of(2L, 3L, 4L), fm.getMutations(6, 9).stream().map(Mutation::fingerprint).toList());
+        Assertions.assertEquals(List.of(1L), fm.getMutations(Integer.MIN_VALUE, 5).stream().map(Mutation::fingerprint).toList());
+        Assertions.assertEquals(List.of(), fm.getMutations(10, Integer.MAX_VALUE));
+        Assertions.assertEquals(List.of(), fm.getMutations(8, 6));
+
+        // Later additions are found too
+        fm.add(6, identified(6, MutationImpact.KILLED, 5));
+        Assertions.assertEquals(List.of(5L, 2L, 3L), fm.getMutations(6, 8).stream().map(Mutation::fingerprint).toList());
+    }
+
+    @Test
+    public void summariesAreKeptUntilMutationsAreAdded() {
+        FileMutations last = new FileMutations("somePkg", null, null);
+        last.add(10, identified(10, MutationImpact.KILLED, 1));
+        last.add(20, identified(20, MutationImpact.KILLED, 2));
+        FileMutations next = new FileMutations("somePkg", null, last);
+        next.add(10, identified(10, MutationImpact.KILLED, 1));
+        next.add(20, identified(20, MutationImpact.SURVIVED, 2));
+        next.summarize();
+
+        List<String> summaries = new ArrayList<>();
+        FileMutations.LineVisitor summarizer = lineImpact -> summaries.add(lineImpact.getLineNumber() + ":"
+                + lineImpact.getLineImpactSummary(LineImpact.LineImpactPoint.CURRENT) + "/"
+                + lineImpact.getLineImpactSummary(LineImpact.LineImpactPoint.PREVIOUS));
+        next.visit(summarizer);
+        Assertions.assertEquals(List.of("10:KILLED/KILLED", "20:SURVIVED/KILLED"), summaries);
+        Assertions.assertEquals(List.of("20:[20]"), changedLines(next));
+
+        next.add(10, identified(10, MutationImpact.SURVIVED, 3));
+        summaries.clear();
+        next.visit(summarizer);
+        Assertions.assertEquals(List.of("10:SURVIVED/KILLED", "20:SURVIVED/KILLED"), summaries);
+        Assertions.assertEquals(List.of("10:[10]", "20:[20]"), changedLines(next));
+    }
+
+    private static Mutation inMethod(String method, int lineNumber, MutationImpact impact) {
+        return new Mutation(method, lineNumber, impact, method + lineNumber);
+    }
+
+    @Test
+    public void methodsAreScoredAndIndexed() {
+        FileMutations last = new FileMutations("somePkg", null, null);
+        last.add(30, inMethod("b", 30, MutationImpact.SURVIVED));
+        FileMutations fm = new FileMutations("somePkg", null, last);
+        fm.add(30, inMethod("b", 30, MutationImpact.KILLED));
+        fm.add(10, inMethod("a", 10, MutationImpact.SURVIVED));
+        fm.add(12, inMethod("a", 12, MutationImpact.KILLED));
+        fm.add(31, inMethod("b", 31, MutationImpact.KILLED));
+        fm.add(11, inMethod("a", 11, MutationImpact.KILLED));
+
+        List<MethodMutations> methods = fm.getMethods();
+        Assertions.assertEquals(List.of("b", "a"), methods.stream().map(MethodMutations::getName).toList());
+        MethodMutations b = methods.get(0);
+        Assertions.assertEquals(2, b.getKilled());
+        Assertions.assertEquals(30, b.getFirstLine());
+        Assertions.assertEquals(1, b.getLastScore().getSurvived());
+        MethodMutations a = methods.get(1);
+        Assertions.assertEquals(2, a.getKilled());
+        Assertions.assertEquals(1, a.getSurvived());
+        Assertions.assertEquals(10, a.getFirstLine());
+        Assertions.assertNull(a.getLastScore());
+
+        fm.sortMethods(Comparator.comparing(MethodMutations::getFirstLine));
+        Assertions.assertEquals(List.of("a", "b"), fm.getMethods().stream().map(MethodMutations::getName).toList());
+
+        Assertions.assertEquals(List.of(10, 11, 12), fm.getLineMutations("a").stream().map(Mutation::lineNumber).toList());
+        Assertions.assertEquals(List.of(30, 31), fm.getLineMutations("b").stream().map(Mutation::lineNumber).toList());
+        Assertions.assertTrue(fm.getLineMutations("c").isEmpty());
+
+        fm.add(9, inMethod("b", 9, MutationImpact.KILLED));
+        Assertions.assertEquals(List.of(9, 30, 31), fm.getLineMutations("b").stream().map(Mutation::lineNumber).toList());
+    }
+
+    @Test
+    public void stableOrderKeepsEqualKeysInPosition() {
+        long[] keys = {5, -3, 5, Long.MIN_VALUE, -3, 5, Long.MAX_VALUE};
+        Assertions.assertArrayEquals(new int[]{3, 1, 4, 0, 2, 5, 6}, FileMutations.stableOrder(keys));
+        Assertions.assertArrayEquals(new int[0], FileMutations.stableOrder(new long[0]));
+    }
+}
@@ -0,0 +1,66 @@
+package org.pitestidea.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KillMatrixTest {
+
+    @Test
+    void empty() {
+        KillMatrix matrix = new KillMatrix();
+        assertEquals(0, matrix.getTestCount());
+        assertEquals(List.of(), matrix.getTestsWithoutUniqueKills());
+        assertEquals(List.of(), matrix.getRemovableTests());
+        assertFalse(matrix.hasSucceedingTests());
+    }
+
+    @Test
+    void idsAreSharedAcrossMutants() {
+        KillMatrix matrix = new KillMatrix();
+        assertEquals(0, matrix.addMutant(List.of("a", "b"), List.of("c")));
+        assertEquals(1, matrix.addMutant(List.of("b"), List.of("a", "c")));
+        assertEquals(3, matrix.getTestCount());
+        assertEquals(2, matrix.getMutantCount());
+        assertTrue(matrix.hasSucceedingTests());
+    }
+
+    @Test
+    void testsWithoutUniqueKills() {
+        KillMatrix matrix = new KillMatrix();
+        matrix.addMutant(List.of("a", "b"), List.of());
+        matrix.addMutant(List.of("b"), List.of());
+        matrix.addMutant(List.of("c", "a"), List.of("d"));
+        matrix.addMutant(List.of(), List.of("a", "b", "c", "d"));
+
+        // Only b kills mutant 1, so a, c and the killer-less d have nothing of their own
+        assertEquals(List.of("a", "c", "d"), matrix.getTestsWithoutUniqueKills());
+    }
+
+    @Test
+    void removableTestsKeepEveryKill() {
+        KillMatrix matrix = new KillMatrix();
+        // Each of a and b kill no unique mutant, but they can't both go
+        matrix.addMutant(List.of("a", "b"), List.of());
+        matrix.addMutant(List.of("a", "b"), List.of());
+        matrix.addMutant(List.of("c"), List.of());
+        matrix.addMutant(List.of("d", "c"), List.of());
+
+        assertEquals(List.of("a", "b", "d"), matrix.getTestsWithoutUniqueKills());
+        assertEquals(List.of("b", "d"), matrix.getRemovableTests());
+    }
+
+    @Test
+    void removableTestsPreferWidestKillers() {
+        KillMatrix matrix = new KillMatrix();
+        // wide kills everything that narrow1 and narrow2 do between them
+        for (int i = 0; i < 70; i++) {
+            matrix.addMutant(List.of("wide", i < 35 ? "narrow1" : "narrow2"), List.of());
+        }
+        matrix.addMutant(List.of("narrow2"), List.of());
+
+        assertEquals(List.of("narrow1"), matrix.getRemovableTests());
+    }
+}
@@ -0,0 +1,41 @@
+package org.pitestidea.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MutationFingerprintTest {
+
+    @Test
+    void sameValuesGiveSameFingerprint() {
+        assertEquals(MutationFingerprint.of("a.C", "m", "()V", "M", "5", "1", "d"),
+                MutationFingerprint.of("a.C", "m", "()V", "M", new StringBuilder("5"), "1", "d"));
+    }
+
+    @Test
+    void charactersMovedBetweenValuesChangeFingerprint() {
+        assertNotEquals(MutationFingerprint.of("a.C", "mM", "()V", "", "5", "1", "d"),
+                MutationFingerprint.of("a.C", "m", "()V", "M", "5", "1", "d"));
+    }
+
+    @Test
+    void missingValueDiffersFromEmptyOne() {
+        assertNotEquals(MutationFingerprint.of("a.C", "m", null, "M", "5", "1", "d"),
+                MutationFingerprint.of("a.C", "m", "", "M", "5", "1", "d"));
+        assertNotEquals(MutationFingerprint.of("a.C", "m", null, "M", "", "1", "d"),
+                MutationFingerprint.of("a.C", "m", "", "M", null, "1", "d"));
+    }
+
+    @Test
+    void bothBytesOfEachCharacterAreHashed() {
+        // Same low byte as 'd'
+        assertNotEquals(MutationFingerprint.of("a.C", "m", "()V", "M", "5", "1", "\u0164"),
+                MutationFingerprint.of("a.C", "m", "()V", "M", "5", "1", "d"));
+    }
+
+    @Test
+    void descriptorTellsOverloadsApart() {
+        assertNotEquals(MutationFingerprint.of("a.C", "m", "(I)V", "M", "5", "1", "d"),
+                MutationFingerprint.of("a.C", "m", "(J)V", "M", "5", "1", "d"));
+    }
+}
@@ -0,0 +1,135 @@
+package org.pitestidea.model;
+
+import com.intellij.openapi.vfs.VirtualFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.pitestidea.reader.fakes.RootFake;
+
+import java.lang.ref.Reference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Measures the heap taken by each mutation held in a {@link MutationStore}, against the map of lists of
+ * {@link Mutation} records per file that it replaced, and by each mutation of a frozen
+ * {@link PitExecutionRecorder}, which adds the indexes, summaries and scores built over the store. Method names
+ * and descriptions are shared by every mutation, as the recorder's string pool shares them, so that only the
+ * cost of holding each mutation is counted. Disabled by default since it is slow and memory hungry. Run with:
+ * <pre>
+ *     ./gradlew test --tests '*MutationStoreBenchmarkTest' -Dpitidea.benchmark=true
+ * </pre>
+ * The number of mutations defaults to 1,000,000 and can be changed with {@code -Dpitidea.benchmark.mutations=N}.
+ */
+@EnabledIfSystemProperty(named = "pitidea.benchmark", matches = "true")
+class MutationStoreBenchmarkTest {
+    private static final int MUTATIONS = Integer.getInteger("pitidea.benchmark.mutations", 1_000_000);
+    private static final int MUTATIONS_PER_FILE = 100;
+    private static final int MUTATIONS_PER_LINE = 3;
+    private static final MutationImpact[] IMPACTS = MutationImpact.values();
+    private static final String[] METHODS = {"equals", "hashCode", "toString", "compute"};
+    private static final String[] DESCRIPTIONS = {"negated conditional", "replaced return value with null", "removed call"};
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static Mutation mutation(int i) {
+        int line = (i % MUTATIONS_PER_FILE) / MUTATIONS_PER_LINE + 1;
+        return new Mutation(METHODS[i % METHODS.length], line, IMPACTS[i % IMPACTS.length], DESCRIPTIONS[i % DESCRIPTIONS.length],
+                MutationFingerprint.of("a.C" + i, "m", null, "M", null, null, null), i % 50);
+    }
+
+    @Test
+    void storeVersusRecords() {
+        Mutation[] mutations = new Mutation[MUTATIONS];
+        for (int i = 0; i < MUTATIONS; i++) {
+            mutations[i] = mutation(i);
+        }
+        int files = (MUTATIONS + MUTATIONS_PER_FILE - 1) / MUTATIONS_PER_FILE;
+
+        // The layout replaced, with a record per mutation and a list per line in a map per file
+        long baseline = usedHeap();
+        List<Map<Integer, List<Mutation>>> byFile = new ArrayList<>();
+        for (int i = 0; i < MUTATIONS; i++) {
+            if (i % MUTATIONS_PER_FILE == 0) {
+                byFile.add(new HashMap<>());
+            }
+            Mutation mutation = mutations[i];
+            byFile.get(byFile.size() - 1).computeIfAbsent(mutation.lineNumber(), _k -> new ArrayList<>())
+                    .add(new Mutation(mutation.method(), mutation.lineNumber(), mutation.mutationImpact(), mutation.descriptionText(),
+                            mutation.fingerprint(), mutation.testsRun()));
+        }
+        long records = usedHeap() - baseline;
+        Reference.reachabilityFence(byFile);
+        byFile = null;
+
+        baseline = usedHeap();
+        MutationStore store = new MutationStore();
+        int[] fileIds = new int[files];
+        for (int f = 0; f < files; f++) {
+            fileIds[f] = store.addFile();
+        }
+        // Interleave files, as mutations of inner classes arrive apart from those of their outer class
+        for (int i = 0; i < MUTATIONS; i++) {
+            int file = (i / MUTATIONS_PER_FILE) ^ 1;
+            store.add(fileIds[Math.min(file, files - 1)], mutations[i].lineNumber(), mutations[i]);
+        }
+        store.group();
+        long columns = usedHeap() - baseline;
+        Reference.reachabilityFence(store);
+
+        double recordBytes = (double) records / MUTATIONS;
+        double columnBytes = (double) columns / MUTATIONS;
+        System.out.printf("%,d mutations in %,d files%n", MUTATIONS, files);
+        System.out.printf("Records retained %,8d KB   %6.1f bytes per mutation%n", records / 1024, recordBytes);
+        System.out.printf("Store   retained %,8d KB   %6.1f bytes per mutation%n", columns / 1024, columnBytes);
+
+        assertTrue(columnBytes < 24, "Store should take under 24 bytes per mutation, took " + columnBytes);
+        assertTrue(columns < records, "Store should take less heap than records");
+    }
+
+    @Test
+    void frozenRecorder() {
+        Mutation[] mutations = new Mutation[MUTATIONS];
+        for (int i = 0; i < MUTATIONS; i++) {
+            mutations[i] = mutation(i);
+        }
+        VirtualFile[] files = new VirtualFile[(MUTATIONS + MUTATIONS_PER_FILE - 1) / MUTATIONS_PER_FILE];
+        for (int f = 0; f < files.length; f++) {
+            // Named apart, since files of the same name in a package are recorded as one
+            files[f] = new RootFake("src", "C" + f + ".java", false);
+        }
+
+        long baseline = usedHeap();
+        PitExecutionRecorder recorder = new PitExecutionRecorder(null, null);
+        for (int i = 0; i < MUTATIONS; i++) {
+            Mutation mutation = mutations[i];
+            recorder.record("a", files[i / MUTATIONS_PER_FILE], recorder.intern(mutation.method()), mutation.mutationImpact(),
+                    mutation.lineNumber(), recorder.intern(mutation.description()), List.of(), List.of(),
+                    mutation.fingerprint(), mutation.testsRun());
+        }
+        recorder.postProcess();
+        recorder.freeze();
+        long retained = usedHeap() - baseline;
+        Reference.reachabilityFence(recorder);
+
+        double bytes = (double) retained / MUTATIONS;
+        System.out.printf("%,d mutations in %,d files%n", MUTATIONS, files.length);
+        System.out.printf("Frozen recorder retained %,8d KB   %6.1f bytes per mutation%n", retained / 1024, bytes);
+        long estimated = recorder.estimateHeapBytes();
+        System.out.printf("Estimated                %,8d KB%n", estimated / 1024);
+
+        assertTrue(Math.abs(estimated - retained) < retained / 4, "Estimated " + estimated + " bytes, but " + retained + " were retained");
+        // The store's 23 bytes, 4 for the mutation's place in its file's index of methods, and about 1,400 bytes
+        // per file for its line index, summaries, method scores and views, spread over 100 mutations
+        assertTrue(bytes < 45, "Frozen recorder should take under 45 bytes per mutation, took " + bytes);
+    }
+}
@@ -0,0 +1,146 @@
+package org.pitestidea.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MutationStoreTest {
+
+    private static Mutation mutation(String description, int testsRun) {
+        return new Mutation("m", 0, MutationImpact.SURVIVED, description, description.hashCode(), testsRun);
+    }
+
+    private static List<String> describe(MutationStore store, int file) {
+        List<String> described = new ArrayList<>();
+        MutationStore.Rows rows = store.rowsOf(file);
+        for (int i = 0; i < rows.size(); i++) {
+            Mutation mutation = store.mutation(rows.get(i));
+            described.add(mutation.lineNumber() + ":" + mutation.description());
+        }
+        return described;
+    }
+
+    @Test
+    void rowsOfEachFileAreByLineThenOrderAdded() {
+        MutationStore store = new MutationStore();
+        int a = store.addFile();
+        int b = store.addFile();
+        store.add(a, 7, mutation("a1", 1));
+        store.add(b, 2, mutation("b1", 1));
+        store.add(a, 3, mutation("a2", 1));
+        store.add(a, 7, mutation("a3", 1));
+        store.add(b, 1, mutation("b2", 1));
+
+        List<String> expectedA = List.of("3:a2", "7:a1", "7:a3");
+        List<String> expectedB = List.of("1:b2", "2:b1");
+        assertEquals(expectedA, describe(store, a));
+        assertEquals(expectedB, describe(store, b));
+
+        store.group();
+        assertEquals(new MutationStore.Rows(0, 3, null), store.rowsOf(a));
+        assertEquals(new MutationStore.Rows(3, 2, null), store.rowsOf(b));
+        assertEquals(expectedA, describe(store, a));
+        assertEquals(expectedB, describe(store, b));
+        assertEquals(5, store.size());
+    }
+
+    @Test
+    void rowsCanBeAddedAfterGrouping() {
+        MutationStore store = new MutationStore();
+        int a = store.addFile();
+        store.add(a, 5, mutation("a1", 1));
+        store.group();
+        int version = store.getVersion();
+
+        int b = store.addFile();
+        store.add(b, 1, mutation("b1", 1));
+        store.add(a, 2, mutation("a2", 1));
+        assertNotEquals(version, store.getVersion());
+        assertEquals(List.of("2:a2", "5:a1"), describe(store, a));
+        assertEquals(List.of("1:b1"), describe(store, b));
+
+        store.group();
+        assertEquals(List.of("2:a2", "5:a1"), describe(store, a));
+        assertEquals(List.of("1:b1"), describe(store, b));
+    }
+
+    @Test
+    void everyColumnIsKept() {
+        MutationStore store = new MutationStore();
+        int a = store.addFile();
+        store.add(a, 9, new Mutation("m", 9, MutationImpact.TIMED_OUT, "d", 42L, 70_000));
+        store.add(a, 8, new Mutation("n", 8, MutationImpact.KILLED, "e", MutationFingerprint.UNKNOWN, 65_534));
+        store.group();
+
+        MutationStore.Rows rows = store.rowsOf(a);
+        assertEquals(new Mutation("n", 8, MutationImpact.KILLED, "e", MutationFingerprint.UNKNOWN, 65_534), store.mutation(rows.get(0)));
+        assertEquals(65_534, store.testsRun(rows.get(0)));
+        Mutation last = store.mutation(rows.get(1));
+        assertEquals(new Mutation("m", 9, MutationImpact.TIMED_OUT, "d"), last);
+        assertEquals(42L, last.fingerprint());
+        assertEquals(70_000, last.testsRun());
+        assertEquals("m", store.method(rows.get(1)));
+        assertEquals(MutationImpact.TIMED_OUT, store.impact(rows.get(1)));
+    }
+
+    @Test
+    void largeCountsOfTestsRunFollowTheirRows() {
+        MutationStore store = new MutationStore();
+        int a = store.addFile();
+        int b = store.addFile();
+        store.add(b, 1, mutation("b1", 70_000));
+        store.add(a, 2, mutation("a2", 5));
+        store.add(a, 1, mutation("a1", 80_000));
+        store.add(b, 2, mutation("b2", 90_000));
+        store.group();
+        store.add(a, 3, mutation("a3", 100_000));
+        store.group();
+
+        List<Integer> testsRun = new ArrayList<>();
+        for (int file : new int[]{a, b}) {
+            MutationStore.Rows rows = store.rowsOf(file);
+            for (int i = 0; i < rows.size(); i++) {
+                testsRun.add(store.testsRun(rows.get(i)));
+            }
+        }
+        assertEquals(List.of(80_000, 5, 100_000, 70_000, 90_000), testsRun);
+    }
+
+    @Test
+    void frozenStoreIsReadWithoutItsLock() throws InterruptedException {
+        MutationStore store = new MutationStore();
+        int a = store.addFile();
+        store.add(a, 5, mutation("a1", 1));
+        store.add(a, 3, mutation("a2", 1));
+        store.freeze();
+        assertTrue(store.isFrozen());
+        assertThrows(IllegalStateException.class, () -> store.add(a, 4, mutation("a3", 1)));
+        assertThrows(IllegalStateException.class, store::addFile);
+
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> {
+            synchronized (store) {
+                locked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        holder.start();
+        locked.await();
+        try {
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> assertEquals(List.of("3:a2", "5:a1"), describe(store, a)));
+        } finally {
+            release.countDown();
+            holder.join();
+        }
+    }
+}
@@ -4,11 +4,15 @@ import com.intellij.openapi.vfs.VirtualFile;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.provider.CsvSource;
 import org.mockito.Mockito;
+import org.pitestidea.reader.fakes.VirtualSrcPkgFake;
 import org.pitestidea.toolwindow.DisplayChoices;
 import org.pitestidea.toolwindow.Sorting;
 import org.pitestidea.toolwindow.Viewing;
 
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.when;
@@ -40,9 +44,9 @@ class PitExecutionRecorderTest {
         private final Map<String, VirtualFile> packageMap = new HashMap<>();
 
         Tracker() {
-            String nm = PitExecutionRecorder.ROOT_PACKAGE_NAME;
+            String nm = IMutationScore.ROOT_PACKAGE_NAME;
             expectedPackages.add(nm);
-            rootFile = ensurePkg(null, PitExecutionRecorder.ROOT_PACKAGE_NAME);
+            rootFile = ensurePkg(null, IMutationScore.ROOT_PACKAGE_NAME);
         }
 
         private VirtualFile ensurePkg(VirtualFile parent, String childPkg) {
@@ -98,7 +102,7 @@ class PitExecutionRecorderTest {
         @Override
         public void visit(String pkg, String qualifiedPkg, PitExecutionRecorder.PackageDiver diver, IMutationScore score) {
             if (qualifiedPkg != null) {
-                assertFalse(qualifiedPkg.startsWith(PitExecutionRecorder.ROOT_PACKAGE_NAME), "Qualified name should not start with \"" + PitExecutionRecorder.ROOT_PACKAGE_NAME + '"');
+                assertFalse(qualifiedPkg.startsWith(IMutationScore.ROOT_PACKAGE_NAME), "Qualified name should not start with \"" + IMutationScore.ROOT_PACKAGE_NAME + '"');
                 String lastSegment = qualifiedPkg;
                 int lastDot = lastSegment.lastIndexOf('.');
                 if (lastDot > 0) {
@@ -106,7 +110,7 @@ class PitExecutionRecorderTest {
                 }
                 assertEquals(pkg, lastSegment, "Unexpected qualified package name: " + pkg + ", " + qualifiedPkg);
             }
-            if (pkg.equals(PitExecutionRecorder.ROOT_PACKAGE_NAME)) {
+            if (pkg.equals(IMutationScore.ROOT_PACKAGE_NAME)) {
                 assertTrue(expectedTopLevelPackages.size() > 1, "Unexpected package: " + pkg);
             }
             expectedPackages.remove(pkg);
@@ -260,4 +264,188 @@ class PitExecutionRecorderTest {
 
         assertEquals(Arrays.asList(expectedFileNames), gotFileNames);
     }
-}
\ No newline at end of file
+    @Test
+    void restartDiscardsCurrentButKeepsPrevious() {
+        VirtualFile file = Mockito.mock(VirtualFile.class);
+        when(file.getName()).thenReturn("f1.java");
+        PitExecutionRecorder previous = new PitExecutionRecorder(null, null);
+        previous.record("aaa", file, "m", MutationImpact.KILLED, 11, "d");
+        PitExecutionRecorder current = new PitExecutionRecorder(null, previous);
+        current.record("aaa", file, "m", MutationImpact.SURVIVED, 11, "d");
+
+        PitExecutionRecorder restarted = current.restart();
+        restarted.record("aaa", file, "m", MutationImpact.NO_COVERAGE, 11, "d");
+
+        List<IMutationScore> fileScores = new ArrayList<>();
+        restarted.visit(new PitExecutionRecorder.FileVisitor() {
+            @Override
+            public void visit(FileMutations fileMutations, IMutationScore score) {
+                fileScores.add(score);
+            }
+
+            @Override
+            public void visit(String pkg, String qualifiedPkg, PitExecutionRecorder.PackageDiver diver, IMutationScore score) {
+                diver.apply(this);
+            }
+        });
+        assertEquals(1, fileScores.size());
+        IMutationScore score = fileScores.get(0);
+        assertEquals(1, score.getMutationsTotal());
+        assertEquals(1, score.getNoCoverage());
+        assertEquals(1, score.getLastScore().getKilled());
+    }
+
+    @Test
+    void internReturnsSharedInstance() {
+        PitExecutionRecorder recorder = new PitExecutionRecorder(null, null);
+        String first = recorder.intern(new String("negated conditional"));
+        String second = recorder.intern(new String("negated conditional"));
+        assertSame(first, second);
+        assertNull(recorder.intern(null));
+        assertNotSame(first, recorder.restart().intern(new String("negated conditional")));
+    }
+
+    @Test
+    void frozenRecorderRejectsChanges() {
+        VirtualFile file = new VirtualSrcPkgFake(1).j;
+        PitExecutionRecorder recorder = new PitExecutionRecorder(null, null);
+        recorder.record("aaa", file, "m", MutationImpact.KILLED, 11, "d");
+        recorder.postProcess();
+        recorder.freeze();
+
+        assertTrue(recorder.isFrozen());
+        assertTrue(recorder.getFileMutations(file).isFrozen());
+        assertThrows(IllegalStateException.class, () -> recorder.record("aaa", file, "m", MutationImpact.SURVIVED, 12, "d"));
+        assertThrows(IllegalStateException.class, () -> recorder.recordCoverage(file, new BitSet()));
+        assertThrows(IllegalStateException.class, recorder::postProcess);
+        assertEquals(1, recorder.getFileMutations(file).getMutations(1, 20).size());
+    }
+
+    @Test
+    void laterRunLeavesFrozenRunUnchanged() {
+        VirtualFile file = new VirtualSrcPkgFake(1).j;
+        PitExecutionRecorder first = new PitExecutionRecorder(null, null);
+        first.record("aaa", file, "m", MutationImpact.KILLED, 11, "d");
+        first.postProcess();
+        PitExecutionRecorder second = new PitExecutionRecorder(null, first);
+        second.record("aaa", file, "m", MutationImpact.SURVIVED, 11, "d");
+        second.postProcess();
+        second.freeze();
+        FileDiff diff = second.getFileMutations(file).getDiff();
+        IMutationScore method = second.getFileMutations(file).getMethods().get(0);
+
+        PitExecutionRecorder third = new PitExecutionRecorder(null, second);
+        third.record("aaa", file, "m", MutationImpact.KILLED, 11, "d");
+        third.postProcess();
+
+        assertTrue(first.isFrozen());
+        assertSame(diff, second.getFileMutations(file).getDiff());
+        assertEquals("+0 -0 ~1", diff.getCounts().toString());
+        assertEquals(1, method.getLastScore().getKilled());
+        IMutationScore lastMethod = third.getFileMutations(file).getMethods().get(0).getLastScore();
+        assertEquals(1, lastMethod.getSurvived());
+        assertNull(lastMethod.getLastScore());
+        assertEquals("+0 -0 ~1", third.getFileMutations(file).getDiff().getCounts().toString());
+    }
+
+    private static void addClassFiles(VirtualSrcPkgFake pkg, String name, Map<VirtualFile, String> files) {
+        if (pkg.p1 != pkg) {
+            files.put(pkg.j, name);
+            addClassFiles(pkg.p1, name + ".p1", files);
+            addClassFiles(pkg.p2, name + ".p2", files);
+        }
+    }
+
+    @Test
+    void frozenRecorderIsReadWhileSorted() throws Exception {
+        Map<VirtualFile, String> files = new LinkedHashMap<>();
+        addClassFiles(new VirtualSrcPkgFake(3), "F", files);
+        PitExecutionRecorder previous = new PitExecutionRecorder(null, null);
+        files.forEach((file, pkg) -> {
+            for (int line = 1; line <= 10; line++) {
+                previous.record(pkg, file, "m" + line % 3, MutationImpact.KILLED, line, "d");
+            }
+        });
+        previous.postProcess();
+        previous.freeze();
+        PitExecutionRecorder recorder = new PitExecutionRecorder(null, previous);
+        files.forEach((file, pkg) -> {
+            for (int line = 1; line <= 10; line++) {
+                recorder.record(pkg, file, "m" + line % 3, line % 2 == 0 ? MutationImpact.KILLED : MutationImpact.SURVIVED, line, "d");
+            }
+        });
+        recorder.postProcess();
+        recorder.freeze();
+
+        ExecutorService readers = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> counts = new ArrayList<>();
+            for (int r = 0; r < 4; r++) {
+                counts.add(readers.submit(() -> {
+                    int changed = 0;
+                    for (int i = 0; i < 200; i++) {
+                        for (VirtualFile file : files.keySet()) {
+                            FileMutations fileMutations = recorder.getFileMutations(file);
+                            int[] lines = {0};
+                            fileMutations.visit(lineImpact -> lines[0]++);
+                            assertEquals(10, lines[0]);
+                            assertEquals(3, fileMutations.getMethods().size());
+                            changed += fileMutations.getDiff().getChanged().size();
+                        }
+                    }
+                    return changed;
+                }));
+            }
+            for (int i = 0; i < 200; i++) {
+                Sorting.Direction dir = i % 2 == 0 ? Sorting.Direction.ASC : Sorting.Direction.DESC;
+                recorder.sort(new DisplayChoices(Viewing.PackageChoice.NONE, Sorting.By.SCORE, dir));
+            }
+            for (Future<Integer> count : counts) {
+                // Half of the mutations of every file survive this time
+                assertEquals(200 * files.size() * 5, count.get().intValue());
+            }
+        } finally {
+            readers.shutdown();
+        }
+    }
+
+    @Test
+    void packagesAreTotalledFromTheirFiles() {
+        VirtualSrcPkgFake pkg = new VirtualSrcPkgFake(2);
+        PitExecutionRecorder recorder = new PitExecutionRecorder(null, null);
+        recorder.record("F", pkg.j, "m", MutationImpact.KILLED, 1, "d", List.of(), List.of(), 1, 3);
+        recorder.record("F.p1", pkg.p1.j, "m", MutationImpact.SURVIVED, 1, "d", List.of(), List.of(), 2, 4);
+        Map<String, String> partial = totals(recorder);
+        assertEquals("1/2 t7", partial.get("F"));
+
+        // Results received later are totalled once more, however often processed
+        recorder.record("F.p1", pkg.p1.j, "m", MutationImpact.KILLED, 2, "d", List.of(), List.of(), 3, 5);
+        recorder.record("F.p2", pkg.p2.j, "m", MutationImpact.KILLED, 1, "d", List.of(), List.of(), 4, 6);
+        recorder.postProcess();
+        recorder.postProcess();
+        assertEquals(Map.of("F", "3/4 t18", "F/j.java", "1/1 t3", "F.p1", "1/2 t9", "F.p1/j.java", "1/2 t9",
+                "F.p2", "1/1 t6", "F.p2/j.java", "1/1 t6"), totals(recorder));
+        assertTrue(recorder.hasMultiplePackages());
+    }
+
+    private static Map<String, String> totals(PitExecutionRecorder recorder) {
+        Map<String, String> totals = new HashMap<>();
+        recorder.visit(new PitExecutionRecorder.FileVisitor() {
+            @Override
+            public void visit(FileMutations fileMutations, IMutationScore score) {
+                totals.put(fileMutations.getPkg() + "/" + score.getName(), total(score));
+            }
+
+            @Override
+            public void visit(String pkg, String qualifiedPkg, PitExecutionRecorder.PackageDiver diver, IMutationScore score) {
+                totals.put(qualifiedPkg, total(score));
+                diver.apply(this);
+            }
+        });
+        return totals;
+    }
+
+    private static String total(IMutationScore score) {
+        return score.getKilled() + "/" + score.getMutationsTotal() + " t" + score.getTestsRun();
+    }
+}
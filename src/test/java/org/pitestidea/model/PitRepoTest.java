@@ -13,7 +13,10 @@ import org.pitestidea.configuration.IdeaDiscovery;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -104,4 +107,41 @@ class PitRepoTest {
         ab = genRecorder("a", "b");
         verify(ab.getRecorder().getModule(), ab, cd);
     }
-}
\ No newline at end of file
+
+    @Test
+    void concurrentRegistration() throws InterruptedException {
+        final int threads = 8;
+        final int perThread = 25;
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final int base = t * perThread;
+            workers.add(new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    InputBundle bundle = new InputBundle();
+                    bundle.addPath(InputBundle.Category.SOURCE_PKG, "p" + (base + i));
+                    PitRepo.register(commonModule, new ExecutionRecord(bundle));
+                    PitRepo.apply(commonModule.getProject(), (c, _h) -> assertNotNull(c));
+                }
+            }));
+        }
+        workers.forEach(Thread::start);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        Set<ExecutionRecord> got = new HashSet<>();
+        PitRepo.apply(commonModule.getProject(), (c, _h) -> got.add(c.getExecutionRecord()));
+        assertEquals(threads * perThread, got.size());
+    }
+
+    @Test
+    void archiveAge() {
+        long day = TimeUnit.DAYS.toMillis(1);
+        long now = 100 * day;
+        ExecutionRecord record = new ExecutionRecord(now - 31 * day);
+        assertTrue(PitRepo.isDueForArchive(record, now, 30));
+        assertFalse(PitRepo.isDueForArchive(record, now, 32));
+        assertFalse(PitRepo.isDueForArchive(record, now, 0));
+        assertFalse(PitRepo.isDueForArchive(new ExecutionRecord(0), now, 30));
+    }
+}
@@ -0,0 +1,185 @@
+package org.pitestidea.model;
+
+import com.intellij.openapi.vfs.VirtualFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.pitestidea.reader.fakes.RootFake;
+
+import java.lang.ref.Reference;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that the recorders kept loaded for a run history stay within its memory budget however long the
+ * history grows, as estimated and, in a test disabled by default since it is slow, as measured. Run that with:
+ * <pre>
+ *     ./gradlew test --tests '*RunHistoryMemoryTest' -Dpitidea.benchmark=true
+ * </pre>
+ */
+class RunHistoryMemoryTest {
+    private static final int FILES = 10;
+    private static final int MUTATIONS_PER_FILE = 200;
+    private static final MutationImpact[] IMPACTS = MutationImpact.values();
+    private static final VirtualFile[] FILE_FAKES = new VirtualFile[FILES];
+
+    static {
+        for (int f = 0; f < FILES; f++) {
+            // Named apart, since files of the same name in a package are recorded as one
+            FILE_FAKES[f] = new RootFake("src", "C" + f + ".java", false);
+        }
+    }
+
+    private static PitExecutionRecorder recorder(int mutationsPerFile) {
+        PitExecutionRecorder recorder = new PitExecutionRecorder(null, null);
+        for (VirtualFile file : FILE_FAKES) {
+            for (int i = 0; i < mutationsPerFile; i++) {
+                // Shared as readers share them, so that only the cost of holding each mutation is counted
+                recorder.record("a", file, recorder.intern("m" + i % 7), IMPACTS[i % IMPACTS.length], i / 3 + 1, recorder.intern("d" + i % 5));
+            }
+        }
+        recorder.postProcess();
+        // As when published, and measured in full from then on
+        recorder.freeze();
+        return recorder;
+    }
+
+    private static int nextRecord = 0;
+
+    private static ExecutionRecord record() {
+        InputBundle bundle = new InputBundle();
+        bundle.addPath(InputBundle.Category.SOURCE_PKG, "p" + nextRecord++);
+        return new ExecutionRecord(bundle);
+    }
+
+    /**
+     * Adds runs to a history, each loaded with a recorder as when it is first shown.
+     */
+    private static List<CachedRun> fill(PitRepo.ProjectRunRecords records, int depth, int mutationsPerFile) {
+        List<CachedRun> runs = new ArrayList<>();
+        for (int i = 0; i < depth; i++) {
+            PitExecutionRecorder recorder = recorder(mutationsPerFile);
+            CachedRun run = new CachedRun(records, record(), recorder, "dir" + i);
+            records.add(run);
+            run.setRecorder(recorder);
+            runs.add(run);
+        }
+        return runs;
+    }
+
+    @Test
+    void leastRecentlyUsedRecordersAreUnloaded() {
+        long perRun = recorder(MUTATIONS_PER_FILE).estimateHeapBytes();
+        PitRepo.ProjectRunRecords records = new PitRepo.ProjectRunRecords(() -> perRun * 3);
+        List<CachedRun> runs = fill(records, 2, MUTATIONS_PER_FILE);
+        runs.get(0).setAsCurrent();
+        runs.addAll(fill(records, 40, MUTATIONS_PER_FILE));
+
+        List<CachedRun> loaded = records.loadedRuns();
+        assertEquals(List.of(runs.get(0), runs.get(40), runs.get(41)), loaded);
+        assertTrue(loaded.stream().mapToLong(CachedRun::estimateHeapBytes).sum() <= perRun * 3);
+        assertNull(runs.get(1).getRecorderIfLoaded());
+        assertNull(runs.get(20).getRecorderIfLoaded());
+
+        // Using a loaded run makes it the last to go
+        runs.get(40).getRecorder();
+        fill(records, 1, MUTATIONS_PER_FILE);
+        assertTrue(runs.get(40).isLoaded());
+        assertFalse(runs.get(41).isLoaded());
+    }
+
+    private static long loadedOfHistory(int depth, long budget) {
+        PitRepo.ProjectRunRecords records = new PitRepo.ProjectRunRecords(() -> budget);
+        fill(records, depth, MUTATIONS_PER_FILE);
+        return PitRepo.ProjectRunRecords.heldBytes(records.loadedRuns());
+    }
+
+    @Test
+    void historyDepthDoesNotAffectLoadedTotal() {
+        long perRun = recorder(MUTATIONS_PER_FILE).estimateHeapBytes();
+        long budget = perRun * 3;
+        long shallow = loadedOfHistory(5, budget);
+        long deep = loadedOfHistory(100, budget);
+        assertEquals(shallow, deep);
+        assertTrue(deep <= budget, "Loaded " + deep + " bytes over a budget of " + budget);
+        assertTrue(deep > 0);
+    }
+
+    @Test
+    void runningRunsAreKept() {
+        long perRun = recorder(MUTATIONS_PER_FILE).estimateHeapBytes();
+        PitRepo.ProjectRunRecords records = new PitRepo.ProjectRunRecords(() -> perRun);
+        CachedRun running = fill(records, 1, MUTATIONS_PER_FILE).get(0);
+        running.setRunState(RunState.RUNNING);
+        fill(records, 3, MUTATIONS_PER_FILE);
+        assertTrue(running.isLoaded());
+    }
+
+    @Test
+    void unloadedRecorderIsNotReadWhenAskedFor() {
+        PitRepo.ProjectRunRecords records = new PitRepo.ProjectRunRecords(() -> Long.MAX_VALUE);
+        CachedRun run = fill(records, 1, MUTATIONS_PER_FILE).get(0);
+        run.unload();
+
+        PitExecutionRecorder stand = run.getRecorder();
+        assertFalse(run.isLoaded());
+        assertTrue(stand.isFrozen());
+        assertTrue(stand.estimateHeapBytes() < recorder(MUTATIONS_PER_FILE).estimateHeapBytes() / 10);
+        assertSame(stand, run.getRecorder());
+    }
+
+    @Test
+    void runComparedAgainstIsCountedOnce() {
+        PitRepo.ProjectRunRecords records = new PitRepo.ProjectRunRecords(() -> Long.MAX_VALUE);
+        CachedRun older = fill(records, 1, MUTATIONS_PER_FILE).get(0);
+        PitExecutionRecorder previous = older.getRecorderIfLoaded();
+        PitExecutionRecorder recorder = new PitExecutionRecorder(null, previous);
+        for (VirtualFile file : FILE_FAKES) {
+            recorder.record("a", file, "m", MutationImpact.KILLED, 1, "d");
+        }
+        recorder.postProcess();
+        CachedRun newer = new CachedRun(records, record(), recorder, "newer");
+        records.add(newer);
+        newer.setRecorder(recorder);
+
+        assertTrue(recorder.comparesAgainst(previous));
+        assertTrue(recorder.estimateSharedLastHeapBytes() > MUTATIONS_PER_FILE * FILES * 20L);
+        assertEquals(recorder.estimateHeapBytes(), PitRepo.ProjectRunRecords.heldBytes(List.of(newer)));
+        long both = PitRepo.ProjectRunRecords.heldBytes(List.of(older, newer));
+        assertEquals(previous.estimateHeapBytes() + recorder.estimateHeapBytes() - recorder.estimateSharedLastHeapBytes(), both);
+        // The copies of the previous run's scores are only held by the later run, so are still counted
+        assertTrue(both > previous.estimateHeapBytes() + recorder.estimateHeapBytesWithoutLast());
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long heapOfHistory(int depth, long budget) {
+        long baseline = usedHeap();
+        PitRepo.ProjectRunRecords records = new PitRepo.ProjectRunRecords(() -> budget);
+        List<CachedRun> runs = fill(records, depth, MUTATIONS_PER_FILE * 50);
+        long used = usedHeap() - baseline;
+        Reference.reachabilityFence(records);
+        Reference.reachabilityFence(runs);
+        return used;
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "pitidea.benchmark", matches = "true")
+    void historyDepthDoesNotAffectHeap() {
+        long perRun = recorder(MUTATIONS_PER_FILE * 50).estimateHeapBytes();
+        long budget = perRun * 3;
+        long shallow = heapOfHistory(5, budget);
+        long deep = heapOfHistory(100, budget);
+        System.out.printf("Run estimated at %,d KB. History of 5 retained %,d KB, of 100 retained %,d KB%n",
+                perRun / 1024, shallow / 1024, deep / 1024);
+        // Without unloading, the deeper history would hold 95 more runs
+        assertTrue(deep < shallow + 2 * perRun, "Heap grew with history depth from " + shallow + " to " + deep);
+    }
+}
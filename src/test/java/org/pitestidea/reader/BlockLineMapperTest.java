@@ -0,0 +1,55 @@
+package org.pitestidea.reader;
+
+import org.junit.jupiter.api.Test;
+import org.pitestidea.reader.fakes.CoverageFixture;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.BitSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BlockLineMapperTest {
+    private static final String ABS = "abs(I)I";
+
+    static byte[] classBytes(String className) {
+        String name = className.substring(className.lastIndexOf('.') + 1) + ".class";
+        try (InputStream in = CoverageFixture.class.getResourceAsStream(name)) {
+            return in == null ? null : in.readAllBytes();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static BitSet lines(BlockLineMapper mapper, String method, int block) {
+        BitSet lines = new BitSet();
+        assertTrue(mapper.addLines(method, block, lines));
+        return lines;
+    }
+
+    @Test
+    void branchesSplitBlocks() {
+        BlockLineMapper mapper = BlockLineMapper.analyze(classBytes(CoverageFixture.class.getName()));
+        assertEquals("CoverageFixture.java", mapper.getSourceFile());
+
+        BitSet condition = lines(mapper, ABS, 0);
+        assertEquals(1, condition.cardinality());
+        int ifLine = condition.nextSetBit(0);
+        assertEquals(BitSet.valueOf(new long[]{1L << (ifLine + 1)}), lines(mapper, ABS, 1));
+        assertEquals(BitSet.valueOf(new long[]{1L << (ifLine + 3)}), lines(mapper, ABS, 2));
+        assertFalse(mapper.addLines(ABS, 99, new BitSet()));
+    }
+
+    @Test
+    void innerClassHasOuterSourceFile() {
+        BlockLineMapper mapper = BlockLineMapper.analyze(classBytes(CoverageFixture.Inner.class.getName()));
+        assertEquals("CoverageFixture.java", mapper.getSourceFile());
+        assertEquals(1, lines(mapper, "twice(I)I", 0).cardinality());
+    }
+
+    @Test
+    void unknownMethod() {
+        BlockLineMapper mapper = BlockLineMapper.analyze(classBytes(CoverageFixture.class.getName()));
+        assertFalse(mapper.addLines("abs(J)J", 0, new BitSet()));
+    }
+}
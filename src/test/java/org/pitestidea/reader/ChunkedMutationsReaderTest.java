@@ -0,0 +1,123 @@
+package org.pitestidea.reader;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.pitestidea.model.MutationImpact;
+import org.pitestidea.reader.fakes.RecorderFake;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChunkedMutationsReaderTest {
+    private static final int THREADS = 4;
+    private static final ExecutorService POOL = Executors.newFixedThreadPool(THREADS);
+    private static final MutationImpact[] IMPACTS = MutationImpact.values();
+
+    @TempDir
+    File dir;
+
+    @AfterAll
+    static void afterAll() {
+        POOL.shutdown();
+    }
+
+    private File writeReport(int count, String extra) throws IOException {
+        StringBuilder sb = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<mutations partial=\"true\">\n");
+        for (int i = 0; i < count; i++) {
+            String cls = "p" + (i / 50) + ".C" + (i / 7);
+            sb.append("<mutation detected='true' status='").append(IMPACTS[i % IMPACTS.length]).append("' numberOfTestsRun='2'>")
+                    .append("<sourceFile>C").append(i / 7).append(".java</sourceFile>")
+                    .append("<mutatedClass>").append(cls).append("</mutatedClass>")
+                    .append("<mutatedMethod>m").append(i % 3).append("</mutatedMethod>")
+                    .append("<lineNumber>").append(i).append("</lineNumber>")
+                    .append("<mutator>M</mutator>")
+                    .append("<killingTests>T").append(i % 5).append("|T").append(i % 11).append("</killingTests>")
+                    .append("<succeedingTests>S").append(i % 4).append("</succeedingTests>")
+                    .append("<description>changed &amp; ").append(i % 9).append(" \u00e9</description></mutation>\n");
+        }
+        sb.append(extra).append("</mutations>\n");
+        File file = new File(dir, "mutations.xml");
+        Files.writeString(file.toPath(), sb.toString());
+        return file;
+    }
+
+    private static RecorderFake recorder() {
+        return new RecorderFake().expectingTests().missing("Gone");
+    }
+
+    @Test
+    void chunkedReadMatchesSequentialRead() throws Exception {
+        File report = writeReport(2000, "");
+        RecorderFake sequential = recorder();
+        MutationsFileReader.read(report, sequential::resolve, sequential);
+
+        for (int chunkBytes : new int[]{1, 1000, 7919, 100_000, Integer.MAX_VALUE}) {
+            RecorderFake chunked = recorder();
+            assertTrue(ChunkedMutationsReader.read(report, chunked::resolve, chunked, POOL, THREADS, chunkBytes));
+            assertEquals(sequential.getCalls(), chunked.getCalls(), "Chunks of " + chunkBytes + " bytes");
+        }
+        assertEquals(2000, sequential.getCalls().stream().filter(c -> c.contains("|")).count());
+    }
+
+    @Test
+    void missingFilesAreReportedAfterRecordingTheRest() throws Exception {
+        File report = writeReport(100, "<mutation status='KILLED'><sourceFile>Gone.java</sourceFile><mutatedClass>a.Gone</mutatedClass>"
+                + "<mutatedMethod>m</mutatedMethod><lineNumber>1</lineNumber><description>d</description></mutation>\n");
+        RecorderFake chunked = recorder();
+        InvalidMutatedFileException e = assertThrows(InvalidMutatedFileException.class,
+                () -> ChunkedMutationsReader.read(report, chunked::resolve, chunked, POOL, THREADS, 500));
+
+        assertEquals("Number of bad files: 1", e.getMessage());
+        assertEquals("postProcess", chunked.getCalls().get(chunked.getCalls().size() - 1));
+        assertEquals(100, chunked.getCalls().stream().filter(c -> c.contains("|")).count());
+    }
+
+    @Test
+    void unparseableChunkIsReadSequentiallyFromItsStart() throws Exception {
+        File report = writeReport(100, "<mutation status='BOGUS'><sourceFile>C.java</sourceFile><mutatedClass>a.C</mutatedClass>"
+                + "<mutatedMethod>m</mutatedMethod><lineNumber>1</lineNumber><description>d</description></mutation>\n");
+        RecorderFake sequential = recorder();
+        assertThrows(InvalidMutatedFileException.class, () -> MutationsFileReader.read(report, sequential::resolve, sequential));
+
+        RecorderFake chunked = recorder();
+        assertThrows(IllegalArgumentException.class, () -> ChunkedMutationsReader.read(report, chunked::resolve, chunked, POOL, THREADS, 500));
+        assertEquals(sequential.getCalls(), chunked.getCalls());
+        assertEquals(100, chunked.getCalls().stream().filter(c -> c.contains("|")).count());
+    }
+
+    @Test
+    void chunkSplitInsideCommentIsReadSequentially() throws Exception {
+        File report = writeReport(100, "<!-- <mutation status='KILLED'> -->\n");
+        RecorderFake sequential = recorder();
+        MutationsFileReader.read(report, sequential::resolve, sequential);
+
+        RecorderFake chunked = recorder();
+        assertTrue(ChunkedMutationsReader.read(report, chunked::resolve, chunked, POOL, THREADS, 1));
+        assertEquals(sequential.getCalls(), chunked.getCalls());
+    }
+
+    @Test
+    void reportWithoutMutationsIsLeftToSequentialRead() throws Exception {
+        File report = writeReport(0, "");
+        RecorderFake chunked = recorder();
+
+        assertFalse(ChunkedMutationsReader.read(report, chunked::resolve, chunked, POOL, THREADS, 500));
+        assertEquals(List.of(), chunked.getCalls());
+    }
+
+    @Test
+    void rootElementIsNotAMutation() {
+        ByteBuffer buffer = ByteBuffer.wrap("<mutations>\n<mutationx/><mutation\nstatus='KILLED'>".getBytes(StandardCharsets.US_ASCII));
+        assertEquals(24, ChunkedMutationsReader.indexOfMutation(buffer, 0, buffer.limit()));
+        assertEquals(-1, ChunkedMutationsReader.indexOfMutation(buffer, 0, 24));
+    }
+}
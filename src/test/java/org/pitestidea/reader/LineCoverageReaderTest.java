@@ -0,0 +1,72 @@
+package org.pitestidea.reader;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.pitestidea.reader.fakes.CoverageFixture;
+import org.pitestidea.reader.fakes.RecorderFake;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LineCoverageReaderTest {
+    private static final String FIXTURE = CoverageFixture.class.getName();
+    private static final String FIXTURE_PATH = FIXTURE.replace('.', '/') + ".java";
+
+    @TempDir
+    File dir;
+
+    private File write(String blocks) throws IOException {
+        File file = new File(dir, LineCoverageReader.FILE_NAME);
+        Files.writeString(file.toPath(), "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<coverage>\n" + blocks + "</coverage>\n");
+        return file;
+    }
+
+    private static String block(String className, String method, int number) {
+        return "<block classname='" + className + "' method='" + method + "' number='" + number + "'><tests>\n"
+                + "<test name='a.T.[engine:junit-jupiter]/[method:t()]'/>\n</tests>\n</block>\n";
+    }
+
+    private static int lineOf(String className, String method, int block) {
+        BitSet lines = new BitSet();
+        BlockLineMapper.analyze(BlockLineMapperTest.classBytes(className)).addLines(method, block, lines);
+        return lines.nextSetBit(0);
+    }
+
+    @Test
+    void coveredBlocksOfEachClassAreMergedByFile() throws Exception {
+        String inner = CoverageFixture.Inner.class.getName();
+        File file = write(block(FIXTURE, "abs(I)I", 0) + block(FIXTURE, "abs(I)I", 2)
+                + block(inner, "twice(I)I", 0) + block(FIXTURE, "abs(I)I", 9));
+        RecorderFake collector = new RecorderFake();
+        LineCoverageReader.read(file, BlockLineMapperTest::classBytes, collector::resolve, collector);
+
+        BitSet expected = new BitSet();
+        expected.set(lineOf(FIXTURE, "abs(I)I", 0));
+        expected.set(lineOf(FIXTURE, "abs(I)I", 2));
+        expected.set(lineOf(inner, "twice(I)I", 0));
+        assertEquals(Map.of(FIXTURE_PATH, expected), collector.getCoverage());
+        assertEquals(List.of(FIXTURE_PATH), collector.getResolved());
+    }
+
+    @Test
+    void classesAndFilesNotFoundAreSkipped() throws Exception {
+        File file = write(block("a.b.Gone", "m()V", 0) + block(FIXTURE, "abs(I)I", 1));
+        RecorderFake collector = new RecorderFake();
+        LineCoverageReader.read(file, BlockLineMapperTest::classBytes, path -> null, collector);
+        assertTrue(collector.getCoverage().isEmpty());
+    }
+
+    @Test
+    void malformedFile() throws IOException {
+        File file = write("<block classname='a.B' method='m()V' number='x'/>");
+        RecorderFake collector = new RecorderFake();
+        assertThrows(InvalidMutatedFileException.class, () ->
+                LineCoverageReader.read(file, BlockLineMapperTest::classBytes, collector::resolve, collector));
+    }
+}
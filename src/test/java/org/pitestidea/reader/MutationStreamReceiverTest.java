@@ -0,0 +1,190 @@
+package org.pitestidea.reader;
+
+import com.intellij.openapi.vfs.VirtualFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.pitestidea.model.MutationFingerprint;
+import org.pitestidea.model.MutationImpact;
+import org.pitestidea.reader.fakes.RootFake;
+import org.pitestidea.toolwindow.DisplayChoices;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MutationStreamReceiverTest {
+    private final ExecutorService reader = Executors.newSingleThreadExecutor();
+    private final List<String> recorded = new ArrayList<>();
+    private final List<Set<VirtualFile>> batches = new ArrayList<>();
+
+    private final IMutationsRecorder recorder = new IMutationsRecorder() {
+        @Override
+        public void record(String pkg, VirtualFile file, String methodName, MutationImpact impact, int lineNumber, String description) {
+            recorded.add(pkg + '|' + methodName + '|' + impact + '|' + lineNumber + '|' + description);
+        }
+
+        @Override
+        public void postProcess() {
+        }
+
+        @Override
+        public void sort(DisplayChoices choices) {
+        }
+    };
+
+    @AfterEach
+    void afterEach() {
+        reader.shutdownNow();
+    }
+
+    private MutationStreamReceiver start(Function<String, VirtualFile> resolver) throws IOException {
+        MutationStreamReceiver receiver = new MutationStreamReceiver(resolver, recorder, Runnable::run, batches::add);
+        receiver.start(reader, null);
+        return receiver;
+    }
+
+    private static void send(MutationStreamReceiver receiver, String... lines) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), receiver.getPort());
+             Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)) {
+            for (String line : lines) {
+                out.write(line);
+                out.write('\n');
+            }
+        }
+    }
+
+    @Test
+    void parseUnescapesFields() {
+        MutationStreamReceiver.StreamedMutation m = MutationStreamReceiver.parse(
+                "M\tSURVIVED\ta.b.C$Inner\tC.java\tfoo\t12\treplaced \\\\ with \\t and\\nmore\ta.T.one|a.T.two\ta.T.three");
+        assertNotNull(m);
+        assertEquals("a.b", m.pkg());
+        assertEquals("a/b/C.java", m.sourcePath());
+        assertEquals("foo", m.methodName());
+        assertEquals(MutationImpact.SURVIVED, m.impact());
+        assertEquals(12, m.lineNumber());
+        assertEquals("replaced \\ with \t and\nmore", m.description());
+        assertEquals(List.of("a.T.one", "a.T.two"), m.killingTests());
+        assertEquals(List.of("a.T.three"), m.succeedingTests());
+    }
+
+    @Test
+    void parseDefaultPackage() {
+        MutationStreamReceiver.StreamedMutation m = MutationStreamReceiver.parse("M\tKILLED\tC\tC.java\tfoo\t1\td\t\t");
+        assertNotNull(m);
+        assertEquals("", m.pkg());
+        assertEquals("C.java", m.sourcePath());
+        assertTrue(m.killingTests().isEmpty());
+    }
+
+    @Test
+    void parseFingerprintsMutationsFromCurrentListener() {
+        String fields = "M\tKILLED\ta.C\tC.java\tfoo\t%d\td\t\t\torg.pitest.M\t%s\t1\t7\t(I)V";
+        MutationStreamReceiver.StreamedMutation m = MutationStreamReceiver.parse(String.format(fields, 1, "5,6"));
+        assertNotNull(m);
+        assertEquals(MutationFingerprint.of("a.C", "foo", "(I)V", "org.pitest.M", "5,6", "1", "d"), m.fingerprint());
+        assertEquals(7, m.testsRun());
+        assertEquals(m.fingerprint(), MutationStreamReceiver.parse(String.format(fields, 9, "5,6")).fingerprint());
+        assertNotEquals(m.fingerprint(), MutationStreamReceiver.parse(String.format(fields, 1, "5")).fingerprint());
+        assertEquals(MutationFingerprint.UNKNOWN, MutationStreamReceiver.parse("M\tKILLED\tC\tC.java\tfoo\t1\td\t\t").fingerprint());
+    }
+
+    @Test
+    void parseFingerprintsMutationsFromListenerWithoutDescriptors() {
+        MutationStreamReceiver.StreamedMutation m = MutationStreamReceiver.parse("M\tKILLED\ta.C\tC.java\tfoo\t1\td\t\t\torg.pitest.M\t5\t1\t7");
+        assertNotNull(m);
+        assertEquals(MutationFingerprint.of("a.C", "foo", null, "org.pitest.M", "5", "1", "d"), m.fingerprint());
+        assertEquals(7, m.testsRun());
+    }
+
+    @Test
+    void parseRejectsMalformed() {
+        assertNull(MutationStreamReceiver.parse("M\tKILLED\ta.C\tC.java\tfoo\t1"));
+        assertNull(MutationStreamReceiver.parse("X\tKILLED\ta.C\tC.java\tfoo\t1\td\t\t"));
+        assertNull(MutationStreamReceiver.parse("M\tKILLED\ta.C\tC.java\tfoo\tone\td\t\t"));
+        assertNull(MutationStreamReceiver.parse("M\tNON_VIABLE\ta.C\tC.java\tfoo\t1\td\t\t"));
+    }
+
+    @Test
+    void completeStream() throws IOException {
+        MutationStreamReceiver receiver = start(path -> RootFake.javaSrc);
+        send(receiver,
+                "M\tKILLED\ta.C\tC.java\tfoo\t1\tfirst\t\t",
+                "M\tSURVIVED\ta.C\tC.java\tbar\t2\tsecond\t\t",
+                "E");
+        assertTrue(receiver.finish());
+        assertEquals(List.of("a|foo|KILLED|1|first", "a|bar|SURVIVED|2|second"), recorded);
+        assertEquals(List.of(Set.of(RootFake.javaSrc)), batches);
+    }
+
+    @Test
+    void missingEndIsIncomplete() throws IOException {
+        MutationStreamReceiver receiver = start(path -> RootFake.javaSrc);
+        send(receiver, "M\tKILLED\ta.C\tC.java\tfoo\t1\tfirst\t\t");
+        assertFalse(receiver.finish());
+        assertEquals(1, recorded.size());
+    }
+
+    @Test
+    void unresolvedFileIsIncomplete() throws IOException {
+        MutationStreamReceiver receiver = start(path -> path.equals("a/C.java") ? RootFake.javaSrc : null);
+        send(receiver,
+                "M\tKILLED\ta.C\tC.java\tfoo\t1\tfirst\t\t",
+                "M\tKILLED\ta.D\tD.java\tfoo\t1\tsecond\t\t",
+                "E");
+        assertFalse(receiver.finish());
+        assertEquals(List.of("a|foo|KILLED|1|first"), recorded);
+    }
+
+    @Test
+    void malformedLineIsIncomplete() throws IOException {
+        MutationStreamReceiver receiver = start(path -> RootFake.javaSrc);
+        send(receiver, "M\tKILLED\ta.C", "E");
+        assertFalse(receiver.finish());
+        assertTrue(recorded.isEmpty());
+    }
+
+    @Test
+    void finishWaitsForBatchBeingFlushed() throws Exception {
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(task -> new Thread(task, "timer"));
+        ExecutorService ui = Executors.newSingleThreadExecutor();
+        CountDownLatch flushing = new CountDownLatch(1);
+        // Holds up the timer's flush between taking its batch and queueing it, while finish runs
+        Executor slowUi = task -> {
+            if (Thread.currentThread().getName().equals("timer")) {
+                flushing.countDown();
+                try {
+                    Thread.sleep(500);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            ui.execute(task);
+        };
+        try {
+            MutationStreamReceiver receiver = new MutationStreamReceiver(path -> RootFake.javaSrc, recorder, slowUi, batches::add);
+            receiver.start(reader, timer);
+            send(receiver, "M\tKILLED\ta.C\tC.java\tfoo\t1\tfirst\t\t", "E");
+            flushing.await();
+            assertTrue(receiver.finish());
+            assertEquals(List.of("a|foo|KILLED|1|first"), recorded);
+        } finally {
+            timer.shutdownNow();
+            ui.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package org.pitestidea.reader;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.pitestidea.reader.fakes.RecorderFake;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MutationsCsvReaderTest {
+    private static final String MUTATOR = "org.pitest.mutationtest.engine.gregor.mutators.";
+    private static final String REPORT = String.join("\n",
+            "C.java,a.b.C," + MUTATOR + "NegateConditionalsMutator,m,12,KILLED,a.T.[engine:junit-jupiter]/[method:p(int, int)]",
+            "C.java,a.b.C$Inner," + MUTATOR + "returns.NullReturnValsMutator,n,20,SURVIVED,none",
+            "",
+            "D.java,D,CustomMutator,m,0,NO_COVERAGE,");
+
+    @TempDir
+    File dir;
+    private File csv;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        csv = new File(dir, "mutations.csv");
+        Files.writeString(csv.toPath(), REPORT);
+    }
+
+    @Test
+    void readsEveryField() throws Exception {
+        RecorderFake collector = new RecorderFake().expectingTests();
+        MutationsCsvReader.read(csv, collector::resolve, collector);
+
+        assertEquals(List.of(
+                "a.b|a/b/C.java|m|KILLED|12|NegateConditionalsMutator|[a.T.[engine:junit-jupiter]/[method:p(int, int)]]|[]",
+                "a.b|a/b/C.java|n|SURVIVED|20|NullReturnValsMutator|[]|[]",
+                "|D.java|m|NO_COVERAGE|0|CustomMutator|[]|[]"), collector.getRecorded());
+        assertEquals(List.of("a/b/C.java", "D.java"), collector.getResolved());
+        assertTrue(collector.isPostProcessed());
+    }
+
+    @Test
+    void missingFileIsReportedAfterReading() {
+        RecorderFake collector = new RecorderFake().expectingTests();
+        InvalidMutatedFileException e = assertThrows(InvalidMutatedFileException.class, () ->
+                MutationsCsvReader.read(csv, path -> path.equals("D.java") ? null : collector.resolve(path), collector));
+        assertEquals("Number of bad files: 1", e.getMessage());
+        assertEquals(2, collector.getRecorded().size());
+    }
+
+    @Test
+    void malformedLine() throws IOException {
+        Files.writeString(csv.toPath(), "C.java,a.b.C,M,m,12\n");
+        InvalidMutatedFileException e = assertThrows(InvalidMutatedFileException.class, () -> {
+            RecorderFake collector = new RecorderFake().expectingTests();
+            MutationsCsvReader.read(csv, collector::resolve, collector);
+        });
+        assertTrue(e.getMessage().contains("line 1"));
+    }
+
+    @Test
+    void unknownStatus() throws IOException {
+        Files.writeString(csv.toPath(), "C.java,a.b.C,M,m,12,EXPLODED,none\n");
+        RecorderFake collector = new RecorderFake().expectingTests();
+        assertThrows(InvalidMutatedFileException.class, () -> MutationsCsvReader.read(csv, collector::resolve, collector));
+    }
+
+    @Test
+    void detectPrefersXml() throws IOException {
+        assertSame(ReportReaders.CSV, ReportReaders.detect(dir));
+        Files.writeString(new File(dir, "mutations.xml").toPath(), "<mutations/>");
+        assertSame(ReportReaders.XML, ReportReaders.detect(dir));
+        assertTrue(csv.delete());
+        assertSame(ReportReaders.XML, ReportReaders.detect(dir));
+    }
+
+    @Test
+    void detectNothing() throws IOException {
+        assertTrue(csv.delete());
+        assertNull(ReportReaders.detect(dir));
+    }
+}
@@ -0,0 +1,297 @@
+package org.pitestidea.reader;
+
+import com.intellij.openapi.vfs.VirtualFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.pitestidea.model.MutationImpact;
+import org.pitestidea.model.PitExecutionRecorder;
+import org.pitestidea.reader.fakes.RootFake;
+import org.pitestidea.toolwindow.DisplayChoices;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the streaming {@link MutationsFileReader} against the DOM-based reading it replaced, and against
+ * reading a {@link MutationsSnapshot} or the same results as a CSV report, or in parallel chunks with
+ * {@link ChunkedMutationsReader}, using a generated report. Also measures
+ * how much heap the recorder's string pool, and leaving descriptions in the snapshot, save on the loaded results. Disabled by default since it is slow and
+ * memory hungry. Run with:
+ * <pre>
+ *     ./gradlew test --tests '*MutationsFileReaderBenchmarkTest' -Dpitidea.benchmark=true
+ * </pre>
+ * The report size defaults to 150,000 mutations and can be changed with {@code -Dpitidea.benchmark.mutations=N}.
+ */
+@EnabledIfSystemProperty(named = "pitidea.benchmark", matches = "true")
+class MutationsFileReaderBenchmarkTest {
+    private static final int MUTATIONS = Integer.getInteger("pitidea.benchmark.mutations", 150_000);
+    private static final int MUTATIONS_PER_CLASS = 100;
+    private static final int ROUNDS = 3;
+    private static final MutationImpact[] IMPACTS = MutationImpact.values();
+
+    private interface Reader {
+        void read(File file, Function<String, VirtualFile> resolver, IMutationsRecorder recorder) throws Exception;
+    }
+
+    /**
+     * Counts mutations and, at the halfway point, forces a GC to measure how much heap the reader is holding on to.
+     */
+    private static class Probe implements IMutationsRecorder {
+        private final boolean measureHeap;
+        private final long baseline;
+        private int count = 0;
+        private long liveAtMidpoint = 0;
+
+        Probe(boolean measureHeap) {
+            this.measureHeap = measureHeap;
+            this.baseline = measureHeap ? usedHeap() : 0;
+        }
+
+        @Override
+        public void record(String pkg, VirtualFile file, String methodName, MutationImpact impact, int lineNumber, String description) {
+            if (++count == MUTATIONS / 2 && measureHeap) {
+                liveAtMidpoint = usedHeap() - baseline;
+            }
+        }
+
+        @Override
+        public void postProcess() {
+        }
+
+        @Override
+        public void sort(DisplayChoices choices) {
+        }
+    }
+
+    private record Result(String name, long bestMillis, long liveBytes, long allocatedBytes) {
+        @Override
+        public String toString() {
+            return String.format("%-6s best %,6d ms   live at midpoint %,8d KB   allocated %,10d KB",
+                    name, bestMillis, liveBytes / 1024, allocatedBytes / 1024);
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long allocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean) {
+            return bean.getCurrentThreadAllocatedBytes();
+        }
+        return 0;
+    }
+
+    private static File generateReport() throws IOException {
+        File file = File.createTempFile("mutations-benchmark-", ".xml");
+        file.deleteOnExit();
+        try (BufferedWriter w = Files.newBufferedWriter(file.toPath())) {
+            w.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<mutations partial=\"true\">\n");
+            for (int i = 0; i < MUTATIONS; i++) {
+                int cls = i / MUTATIONS_PER_CLASS;
+                MutationImpact impact = IMPACTS[i % IMPACTS.length];
+                w.write("<mutation detected='" + (impact == MutationImpact.KILLED) + "' status='" + impact
+                        + "' numberOfTestsRun='3'><sourceFile>Class" + cls + ".java</sourceFile><mutatedClass>org.bench.p"
+                        + (cls % 50) + ".Class" + cls + "</mutatedClass><mutatedMethod>method" + (i % 7)
+                        + "</mutatedMethod><methodDescription>(Ljava/lang/String;I)Z</methodDescription><lineNumber>"
+                        + (i % MUTATIONS_PER_CLASS + 10)
+                        + "</lineNumber><mutator>org.pitest.mutationtest.engine.gregor.mutators.returns.BooleanFalseReturnValsMutator</mutator><indexes><index>"
+                        + i % 13 + "</index></indexes><blocks><block>" + i % 5
+                        + "</block></blocks><killingTest>org.bench.ClassTest.[engine:junit-jupiter]/[class:org.bench.ClassTest]/[method:test()]</killingTest><description>replaced boolean return with false for org/bench/Class"
+                        + cls + "::method" + (i % 7) + "</description></mutation>\n");
+            }
+            w.write("</mutations>\n");
+        }
+        return file;
+    }
+
+    private static File generateCsvReport() throws IOException {
+        File file = File.createTempFile("mutations-benchmark-", ".csv");
+        file.deleteOnExit();
+        try (BufferedWriter w = Files.newBufferedWriter(file.toPath())) {
+            for (int i = 0; i < MUTATIONS; i++) {
+                int cls = i / MUTATIONS_PER_CLASS;
+                MutationImpact impact = IMPACTS[i % IMPACTS.length];
+                w.write("Class" + cls + ".java,org.bench.p" + (cls % 50) + ".Class" + cls
+                        + ",org.pitest.mutationtest.engine.gregor.mutators.returns.BooleanFalseReturnValsMutator,method" + (i % 7)
+                        + "," + (i % MUTATIONS_PER_CLASS + 10) + "," + impact
+                        + ",org.bench.ClassTest.[engine:junit-jupiter]/[class:org.bench.ClassTest]/[method:test()]\n");
+            }
+        }
+        return file;
+    }
+
+    /**
+     * The DOM-based reading that {@link MutationsFileReader} used before switching to streaming.
+     */
+    private static void readWithDom(File file, Function<String, VirtualFile> resolver, IMutationsRecorder recorder) throws Exception {
+        Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(file);
+        NodeList nodeList = document.getElementsByTagName("mutation");
+        for (int i = 0; i < nodeList.getLength(); i++) {
+            Element node = (Element) nodeList.item(i);
+            int lineNumber = Integer.parseInt(node.getElementsByTagName("lineNumber").item(0).getTextContent());
+            String description = node.getElementsByTagName("description").item(0).getTextContent();
+            MutationImpact impact = MutationImpact.valueOf(node.getAttribute("status"));
+            String sourceFile = node.getElementsByTagName("sourceFile").item(0).getTextContent();
+            String filePath = node.getElementsByTagName("mutatedClass").item(0).getTextContent();
+            String method = node.getElementsByTagName("mutatedMethod").item(0).getTextContent();
+            int ix = filePath.lastIndexOf('.');
+            String pkg = filePath.substring(0, ix);
+            filePath = pkg.replace('.', '/') + '/' + sourceFile;
+            recorder.record(pkg, resolver.apply(filePath), method, impact, lineNumber, description);
+        }
+        recorder.postProcess();
+    }
+
+    private static Result measure(String name, File report, Reader reader) throws Exception {
+        Function<String, VirtualFile> resolver = path -> RootFake.javaSrc;
+        reader.read(report, resolver, new Probe(false)); // Warmup
+
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < ROUNDS; i++) {
+            Probe timing = new Probe(false);
+            long start = System.nanoTime();
+            reader.read(report, resolver, timing);
+            best = Math.min(best, (System.nanoTime() - start) / 1_000_000);
+            assertEquals(MUTATIONS, timing.count);
+        }
+
+        long allocatedBefore = allocatedBytes();
+        reader.read(report, resolver, new Probe(false));
+        long allocated = allocatedBytes() - allocatedBefore;
+
+        Probe probe = new Probe(true);
+        reader.read(report, resolver, probe);
+        return new Result(name, best, probe.liveAtMidpoint, allocated);
+    }
+
+    @Test
+    void streamingVersusDom() throws Exception {
+        File report = generateReport();
+        System.out.printf("Report of %,d mutations, %,d KB%n", MUTATIONS, report.length() / 1024);
+
+        Result dom = measure("DOM", report, MutationsFileReaderBenchmarkTest::readWithDom);
+        Result stream = measure("StAX", report, MutationsFileReader::read);
+        System.out.println(dom);
+        System.out.println(stream);
+
+        assertTrue(stream.liveBytes < dom.liveBytes, "Streaming should hold less heap than DOM");
+    }
+
+    @Test
+    void snapshotVersusXml() throws Exception {
+        File report = generateReport();
+        File snapshot = new File(report.getPath() + ".snapshot");
+        snapshot.deleteOnExit();
+        MutationsSnapshot.read(ReportReaders.XML, report, snapshot, path -> RootFake.javaSrc, new Probe(false));
+        System.out.printf("Report of %,d mutations, %,d KB, snapshot %,d KB%n", MUTATIONS, report.length() / 1024, snapshot.length() / 1024);
+
+        Result xml = measure("XML", report, MutationsFileReader::read);
+        Result binary = measure("Binary", report, (file, resolver, recorder) -> MutationsSnapshot.read(ReportReaders.XML, file, snapshot, resolver, recorder));
+        System.out.println(xml);
+        System.out.println(binary);
+
+        assertTrue(binary.bestMillis < xml.bestMillis, "Snapshot should be faster to read than XML");
+    }
+
+    @Test
+    void csvVersusXml() throws Exception {
+        File xmlReport = generateReport();
+        File csvReport = generateCsvReport();
+        System.out.printf("Report of %,d mutations, XML %,d KB, CSV %,d KB%n", MUTATIONS, xmlReport.length() / 1024, csvReport.length() / 1024);
+
+        Result xml = measure("XML", xmlReport, MutationsFileReader::read);
+        Result csv = measure("CSV", csvReport, MutationsCsvReader::read);
+        System.out.println(xml);
+        System.out.println(csv);
+
+        assertTrue(csv.bestMillis < xml.bestMillis, "CSV should be faster to read than XML");
+    }
+
+    @Test
+    void chunkedVersusSequential() throws Exception {
+        File report = generateReport();
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        System.out.printf("Report of %,d mutations, %,d KB, %d threads%n", MUTATIONS, report.length() / 1024, threads);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            Result sequential = measure("Serial", report, MutationsFileReader::readFull);
+            Result chunked = measure("Chunks", report, (file, resolver, recorder) -> assertTrue(
+                    ChunkedMutationsReader.read(file, resolver, recorder, executor, threads, 4 << 20)));
+            System.out.println(sequential);
+            System.out.println(chunked);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Heap held by a recorder once a report has been read into it.
+     */
+    private static long retainedBy(File report, PitExecutionRecorder recorder) throws Exception {
+        return retainedBy(report, recorder, MutationsFileReader::read);
+    }
+
+    private static long retainedBy(File report, PitExecutionRecorder recorder, Reader reader) throws Exception {
+        long baseline = usedHeap();
+        reader.read(report, path -> RootFake.javaSrc, recorder);
+        long retained = usedHeap() - baseline;
+        Reference.reachabilityFence(recorder);
+        return retained;
+    }
+
+    @Test
+    void pooledVersusUnpooledStrings() throws Exception {
+        File report = generateReport();
+        System.out.printf("Report of %,d mutations, %,d KB%n", MUTATIONS, report.length() / 1024);
+
+        long pooled = retainedBy(report, new PitExecutionRecorder(null, null));
+        long unpooled = retainedBy(report, new PitExecutionRecorder(null, null) {
+            @Override
+            public String intern(String s) {
+                return s;
+            }
+        });
+        System.out.printf("Unpooled retained %,8d KB%n", unpooled / 1024);
+        System.out.printf("Pooled   retained %,8d KB   saved %,8d KB%n", pooled / 1024, (unpooled - pooled) / 1024);
+
+        assertTrue(pooled < unpooled, "Pooled strings should take less heap");
+    }
+
+    @Test
+    void lazyVersusDecodedDescriptions() throws Exception {
+        File report = generateReport();
+        File snapshot = new File(report.getPath() + ".snapshot");
+        snapshot.deleteOnExit();
+        MutationsSnapshot.read(ReportReaders.XML, report, snapshot, path -> RootFake.javaSrc, new Probe(false));
+        System.out.printf("Report of %,d mutations, %,d KB, snapshot %,d KB%n", MUTATIONS, report.length() / 1024, snapshot.length() / 1024);
+
+        long decoded = retainedBy(report, new PitExecutionRecorder(null, null),
+                (file, resolver, recorder) -> MutationsSnapshot.read(ReportReaders.XML, file, snapshot, resolver, recorder, false));
+        long lazy = retainedBy(report, new PitExecutionRecorder(null, null),
+                (file, resolver, recorder) -> MutationsSnapshot.read(ReportReaders.XML, file, snapshot, resolver, recorder, true));
+        System.out.printf("Decoded retained %,8d KB%n", decoded / 1024);
+        System.out.printf("Lazy    retained %,8d KB   saved %,8d KB%n", lazy / 1024, (decoded - lazy) / 1024);
+
+        assertTrue(lazy < decoded, "Lazy descriptions should take less heap");
+    }
+}
@@ -9,12 +9,16 @@ import org.mockito.MockedStatic;
 import org.mockito.Mockito;
 import org.mockito.stubbing.Answer;
 import org.pitestidea.model.MutationImpact;
+import org.pitestidea.reader.fakes.RecorderFake;
+import org.pitestidea.reader.fakes.RootFake;
 import org.pitestidea.toolwindow.DisplayChoices;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -142,4 +146,67 @@ class MutationsFileReaderTest {
         xr.line(0, MutationImpact.TIMED_OUT);
         xr.verify();
     }
-}
\ No newline at end of file
+
+    private static File writeReport(String body) throws IOException {
+        File file = File.createTempFile("temp-", ".xml");
+        file.deleteOnExit();
+        Files.writeString(file.toPath(), "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<mutations partial=\"true\">\n" + body + "</mutations>\n");
+        return file;
+    }
+
+    @Test
+    void readFullPitFormat() throws IOException, InvalidMutatedFileException {
+        File report = writeReport("""
+                <mutation detected='true' status='KILLED' numberOfTestsRun='2'><sourceFile>C.java</sourceFile><mutatedClass>a.b.C</mutatedClass><mutatedMethod>&lt;init&gt;</mutatedMethod><methodDescription>()V</methodDescription><lineNumber>12</lineNumber><mutator>org.pitest.mutationtest.engine.gregor.mutators.VoidMethodCallMutator</mutator><indexes><index>5</index></indexes><blocks><block>0</block></blocks><killingTest>a.b.CTest.[engine:junit-jupiter]</killingTest><description>removed call to a/b/C::m &amp; more</description></mutation>
+                <mutation detected='false' status='SURVIVED' numberOfTestsRun='1'><sourceFile>C.java</sourceFile><mutatedClass>a.b.C$Inner</mutatedClass><mutatedMethod>m</mutatedMethod><methodDescription>()I</methodDescription><lineNumber>
+                20
+                </lineNumber><mutator>M</mutator><indexes><index>7</index></indexes><blocks><block>1</block></blocks><killingTest/><description><![CDATA[replaced int return with 0]]></description></mutation>
+                """);
+        VirtualFile vf = RootFake.javaSrc;
+        Set<String> requested = new HashSet<>();
+        RecorderFake collector = new RecorderFake();
+        MutationsFileReader.read(report, path -> {
+            requested.add(path);
+            return vf;
+        }, collector);
+
+        assertTrue(collector.isPostProcessed());
+        assertEquals(Set.of("a/b/C.java"), requested);
+        assertEquals(List.of(
+                "a.b|<init>|KILLED|12|removed call to a/b/C::m & more",
+                "a.b|m|SURVIVED|20|replaced int return with 0"), collector.getRecorded());
+    }
+
+    @Test
+    void incompleteMutationIsInvalid() throws IOException {
+        File report = writeReport("<mutation status='KILLED'><sourceFile>C.java</sourceFile><mutatedClass>a.C</mutatedClass><lineNumber>1</lineNumber></mutation>\n");
+        assertThrows(InvalidMutatedFileException.class, () -> MutationsFileReader.read(report, path -> null, new RecorderFake()));
+    }
+
+    @Test
+    void unknownStatusIsInvalid() throws IOException {
+        File report = writeReport("<mutation status='BOGUS'><sourceFile>C.java</sourceFile><mutatedClass>a.C</mutatedClass><mutatedMethod>m</mutatedMethod><lineNumber>1</lineNumber><description>d</description></mutation>\n");
+        assertThrows(InvalidMutatedFileException.class, () -> MutationsFileReader.read(report, path -> null, new RecorderFake()));
+    }
+
+    @Test
+    void unresolvedFilesAreSkippedThenReported() throws IOException {
+        File report = writeReport("""
+                <mutation status='KILLED'><sourceFile>Gone.java</sourceFile><mutatedClass>a.Gone</mutatedClass><mutatedMethod>m</mutatedMethod><lineNumber>1</lineNumber><description>d1</description></mutation>
+                <mutation status='KILLED'><sourceFile>Here.java</sourceFile><mutatedClass>a.Here</mutatedClass><mutatedMethod>m</mutatedMethod><lineNumber>2</lineNumber><description>d2</description></mutation>
+                <mutation status='SURVIVED'><sourceFile>Gone.java</sourceFile><mutatedClass>a.Gone</mutatedClass><mutatedMethod>m</mutatedMethod><lineNumber>3</lineNumber><description>d3</description></mutation>
+                """);
+        VirtualFile vf = RootFake.javaSrc;
+        List<String> requested = new ArrayList<>();
+        RecorderFake collector = new RecorderFake();
+        InvalidMutatedFileException e = assertThrows(InvalidMutatedFileException.class, () -> MutationsFileReader.read(report, path -> {
+            requested.add(path);
+            return path.startsWith("a/Here") ? vf : null;
+        }, collector));
+
+        assertEquals("Number of bad files: 1", e.getMessage());
+        assertTrue(collector.isPostProcessed());
+        assertEquals(List.of("a|m|KILLED|2|d2"), collector.getRecorded());
+        assertEquals(List.of("a/Gone.java", "a/Here.java"), requested);
+    }
+}
@@ -0,0 +1,289 @@
+package org.pitestidea.reader;
+
+import com.intellij.openapi.vfs.VirtualFile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.pitestidea.model.Mutation;
+import org.pitestidea.model.MutationImpact;
+import org.pitestidea.reader.fakes.RecorderFake;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MutationsSnapshotTest {
+    private static final String REPORT = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <mutations partial="true">
+            <mutation status='KILLED'><sourceFile>C.java</sourceFile><mutatedClass>a.b.C</mutatedClass><mutatedMethod>m</mutatedMethod><lineNumber>12</lineNumber><killingTest>a.T.one</killingTest><killingTests>a.T.one|a.T.two</killingTests><succeedingTests>a.T.three</succeedingTests><description>n\u00e9gated conditional</description></mutation>
+            <mutation status='SURVIVED'><sourceFile>C.java</sourceFile><mutatedClass>a.b.C$Inner</mutatedClass><mutatedMethod>n</mutatedMethod><lineNumber>20</lineNumber><killingTest></killingTest><description>negated conditional</description></mutation>
+            <mutation status='RUN_ERROR'><sourceFile>D.java</sourceFile><mutatedClass>D</mutatedClass><mutatedMethod>m</mutatedMethod><lineNumber>0</lineNumber><killingTest>a.T.two</killingTest><description>removed call</description></mutation>
+            </mutations>
+            """;
+    private static final List<String> EXPECTED = List.of(
+            "a.b|a/b/C.java|m|KILLED|12|n\u00e9gated conditional",
+            "a.b|a/b/C.java|n|SURVIVED|20|negated conditional",
+            "|D.java|m|RUN_ERROR|0|removed call");
+    private static final List<String> EXPECTED_TESTS = List.of(
+            "[a.T.one, a.T.two] [a.T.three]",
+            "[] []",
+            "[a.T.two] []");
+
+    @TempDir
+    File dir;
+    private File xml;
+    private File snapshot;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        xml = new File(dir, "mutations.xml");
+        snapshot = new File(dir, "mutations.snapshot");
+        Files.writeString(xml.toPath(), REPORT);
+    }
+
+    private List<String> read() throws InvalidMutatedFileException {
+        RecorderFake collector = new RecorderFake();
+        MutationsSnapshot.read(ReportReaders.XML, xml, snapshot, collector::resolve, collector);
+        assertTrue(collector.isPostProcessed());
+        return collector.getRecorded();
+    }
+
+    /**
+     * Replaces the XML report with content that can't be parsed, but which looks unchanged to the snapshot.
+     */
+    private void spoilReportKeepingFingerprint() throws IOException {
+        long lastModified = xml.lastModified();
+        Files.writeString(xml.toPath(), "x".repeat((int) xml.length()));
+        assertTrue(xml.setLastModified(lastModified));
+    }
+
+    @Test
+    void firstReadWritesSnapshotForLaterReads() throws Exception {
+        assertFalse(snapshot.exists());
+        assertEquals(EXPECTED, read());
+        assertTrue(snapshot.exists());
+
+        spoilReportKeepingFingerprint();
+        assertEquals(EXPECTED, read());
+    }
+
+    @Test
+    void testsAreKeptInSnapshot() throws Exception {
+        RecorderFake fromXml = new RecorderFake();
+        MutationsSnapshot.read(ReportReaders.XML, xml, snapshot, fromXml::resolve, fromXml);
+        assertEquals(EXPECTED_TESTS, fromXml.getTests());
+
+        spoilReportKeepingFingerprint();
+        RecorderFake fromSnapshot = new RecorderFake();
+        MutationsSnapshot.read(ReportReaders.XML, xml, snapshot, fromSnapshot::resolve, fromSnapshot);
+        assertEquals(EXPECTED_TESTS, fromSnapshot.getTests());
+    }
+
+    @Test
+    void keptSnapshotIsReadAfterReportIsReplaced() throws Exception {
+        read();
+        File kept = new File(dir, "previous.snapshot");
+        MutationsSnapshot.keep(snapshot, kept);
+        assertFalse(snapshot.exists());
+        Files.writeString(xml.toPath(), REPORT.replace("<lineNumber>12<", "<lineNumber>13<"));
+        assertEquals("a.b|a/b/C.java|m|KILLED|13|n\u00e9gated conditional", read().get(0));
+
+        RecorderFake collector = new RecorderFake();
+        assertTrue(MutationsSnapshot.readKept(kept, collector::resolve, collector));
+        assertEquals(EXPECTED, collector.getRecorded());
+        assertTrue(collector.isPostProcessed());
+    }
+
+    @Test
+    void nothingToKeepDropsWhatWasKept() throws Exception {
+        read();
+        File kept = new File(dir, "previous.snapshot");
+        MutationsSnapshot.keep(snapshot, kept);
+        MutationsSnapshot.keep(snapshot, kept);
+
+        assertFalse(kept.exists());
+        RecorderFake collector = new RecorderFake();
+        assertFalse(MutationsSnapshot.readKept(kept, collector::resolve, collector));
+        assertTrue(collector.getRecorded().isEmpty());
+    }
+
+    @Test
+    void changedReportIsReadAgain() throws Exception {
+        read();
+        Files.writeString(xml.toPath(), REPORT.replace("<lineNumber>12<", "<lineNumber>13<"));
+        assertTrue(xml.setLastModified(xml.lastModified() + 2000));
+
+        assertEquals("a.b|a/b/C.java|m|KILLED|13|n\u00e9gated conditional", read().get(0));
+        spoilReportKeepingFingerprint();
+        assertEquals("a.b|a/b/C.java|m|KILLED|13|n\u00e9gated conditional", read().get(0));
+    }
+
+    @Test
+    void corruptSnapshotIsIgnored() throws Exception {
+        read();
+        byte[] bytes = Files.readAllBytes(snapshot.toPath());
+        Files.write(snapshot.toPath(), Arrays.copyOf(bytes, bytes.length - 1));
+        assertEquals(EXPECTED, read());
+
+        Files.writeString(snapshot.toPath(), "garbage");
+        assertEquals(EXPECTED, read());
+    }
+
+    @Test
+    void snapshotWithOverflowingCountIsIgnored() throws Exception {
+        read();
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(snapshot.toPath()));
+        // Skip the header and string table to reach the number of mutations
+        bytes.position(2 * Integer.BYTES + 3 * Long.BYTES);
+        int strings = bytes.getInt();
+        for (int i = 0; i < strings; i++) {
+            int length = bytes.getInt();
+            bytes.position(bytes.position() + length);
+        }
+        // So many that the size of the columns wraps around to a few bytes if computed as an int
+        bytes.putInt(bytes.position(), 1_152_308_299);
+        Files.write(snapshot.toPath(), bytes.array());
+        spoilReportKeepingFingerprint();
+
+        RecorderFake collector = new RecorderFake();
+        assertThrows(InvalidMutatedFileException.class, () ->
+                MutationsSnapshot.read(ReportReaders.XML, xml, snapshot, collector::resolve, collector));
+        assertTrue(collector.getRecorded().isEmpty());
+    }
+
+    @Test
+    void unresolvedFilesFromSnapshotAreReported() throws Exception {
+        read();
+        spoilReportKeepingFingerprint();
+        RecorderFake collector = new RecorderFake();
+        InvalidMutatedFileException e = assertThrows(InvalidMutatedFileException.class, () ->
+                MutationsSnapshot.read(ReportReaders.XML, xml, snapshot, path -> path.equals("D.java") ? null : collector.resolve(path), collector));
+        assertEquals("Number of bad files: 1", e.getMessage());
+        assertEquals(EXPECTED.subList(0, 2), collector.getRecorded());
+    }
+
+    @Test
+    void noSnapshotWhenReportIsInvalid() {
+        assertThrows(InvalidMutatedFileException.class, () ->
+                MutationsSnapshot.read(ReportReaders.XML, xml, snapshot, path -> null, new RecorderFake()));
+        assertFalse(snapshot.exists());
+    }
+
+    @Test
+    void snapshotIsUsedAfterReportIsArchived() throws Exception {
+        read();
+        long lastModified = xml.lastModified();
+        ReportArchive.pack(dir, Set.of(snapshot.getName()));
+        MutationsSnapshot.restamp(snapshot, ReportArchive.length(xml), lastModified, ReportArchive.lastModified(xml));
+
+        // Reading the archived report would fail, so this must come from the snapshot
+        File archive = new File(dir, ReportArchive.ARCHIVE_NAME);
+        assertEquals(EXPECTED, read());
+        assertTrue(archive.delete());
+        assertThrows(InvalidMutatedFileException.class, this::read);
+    }
+
+    @Test
+    void archivedReportIsReadWithoutSnapshot() throws Exception {
+        ReportArchive.pack(dir, Set.of());
+        assertEquals(EXPECTED, read());
+        assertTrue(snapshot.exists());
+    }
+
+    /**
+     * Keeps the fingerprint of each mutation.
+     */
+    private static class FingerprintCollector extends RecorderFake {
+        private final List<Long> fingerprints = new ArrayList<>();
+
+        @Override
+        public void record(String pkg, VirtualFile file, String methodName, MutationImpact impact, int lineNumber, String description,
+                           List<String> killingTests, List<String> succeedingTests, long fingerprint, int testsRun) {
+            fingerprints.add(fingerprint);
+        }
+    }
+
+    @Test
+    void fingerprintsAreKeptInSnapshot() throws Exception {
+        FingerprintCollector fromXml = new FingerprintCollector();
+        MutationsSnapshot.read(ReportReaders.XML, xml, snapshot, fromXml::resolve, fromXml);
+        assertEquals(3, Set.copyOf(fromXml.fingerprints).size());
+
+        spoilReportKeepingFingerprint();
+        FingerprintCollector fromSnapshot = new FingerprintCollector();
+        MutationsSnapshot.read(ReportReaders.XML, xml, snapshot, fromSnapshot::resolve, fromSnapshot);
+        assertEquals(fromXml.fingerprints, fromSnapshot.fingerprints);
+    }
+
+    /**
+     * Keeps descriptions as given, as a recorder that holds them lazily would.
+     */
+    private static class LazyCollector extends RecorderFake {
+        private final List<CharSequence> descriptions = new ArrayList<>();
+
+        @Override
+        public void recordLazily(String pkg, VirtualFile file, String methodName, MutationImpact impact, int lineNumber, CharSequence description,
+                                 List<String> killingTests, List<String> succeedingTests, long fingerprint, int testsRun) {
+            descriptions.add(description);
+        }
+    }
+
+    private List<CharSequence> readLazily(File report, File snapshot) throws InvalidMutatedFileException {
+        LazyCollector collector = new LazyCollector();
+        MutationsSnapshot.read(ReportReaders.XML, report, snapshot, collector::resolve, collector, true);
+        return collector.descriptions;
+    }
+
+    @Test
+    void descriptionsAreDecodedFromSnapshotWhenRead() throws Exception {
+        read();
+        List<CharSequence> descriptions = readLazily(xml, snapshot);
+
+        assertEquals(3, descriptions.size());
+        assertTrue(descriptions.get(0) instanceof StoredDescription);
+        assertEquals(List.of("n\u00e9gated conditional", "negated conditional", "removed call"),
+                descriptions.stream().map(CharSequence::toString).toList());
+    }
+
+    @Test
+    void descriptionsAreKeptWhenSnapshotIsReplaced() throws Exception {
+        read();
+        List<CharSequence> descriptions = readLazily(xml, snapshot);
+        Files.writeString(xml.toPath(), REPORT.replace("removed call", "replaced return"));
+        assertTrue(xml.setLastModified(xml.lastModified() + 2000));
+
+        assertEquals("|D.java|m|RUN_ERROR|0|replaced return", read().get(2));
+        assertEquals("removed call", descriptions.get(2).toString());
+        assertEquals("replaced return", readLazily(xml, snapshot).get(2).toString());
+    }
+
+    @Test
+    void descriptionsCompareByContent() throws Exception {
+        read();
+        File otherDir = new File(dir, "other");
+        assertTrue(otherDir.mkdir());
+        File otherXml = new File(otherDir, xml.getName());
+        File otherSnapshot = new File(otherDir, snapshot.getName());
+        Files.writeString(otherXml.toPath(), REPORT.replace("removed call", "replaced return"));
+        RecorderFake collector = new RecorderFake();
+        MutationsSnapshot.read(ReportReaders.XML, otherXml, otherSnapshot, collector::resolve, collector);
+
+        List<CharSequence> these = readLazily(xml, snapshot);
+        List<CharSequence> others = readLazily(otherXml, otherSnapshot);
+        assertEquals(these.get(0), others.get(0));
+        assertNotEquals(these.get(2), others.get(2));
+
+        Mutation stored = new Mutation("m", 20, MutationImpact.SURVIVED, these.get(1));
+        assertEquals(new Mutation("m", 20, MutationImpact.SURVIVED, "negated conditional"), stored);
+        assertEquals(new Mutation("m", 20, MutationImpact.SURVIVED, others.get(1)), stored);
+        assertNotEquals(new Mutation("m", 20, MutationImpact.SURVIVED, "removed call"), stored);
+    }
+}
@@ -0,0 +1,74 @@
+package org.pitestidea.reader;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MutationsXmlParserTest {
+
+    private static String mutation(int line, String identity) {
+        return "<mutation detected='true' status='KILLED'><sourceFile>C.java</sourceFile><mutatedClass>a.C</mutatedClass>"
+                + "<mutatedMethod>m</mutatedMethod><methodDescription>()V</methodDescription><lineNumber>" + line + "</lineNumber>"
+                + identity + "<description>negated conditional</description></mutation>\n";
+    }
+
+    private static List<Long> fingerprints(String... mutations) throws Exception {
+        String report = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<mutations>\n" + String.join("", mutations) + "</mutations>\n";
+        List<Long> fingerprints = new ArrayList<>();
+        MutationsXmlParser.parse(new ByteArrayInputStream(report.getBytes(StandardCharsets.UTF_8)), new File("mutations.xml"),
+                pending -> fingerprints.add(pending.fingerprint()));
+        return fingerprints;
+    }
+
+    @Test
+    void fingerprintIgnoresLineNumber() throws Exception {
+        String identity = "<mutator>org.pitest.M</mutator><indexes><index>5</index></indexes><blocks><block>1</block></blocks>";
+        List<Long> fingerprints = fingerprints(mutation(10, identity), mutation(14, identity));
+        assertEquals(fingerprints.get(0), fingerprints.get(1));
+    }
+
+    @Test
+    void fingerprintDistinguishesMutatorsIndexesAndBlocks() throws Exception {
+        List<Long> fingerprints = fingerprints(
+                mutation(10, "<mutator>org.pitest.M</mutator><indexes><index>5</index></indexes><blocks><block>1</block></blocks>"),
+                mutation(10, "<mutator>org.pitest.N</mutator><indexes><index>5</index></indexes><blocks><block>1</block></blocks>"),
+                mutation(10, "<mutator>org.pitest.M</mutator><indexes><index>6</index></indexes><blocks><block>1</block></blocks>"),
+                mutation(10, "<mutator>org.pitest.M</mutator><indexes><index>5</index><index>6</index></indexes><blocks><block>1</block></blocks>"),
+                mutation(10, "<mutator>org.pitest.M</mutator><indexes><index>5</index></indexes><blocks><block>2</block></blocks>"),
+                mutation(10, ""));
+        assertEquals(fingerprints.size(), fingerprints.stream().distinct().count());
+    }
+
+    @Test
+    void fingerprintDistinguishesOverloads() throws Exception {
+        String identity = "<mutator>org.pitest.M</mutator><indexes><index>5</index></indexes>";
+        List<Long> fingerprints = fingerprints(mutation(10, identity), mutation(10, identity).replace("()V", "(I)V"));
+        assertNotEquals(fingerprints.get(0), fingerprints.get(1));
+    }
+
+    @Test
+    void numberOfTestsRunIsRead() throws Exception {
+        String report = "<mutations><mutation status='KILLED' numberOfTestsRun='12'><sourceFile>C.java</sourceFile><mutatedClass>C</mutatedClass>"
+                + "<mutatedMethod>m</mutatedMethod><lineNumber>1</lineNumber><description>d</description></mutation>"
+                + "<mutation status='KILLED'><sourceFile>C.java</sourceFile><mutatedClass>C</mutatedClass>"
+                + "<mutatedMethod>m</mutatedMethod><lineNumber>1</lineNumber><description>d</description></mutation></mutations>";
+        List<Integer> testsRun = new ArrayList<>();
+        MutationsXmlParser.parse(new ByteArrayInputStream(report.getBytes(StandardCharsets.UTF_8)), new File("mutations.xml"),
+                pending -> testsRun.add(pending.testsRun()));
+        assertEquals(List.of(12, 0), testsRun);
+    }
+
+    @Test
+    void olderReportsWithSingleIndexAndBlockMatchNewerOnes() throws Exception {
+        List<Long> fingerprints = fingerprints(
+                mutation(10, "<mutator>org.pitest.M</mutator><index>5</index><block>1</block>"),
+                mutation(10, "<mutator>org.pitest.M</mutator><indexes><index>5</index></indexes><blocks><block>1</block></blocks>"));
+        assertEquals(fingerprints.get(0), fingerprints.get(1));
+    }
+}
@@ -0,0 +1,96 @@
+package org.pitestidea.reader;
+
+import com.intellij.openapi.vfs.VirtualFile;
+import org.junit.jupiter.api.Test;
+import org.pitestidea.reader.fakes.RootFake;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReadActionResolverTest {
+    private final Map<String, VirtualFile> files = new HashMap<>();
+    private final List<String> lookedUp = new ArrayList<>();
+    private int readActions = 0;
+
+    private VirtualFile lookup(String path) {
+        lookedUp.add(path);
+        return path.startsWith("missing") ? null : files.computeIfAbsent(path, p -> new RootFake(p, "java", false));
+    }
+
+    private ReadActionResolver resolver() {
+        return new ReadActionResolver(this::lookup, task -> {
+            readActions++;
+            task.run();
+        });
+    }
+
+    @Test
+    public void prefetchedPathsAreLookedUpInBatches() {
+        ReadActionResolver resolver = resolver();
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i < ReadActionResolver.BATCH_SIZE * 2 + 1; i++) {
+            paths.add("a/F" + i + ".java");
+            paths.add("a/F" + i + ".java");
+        }
+        ReadActionResolver.prefetch(resolver, paths);
+        assertEquals(3, readActions);
+        assertEquals(ReadActionResolver.BATCH_SIZE * 2 + 1, lookedUp.size());
+
+        assertSame(files.get("a/F0.java"), resolver.apply("a/F0.java"));
+        assertEquals(3, readActions);
+    }
+
+    @Test
+    public void eachPathIsLookedUpOnce() {
+        ReadActionResolver resolver = resolver();
+        assertNotNull(resolver.apply("a/F.java"));
+        assertNull(resolver.apply("missing/G.java"));
+        assertNotNull(resolver.apply("a/F.java"));
+        assertNull(resolver.apply("missing/G.java"));
+        assertEquals(List.of("a/F.java", "missing/G.java"), lookedUp);
+        assertEquals(2, readActions);
+    }
+
+    @Test
+    public void restartedBatchSkipsPathsAlreadyLookedUp() {
+        boolean[] interrupted = {false};
+        ReadActionResolver resolver = new ReadActionResolver(path -> {
+            if (path.equals("a/G.java") && !interrupted[0]) {
+                interrupted[0] = true;
+                throw new IllegalStateException("write action pending");
+            }
+            return lookup(path);
+        }, task -> {
+            try {
+                task.run();
+            } catch (IllegalStateException e) {
+                task.run();
+            }
+        });
+        ReadActionResolver.prefetch(resolver, List.of("a/F.java", "a/G.java", "a/H.java"));
+        assertEquals(List.of("a/F.java", "a/G.java", "a/H.java"), lookedUp);
+    }
+
+    @Test
+    public void observerSeesResolvedFilesAndSharesLookups() {
+        ReadActionResolver resolver = resolver();
+        ReadActionResolver.prefetch(resolver, List.of("a/F.java", "missing/G.java"));
+        Map<String, VirtualFile> seen = new HashMap<>();
+        Function<String, VirtualFile> observing = resolver.observing(seen::put);
+        observing.apply("a/F.java");
+        observing.apply("missing/G.java");
+        assertEquals(Map.of("a/F.java", files.get("a/F.java")), seen);
+        assertEquals(1, readActions);
+    }
+
+    @Test
+    public void otherResolversAreNotPrefetched() {
+        ReadActionResolver.prefetch(this::lookup, List.of("a/F.java"));
+        assertTrue(lookedUp.isEmpty());
+    }
+}
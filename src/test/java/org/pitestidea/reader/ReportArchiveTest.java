@@ -0,0 +1,87 @@
+package org.pitestidea.reader;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Set;
+import java.util.zip.ZipFile;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportArchiveTest {
+    private static final String REPORT = "<mutations>" + "<mutation/>".repeat(1000) + "</mutations>";
+
+    @TempDir
+    File dir;
+    private File report;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        report = new File(dir, "mutations.xml");
+        Files.writeString(report.toPath(), REPORT);
+        Files.writeString(new File(dir, "run.xml").toPath(), "<run/>");
+        File html = new File(dir, "a/b");
+        assertTrue(html.mkdirs());
+        Files.writeString(new File(html, "index.html").toPath(), "<html/>");
+    }
+
+    private static String read(File report) throws IOException {
+        try (InputStream in = ReportArchive.open(report)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    void packedFilesAreReadInPlace() throws IOException {
+        long lastModified = report.lastModified();
+        ReportArchive.pack(dir, Set.of("run.xml"));
+
+        assertTrue(ReportArchive.isPacked(dir));
+        assertFalse(report.exists());
+        assertTrue(ReportArchive.exists(report));
+        assertEquals(REPORT, read(report));
+        assertEquals(REPORT.length(), ReportArchive.length(report));
+        assertEquals(lastModified / 1000, ReportArchive.lastModified(report) / 1000);
+        try (ZipFile zip = new ZipFile(new File(dir, ReportArchive.ARCHIVE_NAME))) {
+            assertNotNull(zip.getEntry("a/b/index.html"));
+            assertNull(zip.getEntry("run.xml"));
+        }
+        assertTrue(new File(dir, "run.xml").isFile());
+        assertFalse(new File(dir, "a").exists());
+        assertTrue(new File(dir, ReportArchive.ARCHIVE_NAME).length() < REPORT.length());
+    }
+
+    @Test
+    void unpackedFilesAreReadDirectly() throws IOException {
+        assertFalse(ReportArchive.isPacked(dir));
+        assertTrue(ReportArchive.exists(report));
+        assertEquals(REPORT, read(report));
+        assertEquals(report.length(), ReportArchive.length(report));
+    }
+
+    @Test
+    void missingFile() throws IOException {
+        File missing = new File(dir, "mutations.csv");
+        assertFalse(ReportArchive.exists(missing));
+        assertThrows(IOException.class, () -> ReportArchive.open(missing));
+        ReportArchive.pack(dir, Set.of());
+        assertFalse(ReportArchive.exists(missing));
+        assertEquals(0, ReportArchive.length(missing));
+        assertThrows(IOException.class, () -> ReportArchive.open(missing));
+    }
+
+    @Test
+    void packedFingerprintIsReadFromArchive() throws IOException {
+        ReportArchive.pack(dir, Set.of());
+        ReportFingerprint fingerprint = ReportFingerprint.of(report);
+        assertEquals(REPORT.length(), fingerprint.length());
+        assertTrue(fingerprint.matchesAttributes(report));
+        assertTrue(fingerprint.sameContent(ReportFingerprint.of(report)));
+    }
+}
@@ -0,0 +1,59 @@
+package org.pitestidea.reader;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportFingerprintTest {
+    @TempDir
+    File dir;
+    private File file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = new File(dir, "mutations.xml");
+        Files.writeString(file.toPath(), "<mutations></mutations>");
+    }
+
+    @Test
+    void unchangedFileMatches() throws IOException {
+        ReportFingerprint fingerprint = ReportFingerprint.of(file);
+        assertEquals(file.length(), fingerprint.length());
+        assertTrue(fingerprint.matchesAttributes(file));
+        assertTrue(fingerprint.sameContent(ReportFingerprint.of(file)));
+    }
+
+    @Test
+    void rewrittenWithSameContent() throws IOException {
+        ReportFingerprint fingerprint = ReportFingerprint.of(file);
+        Files.writeString(file.toPath(), "<mutations></mutations>");
+        assertTrue(file.setLastModified(fingerprint.lastModified() + 2000));
+
+        assertFalse(fingerprint.matchesAttributes(file));
+        assertTrue(fingerprint.sameContent(ReportFingerprint.of(file)));
+    }
+
+    @Test
+    void changedContentOfSameSizeAndTime() throws IOException {
+        ReportFingerprint fingerprint = ReportFingerprint.of(file);
+        Files.writeString(file.toPath(), "<mutations></mutationz>");
+        assertTrue(file.setLastModified(fingerprint.lastModified()));
+
+        assertTrue(fingerprint.matchesAttributes(file));
+        assertFalse(fingerprint.sameContent(ReportFingerprint.of(file)));
+    }
+
+    @Test
+    void missingFile() throws IOException {
+        ReportFingerprint fingerprint = ReportFingerprint.of(file);
+        assertTrue(file.delete());
+        assertFalse(fingerprint.matchesAttributes(file));
+        assertThrows(IOException.class, () -> ReportFingerprint.of(file));
+    }
+}
@@ -0,0 +1,20 @@
+package org.pitestidea.reader.fakes;
+
+/**
+ * Compiled only for its bytecode, which coverage tests map back to lines. Those tests depend on how the
+ * statements here are laid out relative to each other, not on which lines they are on.
+ */
+public class CoverageFixture {
+    public static int abs(int x) {
+        if (x < 0) {
+            return -x;
+        }
+        return x;
+    }
+
+    public static class Inner {
+        public int twice(int x) {
+            return x * 2;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package org.pitestidea.reader.fakes;
+
+import com.intellij.openapi.vfs.VirtualFile;
+import org.pitestidea.model.MutationImpact;
+import org.pitestidea.reader.IMutationsRecorder;
+import org.pitestidea.toolwindow.DisplayChoices;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Records what a reader sends it as text, for tests to compare with what they expect. Files are made by
+ * {@link #resolve(String)}, a distinct one per path, so that each mutation recorded shows the path of its file.
+ * Every resolution, mutation and post-processing is also logged in the order made, see {@link #getCalls()}.
+ */
+public class RecorderFake implements IMutationsRecorder {
+    private final List<String> calls = new ArrayList<>();
+    private final List<String> recorded = new ArrayList<>();
+    private final List<String> tests = new ArrayList<>();
+    private final List<String> resolved = new ArrayList<>();
+    private final Map<String, VirtualFile> files = new HashMap<>();
+    private final Map<VirtualFile, String> paths = new HashMap<>();
+    private final Map<String, BitSet> coverage = new HashMap<>();
+    private boolean expectingTests = false;
+    private String missing = null;
+    private boolean postProcessed = false;
+
+    /**
+     * Fails any mutation recorded without its tests, and records the tests with each mutation.
+     *
+     * @return this
+     */
+    public RecorderFake expectingTests() {
+        expectingTests = true;
+        return this;
+    }
+
+    /**
+     * Resolves paths containing some text to no file, as for files missing from the project.
+     *
+     * @param text in the paths of missing files
+     * @return this
+     */
+    public RecorderFake missing(String text) {
+        missing = text;
+        return this;
+    }
+
+    /**
+     * @param path of a source file, as a reader asks for it
+     * @return the file made for the path, or null if it is missing
+     */
+    public VirtualFile resolve(String path) {
+        calls.add("resolve " + path);
+        resolved.add(path);
+        if (missing != null && path.contains(missing)) {
+            return null;
+        }
+        VirtualFile file = files.get(path);
+        if (file == null) {
+            file = new RootFake("x" + (files.size() + 1), "java", false);
+            files.put(path, file);
+            paths.put(file, path);
+        }
+        return file;
+    }
+
+    @Override
+    public void record(String pkg, VirtualFile file, String methodName, MutationImpact impact, int lineNumber, String description) {
+        if (expectingTests) {
+            fail("Tests should be recorded");
+        }
+        add(pkg, file, methodName, impact, lineNumber, description);
+    }
+
+    @Override
+    public void record(String pkg, VirtualFile file, String methodName, MutationImpact impact, int lineNumber, String description,
+                       List<String> killingTests, List<String> succeedingTests) {
+        tests.add(killingTests + " " + succeedingTests);
+        if (expectingTests) {
+            add(pkg, file, methodName, impact, lineNumber, description + '|' + killingTests + '|' + succeedingTests);
+        } else {
+            record(pkg, file, methodName, impact, lineNumber, description);
+        }
+    }
+
+    /**
+     * Adds a mutation, with the path of its file if the file was made here.
+     */
+    private void add(String pkg, VirtualFile file, String methodName, MutationImpact impact, int lineNumber, String description) {
+        assertFalse(postProcessed);
+        String path = paths.get(file);
+        String mutation = pkg + '|' + (path == null ? "" : path + '|') + methodName + '|' + impact + '|' + lineNumber + '|' + description;
+        recorded.add(mutation);
+        calls.add(mutation);
+    }
+
+    @Override
+    public void recordCoverage(VirtualFile file, BitSet coveredLines) {
+        assertNull(coverage.put(paths.get(file), coveredLines));
+    }
+
+    @Override
+    public void postProcess() {
+        postProcessed = true;
+        calls.add("postProcess");
+    }
+
+    @Override
+    public void sort(DisplayChoices choices) {
+    }
+
+    /**
+     * @return paths resolved, mutations recorded and post-processing, in the order made
+     */
+    public List<String> getCalls() {
+        return calls;
+    }
+
+    /**
+     * @return each mutation recorded, as package, path of its file, method, impact, line and description
+     */
+    public List<String> getRecorded() {
+        return recorded;
+    }
+
+    /**
+     * @return the killing and then succeeding tests of each mutation recorded with its tests
+     */
+    public List<String> getTests() {
+        return tests;
+    }
+
+    /**
+     * @return each path asked for, in order
+     */
+    public List<String> getResolved() {
+        return resolved;
+    }
+
+    /**
+     * @return lines covered, by path of file
+     */
+    public Map<String, BitSet> getCoverage() {
+        return coverage;
+    }
+
+    public boolean isPostProcessed() {
+        return postProcessed;
+    }
+}